@@ -0,0 +1,80 @@
+package org.pepsoft.worldpainter.benchmarks;
+
+import org.pepsoft.util.Box;
+import org.pepsoft.worldpainter.exporting.BlockPropertiesCalculator;
+import org.pepsoft.worldpainter.exporting.WorldRegion;
+import org.pepsoft.worldpainter.platforms.JavaExportSettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.pepsoft.minecraft.Material.GLOWSTONE;
+import static org.pepsoft.minecraft.Material.TORCH;
+import static org.pepsoft.worldpainter.benchmarks.Fixtures.*;
+
+/**
+ * Measures the two passes of the lighting and block properties calculation over a 4x4 chunk area of synthetic
+ * terrain with light sources. Every invocation starts from a freshly generated, unlit area.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BlockPropertiesCalculatorBenchmark {
+    @Setup(Level.Trial)
+    public void initialise() {
+        Fixtures.initialise();
+    }
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        world = new WorldRegion(0, 0, MIN_HEIGHT, MAX_HEIGHT, PLATFORM);
+        for (int chunkX = 0; chunkX < CHUNKS; chunkX++) {
+            for (int chunkZ = 0; chunkZ < CHUNKS; chunkZ++) {
+                world.addChunk(createChunk(chunkX, chunkZ));
+            }
+        }
+        for (int i = 0; i < CHUNKS * CHUNKS * 4; i++) {
+            final int x = (i * 37) % (CHUNKS * 16), z = (i * 53) % (CHUNKS * 16);
+            world.setMaterialAt(x, z, 70, ((i % 2) == 0) ? TORCH : GLOWSTONE);
+        }
+        dirtyArea = null;
+    }
+
+    @Benchmark
+    public BlockPropertiesCalculator firstPass() {
+        final BlockPropertiesCalculator calculator = new BlockPropertiesCalculator(world, PLATFORM, null, EXPORT_SETTINGS);
+        doFirstPass(calculator);
+        return calculator;
+    }
+
+    @Benchmark
+    public BlockPropertiesCalculator firstPassAndPropagate() {
+        final BlockPropertiesCalculator calculator = new BlockPropertiesCalculator(world, PLATFORM, null, EXPORT_SETTINGS);
+        doFirstPass(calculator);
+        calculator.setDirtyArea(dirtyArea);
+        calculator.propagate();
+        calculator.finalise();
+        return calculator;
+    }
+
+    private void doFirstPass(BlockPropertiesCalculator calculator) {
+        int lowMark = Integer.MAX_VALUE, highMark = Integer.MIN_VALUE;
+        for (int chunkX = 0; chunkX < CHUNKS; chunkX++) {
+            for (int chunkZ = 0; chunkZ < CHUNKS; chunkZ++) {
+                final int[] levels = calculator.firstPass(world.getChunk(chunkX, chunkZ));
+                lowMark = Math.min(lowMark, levels[0]);
+                highMark = Math.max(highMark, levels[1]);
+            }
+        }
+        dirtyArea = new Box(0, CHUNKS * 16, lowMark, highMark + 1, 0, CHUNKS * 16);
+    }
+
+    private WorldRegion world;
+    private Box dirtyArea;
+
+    private static final int CHUNKS = 4;
+    private static final JavaExportSettings EXPORT_SETTINGS = new JavaExportSettings();
+}
@@ -0,0 +1,54 @@
+package org.pepsoft.worldpainter.benchmarks;
+
+import org.jnbt.CompoundTag;
+import org.jnbt.Tag;
+import org.openjdk.jmh.annotations.*;
+import org.pepsoft.minecraft.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonMap;
+import static org.pepsoft.minecraft.DataType.REGION;
+import static org.pepsoft.worldpainter.benchmarks.Fixtures.*;
+
+/**
+ * Measures serialising a chunk to, and parsing it from, uncompressed NBT data, using the regular JNBT based codec and
+ * the streaming codec for 1.18+ chunks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChunkCodecBenchmark {
+    @Setup
+    public void setup() {
+        codec = codecName.equals("mc118") ? MC118AnvilChunkCodec.INSTANCE : JNBTChunkCodec.INSTANCE;
+        chunk = createChunk(0, 0);
+        chunkData = toNBT(chunk);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(chunkData.length);
+        codec.writeTag(codec.toMultipleNBT(chunk).get(REGION), out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Chunk read() throws IOException {
+        final Tag tag = codec.readTag(new ByteArrayInputStream(chunkData));
+        return new MC118AnvilChunk(singletonMap(REGION, (CompoundTag) tag), MIN_HEIGHT, MAX_HEIGHT);
+    }
+
+    @Param({"jnbt", "mc118"})
+    public String codecName;
+
+    private ChunkCodec codec;
+    private MC118AnvilChunk chunk;
+    private byte[] chunkData;
+}
@@ -0,0 +1,37 @@
+package org.pepsoft.worldpainter.benchmarks;
+
+import org.pepsoft.minecraft.ChunkFactory.ChunkCreationResult;
+import org.pepsoft.worldpainter.exporting.WorldPainterChunkFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptyMap;
+import static org.pepsoft.worldpainter.benchmarks.Fixtures.*;
+
+/**
+ * Measures the creation of chunks from a dimension without any layers, which is the first phase of every export.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChunkFactoryBenchmark {
+    @Setup
+    public void setup() {
+        initialise();
+        chunkFactory = new WorldPainterChunkFactory(createDimension(1), emptyMap(), PLATFORM, MAX_HEIGHT);
+    }
+
+    @Benchmark
+    public ChunkCreationResult createChunk() {
+        // Cycle through the 64 chunks of the tile
+        final int chunk = (chunkNo++) & 0x3f;
+        return chunkFactory.createChunk(chunk & 0x7, chunk >> 3);
+    }
+
+    private WorldPainterChunkFactory chunkFactory;
+    private int chunkNo;
+}
@@ -0,0 +1,60 @@
+package org.pepsoft.worldpainter.benchmarks;
+
+import org.pepsoft.minecraft.MC118AnvilChunk;
+import org.pepsoft.minecraft.Material;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.pepsoft.minecraft.Material.*;
+import static org.pepsoft.worldpainter.benchmarks.Fixtures.*;
+
+/**
+ * Measures getting and setting materials in a Minecraft 1.18+ chunk, which is what most exporters spend their time on.
+ * Each invocation visits every block of the chunk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChunkMaterialBenchmark {
+    @Setup
+    public void setup() {
+        chunk = createChunk(0, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS_PER_CHUNK)
+    public void getMaterial(Blackhole blackhole) {
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                for (int y = MIN_HEIGHT; y < MAX_HEIGHT; y++) {
+                    blackhole.consume(chunk.getMaterial(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS_PER_CHUNK)
+    public void setMaterial() {
+        // Alternate between two sets of materials so that the palettes change, as they would during an export
+        final Material[] materials = MATERIALS[(invocation++) & 0x1];
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                for (int y = MIN_HEIGHT; y < MAX_HEIGHT; y++) {
+                    chunk.setMaterial(x, y, z, materials[(x + y + z) & 0x3]);
+                }
+            }
+        }
+    }
+
+    private MC118AnvilChunk chunk;
+    private int invocation;
+
+    private static final int BLOCKS_PER_CHUNK = 16 * 16 * 384;
+    private static final Material[][] MATERIALS = {{STONE, DIRT, GRAVEL, AIR}, {STONE, GRANITE, WATER, AIR}};
+}
@@ -0,0 +1,95 @@
+package org.pepsoft.worldpainter.benchmarks;
+
+import org.pepsoft.worldpainter.Dimension;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE;
+import static org.pepsoft.worldpainter.benchmarks.Fixtures.createDimension;
+import static org.pepsoft.worldpainter.benchmarks.Fixtures.initialise;
+
+/**
+ * Measures looking up heights in a dimension by world coordinates, which the exporters, renderers and brushes do for
+ * nearly every block they process. Coordinates are visited in scan line order, which mostly hits the same tile, in
+ * random order across 16x16 tiles, and as the 3x3 neighbourhood of every block of an area centred on the corner where
+ * four tiles meet, as the slope and smoothing calculations do, so that many lookups cross tile borders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DimensionBenchmark {
+    @Setup
+    public void setup() {
+        initialise();
+        dimension = createDimension(TILES);
+        final Random random = new Random(0);
+        for (int i = 0; i < COORDINATE_COUNT; i++) {
+            randomXs[i] = random.nextInt(TILES * TILE_SIZE);
+            randomYs[i] = random.nextInt(TILES * TILE_SIZE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TILE_SIZE * TILE_SIZE)
+    public int getIntHeightAtSequential() {
+        int total = 0;
+        for (int y = 0; y < TILE_SIZE; y++) {
+            for (int x = 0; x < TILE_SIZE; x++) {
+                total += dimension.getIntHeightAt(x, y);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COORDINATE_COUNT)
+    public int getIntHeightAtRandom() {
+        int total = 0;
+        for (int i = 0; i < COORDINATE_COUNT; i++) {
+            total += dimension.getIntHeightAt(randomXs[i], randomYs[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TILE_SIZE * TILE_SIZE * 9)
+    public int getIntHeightAtAcrossTileBorders() {
+        int total = 0;
+        for (int y = TILE_SIZE / 2; y < TILE_SIZE * 3 / 2; y++) {
+            for (int x = TILE_SIZE / 2; x < TILE_SIZE * 3 / 2; x++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        total += dimension.getIntHeightAt(x + dx, y + dy);
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TILE_SIZE * TILE_SIZE * 9)
+    public float getHeightAtAcrossTileBorders() {
+        float total = 0;
+        for (int y = TILE_SIZE / 2; y < TILE_SIZE * 3 / 2; y++) {
+            for (int x = TILE_SIZE / 2; x < TILE_SIZE * 3 / 2; x++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        total += dimension.getHeightAt(x + dx, y + dy);
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    private Dimension dimension;
+    private final int[] randomXs = new int[COORDINATE_COUNT], randomYs = new int[COORDINATE_COUNT];
+
+    private static final int TILES = 16, COORDINATE_COUNT = 16384;
+}
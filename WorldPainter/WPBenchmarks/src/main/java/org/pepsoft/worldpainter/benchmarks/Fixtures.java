@@ -0,0 +1,106 @@
+package org.pepsoft.worldpainter.benchmarks;
+
+import org.jnbt.NBTOutputStream;
+import org.pepsoft.minecraft.MC118AnvilChunk;
+import org.pepsoft.minecraft.Material;
+import org.pepsoft.worldpainter.*;
+import org.pepsoft.worldpainter.heightMaps.NoiseHeightMap;
+import org.pepsoft.worldpainter.plugins.WPPluginManager;
+import org.pepsoft.worldpainter.themes.SimpleTheme;
+import org.pepsoft.worldpainter.themes.Theme;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+import static org.pepsoft.minecraft.DataType.REGION;
+import static org.pepsoft.minecraft.Material.*;
+import static org.pepsoft.worldpainter.Dimension.Anchor.NORMAL_DETAIL;
+import static org.pepsoft.worldpainter.Terrain.GRASS;
+
+/**
+ * Synthetic fixtures for the benchmarks, so that they do not depend on any existing worlds or maps and produce
+ * comparable results on any machine.
+ */
+final class Fixtures {
+    private Fixtures() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Initialise the plugins, and thereby the platform providers. Must be invoked before any fixtures are created.
+     */
+    static synchronized void initialise() {
+        if (! initialised) {
+            WPPluginManager.initialise(null, WPContext.INSTANCE);
+            initialised = true;
+        }
+    }
+
+    /**
+     * Create a dimension of {@code size} by {@code size} tiles, starting at tile 0,0, with hilly terrain of which part
+     * is under water.
+     */
+    static Dimension createDimension(int size) {
+        final TileFactory tileFactory = new HeightMapTileFactory(SEED, new NoiseHeightMap(40f, 1.0, 1, SEED).plus(48), MIN_HEIGHT, MAX_HEIGHT, false, THEME);
+        final Dimension dimension = new Dimension(WORLD, "Surface", SEED, tileFactory, NORMAL_DETAIL);
+        for (int tileX = 0; tileX < size; tileX++) {
+            for (int tileY = 0; tileY < size; tileY++) {
+                dimension.addTile(tileFactory.createTile(tileX, tileY));
+            }
+        }
+        return dimension;
+    }
+
+    /**
+     * Create a chunk filled with typical terrain: deepslate, stone with some ores, dirt, grass and the occasional
+     * cave.
+     */
+    static MC118AnvilChunk createChunk(int chunkX, int chunkZ) {
+        final MC118AnvilChunk chunk = new MC118AnvilChunk(chunkX, chunkZ, MIN_HEIGHT, MAX_HEIGHT);
+        final Random random = new Random(SEED + chunkX * 31L + chunkZ);
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                final int height = 60 + random.nextInt(8);
+                for (int y = MIN_HEIGHT; y <= height; y++) {
+                    final Material material;
+                    if (y == MIN_HEIGHT) {
+                        material = BEDROCK;
+                    } else if (y == height) {
+                        material = GRASS_BLOCK;
+                    } else if (y > (height - 4)) {
+                        material = DIRT;
+                    } else if (random.nextInt(50) == 0) {
+                        material = random.nextBoolean() ? AIR : IRON_ORE;
+                    } else {
+                        material = (y < 0) ? DEEPSLATE_Y : STONE;
+                    }
+                    chunk.setMaterial(x, y, z, material);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Serialise a chunk to uncompressed NBT, as it would be stored in a region file.
+     */
+    static byte[] toNBT(MC118AnvilChunk chunk) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (NBTOutputStream out = new NBTOutputStream(bytes)) {
+            out.writeTag(chunk.toMultipleNBT().get(REGION));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static final Platform PLATFORM = DefaultPlugin.JAVA_ANVIL_1_19;
+    static final int MIN_HEIGHT = PLATFORM.minZ, MAX_HEIGHT = PLATFORM.standardMaxHeight;
+    static final World2 WORLD = new World2(PLATFORM, MIN_HEIGHT, MAX_HEIGHT);
+    static final long SEED = 0L;
+    static final Theme THEME = SimpleTheme.createSingleTerrain(GRASS, MIN_HEIGHT, MAX_HEIGHT, 62);
+
+    private static boolean initialised;
+}
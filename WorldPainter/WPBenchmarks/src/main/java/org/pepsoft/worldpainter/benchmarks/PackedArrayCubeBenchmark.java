@@ -0,0 +1,61 @@
+package org.pepsoft.worldpainter.benchmarks;
+
+import org.pepsoft.minecraft.Material;
+import org.pepsoft.util.PackedArrayCube;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.pepsoft.minecraft.Material.*;
+
+/**
+ * Measures packing and unpacking the block states of a 16x16x16 chunk section, which happens for every section that
+ * is loaded or saved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PackedArrayCubeBenchmark {
+    /**
+     * The number of distinct materials in the section, which determines the number of bits per block.
+     */
+    @Param({"2", "12", "40"})
+    public int paletteSize;
+
+    @Setup
+    public void setup() {
+        final Material[] palette = new Material[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            palette[i] = MATERIALS[i % MATERIALS.length].withProperty(WATERLOGGED, (i / MATERIALS.length) % 2 == 1);
+        }
+        final Random random = new Random(0);
+        cube = new PackedArrayCube<>(16, 4, false, Material.class);
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    cube.setValue(x, y, z, palette[random.nextInt(paletteSize)]);
+                }
+            }
+        }
+        packedData = cube.pack();
+    }
+
+    @Benchmark
+    public PackedArrayCube<Material>.PackedData pack() {
+        return cube.pack();
+    }
+
+    @Benchmark
+    public PackedArrayCube<Material> unpack() {
+        return new PackedArrayCube<>(16, packedData.data, packedData.palette, 4, false, Material.class);
+    }
+
+    private PackedArrayCube<Material> cube;
+    private PackedArrayCube<Material>.PackedData packedData;
+
+    private static final Material[] MATERIALS = {STONE, DIRT, GRAVEL, GRANITE, DIORITE, ANDESITE, SAND, CLAY, COBBLESTONE, MOSSY_COBBLESTONE, OBSIDIAN, GLASS, SANDSTONE, BRICKS, BEDROCK, SNOW_BLOCK, ICE, NETHERRACK, GLOWSTONE, WATER};
+}
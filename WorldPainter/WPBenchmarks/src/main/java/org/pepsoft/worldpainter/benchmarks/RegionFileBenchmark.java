@@ -0,0 +1,98 @@
+package org.pepsoft.worldpainter.benchmarks;
+
+import org.pepsoft.minecraft.ChunkCompression;
+import org.pepsoft.minecraft.RegionFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.zip.Deflater.DEFAULT_COMPRESSION;
+import static org.pepsoft.util.FileUtils.deleteDir;
+import static org.pepsoft.worldpainter.benchmarks.Fixtures.createChunk;
+import static org.pepsoft.worldpainter.benchmarks.Fixtures.toNBT;
+
+/**
+ * Measures writing and reading (and thereby compressing and decompressing) chunks to and from a region file with each
+ * of the chunk compression schemes, using the serialised NBT data of a number of synthetic chunks. The size of the
+ * compressed chunks and of the region file is printed at the end of each trial, for comparing the schemes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RegionFileBenchmark {
+    @Setup
+    public void setup() throws IOException {
+        final int separator = compressionName.indexOf(':');
+        compression = ChunkCompression.valueOf((separator != -1) ? compressionName.substring(0, separator) : compressionName);
+        compressionLevel = (separator != -1) ? Integer.parseInt(compressionName.substring(separator + 1)) : DEFAULT_COMPRESSION;
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            chunkData[i] = toNBT(createChunk(i & 0x7, i >> 3));
+        }
+        tempDir = Files.createTempDirectory("wpbenchmark").toFile();
+        file = new File(tempDir, "r.0.0.mca");
+        regionFile = new RegionFile(file);
+        regionFile.setCompression(compression, compressionLevel);
+        for (int i = 0; i < 1024; i++) {
+            writeChunk(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try {
+            long uncompressedSize = 0, compressedSize = 0;
+            for (byte[] data: chunkData) {
+                final ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length);
+                try (DataOutputStream out = RegionFile.getCompressingOutputStream(buffer, compression, compressionLevel)) {
+                    out.write(data);
+                }
+                uncompressedSize += data.length;
+                compressedSize += buffer.size();
+            }
+            regionFile.close();
+            System.out.printf("%n%s: %d bytes per chunk uncompressed, %d bytes per chunk compressed, %d KB region file%n",
+                    compressionName, uncompressedSize / CHUNK_COUNT, compressedSize / CHUNK_COUNT, file.length() / 1024);
+        } finally {
+            deleteDir(tempDir);
+        }
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        writeChunk((chunkNo++) & 0x3ff);
+    }
+
+    @Benchmark
+    public byte[] read() throws IOException {
+        final int index = (chunkNo++) & 0x3ff;
+        try (DataInputStream in = regionFile.getChunkDataInputStream(index & 0x1f, index >> 5)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private void writeChunk(int index) throws IOException {
+        try (DataOutputStream out = regionFile.getChunkDataOutputStream(index & 0x1f, index >> 5)) {
+            out.write(chunkData[index % CHUNK_COUNT]);
+        }
+    }
+
+    /**
+     * The compression scheme, optionally followed by a colon and the compression level.
+     */
+    @Param({"DEFLATE", "DEFLATE:1", "DEFLATE:9", "GZIP", "NONE", "LZ4"})
+    public String compressionName;
+
+    private final byte[][] chunkData = new byte[CHUNK_COUNT][];
+    private ChunkCompression compression;
+    private int compressionLevel;
+    private File tempDir, file;
+    private RegionFile regionFile;
+    private int chunkNo;
+
+    private static final int CHUNK_COUNT = 64;
+}
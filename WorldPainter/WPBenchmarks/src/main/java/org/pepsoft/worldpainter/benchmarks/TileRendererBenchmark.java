@@ -0,0 +1,48 @@
+package org.pepsoft.worldpainter.benchmarks;
+
+import org.pepsoft.worldpainter.ColourScheme;
+import org.pepsoft.worldpainter.Dimension;
+import org.pepsoft.worldpainter.Tile;
+import org.pepsoft.worldpainter.TileRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE;
+import static org.pepsoft.worldpainter.benchmarks.Fixtures.createDimension;
+import static org.pepsoft.worldpainter.benchmarks.Fixtures.initialise;
+
+/**
+ * Measures rendering a tile for the editor view, at 1:1 zoom and zoomed out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class TileRendererBenchmark {
+    @Param({"0", "-2"})
+    public int zoom;
+
+    @Setup
+    public void setup() {
+        initialise();
+        final Dimension dimension = createDimension(1);
+        tile = dimension.getTile(0, 0);
+        tileRenderer = new TileRenderer(dimension, ColourScheme.DEFAULT, null, zoom, false, null);
+        final int size = (zoom < 0) ? (TILE_SIZE >> -zoom) : (TILE_SIZE << zoom);
+        image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Benchmark
+    public BufferedImage renderTile() {
+        tileRenderer.renderTile(tile, image, 0, 0);
+        return image;
+    }
+
+    private Tile tile;
+    private TileRenderer tileRenderer;
+    private BufferedImage image;
+}
@@ -0,0 +1,42 @@
+package org.pepsoft.minecraft;
+
+import org.jnbt.Tag;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Converts chunks to and from the uncompressed NBT data with which they are stored in region files.
+ */
+public interface ChunkCodec {
+    /**
+     * Convert a chunk to tags, one per data type for which the chunk has data. The tags may only be written using
+     * {@link #writeTag(Tag, OutputStream)} of the same codec.
+     *
+     * @param chunk The chunk to convert.
+     * @return The tags to store for the chunk, per data type.
+     */
+    Map<DataType, ? extends Tag> toMultipleNBT(NBTItem chunk);
+
+    /**
+     * Write a tag obtained from {@link #toMultipleNBT(NBTItem)} to a stream as NBT. The stream is flushed but not
+     * closed.
+     *
+     * @param tag The tag to write.
+     * @param out The stream to write the tag to.
+     * @throws IOException If an I/O error occurs while writing the tag.
+     */
+    void writeTag(Tag tag, OutputStream out) throws IOException;
+
+    /**
+     * Read a tag from an NBT stream, in a form suitable for passing to the constructor of the chunk. The stream is not
+     * closed.
+     *
+     * @param in The stream from which to read the tag.
+     * @return The tag that was read.
+     * @throws IOException If an I/O error occurs while reading the tag.
+     */
+    Tag readTag(InputStream in) throws IOException;
+}
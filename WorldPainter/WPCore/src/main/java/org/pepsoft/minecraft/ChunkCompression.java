@@ -0,0 +1,82 @@
+package org.pepsoft.minecraft;
+
+import org.pepsoft.worldpainter.Platform;
+
+import static org.pepsoft.minecraft.Constants.DATA_VERSION_MC_1_15_1;
+import static org.pepsoft.minecraft.Constants.DATA_VERSION_MC_1_20_5;
+import static org.pepsoft.worldpainter.DefaultPlugin.ATTRIBUTE_EXPORT_DATA_VERSION;
+
+/**
+ * The compression schemes which Minecraft supports for chunks stored in region files.
+ */
+public enum ChunkCompression {
+    /**
+     * GZip compression. Supported by all versions of Minecraft but not used by it for writing.
+     */
+    GZIP(1, 0),
+
+    /**
+     * Zlib (deflate) compression. The default, and the only scheme supported by all versions of Minecraft.
+     */
+    DEFLATE(2, 0),
+
+    /**
+     * No compression. Supported by Minecraft 1.15.1 and later.
+     */
+    NONE(3, DATA_VERSION_MC_1_15_1),
+
+    /**
+     * LZ4 compression. Supported by Minecraft 1.20.5 and later.
+     */
+    LZ4(4, DATA_VERSION_MC_1_20_5);
+
+    ChunkCompression(int id, int minimumDataVersion) {
+        this.id = id;
+        this.minimumDataVersion = minimumDataVersion;
+    }
+
+    /**
+     * Indicates whether the version of Minecraft for which maps are exported for a platform can read chunks stored with
+     * this compression scheme.
+     */
+    public boolean isSupportedBy(Platform platform) {
+        if (minimumDataVersion == 0) {
+            return true;
+        }
+        final Integer dataVersion = platform.getAttribute(ATTRIBUTE_EXPORT_DATA_VERSION);
+        return (dataVersion != null) && (dataVersion >= minimumDataVersion);
+    }
+
+    /**
+     * Indicates whether this compression scheme supports a compression level.
+     */
+    public boolean isLevelSupported() {
+        return (this == GZIP) || (this == DEFLATE);
+    }
+
+    /**
+     * Get the compression scheme corresponding to a chunk version byte in a region file.
+     *
+     * @param id The chunk version byte.
+     * @return The corresponding compression scheme, or {@code null} if the version is not known.
+     */
+    public static ChunkCompression forId(int id) {
+        for (ChunkCompression compression: values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The chunk version byte with which this compression scheme is indicated in region files.
+     */
+    public final int id;
+
+    /**
+     * The data version of the oldest version of Minecraft which supports this compression scheme, or zero if all
+     * versions support it.
+     */
+    private final int minimumDataVersion;
+}
@@ -2,6 +2,7 @@ package org.pepsoft.minecraft;
 
 import org.pepsoft.util.mdc.MDCCapturingRuntimeException;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -65,6 +66,21 @@ public interface ChunkStore extends ChunkProvider {
      */
     void saveChunk(Chunk chunk);
 
+    /**
+     * Save a number of chunks to the store. The same guarantees apply as for
+     * {@link #saveChunk(Chunk)}. Implementations may serialise the chunks
+     * concurrently, so the chunks must not be modified while this method is
+     * executing.
+     *
+     * <p>The default implementation invokes {@link #saveChunk(Chunk)} for each
+     * chunk in turn.
+     *
+     * @param chunks The chunks to save.
+     */
+    default void saveChunks(Collection<? extends Chunk> chunks) {
+        chunks.forEach(this::saveChunk);
+    }
+
     /**
      * Run a task, for example saving more than one chunk, in one transaction
      * against the chunk store, which may improve performance.
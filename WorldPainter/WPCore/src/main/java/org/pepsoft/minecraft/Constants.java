@@ -768,6 +768,7 @@ public final class Constants {
 
     public static final int DATA_VERSION_MC_1_12_2 = 1343;
     public static final int DATA_VERSION_MC_1_14_4 = 1976;
+    public static final int DATA_VERSION_MC_1_15_1 = 2227;
     public static final int DATA_VERSION_MC_1_15_2 = 2230;
     public static final int DATA_VERSION_MC_1_16_5 = 2586;
     public static final int DATA_VERSION_MC_1_17   = 2724;
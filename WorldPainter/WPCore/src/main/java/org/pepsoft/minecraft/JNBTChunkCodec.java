@@ -0,0 +1,39 @@
+package org.pepsoft.minecraft;
+
+import org.jnbt.NBTInputStream;
+import org.jnbt.NBTOutputStream;
+import org.jnbt.Tag;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * A {@link ChunkCodec} which converts chunks using {@link NBTItem#toMultipleNBT()} and reads and writes the tags using
+ * {@link NBTInputStream} and {@link NBTOutputStream}. Supports all types of chunk.
+ */
+public final class JNBTChunkCodec implements ChunkCodec {
+    private JNBTChunkCodec() {
+        // Prevent instantiation
+    }
+
+    @Override
+    public Map<DataType, ? extends Tag> toMultipleNBT(NBTItem chunk) {
+        return chunk.toMultipleNBT();
+    }
+
+    @Override
+    public void writeTag(Tag tag, OutputStream out) throws IOException {
+        // NBTOutputStream does not buffer, so there is no need to flush or close it
+        new NBTOutputStream(out).writeTag(tag);
+        out.flush();
+    }
+
+    @Override
+    public Tag readTag(InputStream in) throws IOException {
+        return new NBTInputStream(in).readTag();
+    }
+
+    public static final JNBTChunkCodec INSTANCE = new JNBTChunkCodec();
+}
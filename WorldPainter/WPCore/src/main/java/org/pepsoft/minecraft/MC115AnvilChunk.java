@@ -25,6 +25,10 @@ import static org.pepsoft.worldpainter.biomeschemes.Minecraft1_7Biomes.BIOME_PLA
 
 /**
  * An "Anvil" chunk for Minecraft 1.15 - 1.17.1.
+ *
+ * <p>Not thread-safe. The block states of the sections are stored in {@link PackedArrayCube}s, so a chunk must be
+ * modified by at most one thread at a time, and must not be read while another thread is modifying it, even if the
+ * threads would access different blocks.
  * 
  * @author pepijn
  */
@@ -31,6 +31,10 @@ import static org.pepsoft.minecraft.Material.LEVEL;
 
 /**
  * An "Anvil" chunk for Minecraft 1.18 and higher.
+ *
+ * <p>Not thread-safe. The block states and biomes of the sections are stored in {@link PackedArrayCube}s, so a chunk
+ * must be modified by at most one thread at a time, and must not be read while another thread is modifying it, even if
+ * the threads would access different blocks.
  * 
  * @author pepijn
  */
@@ -70,25 +74,27 @@ public final class MC118AnvilChunk extends MCNamedBlocksChunk implements Section
             inputDataVersion = getInt(REGION, TAG_DATA_VERSION);
             undergroundSections = (-minHeight) >> 4;
             sections = new Section[(maxHeight >> 4) + undergroundSections];
-            List<CompoundTag> sectionTags = getList(REGION, TAG_SECTIONS_);
-            // MC 1.18 has chunks without any sections; we're not sure yet if
-            // this is a bug
-            if (sectionTags != null) {
-                for (CompoundTag sectionTag: sectionTags) {
-                    try {
-                        Section section = new Section(sectionTag);
-                        if ((section.level >= -undergroundSections) && (section.level < (sections.length - undergroundSections))) {
-                            sections[section.level + undergroundSections] = section;
-                            if ((section.skyLight != null) && (section.level > highestSectionWithSkylight)) {
-                                highestSectionWithSkylight = section.level;
+            xPos = getInt(REGION, TAG_X_POS_);
+            zPos = getInt(REGION, TAG_Z_POS_);
+            final Tag sectionsTag = getTag(REGION, TAG_SECTIONS_);
+            if (sectionsTag instanceof SectionsTag) {
+                // Already parsed by MC118AnvilChunkCodec
+                for (Section section: ((SectionsTag) sectionsTag).sections) {
+                    addSection(section);
+                }
+            } else {
+                List<CompoundTag> sectionTags = getList(REGION, TAG_SECTIONS_);
+                // MC 1.18 has chunks without any sections; we're not sure yet if
+                // this is a bug
+                if (sectionTags != null) {
+                    for (CompoundTag sectionTag: sectionTags) {
+                        try {
+                            addSection(new Section(sectionTag));
+                        } catch (IncompleteSectionException e) {
+                            // Ignore sections that don't have blocks
+                            if (logger.isDebugEnabled()) {
+                                logger.debug("Ignoring chunk section with missing data @ " + getxPos() + "," + ((ByteTag) sectionTag.getTag(TAG_Y)).getValue() + "," + getzPos());
                             }
-                        } else if (! section.isEmpty()) {
-                            logger.warn("Ignoring non-empty out of bounds chunk section @ " + getxPos() + "," + section.level + "," + getzPos());
-                        }
-                    } catch (IncompleteSectionException e) {
-                        // Ignore sections that don't have blocks
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("Ignoring chunk section with missing data @ " + getxPos() + "," + ((ByteTag) sectionTag.getTag(TAG_Y)).getValue() + "," + getzPos());
                         }
                     }
                 }
@@ -115,8 +121,6 @@ public final class MC118AnvilChunk extends MCNamedBlocksChunk implements Section
                 blockEntities = new ArrayList<>();
             }
             lastUpdate = getLong(REGION, TAG_LAST_UPDATE);
-            xPos = getInt(REGION, TAG_X_POS_);
-            zPos = getInt(REGION, TAG_Z_POS_);
             status = getString(REGION, TAG_STATUS).intern();
             lightOn = getBoolean(REGION, TAG_IS_LIGHT_ON_);
             inhabitedTime = getLong(REGION, TAG_INHABITED_TIME);
@@ -209,15 +213,29 @@ public final class MC118AnvilChunk extends MCNamedBlocksChunk implements Section
 
     @Override
     public Map<DataType, ? extends Tag> toMultipleNBT() {
+        return toMultipleNBT(false);
+    }
+
+    /**
+     * Convert the chunk to NBT tags.
+     *
+     * @param streamSections Whether to store the sections as a {@link SectionsTag} instead of converting them to NBT
+     *                       tags, for {@link MC118AnvilChunkCodec} to write them directly.
+     */
+    Map<DataType, ? extends Tag> toMultipleNBT(boolean streamSections) {
         normalise();
         if (sections != null) {
-            List<CompoundTag> sectionTags = new ArrayList<>(maxHeight >> 4);
+            List<Section> sectionsToSave = new ArrayList<>(maxHeight >> 4);
             for (Section section: sections) {
                 if ((section != null) && ((! section.isEmpty()) || section.hasBiomes())) {
-                    sectionTags.add(section.toNBT());
+                    sectionsToSave.add(section);
                 }
             }
-            setList(REGION, TAG_SECTIONS_, CompoundTag.class, sectionTags);
+            if (streamSections) {
+                setTag(REGION, TAG_SECTIONS_, new SectionsTag(sectionsToSave));
+            } else {
+                setList(REGION, TAG_SECTIONS_, CompoundTag.class, sectionsToSave.stream().map(Section::toNBT).collect(toList()));
+            }
         }
         Map<String, Tag> heightMapTags = new HashMap<>(heightMaps.size());
         heightMaps.forEach((key, value) -> heightMapTags.put(key, new LongArrayTag(key, value)));
@@ -739,6 +757,17 @@ public final class MC118AnvilChunk extends MCNamedBlocksChunk implements Section
         }
     }
 
+    private void addSection(Section section) {
+        if ((section.level >= -undergroundSections) && (section.level < (sections.length - undergroundSections))) {
+            sections[section.level + undergroundSections] = section;
+            if ((section.skyLight != null) && (section.level > highestSectionWithSkylight)) {
+                highestSectionWithSkylight = section.level;
+            }
+        } else if (! section.isEmpty()) {
+            logger.warn("Ignoring non-empty out of bounds chunk section @ " + getxPos() + "," + section.level + "," + getzPos());
+        }
+    }
+
     private int getDataByte(byte[] array, int x, int y, int z) {
         int blockOffset = blockOffset(x, y, z);
         byte dataByte = array[blockOffset / 2];
@@ -862,6 +891,28 @@ public final class MC118AnvilChunk extends MCNamedBlocksChunk implements Section
             }
         }
 
+        /**
+         * Create a section from data parsed by {@link MC118AnvilChunkCodec}. The {@code tag} should contain the
+         * remaining tags of the section, with placeholders for the block states and biomes.
+         */
+        Section(CompoundTag tag, Material[] palette, long[] blockStates, String[] biomePalette, long[] biomeData) {
+            super(tag);
+            Tag levelTag = getTag(TAG_Y);
+            level = (levelTag instanceof ByteTag) ? ((ByteTag) levelTag).intValue() : ((IntTag) levelTag).intValue();
+            if (blockStates != null) {
+                materials = new PackedArrayCube<>(16, blockStates, palette, 4, false, Material.class);
+            } else {
+                singleMaterial = (palette[0] == null) ? AIR : palette[0];
+            }
+            if (biomeData != null) {
+                biomes = new PackedArrayCube<>(4, biomeData, biomePalette, 1, false, String.class);
+            } else if (biomePalette != null) {
+                singleBiome = biomePalette[0];
+            }
+            skyLight = getByteArray(TAG_SKY_LIGHT);
+            blockLight = getByteArray(TAG_BLOCK_LIGHT);
+        }
+
         Section(byte level) {
             super(new CompoundTag("", new HashMap<>()));
             this.level = level;
@@ -870,9 +921,21 @@ public final class MC118AnvilChunk extends MCNamedBlocksChunk implements Section
 
         @Override
         public CompoundTag toNBT() {
+            return toNBT(false);
+        }
+
+        /**
+         * Convert the section to an NBT tag.
+         *
+         * @param placeholders Whether to store placeholders for the block states and biomes instead of converting
+         *                     them to NBT tags, for {@link MC118AnvilChunkCodec} to write them directly.
+         */
+        CompoundTag toNBT(boolean placeholders) {
             setByte(TAG_Y, (byte) level); // TODOMC118 this is sometimes a byte and sometimes an int; how to determine which it should be?
 
-            if (singleMaterial != null) {
+            if (placeholders) {
+                setTag(TAG_BLOCK_STATES_, MC118AnvilChunkCodec.BLOCK_STATES_PLACEHOLDER);
+            } else if (singleMaterial != null) {
                 setMap(TAG_BLOCK_STATES_, ImmutableMap.of(TAG_PALETTE_, new ListTag<>(TAG_PALETTE_, CompoundTag.class, singletonList(createPaletteEntry(singleMaterial)))));
             } else {
                 PackedArrayCube<Material>.PackedData packedMaterials = materials.pack();
@@ -883,7 +946,11 @@ public final class MC118AnvilChunk extends MCNamedBlocksChunk implements Section
                 setMap(TAG_BLOCK_STATES_, ImmutableMap.of(TAG_PALETTE_, new ListTag<>(TAG_PALETTE_, CompoundTag.class, palette), TAG_DATA_, new LongArrayTag(TAG_DATA_, packedMaterials.data)));
             }
 
-            if (singleBiome != null) {
+            if (placeholders) {
+                if ((singleBiome != null) || (biomes != null)) {
+                    setTag(TAG_BIOMES_, MC118AnvilChunkCodec.BIOMES_PLACEHOLDER);
+                }
+            } else if (singleBiome != null) {
                 setMap(TAG_BIOMES_, ImmutableMap.of(TAG_PALETTE_, new ListTag<>(TAG_PALETTE_, StringTag.class, singletonList(new StringTag("", singleBiome)))));
             } else if (biomes != null) {
                 PackedArrayCube<String>.PackedData packedBiomes = biomes.pack();
@@ -970,7 +1037,7 @@ public final class MC118AnvilChunk extends MCNamedBlocksChunk implements Section
         }
 
         @NotNull
-        private CompoundTag createPaletteEntry(Material material) {
+        static CompoundTag createPaletteEntry(Material material) {
             CompoundTag paletteEntry = new CompoundTag("", emptyMap());
             if (material != null) {
                 paletteEntry.setTag(TAG_NAME, new StringTag(TAG_NAME, material.name));
@@ -1009,4 +1076,20 @@ public final class MC118AnvilChunk extends MCNamedBlocksChunk implements Section
             }
         }
     }
+
+    /**
+     * Stand-in for the list of section tags, containing the sections themselves. Used by {@link MC118AnvilChunkCodec}
+     * to pass sections it has parsed to the chunk, and to write the sections of the chunk without first converting them
+     * to NBT tags. Cannot be written by {@link NBTOutputStream}.
+     */
+    static final class SectionsTag extends Tag {
+        SectionsTag(List<Section> sections) {
+            super(TAG_SECTIONS_);
+            this.sections = sections;
+        }
+
+        final List<Section> sections;
+
+        private static final long serialVersionUID = 1L;
+    }
 }
\ No newline at end of file
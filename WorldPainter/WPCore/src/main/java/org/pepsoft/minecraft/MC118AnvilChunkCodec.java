@@ -0,0 +1,444 @@
+package org.pepsoft.minecraft;
+
+import com.google.common.collect.ImmutableMap;
+import org.jnbt.*;
+import org.pepsoft.minecraft.MC118AnvilChunk.Section;
+import org.pepsoft.minecraft.MC118AnvilChunk.SectionsTag;
+import org.pepsoft.util.PackedArrayCube;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static org.jnbt.NBTConstants.*;
+import static org.pepsoft.minecraft.Constants.*;
+
+/**
+ * A {@link ChunkCodec} for {@link MC118AnvilChunk}s which writes and parses the sections of the chunks directly,
+ * without creating NBT tags for the sections and their block and biome palettes, which otherwise make up the majority
+ * of the tags of a chunk. The rest of the chunk is read and written using {@link NBTInputStream} and
+ * {@link NBTOutputStream}. The output is byte for byte identical to that of {@link JNBTChunkCodec}.
+ *
+ * <p>Other types of chunks are delegated to {@link JNBTChunkCodec}, as are chunks which turn out to be of an older
+ * version, or of which the sections have an unexpected structure.
+ */
+public final class MC118AnvilChunkCodec implements ChunkCodec {
+    private MC118AnvilChunkCodec() {
+        // Prevent instantiation
+    }
+
+    @Override
+    public Map<DataType, ? extends Tag> toMultipleNBT(NBTItem chunk) {
+        return (chunk instanceof MC118AnvilChunk) ? ((MC118AnvilChunk) chunk).toMultipleNBT(true) : chunk.toMultipleNBT();
+    }
+
+    @Override
+    public void writeTag(Tag tag, OutputStream out) throws IOException {
+        final BufferedOutputStream bufferedOut = new BufferedOutputStream(out, BUFFER_SIZE);
+        final NBTOutputStream nbtOut = new NBTOutputStream(bufferedOut);
+        if (tag instanceof CompoundTag) {
+            // Both NBTOutputStream and DataOutputStream write straight through to the buffer, so they may be mixed
+            final Writer writer = new Writer(new DataOutputStream(bufferedOut), nbtOut);
+            writer.writeRootTag((CompoundTag) tag);
+        } else {
+            nbtOut.writeTag(tag);
+        }
+        bufferedOut.flush();
+    }
+
+    @Override
+    public Tag readTag(InputStream in) throws IOException {
+        final byte[] data = in.readAllBytes();
+        final CompoundTag tag = new Reader(data).readRootTag();
+        if (tag != null) {
+            return tag;
+        } else {
+            // Not a 1.18+ chunk, or the sections have an unexpected structure. Let JNBT and MC118AnvilChunk deal with
+            // it
+            return new NBTInputStream(new ByteArrayInputStream(data)).readTag();
+        }
+    }
+
+    /**
+     * Get the NBT payload of the palette entry for a material, as written by {@link NBTOutputStream}.
+     */
+    private static byte[] getPaletteEntry(Material material) {
+        if (material == null) {
+            return AIR_PALETTE_ENTRY;
+        }
+        return PALETTE_ENTRY_CACHE.computeIfAbsent(material, MC118AnvilChunkCodec::encodePaletteEntry);
+    }
+
+    private static byte[] encodePaletteEntry(Material material) {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            new NBTOutputStream(buffer).writeTag(Section.createPaletteEntry(material));
+        } catch (IOException e) {
+            throw new RuntimeException("I/O error while encoding palette entry for " + material, e);
+        }
+        // Strip the tag type and the (empty) name
+        final byte[] bytes = buffer.toByteArray();
+        return Arrays.copyOfRange(bytes, 3, bytes.length);
+    }
+
+    /**
+     * Get the order in which the entries of a compound tag containing a palette and data tag are written. Mirrors the
+     * way in which {@link Section#toNBT()} creates those compound tags.
+     */
+    private static String[] getPaletteAndDataOrder() {
+        return new HashMap<>(ImmutableMap.of(TAG_PALETTE_, TAG_PALETTE_, TAG_DATA_, TAG_DATA_)).keySet().toArray(new String[2]);
+    }
+
+    /**
+     * Placeholder for the block states of a section in its tag. See {@link Section#toNBT(boolean)}.
+     */
+    static final CompoundTag BLOCK_STATES_PLACEHOLDER = new CompoundTag(TAG_BLOCK_STATES_, emptyMap());
+
+    /**
+     * Placeholder for the biomes of a section in its tag. See {@link Section#toNBT(boolean)}.
+     */
+    static final CompoundTag BIOMES_PLACEHOLDER = new CompoundTag(TAG_BIOMES_, emptyMap());
+
+    public static final MC118AnvilChunkCodec INSTANCE = new MC118AnvilChunkCodec();
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final String[] PALETTE_AND_DATA_ORDER = getPaletteAndDataOrder();
+    private static final Map<Material, byte[]> PALETTE_ENTRY_CACHE = new ConcurrentHashMap<>();
+    private static final byte[] AIR_PALETTE_ENTRY = encodePaletteEntry(null);
+
+    /**
+     * Writes the same bytes as {@link NBTOutputStream#writeTag(Tag)} would for the tags produced by
+     * {@link MC118AnvilChunk#toMultipleNBT()}, but taking the sections and their block states and biomes directly from
+     * the {@link Section}s.
+     */
+    private static final class Writer {
+        Writer(DataOutputStream out, NBTOutputStream nbtOut) {
+            this.out = out;
+            this.nbtOut = nbtOut;
+        }
+
+        void writeRootTag(CompoundTag tag) throws IOException {
+            out.writeByte(TYPE_COMPOUND);
+            writeString(tag.getName());
+            for (Tag childTag: tag.getValue().values()) {
+                if (childTag instanceof SectionsTag) {
+                    writeSections(((SectionsTag) childTag).sections);
+                } else {
+                    nbtOut.writeTag(childTag);
+                }
+            }
+            out.writeByte(TYPE_END);
+        }
+
+        private void writeSections(List<Section> sections) throws IOException {
+            out.writeByte(TYPE_LIST);
+            writeString(TAG_SECTIONS_);
+            out.writeByte(TYPE_COMPOUND);
+            out.writeInt(sections.size());
+            for (Section section: sections) {
+                for (Tag tag: section.toNBT(true).getValue().values()) {
+                    if (tag == BLOCK_STATES_PLACEHOLDER) {
+                        writeBlockStates(section);
+                    } else if (tag == BIOMES_PLACEHOLDER) {
+                        writeBiomes(section);
+                    } else {
+                        nbtOut.writeTag(tag);
+                    }
+                }
+                out.writeByte(TYPE_END);
+            }
+        }
+
+        private void writeBlockStates(Section section) throws IOException {
+            out.writeByte(TYPE_COMPOUND);
+            writeString(TAG_BLOCK_STATES_);
+            if (section.singleMaterial != null) {
+                writeMaterialPalette(new Material[] {section.singleMaterial});
+            } else {
+                final PackedArrayCube<Material>.PackedData packedMaterials = section.materials.pack();
+                for (String name: PALETTE_AND_DATA_ORDER) {
+                    if (name.equals(TAG_PALETTE_)) {
+                        writeMaterialPalette(packedMaterials.palette);
+                    } else {
+                        writeData(packedMaterials.data);
+                    }
+                }
+            }
+            out.writeByte(TYPE_END);
+        }
+
+        private void writeBiomes(Section section) throws IOException {
+            out.writeByte(TYPE_COMPOUND);
+            writeString(TAG_BIOMES_);
+            if (section.singleBiome != null) {
+                writeBiomePalette(new String[] {section.singleBiome});
+            } else {
+                final PackedArrayCube<String>.PackedData packedBiomes = section.biomes.pack();
+                for (String name: PALETTE_AND_DATA_ORDER) {
+                    if (name.equals(TAG_PALETTE_)) {
+                        writeBiomePalette(packedBiomes.palette);
+                    } else {
+                        writeData(packedBiomes.data);
+                    }
+                }
+            }
+            out.writeByte(TYPE_END);
+        }
+
+        private void writeMaterialPalette(Material[] palette) throws IOException {
+            out.writeByte(TYPE_LIST);
+            writeString(TAG_PALETTE_);
+            out.writeByte(TYPE_COMPOUND);
+            out.writeInt(palette.length);
+            for (Material material: palette) {
+                out.write(getPaletteEntry(material));
+            }
+        }
+
+        private void writeBiomePalette(String[] palette) throws IOException {
+            out.writeByte(TYPE_LIST);
+            writeString(TAG_PALETTE_);
+            out.writeByte(TYPE_STRING);
+            out.writeInt(palette.length);
+            for (String biome: palette) {
+                writeString(biome);
+            }
+        }
+
+        private void writeData(long[] data) throws IOException {
+            out.writeByte(TYPE_LONG_ARRAY);
+            writeString(TAG_DATA_);
+            out.writeInt(data.length);
+            for (long value: data) {
+                out.writeLong(value);
+            }
+        }
+
+        private void writeString(String str) throws IOException {
+            final byte[] bytes = str.getBytes(UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+
+        private final DataOutputStream out;
+        private final NBTOutputStream nbtOut;
+    }
+
+    /**
+     * Reads the same tags as {@link NBTInputStream#readTag()}, except that the sections of a 1.18+ chunk are parsed
+     * directly into {@link Section}s and returned in a {@link SectionsTag}.
+     */
+    private static final class Reader {
+        Reader(byte[] data) {
+            bytes = new ByteArrayInputStream(data);
+            in = new DataInputStream(bytes);
+            nbtIn = new NBTInputStream(bytes);
+        }
+
+        /**
+         * @return The root tag, or {@code null} if the data should be read by {@link NBTInputStream} instead.
+         */
+        CompoundTag readRootTag() throws IOException {
+            if (in.readUnsignedByte() != TYPE_COMPOUND) {
+                return null;
+            }
+            final String name = readString();
+            final Map<String, Tag> tags = new HashMap<>();
+            List<Section> sections = null;
+            while (true) {
+                bytes.mark(0);
+                final int type = in.readUnsignedByte();
+                if (type == TYPE_END) {
+                    break;
+                }
+                final String tagName = readString();
+                if ((type == TYPE_LIST) && tagName.equals(TAG_SECTIONS_)) {
+                    sections = readSections();
+                    if (sections == null) {
+                        return null;
+                    }
+                    tags.put(tagName, new SectionsTag(sections));
+                } else {
+                    readTag(tags);
+                }
+            }
+            if (sections != null) {
+                // Make sure the chunk will actually be loaded as an MC118AnvilChunk
+                final Tag dataVersionTag = tags.get(TAG_DATA_VERSION);
+                if ((! (dataVersionTag instanceof IntTag)) || (((IntTag) dataVersionTag).getValue() <= DATA_VERSION_MC_1_17_1)) {
+                    return null;
+                }
+            }
+            return new CompoundTag(name, tags);
+        }
+
+        private List<Section> readSections() throws IOException {
+            final int elementType = in.readUnsignedByte(), count = in.readInt();
+            if ((elementType != TYPE_COMPOUND) && (count > 0)) {
+                return null;
+            }
+            final List<Section> sections = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final Section section = readSection();
+                if (section == null) {
+                    return null;
+                }
+                sections.add(section);
+            }
+            return sections;
+        }
+
+        private Section readSection() throws IOException {
+            final Map<String, Tag> tags = new HashMap<>();
+            Material[] palette = null;
+            long[] blockStates = null;
+            String[] biomePalette = null;
+            long[] biomeData = null;
+            while (true) {
+                bytes.mark(0);
+                final int type = in.readUnsignedByte();
+                if (type == TYPE_END) {
+                    break;
+                }
+                final String tagName = readString();
+                if ((type == TYPE_COMPOUND) && tagName.equals(TAG_BLOCK_STATES_)) {
+                    while (true) {
+                        bytes.mark(0);
+                        final int childType = in.readUnsignedByte();
+                        if (childType == TYPE_END) {
+                            break;
+                        }
+                        final String childName = readString();
+                        if ((childType == TYPE_LIST) && childName.equals(TAG_PALETTE_)) {
+                            palette = readMaterialPalette();
+                        } else if ((childType == TYPE_LONG_ARRAY) && childName.equals(TAG_DATA_)) {
+                            blockStates = readData();
+                        } else {
+                            // Ignored, like MC118AnvilChunk.Section does
+                            bytes.reset();
+                            nbtIn.readTag();
+                        }
+                    }
+                    if ((palette == null) || ((blockStates == null) && (palette.length != 1))) {
+                        return null;
+                    }
+                    tags.put(tagName, BLOCK_STATES_PLACEHOLDER);
+                } else if ((type == TYPE_COMPOUND) && tagName.equals(TAG_BIOMES_)) {
+                    while (true) {
+                        bytes.mark(0);
+                        final int childType = in.readUnsignedByte();
+                        if (childType == TYPE_END) {
+                            break;
+                        }
+                        final String childName = readString();
+                        if ((childType == TYPE_LIST) && childName.equals(TAG_PALETTE_)) {
+                            biomePalette = readBiomePalette();
+                        } else if ((childType == TYPE_LONG_ARRAY) && childName.equals(TAG_DATA_)) {
+                            biomeData = readData();
+                        } else {
+                            bytes.reset();
+                            nbtIn.readTag();
+                        }
+                    }
+                    if ((biomePalette == null) || ((biomeData == null) && (biomePalette.length != 1))) {
+                        return null;
+                    }
+                    tags.put(tagName, BIOMES_PLACEHOLDER);
+                } else {
+                    readTag(tags);
+                }
+            }
+            if ((palette == null) || (! ((tags.get(TAG_Y) instanceof ByteTag) || (tags.get(TAG_Y) instanceof IntTag)))) {
+                return null;
+            }
+            try {
+                return new Section(new CompoundTag("", tags), palette, blockStates, biomePalette, biomeData);
+            } catch (RuntimeException e) {
+                // Probably invalid data; let MC118AnvilChunk report it in the usual way
+                return null;
+            }
+        }
+
+        private Material[] readMaterialPalette() throws IOException {
+            final int elementType = in.readUnsignedByte(), count = in.readInt();
+            if ((elementType != TYPE_COMPOUND) || (count == 0)) {
+                return null;
+            }
+            final Material[] palette = new Material[count];
+            for (int i = 0; i < count; i++) {
+                String name = null;
+                Map<String, String> properties = null;
+                while (true) {
+                    final int type = in.readUnsignedByte();
+                    if (type == TYPE_END) {
+                        break;
+                    }
+                    final String tagName = readString();
+                    if ((type == TYPE_STRING) && tagName.equals(TAG_NAME)) {
+                        name = readString();
+                    } else if ((type == TYPE_COMPOUND) && tagName.equals(TAG_PROPERTIES)) {
+                        properties = new HashMap<>();
+                        while (true) {
+                            final int propertyType = in.readUnsignedByte();
+                            if (propertyType == TYPE_END) {
+                                break;
+                            } else if (propertyType != TYPE_STRING) {
+                                // Let MC118AnvilChunk.Section report it
+                                return null;
+                            }
+                            properties.put(readString(), readString());
+                        }
+                    } else {
+                        return null;
+                    }
+                }
+                if (name == null) {
+                    return null;
+                }
+                palette[i] = (name.equals(MC_AIR) && (properties == null)) ? null : Material.get(name, properties);
+            }
+            return palette;
+        }
+
+        private String[] readBiomePalette() throws IOException {
+            final int elementType = in.readUnsignedByte(), count = in.readInt();
+            if ((elementType != TYPE_STRING) || (count == 0)) {
+                return null;
+            }
+            final String[] palette = new String[count];
+            for (int i = 0; i < count; i++) {
+                palette[i] = readString().intern();
+            }
+            return palette;
+        }
+
+        private long[] readData() throws IOException {
+            final long[] data = new long[in.readInt()];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = in.readLong();
+            }
+            return data;
+        }
+
+        /**
+         * Read the tag at the last mark using {@link NBTInputStream} and add it to a map of tags.
+         */
+        private void readTag(Map<String, Tag> tags) throws IOException {
+            bytes.reset();
+            final Tag tag = nbtIn.readTag();
+            tags.put(tag.getName(), tag);
+        }
+
+        private String readString() throws IOException {
+            final byte[] bytes = new byte[in.readUnsignedShort()];
+            in.readFully(bytes);
+            return new String(bytes, UTF_8);
+        }
+
+        private final ByteArrayInputStream bytes;
+        private final DataInputStream in;
+        private final NBTInputStream nbtIn;
+    }
+}
@@ -166,9 +166,8 @@ public final class Material implements Serializable {
         if (namespace != null) {
             SIMPLE_NAMES_BY_NAMESPACE.computeIfAbsent(namespace, s -> new HashSet<>()).add(simpleName);
         }
-        if (! DEFAULT_MATERIALS_BY_NAME.containsKey(identity.name)) {
-            DEFAULT_MATERIALS_BY_NAME.put(identity.name, this);
-        }
+        DEFAULT_MATERIALS_BY_NAME.putIfAbsent(identity.name, this);
+        id = register(this);
     }
 
     /**
@@ -310,9 +309,8 @@ public final class Material implements Serializable {
         empty = air || (name == MC_LIGHT);
 
         SIMPLE_NAMES_BY_NAMESPACE.computeIfAbsent(namespace, s -> new HashSet<>()).add(simpleName);
-        if (! DEFAULT_MATERIALS_BY_NAME.containsKey(name)) {
-            DEFAULT_MATERIALS_BY_NAME.put(name, this);
-        }
+        DEFAULT_MATERIALS_BY_NAME.putIfAbsent(name, this);
+        id = register(this);
     }
 
     @SuppressWarnings("unchecked") // Guaranteed by code
@@ -924,6 +922,25 @@ public final class Material implements Serializable {
         return watery || is(WATERLOGGED) || (isNamed(MC_WATER) && (getProperty(LEVEL, 0) == 0));
     }
 
+    /**
+     * Equivalent to {@link #containsWater()}, but without using the {@link Property} constants, which have not been
+     * initialised yet when the legacy materials are created.
+     */
+    @SuppressWarnings("StringEquality") // Interned string
+    private boolean determineContainsWater() {
+        if (watery) {
+            return true;
+        } else if (identity.properties != null) {
+            if ("true".equals(identity.properties.get(MC_WATERLOGGED))) {
+                return true;
+            }
+            final String level = identity.properties.get(MC_LEVEL);
+            return (name == MC_WATER) && ((level == null) || (Integer.parseInt(level) == 0));
+        } else {
+            return name == MC_WATER;
+        }
+    }
+
     private HorizontalOrientationScheme[] determineHorizontalOrientations(Identity identity, String override) {
         if ("none".equalsIgnoreCase(override)) {
             return null;
@@ -1194,14 +1211,75 @@ public final class Material implements Serializable {
      * @return The single instance of the specified material.
      */
     public static Material get(Identity identity) {
-        synchronized (ALL_MATERIALS) {
-            Material material = ALL_MATERIALS.get(identity);
-            if (material == null) {
-                material = new Material(identity);
-                ALL_MATERIALS.put(identity, material);
+        // Existing materials are looked up without locking. Creating a material has side effects (such as assigning
+        // the next ID), so creation is serialised and double-checked to ensure it happens only once per identity
+        Material material = ALL_MATERIALS.get(identity);
+        if (material == null) {
+            synchronized (ALL_MATERIALS) {
+                material = ALL_MATERIALS.get(identity);
+                if (material == null) {
+                    material = new Material(identity);
+                    ALL_MATERIALS.put(identity, material);
+                }
             }
-            return material;
         }
+        return material;
+    }
+
+    /**
+     * Get a material by its {@link #id}.
+     *
+     * @param id The ID of the material to get.
+     * @return The material with the specified ID.
+     * @throws ArrayIndexOutOfBoundsException If no material with the specified ID exists.
+     */
+    public static Material getById(int id) {
+        final Material material = MATERIALS_BY_ID[id];
+        if (material == null) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+        return material;
+    }
+
+    /**
+     * Get the {@link #opacity} of a material by its {@link #id}, without dereferencing the material.
+     *
+     * @param id The ID of the material.
+     * @return The opacity of the indicated material.
+     */
+    public static int getOpacity(int id) {
+        return PROPERTIES_BY_ID[id] & 0xff;
+    }
+
+    /**
+     * Get the {@link #blockLight} of a material by its {@link #id}, without dereferencing the material.
+     *
+     * @param id The ID of the material.
+     * @return The amount of block light emitted by the indicated material.
+     */
+    public static int getBlockLight(int id) {
+        return (PROPERTIES_BY_ID[id] >> 8) & 0xff;
+    }
+
+    /**
+     * Get the {@link #receivesLight} flag of a material by its {@link #id}, without dereferencing the material.
+     *
+     * @param id The ID of the material.
+     * @return Whether the indicated material receives light unto itself.
+     */
+    public static boolean isReceivesLight(int id) {
+        return (PROPERTIES_BY_ID[id] & FLAG_RECEIVES_LIGHT) != 0;
+    }
+
+    /**
+     * Get the result of {@link #containsWater()} for a material by its {@link #id}, without dereferencing the
+     * material or looking up its properties.
+     *
+     * @param id The ID of the material.
+     * @return Whether the indicated material contains water.
+     */
+    public static boolean containsWater(int id) {
+        return (PROPERTIES_BY_ID[id] & FLAG_CONTAINS_WATER) != 0;
     }
 
     /**
@@ -1386,6 +1464,33 @@ public final class Material implements Serializable {
         }
     }
 
+    /**
+     * Assign the next ID to a newly created material and record its properties in the ID-indexed tables. Must be
+     * invoked at the end of the constructor, after all other fields have been initialised.
+     */
+    private static int register(Material material) {
+        synchronized (ALL_MATERIALS) {
+            final int id = materialCount;
+            Material[] materialsById = MATERIALS_BY_ID;
+            int[] propertiesById = PROPERTIES_BY_ID;
+            if (id == materialsById.length) {
+                // Copy on write, so that readers never see a partially initialised table
+                materialsById = Arrays.copyOf(materialsById, id * 2);
+                propertiesById = Arrays.copyOf(propertiesById, id * 2);
+            }
+            materialsById[id] = material;
+            propertiesById[id] = (material.opacity & 0xff)
+                    | ((material.blockLight & 0xff) << 8)
+                    | (material.receivesLight ? FLAG_RECEIVES_LIGHT : 0)
+                    | (material.determineContainsWater() ? FLAG_CONTAINS_WATER : 0);
+            // Volatile writes; these publish the new entries, also when the tables did not have to be grown
+            PROPERTIES_BY_ID = propertiesById;
+            MATERIALS_BY_ID = materialsById;
+            materialCount = id + 1;
+            return id;
+        }
+    }
+
     public static int guessOpacity(String name) {
         if (name.endsWith("_slab") || name.endsWith("_stairs") || name.contains("block") || name.endsWith("_log") || name.endsWith("_wood") || name.endsWith("_stem") || name.endsWith("_hyphea") || name.contains("bricks")) {
             return 15;
@@ -1561,6 +1666,14 @@ public final class Material implements Serializable {
 
     public final transient int index;
 
+    /**
+     * A dense numerical ID of this material, which may be used to look up some of its properties in arrays using
+     * methods such as {@link #getOpacity(int)}, or to get the material itself using {@link #getById(int)}. IDs are
+     * assigned in the order in which materials are created, so they are <em>not</em> stable between runs and must
+     * not be persisted.
+     */
+    public final transient int id;
+
     /**
      * The simple name (excluding the namespace, i.e. the part after the colon) of this material. This string is
      * interned, so that the {@code ==} operator may be used to make comparisons against it.
@@ -1644,9 +1757,19 @@ public final class Material implements Serializable {
      * legacy materials. 12-bit block ids above 255 are created on the fly.
      */
     private static final Material[] LEGACY_MATERIALS = new Material[4096];
-    private static final Map<Identity, Material> ALL_MATERIALS = new HashMap<>();
+    private static final Map<Identity, Material> ALL_MATERIALS = new ConcurrentHashMap<>();
     private static final Map<String, Set<String>> SIMPLE_NAMES_BY_NAMESPACE = new HashMap<>();
-    private static final Map<String, Material> DEFAULT_MATERIALS_BY_NAME = new HashMap<>();
+    private static final Map<String, Material> DEFAULT_MATERIALS_BY_NAME = new ConcurrentHashMap<>();
+
+    /**
+     * The materials and their packed opacity, block light and flags, indexed by {@link #id}. Only replaced while
+     * holding the {@link #ALL_MATERIALS} monitor.
+     */
+    private static volatile Material[] MATERIALS_BY_ID = new Material[8192];
+    private static volatile int[] PROPERTIES_BY_ID = new int[8192];
+    private static int materialCount;
+
+    private static final int FLAG_RECEIVES_LIGHT = 0x10000, FLAG_CONTAINS_WATER = 0x20000;
 
     // Namespaces
 
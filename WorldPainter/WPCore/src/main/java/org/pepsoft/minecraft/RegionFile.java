@@ -56,45 +56,117 @@ package org.pepsoft.minecraft;
  A version of 2 represents a deflated (zlib compressed) NBT file. The deflated
  data is the chunk length - 1.
 
+ A version of 3 represents an uncompressed NBT file, and a version of 4 an LZ4
+ compressed NBT file in the block stream format of the lz4-java library.
+
+ If the high bit of the version is set, the chunk was too large for the region
+ file and the (compressed) data is instead stored in an external file named
+ "c.x.z.mcc" next to the region file, where x and z are the chunk coordinates.
+ The region file then only contains a chunk header with a length of 1.
+
  */
 
+import org.pepsoft.util.LZ4BlockInputStream;
+import org.pepsoft.util.LZ4BlockOutputStream;
 import org.pepsoft.util.mdc.MDCCapturingRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.awt.*;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.*;
 
 import static java.lang.String.format;
-
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+import static org.pepsoft.worldpainter.FeatureFlags.MAP_REGION_FILES;
+
+/**
+ * A Minecraft region file. Reads and writes go through positional {@link FileChannel} I/O, so that any number of
+ * threads may read chunks concurrently. Writers only hold an exclusive lock while they overwrite a chunk in place or
+ * publish the location of a newly written chunk; the compressed data of a chunk that is moved to newly allocated
+ * sectors is written without holding the lock.
+ *
+ * <p>In read only mode the file is memory mapped and chunks are inflated straight from the mapped buffer, without
+ * copying the compressed data onto the heap first. This can be switched off with the
+ * {@link org.pepsoft.worldpainter.FeatureFlags#MAP_REGION_FILES} flag. The mapping is released when the file has been
+ * closed and all streams obtained from {@link #getChunkDataInputStream(int, int)} have been closed.
+ */
 public final class RegionFile implements AutoCloseable {
 
-    private static final int VERSION_GZIP = 1;
-    private static final int VERSION_DEFLATE = 2;
-
     private static final int SECTOR_BYTES = 4096;
     private static final int SECTOR_INTS = SECTOR_BYTES / 4;
 
     static final int CHUNK_HEADER_SIZE = 5;
-    private static final byte emptySector[] = new byte[4096];
+    static final int EXTERNAL_FLAG = 0x80;
 
     private final File fileName;
-    private final RandomAccessFile file;
+    private final FileChannel channel;
+    /** The memory mapped contents of the file, in read only mode. {@code null} otherwise. */
+    private final ByteBuffer mappedBuffer;
     private final int offsets[];
     private final int chunkTimestamps[];
-    private final ArrayList<Boolean> sectorFree;
+    /** Bit set for each sector which is in use. Guarded by itself. */
+    private final BitSet usedSectors;
+    /** Guards the consistency between the chunk offsets and the contents of the sectors they point to. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final boolean readOnly;
-    private int sizeDelta;
+    private final AtomicInteger sizeDelta = new AtomicInteger();
+    /** The number of sectors in the file. Guarded by {@link #usedSectors}. */
+    private int sectorCount;
     private long lastModified = 0;
     private final int x, z;
+    private volatile ChunkCompression compression = ChunkCompression.DEFLATE;
+    private volatile int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    /** The number of open streams reading from {@link #mappedBuffer}, plus {@link #CLOSED} once the file is closed. */
+    private final AtomicInteger mappedStreams = new AtomicInteger();
+    private final AtomicBoolean unmapped = new AtomicBoolean();
+
+    private static final int CLOSED = 0x40000000;
+    private static final Logger logger = LoggerFactory.getLogger(RegionFile.class);
+
+    /* sun.misc.Unsafe.invokeCleaner(), which is the only way to release a memory mapping before it is garbage
+     * collected. null if it is not available */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("sun.misc.Unsafe.invokeCleaner() not available; memory mapped region files will not be unmapped explicitly", e);
+        }
+        UNSAFE = (invokeCleaner != null) ? unsafe : null;
+        INVOKE_CLEANER = invokeCleaner;
+    }
 
     public RegionFile() {
         fileName = null;
-        file = null;
+        channel = null;
+        mappedBuffer = null;
         offsets = null;
         chunkTimestamps = null;
-        sectorFree = null;
+        usedSectors = null;
         x = 0;
         z = 0;
         readOnly = true;
@@ -116,66 +188,59 @@ public final class RegionFile implements AutoCloseable {
         x = Integer.parseInt(nameParts[1]);
         z = Integer.parseInt(nameParts[2]);
 
-        sizeDelta = 0;
-
         if (path.exists()) {
             lastModified = path.lastModified();
         } else if (readOnly) {
             throw new IllegalStateException("Can't open non-existent region file in read only mode");
         }
 
-        file = readOnly ? new RandomAccessFile(path, "r") : new RandomAccessFile(path, "rw");
+        channel = readOnly ? FileChannel.open(path.toPath(), READ) : FileChannel.open(path.toPath(), READ, WRITE, CREATE);
 
+        long fileLength = channel.size();
         if (! readOnly) {
-            if (file.length() < SECTOR_BYTES) {
-                /* we need to write the chunk offset table */
-                for (int i = 0; i < SECTOR_INTS; ++i) {
-                    file.writeInt(0);
-                }
-                // write another sector for the timestamp info
-                for (int i = 0; i < SECTOR_INTS; ++i) {
-                    file.writeInt(0);
-                }
-
-                sizeDelta += SECTOR_BYTES * 2;
+            if (fileLength < SECTOR_BYTES * 2) {
+                /* we need to write the chunk offset table and another sector for the timestamp info */
+                writeFully(ByteBuffer.allocate((int) (SECTOR_BYTES * 2 - fileLength)), fileLength);
+                sizeDelta.addAndGet((int) (SECTOR_BYTES * 2 - fileLength));
+                fileLength = SECTOR_BYTES * 2;
             }
 
-            if ((file.length() & 0xfff) != 0) {
+            if ((fileLength & 0xfff) != 0) {
                 /* the file size is not a multiple of 4KB, grow it */
-                for (int i = 0; i < (file.length() & 0xfff); ++i) {
-                    file.write((byte) 0);
-                }
+                final int padding = (int) (SECTOR_BYTES - (fileLength & 0xfff));
+                writeFully(ByteBuffer.allocate(padding), fileLength);
+                fileLength += padding;
             }
         }
 
-        /* set up the available sector map */
-        int nSectors = ((file.length() & 0xfff) == 0)
-                ? (int) file.length() / SECTOR_BYTES
-                : (int) (((file.length() >> 12) + 1) << 12) / SECTOR_BYTES; // In read-only mode the file length may not be a multiple of 4K at this point, so compensate for that
-        sectorFree = new ArrayList<>(nSectors);
-
-        for (int i = 0; i < nSectors; ++i) {
-            sectorFree.add(true);
+        if (readOnly && MAP_REGION_FILES && (fileLength > 0) && (fileLength <= Integer.MAX_VALUE)) {
+            mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileLength);
+        } else {
+            mappedBuffer = null;
         }
 
-        file.seek(0);
-        if (sectorFree.size() > 0) {
-            sectorFree.set(0, false); // chunk offset table
-            for (int i = 0; i < SECTOR_INTS; ++i) {
-                int offset = file.readInt();
+        /* set up the available sector map */
+        // In read-only mode the file length may not be a multiple of 4K at this point, so compensate for that
+        sectorCount = (int) ((fileLength + SECTOR_BYTES - 1) / SECTOR_BYTES);
+        usedSectors = new BitSet(sectorCount);
+
+        if (sectorCount > 0) {
+            final ByteBuffer header = ByteBuffer.allocate(SECTOR_BYTES * Math.min(sectorCount, 2));
+            readFully(header, 0);
+            header.flip();
+            usedSectors.set(0); // chunk offset table
+            for (int i = 0; (i < SECTOR_INTS) && (header.remaining() >= 4); ++i) {
+                int offset = header.getInt();
                 offsets[i] = offset;
-                if (offset != 0 && (offset >> 8) + (offset & 0xFF) <= sectorFree.size()) {
-                    for (int sectorNum = 0; sectorNum < (offset & 0xFF); ++sectorNum) {
-                        sectorFree.set((offset >> 8) + sectorNum, false);
-                    }
+                if (offset != 0 && (offset >> 8) + (offset & 0xFF) <= sectorCount) {
+                    usedSectors.set(offset >> 8, (offset >> 8) + (offset & 0xFF));
                 }
             }
-        }
-        if (sectorFree.size() > 1) {
-            sectorFree.set(1, false); // for the last modified info
-            for (int i = 0; i < SECTOR_INTS; ++i) {
-                int lastModValue = file.readInt();
-                chunkTimestamps[i] = lastModValue;
+            if (sectorCount > 1) {
+                usedSectors.set(1); // for the last modified info
+                for (int i = 0; (i < SECTOR_INTS) && (header.remaining() >= 4); ++i) {
+                    chunkTimestamps[i] = header.getInt();
+                }
             }
         }
     }
@@ -194,22 +259,83 @@ public final class RegionFile implements AutoCloseable {
     }
 
     /* gets how much the region file has grown since it was last checked */
-    public synchronized int getSizeDelta() {
-        int ret = sizeDelta;
-        sizeDelta = 0;
-        return ret;
+    public int getSizeDelta() {
+        return sizeDelta.getAndSet(0);
     }
 
     /*
      * gets an (uncompressed) stream representing the chunk data returns null if
      * the chunk is not found or an error occurs
      */
-    public synchronized DataInputStream getChunkDataInputStream(int x, int z) throws IOException {
+    public DataInputStream getChunkDataInputStream(int x, int z) throws IOException {
         if (outOfBounds(x, z)) {
             debugln("READ", x, z, "out of bounds");
             return null;
         }
 
+        if (mappedBuffer != null) {
+            return getMappedChunkDataInputStream(x, z);
+        }
+
+        final byte version;
+        final byte[] data;
+        lock.readLock().lock();
+        try {
+            int offset = getOffset(x, z);
+            if (offset == 0) {
+                // debugln("READ", x, z, "miss");
+                return null;
+            }
+
+            int sectorNumber = offset >> 8;
+            int numSectors = offset & 0xFF;
+
+            if (sectorNumber + numSectors > getSectorCount()) {
+                debugln("READ", x, z, "invalid sector");
+                throw new InvalidRegionFileException(format("READ %d,%d: invalid sector in region %d,%d", x, z, this.x, this.z));
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+            readFully(header, (long) sectorNumber * SECTOR_BYTES);
+            if (header.hasRemaining()) {
+                throw new InvalidRegionFileException(format("READ %d,%d: truncated chunk header in region %d,%d", x, z, this.x, this.z));
+            }
+            header.flip();
+            int length = header.getInt();
+
+            if (length > SECTOR_BYTES * numSectors) {
+                debugln("READ", x, z, "invalid length: " + length + " > 4096 * " + numSectors);
+                throw new InvalidRegionFileException(format("READ %d,%d: invalid length: %d > 4096 * %d in region %d,%d", x, z, length, numSectors, this.x, this.z));
+            }
+
+            version = header.get();
+            if (ChunkCompression.forId(version & 0x7F) == null) {
+                throw new IllegalArgumentException("unknown version " + version);
+            }
+            data = new byte[length - 1];
+            final ByteBuffer buffer = ByteBuffer.wrap(data);
+            readFully(buffer, (long) sectorNumber * SECTOR_BYTES + CHUNK_HEADER_SIZE);
+            if (buffer.hasRemaining()) {
+                throw new InvalidRegionFileException(format("READ %d,%d: truncated chunk data in region %d,%d", x, z, this.x, this.z));
+            }
+            if ((version & EXTERNAL_FLAG) != 0) {
+                // Open the external file while still holding the lock, since writers delete it while holding the write
+                // lock once it is no longer referenced
+                return getExternalChunkDataInputStream(x, z, version);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // debug("READ", x, z, " = found");
+        return getDecompressingInputStream(version, new ByteArrayInputStream(data));
+    }
+
+    /*
+     * read only mode: the file can't change, so no locking is needed and the chunk can be inflated straight from the
+     * mapped buffer. The stream keeps the mapping alive until it is closed
+     */
+    private DataInputStream getMappedChunkDataInputStream(int x, int z) throws IOException {
         int offset = getOffset(x, z);
         if (offset == 0) {
             // debugln("READ", x, z, "miss");
@@ -219,44 +345,61 @@ public final class RegionFile implements AutoCloseable {
         int sectorNumber = offset >> 8;
         int numSectors = offset & 0xFF;
 
-        if (sectorNumber + numSectors > sectorFree.size()) {
+        if (sectorNumber + numSectors > sectorCount) {
             debugln("READ", x, z, "invalid sector");
             throw new InvalidRegionFileException(format("READ %d,%d: invalid sector in region %d,%d", x, z, this.x, this.z));
         }
 
-        file.seek(sectorNumber * SECTOR_BYTES);
-        int length = file.readInt();
+        acquireMappedBuffer();
+        boolean release = true;
+        try {
+            final int position = sectorNumber * SECTOR_BYTES;
+            if (position + CHUNK_HEADER_SIZE > mappedBuffer.limit()) {
+                throw new InvalidRegionFileException(format("READ %d,%d: truncated chunk header in region %d,%d", x, z, this.x, this.z));
+            }
+            int length = mappedBuffer.getInt(position);
 
-        if (length > SECTOR_BYTES * numSectors) {
-            debugln("READ", x, z, "invalid length: " + length + " > 4096 * " + numSectors);
-            throw new InvalidRegionFileException(format("READ %d,%d: invalid length: %d > 4096 * %d in region %d,%d", x, z, length, numSectors, this.x, this.z));
-        }
+            if (length > SECTOR_BYTES * numSectors) {
+                debugln("READ", x, z, "invalid length: " + length + " > 4096 * " + numSectors);
+                throw new InvalidRegionFileException(format("READ %d,%d: invalid length: %d > 4096 * %d in region %d,%d", x, z, length, numSectors, this.x, this.z));
+            } else if (position + 4 + length > mappedBuffer.limit()) {
+                throw new InvalidRegionFileException(format("READ %d,%d: truncated chunk data in region %d,%d", x, z, this.x, this.z));
+            }
 
-        byte version = file.readByte();
-        if (version == VERSION_GZIP) {
-            byte[] data = new byte[length - 1];
-            int bytesToRead = data.length;
-            while (bytesToRead > 0) {
-                bytesToRead -= file.read(data, data.length - bytesToRead, bytesToRead);
+            byte version = mappedBuffer.get(position + 4);
+            if ((version & EXTERNAL_FLAG) != 0) {
+                return getExternalChunkDataInputStream(x, z, version);
             }
-            DataInputStream ret = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)));
-            // debug("READ", x, z, " = found");
-            return ret;
-        } else if (version == VERSION_DEFLATE) {
-            byte[] data = new byte[length - 1];
-            int bytesToRead = data.length;
-            while (bytesToRead > 0) {
-                bytesToRead -= file.read(data, data.length - bytesToRead, bytesToRead);
-            }
-            DataInputStream ret = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)));
+            final ByteBuffer data = mappedBuffer.slice(position + CHUNK_HEADER_SIZE, length - 1);
             // debug("READ", x, z, " = found");
-            return ret;
+            final DataInputStream in;
+            if (version == ChunkCompression.DEFLATE.id) {
+                in = new DataInputStream(new MappedBufferInputStream(new ByteBufferInflaterInputStream(data)));
+            } else {
+                in = getDecompressingInputStream(version, new MappedBufferInputStream(new ByteBufferInputStream(data)));
+            }
+            release = false; // The stream releases the mapped buffer when it is closed
+            return in;
+        } finally {
+            if (release) {
+                releaseMappedBuffer();
+            }
         }
+    }
 
-        throw new IllegalArgumentException("unknown version " + version);
+    /*
+     * gets a stream of the data of an oversized chunk, which is stored in an external file. The data is streamed from
+     * the file rather than read into memory first
+     */
+    private DataInputStream getExternalChunkDataInputStream(int x, int z, byte version) throws IOException {
+        final File externalFile = getExternalChunkFile(x, z);
+        if (! externalFile.isFile()) {
+            throw new InvalidRegionFileException(format("READ %d,%d: external chunk file %s missing for region %d,%d", x, z, externalFile.getName(), this.x, this.z));
+        }
+        return getDecompressingInputStream(version & 0x7F, new BufferedInputStream(new FileInputStream(externalFile), 65536));
     }
 
-    public DataOutputStream getChunkDataOutputStream(int x, int z) {
+    public DataOutputStream getChunkDataOutputStream(int x, int z) throws IOException {
         if (readOnly) {
             throw new IllegalStateException("Read only mode");
         }
@@ -264,7 +407,65 @@ public final class RegionFile implements AutoCloseable {
             return null;
         }
 
-        return new DataOutputStream(new DeflaterOutputStream(new ChunkBuffer(x, z)));
+        final ChunkCompression compression = this.compression;
+        return getCompressingOutputStream(new ChunkBuffer(x, z, compression), compression, compressionLevel);
+    }
+
+    /**
+     * Get the compression scheme with which chunks are written by {@link #getChunkDataOutputStream(int, int)}.
+     */
+    public ChunkCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the compression level with which chunks are written by {@link #getChunkDataOutputStream(int, int)}, if the
+     * compression scheme supports levels.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Set the compression scheme and level with which chunks are written by
+     * {@link #getChunkDataOutputStream(int, int)}. The default is {@link ChunkCompression#DEFLATE} at
+     * {@link Deflater#DEFAULT_COMPRESSION the default level}. Chunks which are already present are not affected.
+     *
+     * @param compression      The compression scheme to use.
+     * @param compressionLevel The zlib compression level (0-9, or -1 for the default) to use. Ignored if the
+     *                         compression scheme does not support levels.
+     */
+    public void setCompression(ChunkCompression compression, int compressionLevel) {
+        if (compression == null) {
+            throw new NullPointerException("compression");
+        }
+        if ((compressionLevel < Deflater.DEFAULT_COMPRESSION) || (compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
+        }
+        this.compression = compression;
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Write chunk data which has already been compressed using a stream obtained from
+     * {@link #getCompressingOutputStream(OutputStream, ChunkCompression, int)}. This allows chunks to be serialised and
+     * compressed on any thread, and only the actual writing to be done in a particular order.
+     *
+     * @param x           The X coordinate of the chunk within the region.
+     * @param z           The Z coordinate of the chunk within the region.
+     * @param data        The buffer containing the compressed chunk data.
+     * @param length      The number of bytes of compressed chunk data in the buffer.
+     * @param compression The compression scheme with which the data was compressed.
+     */
+    public void writeCompressedChunk(int x, int z, byte[] data, int length, ChunkCompression compression) throws IOException {
+        if (readOnly) {
+            throw new IllegalStateException("Read only mode");
+        }
+        if (outOfBounds(x, z)) {
+            throw new IllegalArgumentException(format("Chunk coordinates out of bounds: %d,%d", x, z));
+        }
+
+        write(x, z, data, length, compression);
     }
 
     public boolean containsChunk(int x, int z) {
@@ -282,7 +483,17 @@ public final class RegionFile implements AutoCloseable {
 
     @Override
     public void close() throws IOException {
-        file.close();
+        final int openStreams = mappedStreams.getAndUpdate(state -> state | CLOSED);
+        if (openStreams == 0) {
+            // Otherwise the mapping is released by the last stream to be closed
+            if (mappedBuffer != null) {
+                unmap();
+            }
+        } else if (openStreams == CLOSED) {
+            // Already closed
+            return;
+        }
+        channel.close();
     }
 
     public boolean isReadOnly() {
@@ -299,17 +510,24 @@ public final class RegionFile implements AutoCloseable {
         return count;
     }
 
-    public synchronized void delete(int x, int z) throws IOException {
-        int offset = getOffset(x, z);
-        int sectorNumber = offset >> 8;
-        int sectorsAllocated = offset & 0xFF;
+    public void delete(int x, int z) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int offset = getOffset(x, z);
+            final boolean wasExternal = isExternalStub(offset);
+            setOffset(x, z, 0);
+            setTimestamp(x, z, (int) (System.currentTimeMillis() / 1000L));
+
+            /* mark the sectors previously used for this chunk as free */
+            freeSectors(offset >> 8, offset & 0xFF);
 
-        /* mark the sectors previously used for this chunk as free */
-        for (int i = 0; i < sectorsAllocated; ++i) {
-            sectorFree.set(sectorNumber + i, true);
+            /* delete the external file while holding the lock, so that readers which saw the stub have opened it */
+            if (wasExternal) {
+                deleteExternalChunkFile(x, z);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
-        setOffset(x, z, 0);
-        setTimestamp(x, z, (int) (System.currentTimeMillis() / 1000L));
     }
 
     @Override
@@ -317,76 +535,124 @@ public final class RegionFile implements AutoCloseable {
         return fileName.getPath();
     }
 
-    /* write a chunk at (x,z) with length bytes of data to disk */
-    protected synchronized void write(int x, int z, byte[] data, int length) throws IOException {
-        int offset = getOffset(x, z);
-        int sectorNumber = offset >> 8;
-        int sectorsAllocated = offset & 0xFF;
+    /* write a chunk at (x,z) with length bytes of data, compressed with the specified compression scheme, to disk */
+    private void write(int x, int z, byte[] data, int length, ChunkCompression compression) throws IOException {
         int sectorsNeeded = (length + CHUNK_HEADER_SIZE) / SECTOR_BYTES + 1;
 
         // maximum chunk size is 1MB
-        if (sectorsNeeded >= 256) {
-            throw new IllegalArgumentException("Maximum chunk size is 1MB");
+        final boolean external = sectorsNeeded >= 256;
+        final ByteBuffer buffer;
+        if (external) {
+            /* store the data in an external chunk file instead, straight from the buffer, and only a stub in the region
+             * file */
+            debug("SAVE", x, z, length, "external");
+            writeExternalChunkFile(x, z, data, length);
+            sectorsNeeded = 1;
+            buffer = createExternalStubBuffer(compression);
+        } else {
+            buffer = createSectorBuffer(data, length, sectorsNeeded, compression);
+        }
+        lock.writeLock().lock();
+        try {
+            int offset = getOffset(x, z);
+            if ((offset >> 8) != 0 && (offset & 0xFF) == sectorsNeeded) {
+                /* we can simply overwrite the old sectors */
+                debug("SAVE", x, z, length, "rewrite");
+                final boolean wasExternal = isExternalStub(offset);
+                write(offset >> 8, buffer);
+                setTimestamp(x, z, (int) (System.currentTimeMillis() / 1000L));
+                if (wasExternal && (! external)) {
+                    deleteExternalChunkFile(x, z);
+                }
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
 
-        if (sectorNumber != 0 && sectorsAllocated == sectorsNeeded) {
-            /* we can simply overwrite the old sectors */
-            debug("SAVE", x, z, length, "rewrite");
-            write(sectorNumber, data, length);
-        } else {
-            /* we need to allocate new sectors */
+        /* we need to allocate new sectors. Readers can't see them until they are published, so we can write the data
+         * without holding the lock */
+        int sectorNumber = allocateSectors(sectorsNeeded);
+        debug("SAVE", x, z, length, "new");
+        write(sectorNumber, buffer);
+
+        lock.writeLock().lock();
+        try {
+            int previousOffset = getOffset(x, z);
+            final boolean wasExternal = isExternalStub(previousOffset);
+            setOffset(x, z, (sectorNumber << 8) | sectorsNeeded);
+            setTimestamp(x, z, (int) (System.currentTimeMillis() / 1000L));
 
             /* mark the sectors previously used for this chunk as free */
-            for (int i = 0; i < sectorsAllocated; ++i) {
-                sectorFree.set(sectorNumber + i, true);
-            }
-
-            /* scan for a free space large enough to store this chunk */
-            int runStart = sectorFree.indexOf(true);
-            int runLength = 0;
-            if (runStart != -1) {
-                for (int i = runStart; i < sectorFree.size(); ++i) {
-                    if (runLength != 0) {
-                        if (sectorFree.get(i)) runLength++;
-                        else runLength = 0;
-                    } else if (sectorFree.get(i)) {
-                        runStart = i;
-                        runLength = 1;
-                    }
-                    if (runLength >= sectorsNeeded) {
-                        break;
-                    }
-                }
+            freeSectors(previousOffset >> 8, previousOffset & 0xFF);
+
+            /* delete the external file while holding the lock, so that readers which saw the stub have opened it */
+            if (wasExternal && (! external)) {
+                deleteExternalChunkFile(x, z);
             }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-            if (runLength >= sectorsNeeded) {
-                /* we found a free space large enough */
-                debug("SAVE", x, z, length, "reuse");
-                sectorNumber = runStart;
-                setOffset(x, z, (sectorNumber << 8) | sectorsNeeded);
-                for (int i = 0; i < sectorsNeeded; ++i) {
-                    sectorFree.set(sectorNumber + i, false);
-                }
-                write(sectorNumber, data, length);
-            } else {
-                /*
-                 * no free space large enough found -- we need to grow the
-                 * file
-                 */
-                debug("SAVE", x, z, length, "grow");
-                file.seek(file.length());
-                sectorNumber = sectorFree.size();
-                for (int i = 0; i < sectorsNeeded; ++i) {
-                    file.write(emptySector);
-                    sectorFree.add(false);
-                }
-                sizeDelta += SECTOR_BYTES * sectorsNeeded;
+    /* the external file in which the data of chunk (x,z) is stored if it is too large for the region file */
+    private File getExternalChunkFile(int x, int z) {
+        return new File(fileName.getAbsoluteFile().getParentFile(), "c." + ((this.x << 5) + x) + "." + ((this.z << 5) + z) + ".mcc");
+    }
+
+    /* write the compressed data of an oversized chunk to its external file, replacing it atomically if possible */
+    private void writeExternalChunkFile(int x, int z, byte[] data, int length) throws IOException {
+        final File externalFile = getExternalChunkFile(x, z);
+        final File tmpFile = new File(externalFile.getParentFile(), externalFile.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+            out.write(data, 0, length);
+        }
+        try {
+            Files.move(tmpFile.toPath(), externalFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), externalFile.toPath(), REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteExternalChunkFile(int x, int z) throws IOException {
+        Files.deleteIfExists(getExternalChunkFile(x, z).toPath());
+    }
+
+    /* does the chunk offset point to a stub for a chunk stored in an external file? */
+    private boolean isExternalStub(int offset) throws IOException {
+        if (((offset >> 8) == 0) || ((offset & 0xFF) != 1)) {
+            return false;
+        }
+        final ByteBuffer version = ByteBuffer.allocate(1);
+        readFully(version, (long) (offset >> 8) * SECTOR_BYTES + 4);
+        return (! version.hasRemaining()) && ((version.get(0) & EXTERNAL_FLAG) != 0);
+    }
+
+    /* register a stream reading from the mapped buffer, so that it is not unmapped while the stream is open */
+    private void acquireMappedBuffer() throws IOException {
+        if ((mappedStreams.getAndIncrement() & CLOSED) != 0) {
+            releaseMappedBuffer();
+            throw new IOException("Region file " + fileName + " is closed");
+        }
+    }
+
+    /* unregister a stream reading from the mapped buffer, and unmap it if it was the last one and the file is closed */
+    private void releaseMappedBuffer() {
+        if (mappedStreams.decrementAndGet() == CLOSED) {
+            unmap();
+        }
+    }
 
-                write(sectorNumber, data, length);
-                setOffset(x, z, (sectorNumber << 8) | sectorsNeeded);
+    /* release the memory mapping, once the file has been closed and no streams are reading from it any more */
+    private void unmap() {
+        if ((UNSAFE != null) && unmapped.compareAndSet(false, true)) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, mappedBuffer);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Leave it to the garbage collector
+                logger.debug("Could not unmap region file {}", fileName, e);
             }
         }
-        setTimestamp(x, z, (int) (System.currentTimeMillis() / 1000L));
     }
 
     // various small debug printing helpers
@@ -410,13 +676,85 @@ public final class RegionFile implements AutoCloseable {
         debug(mode, x, z, in + "\n");
     }
 
+    /*
+     * find a run of free sectors large enough to store a chunk and mark them as used, growing the file if there is no
+     * such run
+     */
+    private int allocateSectors(int sectorsNeeded) {
+        synchronized (usedSectors) {
+            int runStart = usedSectors.nextClearBit(2);
+            while (runStart + sectorsNeeded <= sectorCount) {
+                final int runEnd = usedSectors.nextSetBit(runStart);
+                if ((runEnd == -1) || (runEnd - runStart >= sectorsNeeded)) {
+                    /* we found a free space large enough */
+                    usedSectors.set(runStart, runStart + sectorsNeeded);
+                    return runStart;
+                }
+                runStart = usedSectors.nextClearBit(runEnd);
+            }
+
+            /* no free space large enough found -- we need to grow the file */
+            final int sectorNumber = sectorCount;
+            usedSectors.set(sectorNumber, sectorNumber + sectorsNeeded);
+            sectorCount += sectorsNeeded;
+            sizeDelta.addAndGet(SECTOR_BYTES * sectorsNeeded);
+            return sectorNumber;
+        }
+    }
+
+    private void freeSectors(int sectorNumber, int count) {
+        if ((sectorNumber != 0) && (count > 0)) {
+            synchronized (usedSectors) {
+                usedSectors.clear(sectorNumber, sectorNumber + count);
+            }
+        }
+    }
+
+    private int getSectorCount() {
+        synchronized (usedSectors) {
+            return sectorCount;
+        }
+    }
+
+    /* create a buffer containing the chunk header and data, padded to a whole number of sectors */
+    private ByteBuffer createSectorBuffer(byte[] data, int length, int sectorCount, ChunkCompression compression) {
+        final ByteBuffer buffer = ByteBuffer.allocate(sectorCount * SECTOR_BYTES);
+        buffer.putInt(length + 1); // chunk length
+        buffer.put((byte) compression.id); // chunk version number
+        buffer.put(data, 0, length); // chunk data
+        buffer.clear();
+        return buffer;
+    }
+
+    /* create a sector containing a chunk header which indicates that the chunk is stored in an external file */
+    private ByteBuffer createExternalStubBuffer(ChunkCompression compression) {
+        final ByteBuffer buffer = ByteBuffer.allocate(SECTOR_BYTES);
+        buffer.putInt(1); // chunk length
+        buffer.put((byte) (compression.id | EXTERNAL_FLAG)); // chunk version number
+        buffer.clear();
+        return buffer;
+    }
+
     /* write a chunk data to the region file at specified sector number */
-    private void write(int sectorNumber, byte[] data, int length) throws IOException {
+    private void write(int sectorNumber, ByteBuffer buffer) throws IOException {
         debugln(" " + sectorNumber);
-        file.seek(sectorNumber * SECTOR_BYTES);
-        file.writeInt(length + 1); // chunk length
-        file.writeByte(VERSION_DEFLATE); // chunk version number
-        file.write(data, 0, length); // chunk data
+        writeFully(buffer.duplicate(), (long) sectorNumber * SECTOR_BYTES);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int bytesRead = channel.read(buffer, position);
+            if (bytesRead == -1) {
+                break;
+            }
+            position += bytesRead;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
     }
 
     /* is this an invalid chunk coordinate? */
@@ -430,14 +768,94 @@ public final class RegionFile implements AutoCloseable {
 
     private void setOffset(int x, int z, int offset) throws IOException {
         offsets[x + z * 32] = offset;
-        file.seek((x + z * 32) * 4);
-        file.writeInt(offset);
+        final ByteBuffer buffer = ByteBuffer.allocate(4);
+        buffer.putInt(0, offset);
+        writeFully(buffer, (x + z * 32) * 4);
     }
 
     private void setTimestamp(int x, int z, int value) throws IOException {
         chunkTimestamps[x + z * 32] = value;
-        file.seek(SECTOR_BYTES + (x + z * 32) * 4);
-        file.writeInt(value);
+        final ByteBuffer buffer = ByteBuffer.allocate(4);
+        buffer.putInt(0, value);
+        writeFully(buffer, SECTOR_BYTES + (x + z * 32) * 4);
+    }
+
+    /**
+     * Create a stream which compresses chunk data in the format used by region files. For
+     * {@link ChunkCompression#DEFLATE} the {@link Deflater} used is taken from a pool and returned to it when the
+     * stream is closed, so the stream must always be closed.
+     *
+     * @param out              The stream to which to write the compressed data. Will be closed when the returned
+     *                         stream is closed.
+     * @param compression      The compression scheme to use.
+     * @param compressionLevel The zlib compression level (0-9, or -1 for the default) to use. Ignored if the
+     *                         compression scheme does not support levels.
+     * @return A stream to which to write the uncompressed chunk data.
+     */
+    public static DataOutputStream getCompressingOutputStream(OutputStream out, ChunkCompression compression, int compressionLevel) throws IOException {
+        switch (compression) {
+            case GZIP:
+                return new DataOutputStream(new GZIPOutputStream(out) {
+                    {
+                        def.setLevel(compressionLevel);
+                    }
+                });
+            case DEFLATE:
+                return new DataOutputStream(new PooledDeflaterOutputStream(out, compressionLevel));
+            case NONE:
+                return new DataOutputStream(out);
+            case LZ4:
+                return new DataOutputStream(new LZ4BlockOutputStream(out));
+            default:
+                throw new IllegalArgumentException("Unsupported compression " + compression);
+        }
+    }
+
+    /**
+     * Get the external files containing the data of oversized chunks in a region directory, by the coordinates of the
+     * region to which they belong. The directory is listed only once, so this should be used rather than looking for
+     * the external chunk files of each region file separately.
+     *
+     * @param regionDir The directory containing the region files.
+     * @return The external chunk files in the directory by region coordinates. May be empty.
+     */
+    public static Map<Point, List<File>> getExternalChunkFiles(File regionDir) {
+        final Map<Point, List<File>> externalChunkFiles = new HashMap<>();
+        final File[] files = regionDir.listFiles((dir, name) -> name.startsWith("c.") && name.endsWith(".mcc"));
+        if (files != null) {
+            for (File file: files) {
+                final String[] parts = file.getName().split("\\.");
+                if (parts.length == 4) {
+                    try {
+                        final Point regionCoords = new Point(Integer.parseInt(parts[1]) >> 5, Integer.parseInt(parts[2]) >> 5);
+                        externalChunkFiles.computeIfAbsent(regionCoords, k -> new ArrayList<>()).add(file);
+                    } catch (NumberFormatException e) {
+                        // Not an external chunk file
+                    }
+                }
+            }
+        }
+        return externalChunkFiles;
+    }
+
+    /* wrap the compressed data of a chunk in a stream which decompresses it according to the chunk version */
+    private static DataInputStream getDecompressingInputStream(int version, InputStream in) throws IOException {
+        final ChunkCompression compression = ChunkCompression.forId(version);
+        if (compression == null) {
+            throw new IllegalArgumentException("unknown version " + version);
+        }
+        switch (compression) {
+            case GZIP:
+                return new DataInputStream(new GZIPInputStream(in));
+            case DEFLATE:
+                return new DataInputStream(new InflaterInputStream(in));
+            case NONE:
+                return new DataInputStream(in);
+            case LZ4:
+                return new DataInputStream(new LZ4BlockInputStream(in));
+            default:
+                throw new IllegalArgumentException("Unsupported compression " + compression);
+        }
     }
 
     /*
@@ -446,19 +864,166 @@ public final class RegionFile implements AutoCloseable {
      */
     class ChunkBuffer extends ByteArrayOutputStream {
         private int x, z;
+        private final ChunkCompression compression;
 
-        public ChunkBuffer(int x, int z) {
+        public ChunkBuffer(int x, int z, ChunkCompression compression) {
             super(8096); // initialize to 8KB
             this.x = x;
             this.z = z;
+            this.compression = compression;
         }
 
         @Override
         public void close() throws IOException {
-            RegionFile.this.write(x, z, buf, count);
+            RegionFile.this.write(x, z, buf, count, compression);
         }
     }
 
+    /*
+     * a deflater output stream which borrows its deflater from a pool, instead of creating (and having to end) a new
+     * one for every chunk
+     */
+    static class PooledDeflaterOutputStream extends DeflaterOutputStream {
+        PooledDeflaterOutputStream(OutputStream out, int level) {
+            super(out, borrowDeflater(level), 8192);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (! closed) {
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    returnDeflater(def);
+                }
+            }
+        }
+
+        private static Deflater borrowDeflater(int level) {
+            final Deflater deflater = DEFLATER_POOL.poll();
+            if (deflater != null) {
+                deflater.setLevel(level);
+                return deflater;
+            } else {
+                return new Deflater(level);
+            }
+        }
+
+        private static void returnDeflater(Deflater deflater) {
+            deflater.reset();
+            DEFLATER_POOL.offer(deflater);
+        }
+
+        private boolean closed;
+
+        private static final Queue<Deflater> DEFLATER_POOL = new ConcurrentLinkedQueue<>();
+    }
+
+    /*
+     * an input stream reading from the mapped buffer, which keeps it mapped until the stream is closed
+     */
+    private class MappedBufferInputStream extends FilterInputStream {
+        MappedBufferInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (! closed) {
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    releaseMappedBuffer();
+                }
+            }
+        }
+
+        private boolean closed;
+    }
+
+    /*
+     * an input stream which reads the contents of a byte buffer
+     */
+    static class ByteBufferInputStream extends InputStream {
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            } else if (! buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        private final ByteBuffer buffer;
+    }
+
+    /*
+     * an input stream which inflates zlib compressed data directly from a byte buffer, without copying it to an
+     * intermediate array first
+     */
+    static class ByteBufferInflaterInputStream extends InputStream {
+        ByteBufferInflaterInputStream(ByteBuffer buffer) {
+            inflater.setInput(buffer);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return (read(singleByte, 0, 1) == -1) ? -1 : (singleByte[0] & 0xff);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                int bytesInflated;
+                while ((bytesInflated = inflater.inflate(b, off, len)) == 0) {
+                    if (inflater.finished() || inflater.needsDictionary()) {
+                        return -1;
+                    } else if (inflater.needsInput()) {
+                        throw new EOFException("Unexpected end of ZLIB input stream");
+                    }
+                }
+                return bytesInflated;
+            } catch (DataFormatException e) {
+                throw new ZipException((e.getMessage() != null) ? e.getMessage() : "Invalid ZLIB data format");
+            }
+        }
+
+        @Override
+        public int available() {
+            return inflater.finished() ? 0 : 1;
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+        }
+
+        private final Inflater inflater = new Inflater();
+        private final byte[] singleByte = new byte[1];
+    }
+
     public static class InvalidRegionFileException extends MDCCapturingRuntimeException {
         InvalidRegionFileException(String message) {
             super(message);
@@ -23,114 +23,462 @@ package org.pepsoft.minecraft;
  *
  */
 
-// A simple cache and wrapper for efficiently multiple RegionFiles simultaneously.
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.File;
-import java.io.IOException;
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.pepsoft.minecraft.Constants.VERSION_ANVIL;
 import static org.pepsoft.minecraft.Constants.VERSION_MCREGION;
 
+/**
+ * A concurrent cache of open {@link RegionFile}s, for efficiently accessing multiple region files simultaneously.
+ *
+ * <p>The number of open region files is bounded by a configurable budget (see {@link #setMaxOpenFiles(int)} and the
+ * {@code org.pepsoft.worldpainter.regionFileCacheSize} system property). When the budget is exceeded the least
+ * recently used region files are closed. Region files are reference counted: a region file obtained through
+ * {@link #acquireRegionFile(File, int, int, int, boolean)} or {@link #acquireRegionFileIfExists(File, int, int, int, boolean)}
+ * is not closed until the returned {@link Handle} has been closed, so the cache may temporarily exceed the budget if
+ * more region files are in use than that.
+ *
+ * <p>A region file which is open for writing is also handed out to callers which ask for read-only access, so that
+ * they see the chunks written through it.
+ *
+ * <p>Handles should be held only for as long as the region file is actually being accessed, so that the budget can be
+ * respected. The region file itself must never be closed directly, since it is shared with other users of the cache.
+ */
 public final class RegionFileCache {
+    private RegionFileCache() {
+        // Prevent instantiation
+    }
 
-    private static final int MAX_CACHE_SIZE = 256;
+    /**
+     * Acquire a region file, if it exists. The region file will be kept open until the returned handle is closed.
+     *
+     * @return A handle to the region file containing the specified chunk, or {@code null} if it does not exist.
+     */
+    public static Handle acquireRegionFileIfExists(File basePath, int chunkX, int chunkZ, int version, boolean readOnly) throws IOException {
+        return acquire(getRegionFileKey(basePath, chunkX, chunkZ, version, readOnly), false);
+    }
 
+    /**
+     * Acquire a region file, creating it if it does not exist yet and {@code readOnly} is {@code false}. The region
+     * file will be kept open until the returned handle is closed.
+     *
+     * @return A handle to the region file containing the specified chunk. May only be {@code null} if
+     * {@code readOnly} is {@code true} and the region file does not exist.
+     */
+    public static Handle acquireRegionFile(File basePath, int chunkX, int chunkZ, int version, boolean readOnly) throws IOException {
+        return acquire(getRegionFileKey(basePath, chunkX, chunkZ, version, readOnly), ! readOnly);
+    }
 
-    private static final Map<File, Reference<RegionFile>> cache = new HashMap<>(), readOnlyCache = new HashMap<>();
+    /**
+     * Acquire a specific region file, if it exists. The region file will be kept open until the returned handle is
+     * closed.
+     *
+     * @return A handle to the region file, or {@code null} if it does not exist.
+     */
+    public static Handle acquireRegionFileIfExists(File file, boolean readOnly) throws IOException {
+        return acquire(new Key(file, readOnly), false);
+    }
 
-    private RegionFileCache() {
+    /**
+     * Acquire a specific region file, creating it if it does not exist yet and {@code readOnly} is {@code false}. The
+     * region file will be kept open until the returned handle is closed.
+     *
+     * @return A handle to the region file. May only be {@code null} if {@code readOnly} is {@code true} and the
+     * region file does not exist.
+     */
+    public static Handle acquireRegionFile(File file, boolean readOnly) throws IOException {
+        return acquire(new Key(file, readOnly), ! readOnly);
     }
 
-    public static synchronized RegionFile getRegionFileIfExists(File basePath, int chunkX, int chunkZ, int version) throws IOException {
-        return getRegionFileIfExists(basePath, chunkX, chunkZ, version, false);
+    /**
+     * Close all cached region files which are not currently in use. Region files which are in use are left open.
+     */
+    public static void clear() throws IOException {
+        clear(null);
     }
 
-    public static synchronized RegionFile getRegionFileIfExists(File basePath, int chunkX, int chunkZ, int version, boolean readOnly) throws IOException {
-        if ((version != VERSION_MCREGION) && (version != VERSION_ANVIL)) {
-            throw new IllegalArgumentException("Not a supported version: 0x" + Integer.toHexString(version));
+    /**
+     * Close all cached region files in a particular directory which are not currently in use. Region files which are in
+     * use are left open.
+     *
+     * @param directory The directory of which to close the region files, or {@code null} to close all region files.
+     */
+    public static void clear(File directory) throws IOException {
+        IOException exception = null;
+        for (Entry entry: cache.values()) {
+            if ((directory != null) && (! directory.equals(entry.key.file.getParentFile()))) {
+                continue;
+            }
+            try {
+                entry.tryClose();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
         }
-        
-        File regionDir = new File(basePath, "region");
-        if (!regionDir.exists()) {
-            return null;
+        if (exception != null) {
+            throw exception;
         }
-        File file = new File(regionDir, "r." + (chunkX >> 5) + "." + (chunkZ >> 5) + ((version == VERSION_MCREGION) ? ".mcr" : ".mca"));
+    }
 
-        Reference<RegionFile> ref = readOnly ? readOnlyCache.get(file) : cache.get(file);
+    public static int getSizeDelta(File basePath, int chunkX, int chunkZ, int version) throws IOException {
+        try (Handle handle = acquireRegionFile(basePath, chunkX, chunkZ, version, false)) {
+            return handle.regionFile.getSizeDelta();
+        }
+    }
 
-        RegionFile regionFile = (ref != null) ? ref.get() : null;
-        if (regionFile != null) {
-            return regionFile;
+    /**
+     * Get an input stream from which the data of a chunk can be read. The region file is held open until the stream
+     * is closed.
+     *
+     * @return An input stream from which the data of the chunk can be read, or {@code null} if the chunk does not
+     * exist.
+     */
+    public static DataInputStream getChunkDataInputStream(File basePath, int chunkX, int chunkZ, int version) throws IOException {
+        final Handle handle = acquireRegionFile(basePath, chunkX, chunkZ, version, false);
+        final DataInputStream in;
+        try {
+            in = handle.regionFile.getChunkDataInputStream(chunkX & 31, chunkZ & 31);
+        } catch (IOException | RuntimeException e) {
+            handle.close();
+            throw e;
         }
-        
-        if (! file.isFile()) {
+        if (in == null) {
+            handle.close();
             return null;
         }
+        return new DataInputStream(new FilterInputStream(in) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    handle.close();
+                }
+            }
+        });
+    }
 
-        if ((readOnly ? readOnlyCache.size() : cache.size()) >= MAX_CACHE_SIZE) {
-            RegionFileCache.clear();
+    /**
+     * Get an output stream to which the data of a chunk can be written. The data is written to the region file when
+     * the stream is closed, and the region file is held open until then.
+     */
+    public static DataOutputStream getChunkDataOutputStream(File basePath, int chunkX, int chunkZ, int version) throws IOException {
+        final Handle handle = acquireRegionFile(basePath, chunkX, chunkZ, version, false);
+        final DataOutputStream out;
+        try {
+            out = handle.regionFile.getChunkDataOutputStream(chunkX & 31, chunkZ & 31);
+        } catch (IOException | RuntimeException e) {
+            handle.close();
+            throw e;
         }
+        return new DataOutputStream(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
 
-        regionFile = new RegionFile(file, readOnly);
-        (readOnly ? readOnlyCache : cache).put(file, new SoftReference<>(regionFile));
-        return regionFile;
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    handle.close();
+                }
+            }
+        });
     }
-    
-    public static synchronized RegionFile getRegionFile(File basePath, int chunkX, int chunkZ, int version) throws IOException {
+
+    /**
+     * Get the maximum number of region files which will be kept open when they are not in use.
+     */
+    public static int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    /**
+     * Set the maximum number of region files which will be kept open when they are not in use. If the cache currently
+     * contains more unused region files than this, the least recently used ones are closed.
+     *
+     * @param maxOpenFiles The maximum number of region files to keep open. Must be at least one.
+     */
+    public static void setMaxOpenFiles(int maxOpenFiles) throws IOException {
+        if (maxOpenFiles < 1) {
+            throw new IllegalArgumentException("maxOpenFiles " + maxOpenFiles + " < 1");
+        }
+        RegionFileCache.maxOpenFiles = maxOpenFiles;
+        evictIfNecessary();
+    }
+
+    /**
+     * Get the number of region files currently held open by the cache, whether in use or not.
+     */
+    public static int getOpenFileCount() {
+        return cache.size();
+    }
+
+    /**
+     * Get the number of times a region file was requested which was already open.
+     */
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of times a region file had to be opened.
+     */
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of times a region file was closed because the cache was full.
+     */
+    public static long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Reset the hit, miss and eviction counters to zero.
+     */
+    public static void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    private static Key getRegionFileKey(File basePath, int chunkX, int chunkZ, int version, boolean readOnly) {
         if ((version != VERSION_MCREGION) && (version != VERSION_ANVIL)) {
             throw new IllegalArgumentException("Not a supported version: 0x" + Integer.toHexString(version));
         }
-        
-        File regionDir = new File(basePath, "region");
-        File file = new File(regionDir, "r." + (chunkX >> 5) + "." + (chunkZ >> 5) + ((version == VERSION_MCREGION) ? ".mcr" : ".mca"));
+        final File regionDir = new File(basePath, "region");
+        return new Key(new File(regionDir, "r." + (chunkX >> 5) + "." + (chunkZ >> 5) + ((version == VERSION_MCREGION) ? ".mcr" : ".mca")), readOnly);
+    }
 
-        Reference<RegionFile> ref = cache.get(file);
+    private static Handle acquire(Key key, boolean create) throws IOException {
+        if (key.readOnly) {
+            // A region file which is open for writing may be used for reading as well. This is not just an optimisation:
+            // a region file opened separately for reading would not see the chunks written through the other one
+            final Entry writeableEntry = cache.get(new Key(key.file, false));
+            if ((writeableEntry != null) && writeableEntry.retain()) {
+                hits.incrementAndGet();
+                return new Handle(writeableEntry);
+            }
+        } else {
+            // Likewise a read-only copy of the region file would become stale, so close it if it is not in use
+            final Entry readOnlyEntry = cache.get(new Key(key.file, true));
+            if (readOnlyEntry != null) {
+                readOnlyEntry.tryClose();
+            }
+        }
+        while (true) {
+            Entry entry = cache.get(key);
+            if (entry == null) {
+                final Entry[] created = new Entry[1];
+                try {
+                    entry = cache.computeIfAbsent(key, k -> {
+                        try {
+                            created[0] = open(k, create);
+                            return created[0];
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                if (entry == null) {
+                    return null;
+                } else if (entry == created[0]) {
+                    // New entries are created with a reference count of one, so that they cannot be evicted before
+                    // they have been handed out
+                    misses.incrementAndGet();
+                    evictIfNecessary();
+                    return new Handle(entry);
+                }
+            }
+            if (entry.retain()) {
+                hits.incrementAndGet();
+                return new Handle(entry);
+            }
+            // The entry is being evicted; make sure it is gone and try again
+            cache.remove(key, entry);
+        }
+    }
 
-        RegionFile regionFile = (ref != null) ? ref.get() : null;
-        if (regionFile != null) {
-            return regionFile;
+    private static Entry open(Key key, boolean create) throws IOException {
+        if (! key.file.isFile()) {
+            if (! create) {
+                return null;
+            }
+            final File regionDir = key.file.getParentFile();
+            if ((! regionDir.isDirectory()) && (! regionDir.mkdirs())) {
+                throw new IOException("Could not create directory " + regionDir);
+            }
         }
+        return new Entry(key, new RegionFile(key.file, key.readOnly));
+    }
 
-        if (! regionDir.exists()) {
-            regionDir.mkdirs();
+    /**
+     * Close the least recently used region files which are not in use until the number of open region files is
+     * within budget again, or there are no unused region files left.
+     */
+    private static void evictIfNecessary() throws IOException {
+        if (cache.size() <= maxOpenFiles) {
+            return;
+        }
+        // Only one thread needs to do this at a time, and concurrent scans would just evict more files than necessary
+        synchronized (evictionLock) {
+            int excess = cache.size() - maxOpenFiles;
+            if (excess <= 0) {
+                return;
+            }
+            final List<Entry> candidates = new ArrayList<>(cache.size());
+            for (Entry entry: cache.values()) {
+                if (entry.refCount.get() == 0) {
+                    candidates.add(entry);
+                }
+            }
+            candidates.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+            for (Entry candidate: candidates) {
+                if (excess <= 0) {
+                    break;
+                }
+                if (candidate.tryClose()) {
+                    evictions.incrementAndGet();
+                    excess--;
+                }
+            }
+            if (excess > 0) {
+                logger.debug("{} more region files open than budget of {} because they are in use", excess, maxOpenFiles);
+            }
         }
+    }
+
+    private static final ConcurrentMap<Key, Entry> cache = new ConcurrentHashMap<>();
+    private static final Object evictionLock = new Object();
+    private static final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), evictions = new AtomicLong();
+    private static volatile int maxOpenFiles = Math.max(Integer.getInteger("org.pepsoft.worldpainter.regionFileCacheSize", 256), 1);
+    private static final Logger logger = LoggerFactory.getLogger(RegionFileCache.class);
 
-        if (cache.size() >= MAX_CACHE_SIZE) {
-            RegionFileCache.clear();
+    /**
+     * A reference to a region file which keeps it open until the handle is closed. Closing the handle does not close
+     * the region file itself; it may be kept open by the cache for later use.
+     */
+    public static final class Handle implements Closeable {
+        private Handle(Entry entry) {
+            this.entry = entry;
+            regionFile = entry.regionFile;
         }
 
-        regionFile = new RegionFile(file);
-        cache.put(file, new SoftReference<>(regionFile));
-        return regionFile;
-    }
+        /**
+         * Get the region file. It must not be used any more after this handle has been closed.
+         */
+        public RegionFile getRegionFile() {
+            return regionFile;
+        }
 
-    public static synchronized void clear() throws IOException {
-        for (Reference<RegionFile> ref : cache.values()) {
-            if (ref.get() != null) {
-                ref.get().close();
+        /**
+         * Release the region file. Has no effect if the handle has already been closed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (released.compareAndSet(false, true)) {
+                entry.refCount.decrementAndGet();
+                evictIfNecessary();
             }
         }
-        cache.clear();
-    }
 
-    public static int getSizeDelta(File basePath, int chunkX, int chunkZ, int version) throws IOException {
-        RegionFile r = getRegionFile(basePath, chunkX, chunkZ, version);
-        return r.getSizeDelta();
+        private final Entry entry;
+        private final RegionFile regionFile;
+        private final AtomicBoolean released = new AtomicBoolean();
     }
 
-    public static DataInputStream getChunkDataInputStream(File basePath, int chunkX, int chunkZ, int version) throws IOException {
-        RegionFile r = getRegionFile(basePath, chunkX, chunkZ, version);
-        return r.getChunkDataInputStream(chunkX & 31, chunkZ & 31);
+    private static final class Key {
+        Key(File file, boolean readOnly) {
+            this.file = file;
+            this.readOnly = readOnly;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if ((o == null) || (getClass() != o.getClass())) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return (readOnly == key.readOnly) && file.equals(key.file);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(file, readOnly);
+        }
+
+        final File file;
+        final boolean readOnly;
     }
 
-    public static DataOutputStream getChunkDataOutputStream(File basePath, int chunkX, int chunkZ, int version) throws IOException {
-        RegionFile r = getRegionFile(basePath, chunkX, chunkZ, version);
-        return r.getChunkDataOutputStream(chunkX & 31, chunkZ & 31);
+    private static final class Entry {
+        Entry(Key key, RegionFile regionFile) {
+            this.key = key;
+            this.regionFile = regionFile;
+            lastAccess = System.nanoTime();
+        }
+
+        /**
+         * Increment the reference count, unless the entry has already been evicted.
+         *
+         * @return {@code true} if the reference count was incremented.
+         */
+        boolean retain() {
+            while (true) {
+                final int count = refCount.get();
+                if (count < 0) {
+                    return false;
+                } else if (refCount.compareAndSet(count, count + 1)) {
+                    lastAccess = System.nanoTime();
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Remove the entry from the cache and close the region file, if it is not in use.
+         *
+         * @return {@code true} if the region file was closed.
+         */
+        boolean tryClose() throws IOException {
+            // A reference count of -1 marks the entry as evicted, so that it can no longer be retained
+            if (refCount.compareAndSet(0, -1)) {
+                cache.remove(key, this);
+                regionFile.close();
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        final Key key;
+        final RegionFile regionFile;
+        final AtomicInteger refCount = new AtomicInteger(1);
+        volatile long lastAccess;
     }
-}
\ No newline at end of file
+}
@@ -56,7 +56,7 @@ public class RegionFileNode extends FileSystemNode {
     protected Node[] loadChildren() {
         try {
             List<Node> chunks = new ArrayList<>();
-            RegionFile regionFile = new RegionFile(file);
+            RegionFile regionFile = new RegionFile(file, true);
             for (int chunkX = 0; chunkX < 32; chunkX++) {
                 for (int chunkZ = 0; chunkZ < 32; chunkZ++) {
                     if (regionFile.containsChunk(chunkX, chunkZ)) {
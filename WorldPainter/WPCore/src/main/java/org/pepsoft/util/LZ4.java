@@ -0,0 +1,246 @@
+package org.pepsoft.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A minimal pure Java implementation of the LZ4 block format, and of the XXHash32 checksum used by the LZ4 block
+ * stream format, for use by {@link LZ4BlockOutputStream} and {@link LZ4BlockInputStream}.
+ */
+final class LZ4 {
+    private LZ4() {
+        // Prevent instantiation
+    }
+
+    /**
+     * The maximum size of the compressed form of a block of data of the specified length.
+     */
+    static int maxCompressedLength(int length) {
+        return length + (length / 255) + 16;
+    }
+
+    /**
+     * Compress a block of data. The destination buffer must have room for at least
+     * {@link #maxCompressedLength(int) maxCompressedLength(srcLen)} bytes.
+     *
+     * @param hashTable A scratch table of {@link #HASH_TABLE_SIZE} entries, which will be overwritten.
+     * @return The length of the compressed data.
+     */
+    static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int[] hashTable) {
+        final int srcEnd = srcOff + srcLen, matchLimit = srcEnd - LAST_LITERALS, mfLimit = srcEnd - MF_LIMIT;
+        int ip = srcOff, anchor = srcOff, op = destOff;
+        if (srcLen >= MF_LIMIT + 1) {
+            Arrays.fill(hashTable, -1);
+            while (ip < mfLimit) {
+                final int sequence = readIntLE(src, ip);
+                final int hash = hash(sequence);
+                int ref = hashTable[hash];
+                hashTable[hash] = ip;
+                if ((ref < srcOff) || ((ip - ref) > MAX_DISTANCE) || (readIntLE(src, ref) != sequence)) {
+                    ip++;
+                    continue;
+                }
+
+                // Extend the match backwards into the pending literals, and then forwards
+                while ((ip > anchor) && (ref > srcOff) && (src[ip - 1] == src[ref - 1])) {
+                    ip--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (((ip + matchLength) < matchLimit) && (src[ip + matchLength] == src[ref + matchLength])) {
+                    matchLength++;
+                }
+
+                op = writeSequence(src, anchor, ip - anchor, dest, op, ip - ref, matchLength);
+                ip += matchLength;
+                anchor = ip;
+            }
+        }
+
+        // The remainder of the data is always encoded as literals
+        final int literalLength = srcEnd - anchor;
+        op = writeLength(dest, op, literalLength, 0);
+        System.arraycopy(src, anchor, dest, op, literalLength);
+        return op + literalLength - destOff;
+    }
+
+    /**
+     * Decompress a block of data. The decompressed data must be exactly {@code destLen} bytes long.
+     *
+     * @throws IOException If the compressed data is malformed.
+     */
+    static void decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen) throws IOException {
+        final int srcEnd = srcOff + srcLen, destEnd = destOff + destLen;
+        int ip = srcOff, op = destOff;
+        while (true) {
+            if (ip >= srcEnd) {
+                throw new IOException("Malformed LZ4 data (truncated sequence)");
+            }
+            final int token = src[ip++] & 0xff;
+
+            // Literals
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int b;
+                do {
+                    if (ip >= srcEnd) {
+                        throw new IOException("Malformed LZ4 data (truncated literal length)");
+                    }
+                    b = src[ip++] & 0xff;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if ((literalLength > (srcEnd - ip)) || (literalLength > (destEnd - op))) {
+                throw new IOException("Malformed LZ4 data (literals out of bounds)");
+            }
+            System.arraycopy(src, ip, dest, op, literalLength);
+            ip += literalLength;
+            op += literalLength;
+            if (ip == srcEnd) {
+                // The last sequence consists of literals only
+                break;
+            }
+
+            // Match
+            if ((srcEnd - ip) < 2) {
+                throw new IOException("Malformed LZ4 data (truncated match offset)");
+            }
+            final int offset = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+            ip += 2;
+            int matchLength = token & 0xf;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (ip >= srcEnd) {
+                        throw new IOException("Malformed LZ4 data (truncated match length)");
+                    }
+                    b = src[ip++] & 0xff;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            final int ref = op - offset;
+            if ((offset == 0) || (ref < destOff) || (matchLength > (destEnd - op))) {
+                throw new IOException("Malformed LZ4 data (match out of bounds)");
+            }
+            if (offset >= matchLength) {
+                System.arraycopy(dest, ref, dest, op, matchLength);
+            } else {
+                // Overlapping match; has to be copied byte by byte
+                for (int i = 0; i < matchLength; i++) {
+                    dest[op + i] = dest[ref + i];
+                }
+            }
+            op += matchLength;
+        }
+        if (op != destEnd) {
+            throw new IOException("Malformed LZ4 data (decompressed length " + (op - destOff) + " != " + destLen + ")");
+        }
+    }
+
+    /**
+     * Calculate the XXHash32 hash of a range of bytes.
+     */
+    static int xxHash32(byte[] buf, int off, int len, int seed) {
+        final int end = off + len;
+        int hash;
+        if (len >= 16) {
+            int v1 = seed + PRIME1 + PRIME2, v2 = seed + PRIME2, v3 = seed, v4 = seed - PRIME1;
+            final int limit = end - 16;
+            do {
+                v1 = round(v1, readIntLE(buf, off));
+                v2 = round(v2, readIntLE(buf, off + 4));
+                v3 = round(v3, readIntLE(buf, off + 8));
+                v4 = round(v4, readIntLE(buf, off + 12));
+                off += 16;
+            } while (off <= limit);
+            hash = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+        } else {
+            hash = seed + PRIME5;
+        }
+        hash += len;
+        while (off <= (end - 4)) {
+            hash += readIntLE(buf, off) * PRIME3;
+            hash = Integer.rotateLeft(hash, 17) * PRIME4;
+            off += 4;
+        }
+        while (off < end) {
+            hash += (buf[off] & 0xff) * PRIME5;
+            hash = Integer.rotateLeft(hash, 11) * PRIME1;
+            off++;
+        }
+        hash ^= hash >>> 15;
+        hash *= PRIME2;
+        hash ^= hash >>> 13;
+        hash *= PRIME3;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    static int readIntLE(byte[] buf, int off) {
+        return (buf[off] & 0xff) | ((buf[off + 1] & 0xff) << 8) | ((buf[off + 2] & 0xff) << 16) | ((buf[off + 3] & 0xff) << 24);
+    }
+
+    static void writeIntLE(byte[] buf, int off, int value) {
+        buf[off] = (byte) value;
+        buf[off + 1] = (byte) (value >>> 8);
+        buf[off + 2] = (byte) (value >>> 16);
+        buf[off + 3] = (byte) (value >>> 24);
+    }
+
+    private static int writeSequence(byte[] src, int literalOff, int literalLength, byte[] dest, int op, int offset, int matchLength) {
+        op = writeLength(dest, op, literalLength, matchLength - MIN_MATCH);
+        System.arraycopy(src, literalOff, dest, op, literalLength);
+        op += literalLength;
+        dest[op++] = (byte) offset;
+        dest[op++] = (byte) (offset >>> 8);
+        if ((matchLength - MIN_MATCH) >= 15) {
+            op = writeExtraLength(dest, op, matchLength - MIN_MATCH - 15);
+        }
+        return op;
+    }
+
+    /**
+     * Write the token and the extra bytes of the literal length, if any.
+     */
+    private static int writeLength(byte[] dest, int op, int literalLength, int matchLengthCode) {
+        dest[op++] = (byte) ((Math.min(literalLength, 15) << 4) | Math.min(matchLengthCode, 15));
+        if (literalLength >= 15) {
+            op = writeExtraLength(dest, op, literalLength - 15);
+        }
+        return op;
+    }
+
+    private static int writeExtraLength(byte[] dest, int op, int remainder) {
+        while (remainder >= 255) {
+            dest[op++] = (byte) 255;
+            remainder -= 255;
+        }
+        dest[op++] = (byte) remainder;
+        return op;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_BITS);
+    }
+
+    private static int round(int value, int input) {
+        value += input * PRIME2;
+        value = Integer.rotateLeft(value, 13);
+        return value * PRIME1;
+    }
+
+    static final int HASH_BITS = 12;
+    static final int HASH_TABLE_SIZE = 1 << HASH_BITS;
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+
+    private static final int PRIME1 = 0x9E3779B1;
+    private static final int PRIME2 = 0x85EBCA77;
+    private static final int PRIME3 = 0xC2B2AE3D;
+    private static final int PRIME4 = 0x27D4EB2F;
+    private static final int PRIME5 = 0x165667B1;
+}
@@ -0,0 +1,141 @@
+package org.pepsoft.util;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.pepsoft.util.LZ4.*;
+import static org.pepsoft.util.LZ4BlockOutputStream.*;
+
+/**
+ * An input stream which decompresses data in the LZ4 block stream format written by {@link LZ4BlockOutputStream} and
+ * by the lz4-java library. The checksum of each block is verified.
+ */
+public class LZ4BlockInputStream extends FilterInputStream {
+    public LZ4BlockInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if ((position == length) && (! readBlock())) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if ((position == length) && (! readBlock())) {
+            return -1;
+        }
+        final int bytesToCopy = Math.min(len, length - position);
+        System.arraycopy(buffer, position, b, off, bytesToCopy);
+        position += bytesToCopy;
+        return bytesToCopy;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if ((n <= 0) || ((position == length) && (! readBlock()))) {
+            return 0;
+        }
+        final int bytesToSkip = (int) Math.min(n, length - position);
+        position += bytesToSkip;
+        return bytesToSkip;
+    }
+
+    @Override
+    public int available() {
+        return length - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // Not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Read and decompress the next block.
+     *
+     * @return {@code true} if a block was read, or {@code false} if the end of the stream was reached.
+     */
+    private boolean readBlock() throws IOException {
+        while (! finished) {
+            readFully(header, HEADER_LENGTH);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header[i] != MAGIC[i]) {
+                    throw new IOException("Stream is not in LZ4 block format");
+                }
+            }
+            final int token = header[MAGIC.length] & 0xff;
+            final int method = token & 0xf0, maxLength = 1 << (COMPRESSION_LEVEL_BASE + (token & 0x0f));
+            final int compressedLength = readIntLE(header, MAGIC.length + 1);
+            final int blockLength = readIntLE(header, MAGIC.length + 5);
+            final int checksum = readIntLE(header, MAGIC.length + 9);
+            if (((method != METHOD_RAW) && (method != METHOD_LZ4))
+                    || (blockLength < 0) || (blockLength > maxLength) || (compressedLength < 0)
+                    || ((method == METHOD_RAW) && (compressedLength != blockLength))) {
+                throw new IOException("Corrupt LZ4 block header");
+            }
+            if (blockLength == 0) {
+                if ((compressedLength != 0) || (checksum != 0)) {
+                    throw new IOException("Corrupt LZ4 end of stream marker");
+                }
+                finished = true;
+                break;
+            }
+
+            if (buffer.length < blockLength) {
+                buffer = new byte[Math.max(blockLength, buffer.length * 2)];
+            }
+            if (method == METHOD_RAW) {
+                readFully(buffer, blockLength);
+            } else {
+                if (compressedBuffer.length < compressedLength) {
+                    compressedBuffer = Arrays.copyOf(compressedBuffer, Math.max(compressedLength, compressedBuffer.length * 2));
+                }
+                readFully(compressedBuffer, compressedLength);
+                decompress(compressedBuffer, 0, compressedLength, buffer, 0, blockLength);
+            }
+            if ((xxHash32(buffer, 0, blockLength, CHECKSUM_SEED) & CHECKSUM_MASK) != checksum) {
+                throw new IOException("LZ4 block checksum mismatch");
+            }
+            position = 0;
+            length = blockLength;
+            return true;
+        }
+        return false;
+    }
+
+    private void readFully(byte[] b, int len) throws IOException {
+        int off = 0;
+        while (off < len) {
+            final int bytesRead = in.read(b, off, len - off);
+            if (bytesRead == -1) {
+                throw new EOFException("Unexpected end of LZ4 stream");
+            }
+            off += bytesRead;
+        }
+    }
+
+    private final byte[] header = new byte[HEADER_LENGTH];
+    private byte[] buffer = new byte[8192], compressedBuffer = new byte[8192];
+    private int position, length;
+    private boolean finished;
+}
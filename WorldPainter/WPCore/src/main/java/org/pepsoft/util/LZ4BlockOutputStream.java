@@ -0,0 +1,125 @@
+package org.pepsoft.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.pepsoft.util.LZ4.*;
+
+/**
+ * An output stream which compresses data using LZ4 in the block stream format of the lz4-java library, which is the
+ * format used by Minecraft for LZ4 compressed chunks. The data is compressed in blocks of up to 64 KB, each with its
+ * own header and checksum, and the stream is terminated with an empty block.
+ */
+public class LZ4BlockOutputStream extends FilterOutputStream {
+    public LZ4BlockOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == BLOCK_SIZE) {
+            flushBlock();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (count == BLOCK_SIZE) {
+                flushBlock();
+            }
+            final int bytesToCopy = Math.min(len, BLOCK_SIZE - count);
+            System.arraycopy(b, off, buffer, count, bytesToCopy);
+            count += bytesToCopy;
+            off += bytesToCopy;
+            len -= bytesToCopy;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBlock();
+        out.flush();
+    }
+
+    /**
+     * Write any buffered data and the end of stream marker, without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        ensureOpen();
+        flushBlock();
+        writeHeader(METHOD_RAW, 0, 0, 0);
+        out.write(compressedBuffer, 0, HEADER_LENGTH);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (! closed) {
+            try {
+                if (! finished) {
+                    finish();
+                }
+            } finally {
+                closed = true;
+                out.close();
+            }
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        final int checksum = xxHash32(buffer, 0, count, CHECKSUM_SEED) & CHECKSUM_MASK;
+        int compressedLength = compress(buffer, 0, count, compressedBuffer, HEADER_LENGTH, hashTable);
+        final int method;
+        if (compressedLength >= count) {
+            // Incompressible; store the data as is
+            method = METHOD_RAW;
+            compressedLength = count;
+            System.arraycopy(buffer, 0, compressedBuffer, HEADER_LENGTH, count);
+        } else {
+            method = METHOD_LZ4;
+        }
+        writeHeader(method, compressedLength, count, checksum);
+        out.write(compressedBuffer, 0, HEADER_LENGTH + compressedLength);
+        count = 0;
+    }
+
+    private void writeHeader(int method, int compressedLength, int length, int checksum) {
+        System.arraycopy(MAGIC, 0, compressedBuffer, 0, MAGIC.length);
+        compressedBuffer[MAGIC.length] = (byte) (method | COMPRESSION_LEVEL);
+        writeIntLE(compressedBuffer, MAGIC.length + 1, compressedLength);
+        writeIntLE(compressedBuffer, MAGIC.length + 5, length);
+        writeIntLE(compressedBuffer, MAGIC.length + 9, checksum);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished || closed) {
+            throw new IOException("Stream finished or closed");
+        }
+    }
+
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    private final byte[] compressedBuffer = new byte[HEADER_LENGTH + maxCompressedLength(BLOCK_SIZE)];
+    private final int[] hashTable = new int[HASH_TABLE_SIZE];
+    private int count;
+    private boolean finished, closed;
+
+    static final byte[] MAGIC = {'L', 'Z', '4', 'B', 'l', 'o', 'c', 'k'};
+    static final int HEADER_LENGTH = MAGIC.length + 1 + 4 + 4 + 4;
+    static final int METHOD_RAW = 0x10, METHOD_LZ4 = 0x20;
+    static final int COMPRESSION_LEVEL_BASE = 10;
+    static final int BLOCK_SIZE = 1 << 16;
+    static final int CHECKSUM_SEED = 0x9747b28c;
+    static final int CHECKSUM_MASK = 0xfffffff;
+
+    private static final int COMPRESSION_LEVEL = 32 - Integer.numberOfLeadingZeros(BLOCK_SIZE - 1) - COMPRESSION_LEVEL_BASE;
+}
@@ -0,0 +1,106 @@
+package org.pepsoft.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A first-in, first-out queue of primitive {@code long} values, backed by a growable circular array. Intended for hot
+ * loops such as flood fills, where boxing the values would create a large amount of garbage. Not thread-safe.
+ */
+public final class LongQueue {
+    /**
+     * Create a new, empty queue with a default initial capacity.
+     */
+    public LongQueue() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create a new, empty queue.
+     *
+     * @param initialCapacity The initial capacity of the queue. Will be rounded up to the next power of two.
+     */
+    public LongQueue(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity " + initialCapacity + " < 1");
+        }
+        elements = new long[Integer.highestOneBit(initialCapacity - 1) << 1];
+        if (elements.length == 0) {
+            elements = new long[1];
+        }
+        mask = elements.length - 1;
+    }
+
+    /**
+     * Add a value to the tail of the queue.
+     *
+     * @param value The value to add.
+     */
+    public void add(long value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & mask] = value;
+        size++;
+    }
+
+    /**
+     * Remove and return the value at the head of the queue.
+     *
+     * @return The value at the head of the queue.
+     * @throws NoSuchElementException If the queue is empty.
+     */
+    public long remove() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        final long value = elements[head];
+        head = (head + 1) & mask;
+        size--;
+        return value;
+    }
+
+    /**
+     * Indicates whether the queue is empty.
+     *
+     * @return {@code true} if the queue contains no values.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the number of values in the queue.
+     *
+     * @return The number of values in the queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all values from the queue. Does not release the backing array.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        if (elements.length >= MAX_CAPACITY) {
+            throw new IllegalStateException("Queue capacity exhausted (" + elements.length + " elements)");
+        }
+        final long[] newElements = new long[elements.length << 1];
+        final int tailLength = elements.length - head;
+        System.arraycopy(elements, head, newElements, 0, tailLength);
+        System.arraycopy(elements, 0, newElements, tailLength, head);
+        elements = newElements;
+        mask = newElements.length - 1;
+        head = 0;
+    }
+
+    private long[] elements;
+    private int head, size, mask;
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 30;
+}
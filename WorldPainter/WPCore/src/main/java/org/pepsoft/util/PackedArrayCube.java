@@ -2,9 +2,23 @@ package org.pepsoft.util;
 
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * A configurable-sized cube of values packed into a {@code long} array of indexes and a linear palette.
+ *
+ * <p>The values are stored in memory as a palette and an array of palette indexes packed into {@code long}s, using the
+ * smallest power of two number of bits per index that can address the palette. Reads and writes operate directly on
+ * the packed indexes; the index array is only repacked when the palette outgrows the current number of bits. If all
+ * values are the same the cube collapses to that single value and no index array is kept at all. Palette entries which
+ * are no longer in use are discarded when the palette would otherwise have to grow, and when the data is
+ * {@link #pack() packed}.
+ *
+ * <p>This class is <em>not</em> thread-safe, and unlike a plain array it is not safe for different threads to modify
+ * different values concurrently either, since neighbouring values share a {@code long} and modifications may repack
+ * the entire cube. Instances must be modified by at most one thread at a time, and must not be read while they are
+ * being modified by another thread. When assertions are enabled violations of this are detected and reported with a
+ * {@link ConcurrentModificationException}.
  */
 public class PackedArrayCube<T> {
     /**
@@ -17,14 +31,13 @@ public class PackedArrayCube<T> {
      *                        seems that Minecraft 1.15 supports this, whereas Minecraft 1.16+ does not.
      * @param type            The type of values to be stored in the packed array cube.
      */
-    @SuppressWarnings("unchecked") // Guaranteed by Java library
     public PackedArrayCube(int size, int minimumWordSize, boolean straddleLongs, Class<T> type) {
         this.minimumWordSize = minimumWordSize;
         this.straddleLongs = straddleLongs;
         this.type = type;
         bitsPerCoordinate = (int) Math.ceil(Math.log(size) / Math.log(2));
         arraySize = size * size * size;
-        values = (T[]) Array.newInstance(type, arraySize);
+        fill(null);
     }
 
     /**
@@ -40,7 +53,11 @@ public class PackedArrayCube<T> {
      * @param type            The type of values to be stored in the packed array cube.
      */
     public PackedArrayCube(int size, long[] data, T[] palette, int minimumWordSize, boolean straddleLongs, Class<T> type) {
-        this(size, minimumWordSize, straddleLongs, type);
+        this.minimumWordSize = minimumWordSize;
+        this.straddleLongs = straddleLongs;
+        this.type = type;
+        bitsPerCoordinate = (int) Math.ceil(Math.log(size) / Math.log(2));
+        arraySize = size * size * size;
 
         // Sanity check
         for (int i = 0; i < palette.length; i++) {
@@ -49,6 +66,15 @@ public class PackedArrayCube<T> {
             }
         }
 
+        if (palette.length == 1) {
+            fill(palette[0]);
+            return;
+        }
+        this.palette = palette.clone();
+        paletteSize = palette.length;
+        setBitsPerIndex(bitsNeededFor(paletteSize));
+        indexes = new long[indexArrayLength()];
+
         final int wordSize = Math.max(minimumWordSize, (int) Math.ceil(Math.log(palette.length) / Math.log(2)));
         final int expectedPackedDataArrayLengthInBytes = wordSize * arraySize / 8;
         final int dataArrayLengthInBytes = data.length * 8;
@@ -56,22 +82,9 @@ public class PackedArrayCube<T> {
             // Optimised special case
             for (int w = 0; w < arraySize; w += 16) {
                 final long arrayValue = data[w >> 4];
-                values[w]      = palette[(int) (arrayValue  & 0x000000000000000fL)];
-                values[w +  1] = palette[(int) ((arrayValue & 0x00000000000000f0L) >>   4)];
-                values[w +  2] = palette[(int) ((arrayValue & 0x0000000000000f00L) >>   8)];
-                values[w +  3] = palette[(int) ((arrayValue & 0x000000000000f000L) >>  12)];
-                values[w +  4] = palette[(int) ((arrayValue & 0x00000000000f0000L) >>  16)];
-                values[w +  5] = palette[(int) ((arrayValue & 0x0000000000f00000L) >>  20)];
-                values[w +  6] = palette[(int) ((arrayValue & 0x000000000f000000L) >>  24)];
-                values[w +  7] = palette[(int) ((arrayValue & 0x00000000f0000000L) >>  28)];
-                values[w +  8] = palette[(int) ((arrayValue & 0x0000000f00000000L) >>  32)];
-                values[w +  9] = palette[(int) ((arrayValue & 0x000000f000000000L) >>  36)];
-                values[w + 10] = palette[(int) ((arrayValue & 0x00000f0000000000L) >>  40)];
-                values[w + 11] = palette[(int) ((arrayValue & 0x0000f00000000000L) >>  44)];
-                values[w + 12] = palette[(int) ((arrayValue & 0x000f000000000000L) >>  48)];
-                values[w + 13] = palette[(int) ((arrayValue & 0x00f0000000000000L) >>  52)];
-                values[w + 14] = palette[(int) ((arrayValue & 0x0f00000000000000L) >>  56)];
-                values[w + 15] = palette[(int) ((arrayValue & 0xf000000000000000L) >>> 60)];
+                for (int i = 0; i < 16; i++) {
+                    setIndex(w + i, checkIndex((int) ((arrayValue >>> (i << 2)) & 0xfL)));
+                }
             }
         } else if (dataArrayLengthInBytes != expectedPackedDataArrayLengthInBytes) {
             // A weird format where the values are packed per long (leaving bits unused). Unpack each long individually
@@ -81,7 +94,7 @@ public class PackedArrayCube<T> {
             outer:
             for (long packedData: data) {
                 for (int offset = 0; offset < bitsInUse; offset += wordSize) {
-                    values[materialIndex++] = palette[(int) ((packedData & (mask << offset)) >>> offset)];
+                    setIndex(materialIndex++, checkIndex((int) ((packedData & (mask << offset)) >>> offset)));
                     if (materialIndex >= arraySize) {
                         // The last long was not fully used
                         break outer;
@@ -96,26 +109,70 @@ public class PackedArrayCube<T> {
                 for (int b = 0; b < wordSize; b++) {
                     index |= bitSet.get(wordOffset + b) ? 1 << b : 0;
                 }
-                values[w] = palette[index];
+                setIndex(w, checkIndex(index));
             }
         }
     }
 
     public T getValue(int x, int y, int z) {
-        return values[offset(x, y, z)];
+        assert notBeingModifiedByOtherThread();
+        return (indexes == null) ? singleValue : palette[getIndex(offset(x, y, z))];
     }
 
     public void setValue(int x, int y, int z, T value) {
-        values[offset(x, y, z)] = value;
+        assert startModification();
+        try {
+            if (indexes == null) {
+                if (matches(singleValue, value)) {
+                    return;
+                }
+                // Expand to a palette of two values
+                palette = createArray(INITIAL_PALETTE_CAPACITY);
+                palette[0] = singleValue;
+                palette[1] = value;
+                paletteSize = 2;
+                reversePalette = null;
+                setBitsPerIndex(1);
+                indexes = new long[indexArrayLength()];
+                singleValue = null;
+                setIndex(offset(x, y, z), 1);
+            } else {
+                setIndex(offset(x, y, z), indexOf(value));
+            }
+        } finally {
+            assert endModification();
+        }
     }
 
     public void fill(T value) {
-        Arrays.fill(values, value);
+        assert startModification();
+        try {
+            singleValue = value;
+            indexes = null;
+            palette = null;
+            reversePalette = null;
+            paletteSize = 0;
+        } finally {
+            assert endModification();
+        }
     }
 
     public boolean isEmpty() {
+        if (indexes == null) {
+            return singleValue == null;
+        }
+        boolean nullInPalette = false;
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] == null) {
+                nullInPalette = true;
+                break;
+            }
+        }
+        if (! nullInPalette) {
+            return false;
+        }
         for (int i = 0; i < arraySize; i++) {
-            if (values[i] != null) {
+            if (palette[getIndex(i)] != null) {
                 return false;
             }
         }
@@ -139,53 +196,57 @@ public class PackedArrayCube<T> {
      *                       one of the palette entries may be {@code null}.
      * @return The packed data.
      */
-    @SuppressWarnings("unchecked") // Guaranteed by Java library
     public PackedData pack(T nullSubstitute) {
-        // Create the palette. We have to do this first, because otherwise we don't know how many bits the indices will
-        // be and therefore how big to make the data array
+        assert notBeingModifiedByOtherThread();
+        // Create the palette, containing only the values actually in use, in order of first occurrence. We have to do
+        // this first, because otherwise we don't know how many bits the indices will be and therefore how big to make
+        // the data array
         final Map<T, Integer> reversePalette = new HashMap<>();
-        final List<T> palette = new LinkedList<>();
-        for (T value: values) {
-            if (value == null) {
-                value = nullSubstitute;
-            }
-            if (! reversePalette.containsKey(value)) {
-                reversePalette.put(value, palette.size());
-                palette.add(value);
+        final List<T> palette = new ArrayList<>();
+        final int[] indices = new int[arraySize];
+        if (indexes == null) {
+            palette.add(substituteNull(singleValue, nullSubstitute));
+        } else {
+            final int[] paletteMapping = new int[paletteSize];
+            Arrays.fill(paletteMapping, -1);
+            for (int i = 0; i < arraySize; i++) {
+                final int oldIndex = getIndex(i);
+                int newIndex = paletteMapping[oldIndex];
+                if (newIndex == -1) {
+                    final T value = substituteNull(this.palette[oldIndex], nullSubstitute);
+                    final Integer existingIndex = reversePalette.get(value);
+                    if (existingIndex != null) {
+                        newIndex = existingIndex;
+                    } else {
+                        newIndex = palette.size();
+                        reversePalette.put(value, newIndex);
+                        palette.add(value);
+                    }
+                    paletteMapping[oldIndex] = newIndex;
+                }
+                indices[i] = newIndex;
             }
         }
 
         // Create the data array and fill it, using the appropriate length palette indices so that it just fits
         final int paletteIndexSize = Math.max((int) Math.ceil(Math.log(palette.size()) / Math.log(2)), minimumWordSize);
         final long[] data;
-        if ((paletteIndexSize == 4) && ((values.length % 16) == 0)) {
+        if ((paletteIndexSize == 4) && ((arraySize % 16) == 0)) {
             // Optimised special case
-            data = new long[values.length >> 4];
-            for (int i = 0; i < values.length; i += 16) {
-                data[i >> 4] =
-                               reversePalette.get(substituteNull(values[i],      nullSubstitute))
-                    |         (reversePalette.get(substituteNull(values[i +  1], nullSubstitute))  <<  4)
-                    |         (reversePalette.get(substituteNull(values[i +  2], nullSubstitute))  <<  8)
-                    |         (reversePalette.get(substituteNull(values[i +  3], nullSubstitute))  << 12)
-                    |         (reversePalette.get(substituteNull(values[i +  4], nullSubstitute))  << 16)
-                    |         (reversePalette.get(substituteNull(values[i +  5], nullSubstitute))  << 20)
-                    |         (reversePalette.get(substituteNull(values[i +  6], nullSubstitute))  << 24)
-                    | ((long) (reversePalette.get(substituteNull(values[i +  7], nullSubstitute))) << 28)
-                    | ((long) (reversePalette.get(substituteNull(values[i +  8], nullSubstitute))) << 32)
-                    | ((long) (reversePalette.get(substituteNull(values[i +  9], nullSubstitute))) << 36)
-                    | ((long) (reversePalette.get(substituteNull(values[i + 10], nullSubstitute))) << 40)
-                    | ((long) (reversePalette.get(substituteNull(values[i + 11], nullSubstitute))) << 44)
-                    | ((long) (reversePalette.get(substituteNull(values[i + 12], nullSubstitute))) << 48)
-                    | ((long) (reversePalette.get(substituteNull(values[i + 13], nullSubstitute))) << 52)
-                    | ((long) (reversePalette.get(substituteNull(values[i + 14], nullSubstitute))) << 56)
-                    | ((long) (reversePalette.get(substituteNull(values[i + 15], nullSubstitute))) << 60);
+            data = new long[arraySize >> 4];
+            for (int i = 0; i < arraySize; i += 16) {
+                long value = 0L;
+                for (int j = 0; j < 16; j++) {
+                    value |= ((long) indices[i + j]) << (j << 2);
+                }
+                data[i >> 4] = value;
             }
         } else {
             if (straddleLongs) {
                 final BitSet dataBits = new BitSet(arraySize * paletteIndexSize);
                 for (int i = 0; i < arraySize; i++) {
                     final int offset = i * paletteIndexSize;
-                    final int index = reversePalette.get(substituteNull(values[i], nullSubstitute));
+                    final int index = indices[i];
                     for (int j = 0; j < paletteIndexSize; j++) {
                         if ((index & (1 << j)) != 0) {
                             dataBits.set(offset + j);
@@ -205,41 +266,230 @@ public class PackedArrayCube<T> {
             } else {
                 final int wordsPerLong = 64 / paletteIndexSize;
                 final int dataSize = arraySize / wordsPerLong + (((arraySize % wordsPerLong) == 0) ? 0 : 1); // Round up
-                final BitSet dataBits = new BitSet(dataSize * 64);
+                data = new long[dataSize];
                 for (int i = 0; i < arraySize; i++) {
-                    final int offset = (i / wordsPerLong) * 64 + (i % wordsPerLong) * paletteIndexSize;
-                    final int index = reversePalette.get(substituteNull(values[i], nullSubstitute));
-                    for (int j = 0; j < paletteIndexSize; j++) {
-                        if ((index & (1 << j)) != 0) {
-                            dataBits.set(offset + j);
-                        }
-                    }
-                }
-                final long[] dataArray = dataBits.toLongArray();
-                if (dataArray.length == dataSize) {
-                    data = dataArray;
-                } else {
-                    // If the last bits of the BitSet are zero, toLongArray() does not return those longs, but
-                    // Minecraft can't handle that
-                    data = Arrays.copyOf(dataArray, dataSize);
+                    data[i / wordsPerLong] |= ((long) indices[i]) << ((i % wordsPerLong) * paletteIndexSize);
                 }
             }
         }
-        return new PackedData(data, palette.toArray((T[]) Array.newInstance(type, palette.size())));
+        return new PackedData(data, palette.toArray(createArray(palette.size())));
+    }
+
+    /**
+     * Register the current thread as the one modifying the cube. Only invoked when assertions are enabled.
+     *
+     * @return {@code true}.
+     * @throws ConcurrentModificationException If another thread is already modifying the cube.
+     */
+    private boolean startModification() {
+        final Thread currentThread = Thread.currentThread();
+        if (! MODIFYING_THREAD.compareAndSet(this, null, currentThread)) {
+            throw new ConcurrentModificationException("PackedArrayCube modified by " + currentThread.getName() + " while being modified by " + modifyingThread);
+        }
+        return true;
+    }
+
+    /**
+     * Unregister the current thread as the one modifying the cube. Only invoked when assertions are enabled.
+     *
+     * @return {@code true}.
+     */
+    private boolean endModification() {
+        // The modification methods never invoke each other, so modifications are not nested
+        modifyingThread = null;
+        return true;
+    }
+
+    /**
+     * Check that no other thread is modifying the cube. Only invoked when assertions are enabled.
+     *
+     * @return {@code true}.
+     * @throws ConcurrentModificationException If another thread is modifying the cube.
+     */
+    private boolean notBeingModifiedByOtherThread() {
+        final Thread otherThread = modifyingThread;
+        if ((otherThread != null) && (otherThread != Thread.currentThread())) {
+            throw new ConcurrentModificationException("PackedArrayCube read by " + Thread.currentThread().getName() + " while being modified by " + otherThread.getName());
+        }
+        return true;
     }
 
     private int offset(int x, int y, int z) {
         return x | ((y | (z << bitsPerCoordinate)) << bitsPerCoordinate);
     }
 
+    private int getIndex(int offset) {
+        return (int) ((indexes[offset >> indexesPerLongShift] >>> ((offset & indexesPerLongMask) << bitsPerIndexShift)) & indexMask);
+    }
+
+    private void setIndex(int offset, int index) {
+        final int arrayIndex = offset >> indexesPerLongShift, shift = (offset & indexesPerLongMask) << bitsPerIndexShift;
+        indexes[arrayIndex] = (indexes[arrayIndex] & ~(indexMask << shift)) | (((long) index) << shift);
+    }
+
+    /**
+     * Get the palette index of a value, adding it to the palette (and repacking the indexes if necessary) if it is not
+     * present yet.
+     */
+    private int indexOf(T value) {
+        // Most values are canonical instances, so try an identity match first
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] == value) {
+                return i;
+            }
+        }
+        if (value != null) {
+            if (reversePalette != null) {
+                final Integer index = reversePalette.get(value);
+                if (index != null) {
+                    return index;
+                }
+            } else {
+                for (int i = 0; i < paletteSize; i++) {
+                    if (value.equals(palette[i])) {
+                        return i;
+                    }
+                }
+            }
+        }
+
+        // Not in the palette yet; add it. If that would require more bits per index, first try to make room by
+        // discarding palette entries which are no longer in use
+        if (paletteSize == (1 << bitsPerIndex)) {
+            compact();
+        }
+        if (paletteSize == palette.length) {
+            palette = Arrays.copyOf(palette, palette.length * 2);
+        }
+        final int index = paletteSize++;
+        palette[index] = value;
+        if (reversePalette != null) {
+            reversePalette.put(value, index);
+        } else if (paletteSize > REVERSE_PALETTE_THRESHOLD) {
+            reversePalette = new HashMap<>();
+            for (int i = 0; i < paletteSize; i++) {
+                reversePalette.putIfAbsent(palette[i], i);
+            }
+        }
+        if (paletteSize > (1 << bitsPerIndex)) {
+            repack(bitsNeededFor(paletteSize));
+        }
+        return index;
+    }
+
+    /**
+     * Remove palette entries which are no longer referenced by any index.
+     */
+    private void compact() {
+        final boolean[] used = new boolean[paletteSize];
+        int usedCount = 0;
+        for (int i = 0; (i < arraySize) && (usedCount < paletteSize); i++) {
+            final int index = getIndex(i);
+            if (! used[index]) {
+                used[index] = true;
+                usedCount++;
+            }
+        }
+        if (usedCount == paletteSize) {
+            return;
+        }
+        final int[] mapping = new int[paletteSize];
+        final T[] newPalette = createArray(palette.length);
+        int newPaletteSize = 0;
+        for (int i = 0; i < paletteSize; i++) {
+            if (used[i]) {
+                mapping[i] = newPaletteSize;
+                newPalette[newPaletteSize++] = palette[i];
+            }
+        }
+        for (int i = 0; i < arraySize; i++) {
+            setIndex(i, mapping[getIndex(i)]);
+        }
+        palette = newPalette;
+        paletteSize = newPaletteSize;
+        if (paletteSize > REVERSE_PALETTE_THRESHOLD) {
+            reversePalette = new HashMap<>();
+            for (int i = 0; i < paletteSize; i++) {
+                reversePalette.putIfAbsent(palette[i], i);
+            }
+        } else {
+            reversePalette = null;
+        }
+    }
+
+    private void repack(int newBitsPerIndex) {
+        final long[] oldIndexes = indexes;
+        final int oldIndexesPerLongShift = indexesPerLongShift, oldIndexesPerLongMask = indexesPerLongMask,
+                oldBitsPerIndexShift = bitsPerIndexShift;
+        final long oldIndexMask = indexMask;
+        setBitsPerIndex(newBitsPerIndex);
+        indexes = new long[indexArrayLength()];
+        for (int i = 0; i < arraySize; i++) {
+            setIndex(i, (int) ((oldIndexes[i >> oldIndexesPerLongShift] >>> ((i & oldIndexesPerLongMask) << oldBitsPerIndexShift)) & oldIndexMask));
+        }
+    }
+
+    private void setBitsPerIndex(int bitsPerIndex) {
+        this.bitsPerIndex = bitsPerIndex;
+        bitsPerIndexShift = Integer.numberOfTrailingZeros(bitsPerIndex);
+        indexesPerLongShift = 6 - bitsPerIndexShift;
+        indexesPerLongMask = (1 << indexesPerLongShift) - 1;
+        indexMask = (1L << bitsPerIndex) - 1;
+    }
+
+    private int indexArrayLength() {
+        return (arraySize + indexesPerLongMask) >> indexesPerLongShift;
+    }
+
+    private int checkIndex(int index) {
+        if (index >= paletteSize) {
+            throw new IllegalArgumentException("Palette index " + index + " out of range (palette size: " + paletteSize + ")");
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked") // Guaranteed by Java library
+    private T[] createArray(int length) {
+        return (T[]) Array.newInstance(type, length);
+    }
+
+    private boolean matches(T value1, T value2) {
+        return (value1 == value2) || ((value1 != null) && value1.equals(value2));
+    }
+
     private T substituteNull(T value, T nullSubstitute) {
         return (value == null) ? nullSubstitute : value;
     }
 
+    /**
+     * The smallest power of two number of bits which can represent indexes into a palette of the specified size.
+     */
+    private static int bitsNeededFor(int paletteSize) {
+        int bits = 1;
+        while ((1 << bits) < paletteSize) {
+            bits <<= 1;
+        }
+        return bits;
+    }
+
     private final Class<T> type;
     private final int arraySize, minimumWordSize, bitsPerCoordinate;
     private final boolean straddleLongs;
-    private final T[] values;
+    // Either singleValue is used (and indexes is null), or palette and indexes are used:
+    private T singleValue;
+    private T[] palette;
+    private Map<T, Integer> reversePalette;
+    private int paletteSize;
+    private long[] indexes;
+    private int bitsPerIndex, bitsPerIndexShift, indexesPerLongShift, indexesPerLongMask;
+    private long indexMask;
+    /** The thread currently modifying the cube. Only maintained when assertions are enabled. */
+    private volatile Thread modifyingThread;
+
+    private static final int INITIAL_PALETTE_CAPACITY = 4;
+    private static final int REVERSE_PALETTE_THRESHOLD = 16;
+    @SuppressWarnings("rawtypes") // Class literals can't be parameterised
+    private static final AtomicReferenceFieldUpdater<PackedArrayCube, Thread> MODIFYING_THREAD = AtomicReferenceFieldUpdater.newUpdater(PackedArrayCube.class, Thread.class, "modifyingThread");
 
     public class PackedData {
         public PackedData(long[] data, T[] palette) {
@@ -250,4 +500,4 @@ public class PackedArrayCube<T> {
         public final long[] data;
         public final T[] palette;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+package org.pepsoft.util;
+
+import org.pepsoft.util.mdc.MDCThreadPoolExecutor;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static java.util.zip.Deflater.SYNC_FLUSH;
+
+/**
+ * An output stream which compresses data in the GZIP format using multiple threads, in the manner of pigz. The data is
+ * divided into blocks which are deflated concurrently, each using the end of the preceding block as its dictionary so
+ * that the compression ratio is almost the same as that of {@link java.util.zip.GZIPOutputStream}. The blocks are
+ * written in order as a single GZIP member, so the output can be read by {@link java.util.zip.GZIPInputStream} and any
+ * other GZIP decompressor.
+ *
+ * <p>Only the compression happens in parallel; the data must still be written to the stream by one thread.
+ */
+public class ParallelGZIPOutputStream extends FilterOutputStream {
+    public ParallelGZIPOutputStream(OutputStream out) throws IOException {
+        this(out, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelGZIPOutputStream(OutputStream out, int threadCount) throws IOException {
+        super(out);
+        maxPendingBlocks = threadCount * 2;
+        executor = MDCThreadPoolExecutor.newFixedThreadPool(threadCount, new ThreadFactory() {
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "GZIP-Compressor-" + nextID++);
+                thread.setDaemon(true);
+                return thread;
+            }
+
+            private int nextID = 1;
+        });
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == BLOCK_SIZE) {
+            submitBlock(false);
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (count == BLOCK_SIZE) {
+                submitBlock(false);
+            }
+            final int bytesToCopy = Math.min(len, BLOCK_SIZE - count);
+            System.arraycopy(b, off, buffer, count, bytesToCopy);
+            count += bytesToCopy;
+            off += bytesToCopy;
+            len -= bytesToCopy;
+        }
+    }
+
+    /**
+     * Compress and write all data written so far. Note that this ends the current block, so flushing often reduces
+     * both the parallelism and the compression ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (count > 0) {
+            submitBlock(false);
+        }
+        writePendingBlocks(0);
+        out.flush();
+    }
+
+    /**
+     * Write any buffered data and the GZIP trailer, without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        ensureOpen();
+        try {
+            submitBlock(true);
+            writePendingBlocks(0);
+            final byte[] trailer = new byte[8];
+            writeIntLE(trailer, 0, (int) crc.getValue());
+            writeIntLE(trailer, 4, (int) totalLength);
+            out.write(trailer);
+            out.flush();
+        } finally {
+            finished = true;
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (! closed) {
+            try {
+                if (! finished) {
+                    finish();
+                }
+            } finally {
+                closed = true;
+                executor.shutdownNow();
+                out.close();
+            }
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        final byte[] block = buffer, dictionary = previousBlock;
+        final int length = count, dictionaryLength = previousBlockLength;
+        crc.update(block, 0, length);
+        totalLength += length;
+        pendingBlocks.add(executor.submit(() -> deflate(block, length, dictionary, dictionaryLength, last)));
+        previousBlock = block;
+        previousBlockLength = length;
+        buffer = new byte[BLOCK_SIZE];
+        count = 0;
+        writePendingBlocks(maxPendingBlocks);
+    }
+
+    /**
+     * Write compressed blocks, in order, until no more than {@code maxPending} blocks are still pending. Also writes
+     * any subsequent blocks which have already been compressed.
+     */
+    private void writePendingBlocks(int maxPending) throws IOException {
+        while ((! pendingBlocks.isEmpty())
+                && ((pendingBlocks.size() > maxPending) || pendingBlocks.peekFirst().isDone())) {
+            try {
+                out.write(pendingBlocks.removeFirst().get());
+            } catch (ExecutionException e) {
+                throw new IOException("Exception while compressing data", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing data");
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished || closed) {
+            throw new IOException("Stream finished or closed");
+        }
+    }
+
+    /**
+     * Deflate a block of data. Blocks other than the last one end on a byte boundary without ending the deflate
+     * stream, so that the compressed blocks can simply be concatenated.
+     */
+    private static byte[] deflate(byte[] block, int length, byte[] dictionary, int dictionaryLength, boolean last) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                final int size = Math.min(dictionaryLength, DICTIONARY_SIZE);
+                deflater.setDictionary(dictionary, dictionaryLength - size, size);
+            }
+            deflater.setInput(block, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            final byte[] outputBuffer = new byte[65536];
+            while (true) {
+                final int compressedLength = last
+                        ? deflater.deflate(outputBuffer)
+                        : deflater.deflate(outputBuffer, 0, outputBuffer.length, SYNC_FLUSH);
+                compressed.write(outputBuffer, 0, compressedLength);
+                if (last ? deflater.finished() : (compressedLength < outputBuffer.length)) {
+                    // When flushing, the output is complete when the deflater did not fill the output buffer
+                    break;
+                }
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeIntLE(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+        buffer[offset + 2] = (byte) (value >> 16);
+        buffer[offset + 3] = (byte) (value >> 24);
+    }
+
+    private final ExecutorService executor;
+    private final int maxPendingBlocks;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private byte[] buffer = new byte[BLOCK_SIZE], previousBlock;
+    private int count, previousBlockLength;
+    private long totalLength;
+    private boolean finished, closed;
+
+    static final int BLOCK_SIZE = 1 << 20;
+
+    private static final int DICTIONARY_SIZE = 32768;
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+}
@@ -238,12 +238,7 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
      */
     @Override
     public boolean isTilePresent(final int x, final int y) {
-        readLock.lock();
-        try {
-            return tiles.containsKey(new Point(x, y));
-        } finally {
-            readLock.unlock();
-        }
+        return tileIndex.contains(x, y);
     }
 
     /**
@@ -264,7 +259,7 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
                     || (y > (highestY + borderSize))))) {
                 // Couldn't possibly be a border tile
                 return false;
-            } else if (tiles.containsKey(new Point(x, y))) {
+            } else if (tileIndex.contains(x, y)) {
                 // There's a tile in the dimension at these coordinates, so not a
                 // border tile
                 return false;
@@ -275,10 +270,10 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
             } else {
                 for (int r = 1; r <= borderSize; r++) {
                     for (int i = 0; i <= (r * 2); i++) {
-                        if (tiles.containsKey(new Point(x + i - r, y - r))
-                                || tiles.containsKey(new Point(x + r, y + i - r))
-                                || tiles.containsKey(new Point(x + r - i, y + r))
-                                || tiles.containsKey(new Point(x - r, y - i + r))) {
+                        if (tileIndex.contains(x + i - r, y - r)
+                                || tileIndex.contains(x + r, y + i - r)
+                                || tileIndex.contains(x + r - i, y + r)
+                                || tileIndex.contains(x - r, y - i + r)) {
                             // Found a tile in the dimension <= borderSize tiles
                             // away, so this is a border tile
                             return true;
@@ -303,21 +298,12 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
      */
     @Override
     public Tile getTile(final int x, final int y) {
-        readLock.lock();
-        try {
-            return tiles.get(new Point(x, y));
-        } finally {
-            readLock.unlock();
-        }
+        // The tile index can be read without locking
+        return tileIndex.get(x, y);
     }
 
     public Tile getTile(final Point coords) {
-        readLock.lock();
-        try {
-            return tiles.get(coords);
-        } finally {
-            readLock.unlock();
-        }
+        return tileIndex.get(coords.x, coords.y);
     }
 
     /**
@@ -333,7 +319,7 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
     public Tile getTileForEditing(final int x, final int y) {
         readLock.lock();
         try {
-            Tile tile = tiles.get(new Point(x, y));
+            Tile tile = tileIndex.get(x, y);
             if ((tile != null) && eventsInhibited && (!tile.isEventsInhibited())) {
                 tile.inhibitEvents();
                 dirtyTiles.add(tile);
@@ -357,7 +343,7 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
     public Tile getTileForEditing(final Point coords) {
         readLock.lock();
         try {
-            Tile tile = tiles.get(coords);
+            Tile tile = tileIndex.get(coords.x, coords.y);
             if ((tile != null) && eventsInhibited && (!tile.isEventsInhibited())) {
                 tile.inhibitEvents();
                 dirtyTiles.add(tile);
@@ -401,32 +387,7 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
     public void addTile(Tile tile) {
         writeLock.lock();
         try {
-            if (tile.getMaxHeight() != maxHeight) {
-                throw new IllegalArgumentException("Tile has different max height (" + tile.getMaxHeight() + ") than dimension (" + maxHeight + ")");
-            }
-            final int x = tile.getX();
-            final int y = tile.getY();
-            final Point key = new Point(x, y);
-            if (tiles.containsKey(key)) {
-                throw new IllegalStateException("Tile already set");
-            }
-            tile.addListener(this);
-            if (undoManager != null) {
-                tile.register(undoManager);
-            }
-            tiles.put(key, tile);
-            if (x < lowestX) {
-                lowestX = x;
-            }
-            if (x > highestX) {
-                highestX = x;
-            }
-            if (y < lowestY) {
-                lowestY = y;
-            }
-            if (y > highestY) {
-                highestY = y;
-            }
+            doAddTile(tile);
             fireTileAdded(tile);
             changeNo++;
         } finally {
@@ -434,6 +395,27 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
         }
     }
 
+    /**
+     * Add a number of tiles in one go, taking the lock and notifying the listeners only once.
+     *
+     * @param tiles The tiles to add.
+     */
+    public void addTiles(Collection<? extends Tile> tiles) {
+        if (tiles.isEmpty()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            for (Tile tile: tiles) {
+                doAddTile(tile);
+            }
+            fireTilesAdded(new HashSet<>(tiles));
+            changeNo++;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     public void removeTile(int tileX, int tileY) {
         removeTile(new Point(tileX, tileY));
     }
@@ -449,6 +431,7 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
                 throw new IllegalStateException("Tile not set");
             }
             final Tile tile = tiles.remove(coords);
+            tileIndex.remove(coords.x, coords.y);
             if (undoManager != null) {
                 tile.unregister();
             }
@@ -1911,6 +1894,19 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
         tiles.values().forEach(Tile::ensureAllReadable);
     }
 
+    /**
+     * Prepare all tiles for serialisation concurrently, loading any tiles which have not been loaded yet, so that the
+     * subsequent (necessarily sequential) serialisation has less work to do.
+     */
+    void prepareForSaving() {
+        readLock.lock();
+        try {
+            tiles.values().parallelStream().forEach(Tile::prepareForSaving);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     public void addDimensionListener(Listener listener) {
         listeners.add(listener);
     }
@@ -1964,6 +1960,7 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
             writeLock.lock();
             try {
                 tiles.clear();
+                tileIndex.clear();
                 removedTiles = new HashSet<>(oldTiles.values());
                 for (Tile removedTile: removedTiles) {
                     removedTile.removeListener(this);
@@ -2186,6 +2183,10 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
         return mostPrevalentBiome;
     }
 
+    /**
+     * Save the dimension to a zip file with a separate entry for the dimension, and the tiles grouped by region. See
+     * {@link World2#save(ZipOutputStream)}.
+     */
     public void save(ZipOutputStream out) throws IOException {
         readLock.lock();
         try {
@@ -2193,23 +2194,7 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
             try {
                 // First serialise everything but the tiles to a separate file
                 final String path = anchor + "/";
-                out.putNextEntry(new ZipEntry(path + "dim-data.bin"));
-                try {
-                    final Map<Point, Tile> savedTiles = tiles;
-                    final World2 savedWorld = world;
-                    try {
-                        tiles = null;
-                        world = null;
-                        final ObjectOutputStream dataout = new ObjectOutputStream(out);
-                        dataout.writeObject(this);
-                        dataout.flush();
-                    } finally {
-                        tiles = savedTiles;
-                        world = savedWorld;
-                    }
-                } finally {
-                    out.closeEntry();
-                }
+                saveDimensionData(out, path + TileStore.LEGACY_DIMENSION_DATA_ENTRY);
 
                 // Then serialise the tiles, grouped by region
                 final int regionX1 = lowestX >> 2, regionX2 = highestX >> 2, regionY1 = lowestY >> 2, regionY2 = highestY >> 2;
@@ -2226,7 +2211,7 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
                             }
                         }
 
-                        out.putNextEntry(new ZipEntry(path + "region-data-" + regionX + "," + regionY + ".bin"));
+                        out.putNextEntry(new ZipEntry(path + TileStore.LEGACY_REGION_ENTRY_PREFIX + regionX + "," + regionY + ".bin"));
                         try {
                             final ObjectOutputStream dataout = new ObjectOutputStream(out);
                             dataout.writeObject(tileList);
@@ -2244,6 +2229,36 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
         }
     }
 
+    /**
+     * Save the dimension to a world file in the compartmentalised format. See {@link TileStore}.
+     */
+    void save(ZipOutputStream out, TileStore.Writer writer) throws IOException {
+        readLock.lock();
+        try {
+            setEventsInhibited(true);
+            try {
+                // First write the tiles, which builds the layer table
+                final String path = anchor + "/";
+                final TileStore.Section section = writer.writeTiles(path, tiles.values());
+                final Map<Point, HashSet<Seed>> seeds = new HashMap<>();
+                for (Tile tile: tiles.values()) {
+                    final HashSet<Seed> tileSeeds = tile.getSeedsWithoutLoading();
+                    if ((tileSeeds != null) && (! tileSeeds.isEmpty())) {
+                        seeds.put(new Point(tile.getX(), tile.getY()), tileSeeds);
+                    }
+                }
+
+                // Then serialise everything but the tiles to a separate entry, followed by the layer table and the
+                // seeds, so that they share the layer instances
+                saveDimensionData(out, path + TileStore.DIMENSION_DATA_ENTRY, section.getLayers(), seeds);
+            } finally {
+                setEventsInhibited(false);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     // Tile.Listener
 
     @Override
@@ -2331,6 +2346,36 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
         }
     }
 
+    private void doAddTile(Tile tile) {
+        if (tile.getMaxHeight() != maxHeight) {
+            throw new IllegalArgumentException("Tile has different max height (" + tile.getMaxHeight() + ") than dimension (" + maxHeight + ")");
+        }
+        final int x = tile.getX();
+        final int y = tile.getY();
+        final Point key = new Point(x, y);
+        if (tiles.containsKey(key)) {
+            throw new IllegalStateException("Tile already set");
+        }
+        tile.addListener(this);
+        if (undoManager != null) {
+            tile.register(undoManager);
+        }
+        tiles.put(key, tile);
+        tileIndex.put(tile);
+        if (x < lowestX) {
+            lowestX = x;
+        }
+        if (x > highestX) {
+            highestX = x;
+        }
+        if (y < lowestY) {
+            lowestY = y;
+        }
+        if (y > highestY) {
+            highestY = y;
+        }
+    }
+
     private void fireTileAdded(Tile tile) {
         if (eventsInhibited) {
             addedTiles.add(tile);
@@ -2398,6 +2443,33 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
         }
     }
 
+    /**
+     * Serialise everything but the tiles to an entry of a zip file, followed in the same stream by the specified
+     * objects.
+     */
+    private void saveDimensionData(ZipOutputStream out, String entryName, Object... objects) throws IOException {
+        out.putNextEntry(new ZipEntry(entryName));
+        try {
+            final Map<Point, Tile> savedTiles = tiles;
+            final World2 savedWorld = world;
+            try {
+                tiles = null;
+                world = null;
+                final ObjectOutputStream dataout = new ObjectOutputStream(out);
+                dataout.writeObject(this);
+                for (Object object: objects) {
+                    dataout.writeObject(object);
+                }
+                dataout.flush();
+            } finally {
+                tiles = savedTiles;
+                world = savedWorld;
+            }
+        } finally {
+            out.closeEntry();
+        }
+    }
+
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
 
@@ -2417,7 +2489,9 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
         if (tiles == null) {
             tiles = new HashMap<>();
         }
+        tileIndex = new TileIndex(tiles.size());
         for (Tile tile: tiles.values()) {
+            tileIndex.put(tile);
             tile.addListener(this);
             Set<Seed> seeds = tile.getSeeds();
             if (seeds != null) {
@@ -2678,6 +2752,10 @@ public class Dimension extends InstanceKeeper implements TileProvider, Serializa
     private transient ThreadLocal<int[]> biomeHistogramRef = ThreadLocal.withInitial(() -> new int[255]);
     private transient ReadWriteLock lock = new ReentrantReadWriteLock();
     private transient Lock readLock = lock.readLock(), writeLock = lock.writeLock();
+    /**
+     * Lock-free index of {@link #tiles}, for fast lookups of individual tiles. Must be kept in sync with it.
+     */
+    private transient TileIndex tileIndex = new TileIndex();
 
     public static final int[] POSSIBLE_AUTO_BIOMES = {BIOME_PLAINS, BIOME_FOREST,
         BIOME_SWAMPLAND, BIOME_JUNGLE, BIOME_MESA, BIOME_DESERT, BIOME_BEACH,
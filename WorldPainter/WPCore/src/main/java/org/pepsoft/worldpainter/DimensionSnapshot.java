@@ -60,6 +60,11 @@ public final class DimensionSnapshot extends Dimension { // This cannot be an RO
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void addTiles(Collection<? extends Tile> tiles) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void applyTheme(int x, int y) {
         throw new UnsupportedOperationException();
@@ -0,0 +1,68 @@
+package org.pepsoft.worldpainter;
+
+/**
+ * Switches for optional behaviour of WorldPainter, which can be set with system properties named
+ * {@code org.pepsoft.worldpainter.<name>}. They exist mostly so that newer, faster implementations can be switched
+ * off for troubleshooting or comparison, or so that experimental ones can be switched on. Flags which are enabled by
+ * default are only disabled by the value {@code false}; flags which are disabled by default are only enabled by the
+ * value {@code true}. The system properties are read once, when this class is initialised.
+ */
+public final class FeatureFlags {
+    private FeatureFlags() {
+        // Prevent instantiation
+    }
+
+    private static boolean flag(String name, boolean defaultValue) {
+        final String value = System.getProperty("org.pepsoft.worldpainter." + name);
+        return defaultValue ? (! "false".equalsIgnoreCase(value)) : "true".equalsIgnoreCase(value);
+    }
+
+    /**
+     * {@code queueBasedPropagation}, enabled by default: whether light and leaf distances are propagated using the
+     * work queue based {@link org.pepsoft.worldpainter.exporting.BlockPropertiesCalculator#propagate()} rather than by
+     * invoking {@link org.pepsoft.worldpainter.exporting.BlockPropertiesCalculator#secondPass()} until it returns
+     * {@code false}.
+     */
+    public static final boolean QUEUE_BASED_PROPAGATION = flag("queueBasedPropagation", true);
+
+    /**
+     * {@code mapRegionFiles}, enabled by default: whether region files which are opened in read only mode are memory
+     * mapped, so that chunks are inflated straight from the mapped file.
+     */
+    public static final boolean MAP_REGION_FILES = flag("mapRegionFiles", true);
+
+    /**
+     * {@code pipelinedSaving}, enabled by default: whether exported regions are saved on a separate thread pool, so
+     * that saving overlaps with generating the next regions, rather than on the thread that generated them.
+     */
+    public static final boolean PIPELINED_SAVING = flag("pipelinedSaving", true);
+
+    /**
+     * {@code parallelCompression}, enabled by default: whether the chunks of a region are serialised and compressed
+     * in parallel when they are saved.
+     */
+    public static final boolean PARALLEL_COMPRESSION = flag("parallelCompression", true);
+
+    /**
+     * {@code incrementalExport}, disabled by default: whether the regions of a previous export to the same location
+     * which are unchanged are copied from the backup of that export, rather than regenerated. Neighbours of a
+     * regenerated region are regenerated as well if fixups, which render objects across region borders, reach from
+     * one into the other, so that such objects are not cut off. Only takes effect if the map is backed up before it
+     * is overwritten. An export manifest recording the state of each region is always written.
+     */
+    public static final boolean INCREMENTAL_EXPORT = flag("incrementalExport", false);
+
+    /**
+     * {@code compartmentalisedWorldFiles}, enabled by default: whether worlds are saved in the compartmentalised
+     * format, from which the contents of the tiles are only loaded when they are needed, rather than as a single
+     * serialised object graph. World files in either format can always be loaded. See
+     * {@link WorldIO#save(java.io.File)}.
+     */
+    public static final boolean COMPARTMENTALISED_WORLD_FILES = flag("compartmentalisedWorldFiles", true);
+
+    /**
+     * {@code fastChunkCodec}, enabled by default: whether 1.18+ chunks are read and written by streaming their sections
+     * with {@link org.pepsoft.minecraft.MC118AnvilChunkCodec}, rather than via NBT tag trees.
+     */
+    public static final boolean FAST_CHUNK_CODEC = flag("fastChunkCodec", true);
+}
@@ -54,6 +54,25 @@ public interface HeightMap {
      */
     double getHeight(float x, float y);
 
+    /**
+     * Get the heights of a rectangular area of the height map in one go. Implementations which can read their
+     * underlying data in bulk should override this to avoid the overhead of looking up each height separately.
+     *
+     * @param x The X coordinate of the top left corner of the area.
+     * @param y The Y coordinate of the top left corner of the area.
+     * @param width The width of the area.
+     * @param height The height of the area.
+     * @param heights The array in which to store the heights, row by row. Must have room for at least
+     *                {@code width * height} values.
+     */
+    default void getHeights(int x, int y, int width, int height, double[] heights) {
+        for (int dy = 0; dy < height; dy++) {
+            for (int dx = 0; dx < width; dx++) {
+                heights[dy * width + dx] = getHeight(x + dx, y + dy);
+            }
+        }
+    }
+
     /**
      * Get the base height of this height map, in other words the lowest value
      * it can have.
@@ -0,0 +1,94 @@
+package org.pepsoft.worldpainter;
+
+import org.pepsoft.worldpainter.layers.Layer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.pepsoft.util.ObjectUtils.copyObject;
+
+/**
+ * The undo buffer for the per layer data of a {@link Tile}. Copying it for a new undo level only copies the map; the
+ * data of the individual layers is shared with the previous undo level and only copied when a layer is actually
+ * edited, so that the memory used by the undo history scales with the layers that were changed rather than with all
+ * the layers present on the tile.
+ *
+ * <p>The values must therefore never be modified in place without first obtaining them through
+ * {@link #getForEditing(Layer)}.
+ *
+ * @param <V> The type of the layer data.
+ */
+final class LayerDataBuffer<V> implements org.pepsoft.util.undo.Cloneable<LayerDataBuffer<V>> {
+    /**
+     * Create a new buffer which owns all the data in the specified map.
+     */
+    LayerDataBuffer(Map<Layer, V> data) {
+        this(data, new HashSet<>());
+    }
+
+    private LayerDataBuffer(Map<Layer, V> data, Set<Layer> sharedLayers) {
+        this.data = data;
+        this.sharedLayers = sharedLayers;
+    }
+
+    /**
+     * Indicates whether this is a placeholder for the layer data of a tile which has not been loaded yet, rather than
+     * an actual buffer. See {@link #placeholder()}.
+     */
+    boolean isPlaceholder() {
+        return data == null;
+    }
+
+    /**
+     * Get the layer data map. The values in the map may be shared with other undo levels and must not be modified.
+     */
+    Map<Layer, V> getData() {
+        return data;
+    }
+
+    /**
+     * Get the data for a layer for the purpose of modifying it, copying it first if it is shared with other undo
+     * levels.
+     *
+     * @return The data for the layer, or {@code null} if there is no data for the layer.
+     */
+    V getForEditing(Layer layer) {
+        V value = data.get(layer);
+        if ((value != null) && sharedLayers.remove(layer)) {
+            value = copyObject(value);
+            data.put(layer, value);
+        }
+        return value;
+    }
+
+    /**
+     * Set new data for a layer. The buffer takes ownership of the value.
+     */
+    void put(Layer layer, V value) {
+        data.put(layer, value);
+        sharedLayers.remove(layer);
+    }
+
+    @Override
+    public LayerDataBuffer<V> clone() {
+        if (data == null) {
+            // Placeholders are immutable
+            return this;
+        }
+        return new LayerDataBuffer<>(new HashMap<>(data), new HashSet<>(data.keySet()));
+    }
+
+    /**
+     * Create a placeholder which stands in for the layer data of a tile in the undo history until the tile is loaded
+     * and the data is edited for the first time. Until then the data is the same on all undo levels, so that it does
+     * not have to be loaded in order to register the tile with the undo manager.
+     */
+    static <V> LayerDataBuffer<V> placeholder() {
+        return new LayerDataBuffer<>(null, null);
+    }
+
+    private final Map<Layer, V> data;
+    private final Set<Layer> sharedLayers;
+}
@@ -0,0 +1,128 @@
+package org.pepsoft.worldpainter;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * The undo buffer for a per block array of a {@link Tile}, such as the height map, terrain or water levels. The
+ * current undo level holds the contents as a plain array, which the tile reads and modifies directly. Once the buffer
+ * is copied for a new undo level, the contents of the previous level are stored as pages of {@value #PAGE_SIZE}
+ * entries instead, and pages which are identical to those of the level before it are shared with it, so that the
+ * memory used by the undo history scales with the area that was changed rather than with the size of the tile.
+ *
+ * <p>Arrays obtained from {@link #getArray()} must not be modified. Only the array obtained from
+ * {@link #getArrayForEditing()} may be modified, and only until the next save point.
+ *
+ * @param <A> The type of the array.
+ */
+final class PagedArrayBuffer<A> implements org.pepsoft.util.undo.Cloneable<PagedArrayBuffer<A>> {
+    /**
+     * Create a new buffer which owns the specified array.
+     */
+    PagedArrayBuffer(A array) {
+        this(array, null);
+    }
+
+    private PagedArrayBuffer(A array, Object[] basePages) {
+        this.array = array;
+        this.basePages = basePages;
+        componentType = array.getClass().getComponentType();
+        length = Array.getLength(array);
+    }
+
+    /**
+     * Get the contents of the buffer for reading.
+     */
+    synchronized A getArray() {
+        return (array != null) ? array : join();
+    }
+
+    /**
+     * Get the contents of the buffer for the purpose of modifying them. This should only be invoked on the buffer
+     * returned by {@link org.pepsoft.util.undo.UndoManager#getBufferForEditing(org.pepsoft.util.undo.BufferKey)}.
+     */
+    synchronized A getArrayForEditing() {
+        if (array == null) {
+            // This buffer was stored in the undo history and is being edited again after an undo
+            array = join();
+            basePages = pages;
+            pages = null;
+        }
+        return array;
+    }
+
+    /**
+     * Get the pages in which the contents of this buffer are stored, if it has been copied for a new undo level.
+     *
+     * @return The pages, or {@code null} if the contents are stored as a plain array.
+     */
+    synchronized Object[] getPages() {
+        return pages;
+    }
+
+    /**
+     * Copy the buffer for a new undo level. This buffer becomes immutable and only stores the pages which differ from
+     * those of the buffer from which it was copied itself.
+     */
+    @Override
+    public synchronized PagedArrayBuffer<A> clone() {
+        if (array != null) {
+            pages = split();
+            array = null;
+            basePages = null;
+        }
+        return new PagedArrayBuffer<>(join(), pages);
+    }
+
+    /**
+     * Split the array into pages, reusing the base pages where they are unchanged.
+     */
+    private Object[] split() {
+        final Object[] pages = new Object[(length + PAGE_SIZE - 1) / PAGE_SIZE];
+        for (int i = 0; i < pages.length; i++) {
+            final int from = i * PAGE_SIZE, to = Math.min(from + PAGE_SIZE, length);
+            if ((basePages != null) && rangeEquals(array, from, to, basePages[i])) {
+                pages[i] = basePages[i];
+            } else {
+                final Object page = Array.newInstance(componentType, to - from);
+                System.arraycopy(array, from, page, 0, to - from);
+                pages[i] = page;
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Assemble a new array from the pages.
+     */
+    @SuppressWarnings("unchecked") // Guaranteed by Java
+    private A join() {
+        final Object joined = Array.newInstance(componentType, length);
+        for (int i = 0; i < pages.length; i++) {
+            System.arraycopy(pages[i], 0, joined, i * PAGE_SIZE, Array.getLength(pages[i]));
+        }
+        return (A) joined;
+    }
+
+    private static boolean rangeEquals(Object array, int from, int to, Object page) {
+        if (array instanceof short[]) {
+            return Arrays.equals((short[]) array, from, to, (short[]) page, 0, Array.getLength(page));
+        } else if (array instanceof int[]) {
+            return Arrays.equals((int[]) array, from, to, (int[]) page, 0, Array.getLength(page));
+        } else if (array instanceof byte[]) {
+            return Arrays.equals((byte[]) array, from, to, (byte[]) page, 0, Array.getLength(page));
+        } else {
+            throw new IllegalArgumentException("Unsupported array type " + array.getClass());
+        }
+    }
+
+    private final Class<?> componentType;
+    private final int length;
+    private A array;
+    private Object[] pages, basePages;
+
+    /**
+     * The number of entries in a page; eight rows of a tile.
+     */
+    static final int PAGE_SIZE = 1024;
+}
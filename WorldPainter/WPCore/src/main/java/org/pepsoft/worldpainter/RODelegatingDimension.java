@@ -579,34 +579,40 @@ public abstract class RODelegatingDimension<T extends Tile> extends Dimension {
      */
     @Override
     public T getTile(Point coords) {
+        // In theory this is not correct, since the dimension might have gained or lost tiles in the meantime. However,
+        // the expected usage pattern of the functionality is such that that should not happen in practice, and creating
+        // tile snapshots of all tiles when the dimension snapshot is created would be a performance hit
+        final Reference<T> cachedTileRef;
         readLock.lock();
         try {
-            // In theory this is not correct, since the dimension might have gained or lost tiles in the meantime. However,
-            // the expected usage pattern of the functionality is such that that should not happen in practice, and creating
-            // tile snapshots of all tiles when the dimension snapshot is created would be a performance hit
-            final Reference<T> cachedTileRef = tileCache.get(coords);
-            if (cachedTileRef == NO_TILE_PRESENT) {
-                return null;
-            }
-            T cachedTile = (cachedTileRef != null) ? cachedTileRef.get() : null;
-            if (cachedTile == null) {
-                readLock.unlock();
+            cachedTileRef = tileCache.get(coords);
+        } finally {
+            readLock.unlock();
+        }
+        if (cachedTileRef == NO_TILE_PRESENT) {
+            return null;
+        }
+        T cachedTile = (cachedTileRef != null) ? cachedTileRef.get() : null;
+        if (cachedTile == null) {
+            // Create the tile without holding the lock, since that may be expensive and would block all other threads.
+            // If another thread created the same tile in the meantime, use that one instead
+            final Tile tile = doGetTile(coords);
+            if (tile != null) {
+                final T newTile = wrapTile(tile);
                 writeLock.lock();
                 try {
-                    final Tile tile = doGetTile(coords);
-                    if (tile != null) {
-                        cachedTile = wrapTile(tile);
+                    final Reference<T> existingTileRef = tileCache.get(coords);
+                    cachedTile = (existingTileRef != null) ? existingTileRef.get() : null;
+                    if (cachedTile == null) {
+                        cachedTile = newTile;
                         tileCache.put(coords, new SoftReference<>(cachedTile));
                     }
-                    readLock.lock();
                 } finally {
                     writeLock.unlock();
                 }
             }
-            return cachedTile;
-        } finally {
-            readLock.unlock();
         }
+        return cachedTile;
     }
 
     /**
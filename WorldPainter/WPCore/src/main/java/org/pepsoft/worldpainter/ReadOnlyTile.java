@@ -157,6 +157,15 @@ public abstract class ReadOnlyTile extends Tile {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Read-only tiles typically override the individual getters, so this implementation invokes those for each
+     * column.
+     */
+    @Override
+    public void getColumns(int x, int y, int width, int height, int[] intHeights, int[] waterLevels, Terrain[] terrains, Layer[] layers, int[][] layerValues) {
+        getColumnsIndividually(x, y, width, height, intHeights, waterLevels, terrains, layers, layerValues);
+    }
+
     @Override
     public String toString() {
         return "ReadOnlyTile[x=" + getX() + ",y=" + getY() + "]";
@@ -4,11 +4,23 @@ import org.pepsoft.worldpainter.layers.Layer;
 import org.pepsoft.worldpainter.layers.exporters.ExporterSettings;
 
 import java.awt.*;
+import java.lang.ref.SoftReference;
 import java.util.Map;
 import java.util.Set;
-
-// TODO this is a naive implementation which delegates everything to the Dimension API, which means that it has to look
-//  up the tile anew for every coordinate. This should be made smarter
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE_BITS;
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE_MASK;
+
+/**
+ * A read-only view of a {@link Dimension}, scaled by a given factor.
+ *
+ * <p>Scaled tiles are materialised lazily, the first time they are requested, and kept in a cache which is shared by
+ * all threads using the dimension, so that the (expensive) interpolation needs to be performed only once per tile.
+ * The materialised tiles are softly referenced, so that they are only discarded when memory runs low. Queries for
+ * coordinates in a scaled tile are answered from the materialised tile. The last tile used by each thread is remembered,
+ * so that consecutive queries for the same tile do not need to consult the cache at all.
+ */
 // TODO this supports only the functionality currently needed to export dimensions. Other methods throw an
 //  UnsupportedOperationException
 public class ScaledDimension extends RODelegatingDimension<Tile> {
@@ -25,14 +37,27 @@ public class ScaledDimension extends RODelegatingDimension<Tile> {
         return tileCoords.size();
     }
 
+    @Override
+    public boolean isTilePresent(int x, int y) {
+        // Don't materialise the tile just to find out whether it exists
+        return tileCoords.contains(new Point(x, y));
+    }
+
+    @Override
+    public Tile getTile(Point coords) {
+        return getScaledTile(coords.x, coords.y);
+    }
+
     @Override
     public int getIntHeightAt(int x, int y, int defaultValue) {
-        return Math.round(scalingHelper.getHeightAt(x, y));
+        final Tile tile = getScaledTile(x >> TILE_SIZE_BITS, y >> TILE_SIZE_BITS);
+        return (tile != null) ? tile.getIntHeight(x & TILE_SIZE_MASK, y & TILE_SIZE_MASK) : Math.round(scalingHelper.getHeightAt(x, y));
     }
 
     @Override
     public float getHeightAt(int x, int y) {
-        return scalingHelper.getHeightAt(x, y);
+        final Tile tile = getScaledTile(x >> TILE_SIZE_BITS, y >> TILE_SIZE_BITS);
+        return (tile != null) ? tile.getHeight(x & TILE_SIZE_MASK, y & TILE_SIZE_MASK) : scalingHelper.getHeightAt(x, y);
     }
 
     @Override
@@ -42,12 +67,19 @@ public class ScaledDimension extends RODelegatingDimension<Tile> {
 
     @Override
     public int getWaterLevelAt(int x, int y) {
+        final Tile tile = getScaledTile(x >> TILE_SIZE_BITS, y >> TILE_SIZE_BITS);
+        if (tile != null) {
+            return tile.getWaterLevel(x & TILE_SIZE_MASK, y & TILE_SIZE_MASK);
+        }
         return dimension.getWaterLevelAt(Math.round(x / scale), Math.round(y / scale));
     }
 
     @Override
     public int getLayerValueAt(Layer layer, int x, int y) {
-        if (layer.discrete) {
+        final Tile tile = getScaledTile(x >> TILE_SIZE_BITS, y >> TILE_SIZE_BITS);
+        if (tile != null) {
+            return tile.getLayerValue(layer, x & TILE_SIZE_MASK, y & TILE_SIZE_MASK);
+        } else if (layer.discrete) {
             return dimension.getLayerValueAt(layer, Math.round(x / scale), Math.round(y / scale));
         } else {
             return scalingHelper.getLayerValueAt(layer, x, y);
@@ -56,7 +88,10 @@ public class ScaledDimension extends RODelegatingDimension<Tile> {
 
     @Override
     public boolean getBitLayerValueAt(Layer layer, int x, int y) {
-        if (layer.discrete) {
+        final Tile tile = getScaledTile(x >> TILE_SIZE_BITS, y >> TILE_SIZE_BITS);
+        if (tile != null) {
+            return tile.getBitLayerValue(layer, x & TILE_SIZE_MASK, y & TILE_SIZE_MASK);
+        } else if (layer.discrete) {
             return dimension.getBitLayerValueAt(layer, Math.round(x / scale), Math.round(y / scale));
         } else {
             return scalingHelper.getBitLayerValueAt(layer, x, y);
@@ -133,7 +168,55 @@ public class ScaledDimension extends RODelegatingDimension<Tile> {
         return scalingHelper.createScaledTile(coords.x, coords.y);
     }
 
+    /**
+     * Get the materialised scaled tile at the specified tile coordinates, without allocating any objects if the tile
+     * is the last one used by the current thread.
+     *
+     * @return The materialised scaled tile, or {@code null} if there is no tile at the specified coordinates.
+     */
+    private Tile getScaledTile(int tileX, int tileY) {
+        ScaledTile scaledTile = lastScaledTile.get();
+        if ((scaledTile == null) || (scaledTile.x != tileX) || (scaledTile.y != tileY)) {
+            scaledTile = scaledTileCache.computeIfAbsent((((long) tileX) << 32) | (tileY & 0xffffffffL),
+                    key -> new ScaledTile(tileX, tileY, tileCoords.contains(new Point(tileX, tileY))));
+            lastScaledTile.set(scaledTile);
+        }
+        // Materialise the tile outside the cache, so that threads can scale different tiles concurrently
+        return scaledTile.getTile(scalingHelper);
+    }
+
     private final float scale;
     private final ScalingHelper scalingHelper;
     private final Set<Point> tileCoords;
+    private final Map<Long, ScaledTile> scaledTileCache = new ConcurrentHashMap<>();
+    private final ThreadLocal<ScaledTile> lastScaledTile = new ThreadLocal<>();
+
+    /**
+     * A cache entry for a scaled tile, which is materialised the first time it is requested, and again if it has
+     * been garbage collected in the meantime. Also used to record that there is no tile at some coordinates. Static,
+     * so that the entries remembered per thread do not keep the scaled dimension reachable.
+     */
+    private static final class ScaledTile {
+        ScaledTile(int x, int y, boolean present) {
+            this.x = x;
+            this.y = y;
+            this.present = present;
+        }
+
+        synchronized Tile getTile(ScalingHelper scalingHelper) {
+            if (! present) {
+                return null;
+            }
+            Tile tile = (tileRef != null) ? tileRef.get() : null;
+            if (tile == null) {
+                tile = scalingHelper.createScaledTile(x, y);
+                tileRef = new SoftReference<>(tile);
+            }
+            return tile;
+        }
+
+        final int x, y;
+        private final boolean present;
+        private SoftReference<Tile> tileRef;
+    }
 }
\ No newline at end of file
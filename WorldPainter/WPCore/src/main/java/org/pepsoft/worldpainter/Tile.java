@@ -6,6 +6,7 @@
 package org.pepsoft.worldpainter;
 
 import org.pepsoft.util.MathUtils;
+import org.pepsoft.util.mdc.MDCCapturingRuntimeException;
 import org.pepsoft.util.undo.BufferKey;
 import org.pepsoft.util.undo.UndoListener;
 import org.pepsoft.util.undo.UndoManager;
@@ -14,12 +15,18 @@ import org.pepsoft.worldpainter.layers.Biome;
 import org.pepsoft.worldpainter.layers.FloodWithLava;
 import org.pepsoft.worldpainter.layers.Layer;
 import org.pepsoft.worldpainter.layers.Layer.DataSize;
+import org.pepsoft.worldpainter.util.ContentDigester;
 
 import java.awt.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.List;
 import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toSet;
 import static org.pepsoft.util.CollectionUtils.unsignedMax;
 import static org.pepsoft.util.ObjectUtils.copyObject;
@@ -60,6 +67,17 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
         }
     }
 
+    /**
+     * Create a tile of which the contents have not been loaded yet. They will be loaded from the specified entry of a
+     * compartmentalised world file the first time they are accessed.
+     */
+    Tile(int x, int y, int minHeight, int maxHeight, TileStore.Entry storedEntry) {
+        this(x, y, minHeight, maxHeight, false);
+        this.storedEntry = storedEntry;
+        unloaded = true;
+        init();
+    }
+
     public int getX() {
         return x;
     }
@@ -80,6 +98,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
         inhibitEvents();
         try {
             synchronized (this) {
+                ensureLoaded();
                 if ((maxHeight != this.maxHeight) || (minHeight != this.minHeight)) {
                     final int oldMinHeight = this.minHeight, minHeightDelta = oldMinHeight - minHeight;
                     this.minHeight = minHeight;
@@ -109,8 +128,8 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
                         heightMap = new short[TILE_SIZE * TILE_SIZE];
                         waterLevel = new byte[TILE_SIZE * TILE_SIZE];
                         if (undoManager != null) {
-                            undoManager.addBuffer(HEIGHTMAP_BUFFER_KEY, heightMap, this);
-                            undoManager.addBuffer(WATERLEVEL_BUFFER_KEY, waterLevel, this);
+                            undoManager.addBuffer(HEIGHTMAP_BUFFER_KEY, new PagedArrayBuffer<>(heightMap), this);
+                            undoManager.addBuffer(WATERLEVEL_BUFFER_KEY, new PagedArrayBuffer<>(waterLevel), this);
                             readableBuffers.add(HEIGHTMAP);
                             readableBuffers.add(WATERLEVEL);
                             writeableBuffers.add(HEIGHTMAP);
@@ -138,8 +157,8 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
                         tallHeightMap = new int[TILE_SIZE * TILE_SIZE];
                         tallWaterLevel = new short[TILE_SIZE * TILE_SIZE];
                         if (undoManager != null) {
-                            undoManager.addBuffer(TALL_HEIGHTMAP_BUFFER_KEY, tallHeightMap, this);
-                            undoManager.addBuffer(TALL_WATERLEVEL_BUFFER_KEY, tallWaterLevel, this);
+                            undoManager.addBuffer(TALL_HEIGHTMAP_BUFFER_KEY, new PagedArrayBuffer<>(tallHeightMap), this);
+                            undoManager.addBuffer(TALL_WATERLEVEL_BUFFER_KEY, new PagedArrayBuffer<>(tallWaterLevel), this);
                             readableBuffers.add(TALL_HEIGHTMAP);
                             readableBuffers.add(TALL_WATERLEVEL);
                             writeableBuffers.add(TALL_HEIGHTMAP);
@@ -740,7 +759,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
         }
         synchronized (this) {
             ensureWriteable(BIT_LAYER_DATA);
-            BitSet bitSet = bitLayerData.get(layer);
+            BitSet bitSet = getBitLayerDataForEditing(layer);
             if (bitSet == null) {
                 if (value) {
                     cachedLayers = null;
@@ -749,7 +768,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
                     } else {
                         bitSet = new BitSet(TILE_SIZE * TILE_SIZE / 256);
                     }
-                    bitLayerData.put(layer, bitSet);
+                    putBitLayerData(layer, bitSet);
                 } else {
                     // If there is no bitset the default value is false, so if we're
                     // setting to false anyway there's no point in creating the
@@ -795,10 +814,152 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
         }
     }
 
+    /**
+     * Get the heights, water levels, terrain types and/or layer values of a rectangular block of columns in one go,
+     * under a single lock. This is much cheaper than invoking the individual getters for every column, which is what
+     * the chunk factory and the layer exporters would otherwise do for every chunk.
+     *
+     * <p>The values are stored in the provided arrays row by row; the value for column {@code (x + dx, y + dy)} is
+     * stored at index {@code dx + dy * width}. Any of the arrays may be {@code null}, in which case that value is not
+     * retrieved.
+     *
+     * <p>Subclasses which override any of the individual getters (such as {@link #getIntHeight(int, int)} or
+     * {@link #getLayerValue(Layer, int, int)}) must also override this method, for instance by delegating to
+     * {@link #getColumnsIndividually(int, int, int, int, int[], int[], Terrain[], Layer[], int[][])}.
+     *
+     * @param x The X coordinate (local to the tile) of the north west corner of the block.
+     * @param y The Y coordinate (local to the tile) of the north west corner of the block.
+     * @param width The size of the block in the X direction.
+     * @param height The size of the block in the Y direction.
+     * @param intHeights The array in which to store the terrain heights, rounded to the nearest integer, as returned
+     *                   by {@link #getIntHeight(int, int)}. May be {@code null}.
+     * @param waterLevels The array in which to store the water levels. May be {@code null}.
+     * @param terrains The array in which to store the terrain types. May be {@code null}.
+     * @param layers The layers of which to retrieve the values. May be {@code null}. The values of bit layers are
+     *               reported as {@code 0} or {@code 1}.
+     * @param layerValues The arrays in which to store the values of the layers, one for each entry of
+     *                    {@code layers}. Must be non-{@code null} if {@code layers} is non-{@code null}.
+     */
+    public synchronized void getColumns(int x, int y, int width, int height, int[] intHeights, int[] waterLevels, Terrain[] terrains, Layer[] layers, int[][] layerValues) {
+        if (intHeights != null) {
+            if (tall) {
+                ensureReadable(TALL_HEIGHTMAP);
+                for (int dy = 0; dy < height; dy++) {
+                    for (int dx = 0; dx < width; dx++) {
+                        intHeights[dx + dy * width] = Math.round(tallHeightMap[(x + dx) | ((y + dy) << TILE_SIZE_BITS)] / 256f + minHeight);
+                    }
+                }
+            } else {
+                ensureReadable(HEIGHTMAP);
+                for (int dy = 0; dy < height; dy++) {
+                    for (int dx = 0; dx < width; dx++) {
+                        intHeights[dx + dy * width] = Math.round((heightMap[(x + dx) | ((y + dy) << TILE_SIZE_BITS)] & 0xFFFF) / 256f + minHeight);
+                    }
+                }
+            }
+        }
+        if (waterLevels != null) {
+            if (tall) {
+                ensureReadable(TALL_WATERLEVEL);
+                for (int dy = 0; dy < height; dy++) {
+                    for (int dx = 0; dx < width; dx++) {
+                        waterLevels[dx + dy * width] = (tallWaterLevel[(x + dx) | ((y + dy) << TILE_SIZE_BITS)] & 0xFFFF) + minHeight;
+                    }
+                }
+            } else {
+                ensureReadable(WATERLEVEL);
+                for (int dy = 0; dy < height; dy++) {
+                    for (int dx = 0; dx < width; dx++) {
+                        waterLevels[dx + dy * width] = (waterLevel[(x + dx) | ((y + dy) << TILE_SIZE_BITS)] & 0xFF) + minHeight;
+                    }
+                }
+            }
+        }
+        if (terrains != null) {
+            ensureReadable(TERRAIN);
+            for (int dy = 0; dy < height; dy++) {
+                for (int dx = 0; dx < width; dx++) {
+                    terrains[dx + dy * width] = TERRAIN_VALUES[terrain[(x + dx) | ((y + dy) << TILE_SIZE_BITS)] & 0xFF];
+                }
+            }
+        }
+        if (layers != null) {
+            for (int i = 0; i < layers.length; i++) {
+                final Layer layer = layers[i];
+                final int[] values = layerValues[i];
+                final DataSize dataSize = layer.getDataSize();
+                if ((dataSize == DataSize.BIT) || (dataSize == DataSize.BIT_PER_CHUNK)) {
+                    ensureReadable(BIT_LAYER_DATA);
+                    final BitSet bitSet = bitLayerData.get(layer);
+                    for (int dy = 0; dy < height; dy++) {
+                        for (int dx = 0; dx < width; dx++) {
+                            final boolean value;
+                            if (bitSet == null) {
+                                value = false;
+                            } else if (dataSize == DataSize.BIT) {
+                                value = getBitPerBlockLayerValue(bitSet, x + dx, y + dy);
+                            } else {
+                                value = getBitPerChunkLayerValue(bitSet, x + dx, y + dy);
+                            }
+                            values[dx + dy * width] = value ? 1 : 0;
+                        }
+                    }
+                } else {
+                    ensureReadable(LAYER_DATA);
+                    final byte[] bytes = layerData.get(layer);
+                    for (int dy = 0; dy < height; dy++) {
+                        for (int dx = 0; dx < width; dx++) {
+                            final int byteOffset = (x + dx) | ((y + dy) << TILE_SIZE_BITS);
+                            if (bytes == null) {
+                                values[dx + dy * width] = layer.getDefaultValue();
+                            } else if (dataSize == NIBBLE) {
+                                values[dx + dy * width] = ((byteOffset % 2) == 0) ? (bytes[byteOffset / 2] & 0x0F) : ((bytes[byteOffset / 2] & 0xF0) >> 4);
+                            } else {
+                                values[dx + dy * width] = bytes[byteOffset] & 0xFF;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Implementation of {@link #getColumns(int, int, int, int, int[], int[], Terrain[], Layer[], int[][])} which
+     * invokes the individual getters for each column, for use by subclasses which override those getters.
+     */
+    protected final void getColumnsIndividually(int x, int y, int width, int height, int[] intHeights, int[] waterLevels, Terrain[] terrains, Layer[] layers, int[][] layerValues) {
+        for (int dy = 0; dy < height; dy++) {
+            for (int dx = 0; dx < width; dx++) {
+                final int index = dx + dy * width;
+                if (intHeights != null) {
+                    intHeights[index] = getIntHeight(x + dx, y + dy);
+                }
+                if (waterLevels != null) {
+                    waterLevels[index] = getWaterLevel(x + dx, y + dy);
+                }
+                if (terrains != null) {
+                    terrains[index] = getTerrain(x + dx, y + dy);
+                }
+                if (layers != null) {
+                    for (int i = 0; i < layers.length; i++) {
+                        final Layer layer = layers[i];
+                        final DataSize dataSize = layer.getDataSize();
+                        if ((dataSize == DataSize.BIT) || (dataSize == DataSize.BIT_PER_CHUNK)) {
+                            layerValues[i][index] = getBitLayerValue(layer, x + dx, y + dy) ? 1 : 0;
+                        } else {
+                            layerValues[i][index] = getLayerValue(layer, x + dx, y + dy);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     public void setLayerValue(Layer layer, int x, int y, int value) {
         synchronized (this) {
             ensureWriteable(LAYER_DATA);
-            byte[] layerValues = layerData.get(layer);
+            byte[] layerValues = getLayerDataForEditing(layer);
             if (layerValues == null) {
                 if (value == layer.getDefaultValue()) {
                     // There is no data buffer and we're setting the value to the
@@ -827,7 +988,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
                     default:
                         throw new InternalError();
                 }
-                layerData.put(layer, layerValues);
+                putLayerData(layer, layerValues);
             }
             switch (layer.getDataSize()) {
                 case BIT:
@@ -901,8 +1062,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
         final Set<Layer> changedLayers = new HashSet<>();
         synchronized (this) {
             ensureWriteable(BIT_LAYER_DATA);
-            for (Map.Entry<Layer, BitSet> entry: bitLayerData.entrySet()) {
-                Layer layer = entry.getKey();
+            for (Layer layer: new ArrayList<>(bitLayerData.keySet())) {
                 if ((excludedLayers != null) && excludedLayers.contains(layer)) {
                     continue;
                 }
@@ -912,16 +1072,15 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
                 } else {
                     bitOffset = (x / 16) + (y / 16) * (TILE_SIZE / 16);
                 }
-                entry.getValue().set(bitOffset, layer.getDefaultValue() != 0);
+                getBitLayerDataForEditing(layer).set(bitOffset, layer.getDefaultValue() != 0);
                 changedLayers.add(layer);
             }
             ensureWriteable(LAYER_DATA);
-            for (Map.Entry<Layer, byte[]> entry: layerData.entrySet()) {
-                Layer layer = entry.getKey();
+            for (Layer layer: new ArrayList<>(layerData.keySet())) {
                 if ((excludedLayers != null) && excludedLayers.contains(layer)) {
                     continue;
                 }
-                byte[] layerValues = entry.getValue();
+                byte[] layerValues = getLayerDataForEditing(layer);
                 switch (layer.getDataSize()) {
                     case NIBBLE:
                         int byteOffset = x | (y << TILE_SIZE_BITS);
@@ -1104,6 +1263,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
      * X and Y coordinates).
      */
     public synchronized Tile transform(CoordinateTransform transform) {
+        ensureLoaded();
         Point transformedCoords = transform.transform(x << TILE_SIZE_BITS, y << TILE_SIZE_BITS);
         Tile transformedTile;
         boolean transformContents = ((transformedCoords.x & TILE_SIZE_MASK) != 0) || ((transformedCoords.y & TILE_SIZE_MASK) != 0);
@@ -1175,6 +1335,8 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
 
     public synchronized boolean repair(int minHeight, int maxHeight, PrintStream out) {
         // Repair as much as possible if the tile was not read in completely
+        ensureLoaded();
+        storedEntry = null;
         this.minHeight = minHeight;
         this.maxHeight = maxHeight;
         maxY = maxHeight - 1;
@@ -1394,6 +1556,8 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
     }
 
     synchronized void convertBiomeData() {
+        ensureLoaded();
+        storedEntry = null;
         byte[] biomeData = layerData.remove(Biome.INSTANCE);
         if (biomeData != null) {
             byte[] newBiomeData = new byte[biomeData.length * 2];
@@ -1449,6 +1613,222 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
         }
     }
 
+    /**
+     * Calculate a digest of the contents of this tile: its coordinates, height map, terrain, water levels, layer data
+     * and seeds. Layer buffers which only contain default values are ignored, so tiles which export identically have
+     * identical digests. Used to determine whether a tile has changed since a previous export.
+     *
+     * @return A SHA-256 digest of the contents of this tile.
+     */
+    public synchronized byte[] getContentDigest() {
+        prepareForSaving();
+        final MessageDigest digest = ContentDigester.createDigest();
+        final ByteBuffer buffer = ByteBuffer.allocate(TILE_SIZE * TILE_SIZE * 4);
+        buffer.putInt(x).putInt(y).putInt(minHeight).putInt(maxHeight);
+        digest(digest, buffer);
+        if (tall) {
+            buffer.asIntBuffer().put(tallHeightMap);
+            digest(digest, buffer, tallHeightMap.length * 4);
+            buffer.asShortBuffer().put(tallWaterLevel);
+            digest(digest, buffer, tallWaterLevel.length * 2);
+        } else {
+            buffer.asShortBuffer().put(heightMap);
+            digest(digest, buffer, heightMap.length * 2);
+            digest.update(waterLevel);
+        }
+        digest.update(terrain);
+        // Sort the layers by ID, since the iteration order of the maps is not stable
+        final SortedMap<String, byte[]> sortedLayerData = new TreeMap<>();
+        layerData.forEach((layer, data) -> sortedLayerData.put(layer.getId(), data));
+        bitLayerData.forEach((layer, data) -> sortedLayerData.put(layer.getId(), data.toByteArray()));
+        for (Map.Entry<String, byte[]> entry: sortedLayerData.entrySet()) {
+            digest.update(entry.getKey().getBytes(UTF_8));
+            buffer.putInt(entry.getValue().length);
+            digest(digest, buffer);
+            digest.update(entry.getValue());
+        }
+        if (seeds != null) {
+            digest.update(new ContentDigester().update(seeds).digest());
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Write the contents of this tile, except the seeds, in the binary encoding of the compartmentalised world format.
+     * The height maps are delta encoded so that they compress well. Layers are stored as indices into a table of
+     * layers which is stored separately.
+     *
+     * @param out The stream to which to write the contents.
+     * @param layerIndices The function which provides the index of each layer in the layer table.
+     * @throws IOException If an I/O error occurs while writing the contents.
+     */
+    synchronized void writeContents(DataOutputStream out, ToIntFunction<Layer> layerIndices) throws IOException {
+        prepareForSaving();
+        final ByteBuffer buffer = ByteBuffer.allocate(TILE_SIZE * TILE_SIZE * 4);
+        out.writeByte(CONTENTS_FORMAT_VERSION);
+        out.writeBoolean(tall);
+        if (tall) {
+            int previousHeight = 0;
+            for (int height: tallHeightMap) {
+                buffer.putInt(height - previousHeight);
+                previousHeight = height;
+            }
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+            buffer.asShortBuffer().put(tallWaterLevel);
+            out.write(buffer.array(), 0, tallWaterLevel.length * 2);
+        } else {
+            short previousHeight = 0;
+            for (short height: heightMap) {
+                buffer.putShort((short) (height - previousHeight));
+                previousHeight = height;
+            }
+            out.write(buffer.array(), 0, buffer.position());
+            out.write(waterLevel);
+        }
+        out.write(terrain);
+        out.writeInt(layerData.size());
+        for (Map.Entry<Layer, byte[]> entry: layerData.entrySet()) {
+            out.writeInt(layerIndices.applyAsInt(entry.getKey()));
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+        out.writeInt(bitLayerData.size());
+        for (Map.Entry<Layer, BitSet> entry: bitLayerData.entrySet()) {
+            final byte[] bytes = entry.getValue().toByteArray();
+            out.writeInt(layerIndices.applyAsInt(entry.getKey()));
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Read the contents of this tile from a stream to which they were written by
+     * {@link #writeContents(DataOutputStream, ToIntFunction)}.
+     *
+     * @param in The stream from which to read the contents.
+     * @param layers The function which provides the layer with each index in the layer table.
+     * @throws IOException If an I/O error occurs while reading the contents, or the contents are not valid.
+     */
+    synchronized void readContents(DataInputStream in, IntFunction<Layer> layers) throws IOException {
+        final int version = in.readUnsignedByte();
+        if (version != CONTENTS_FORMAT_VERSION) {
+            throw new IOException("Unsupported tile contents format version " + version);
+        } else if (in.readBoolean() != tall) {
+            throw new IOException("Tile " + x + "," + y + " does not have the expected height");
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(TILE_SIZE * TILE_SIZE * 4);
+        if (tall) {
+            in.readFully(buffer.array(), 0, TILE_SIZE * TILE_SIZE * 4);
+            tallHeightMap = new int[TILE_SIZE * TILE_SIZE];
+            int height = 0;
+            for (int i = 0; i < tallHeightMap.length; i++) {
+                height += buffer.getInt();
+                tallHeightMap[i] = height;
+            }
+            buffer.clear();
+            in.readFully(buffer.array(), 0, TILE_SIZE * TILE_SIZE * 2);
+            tallWaterLevel = new short[TILE_SIZE * TILE_SIZE];
+            buffer.asShortBuffer().get(tallWaterLevel);
+        } else {
+            in.readFully(buffer.array(), 0, TILE_SIZE * TILE_SIZE * 2);
+            heightMap = new short[TILE_SIZE * TILE_SIZE];
+            short height = 0;
+            for (int i = 0; i < heightMap.length; i++) {
+                height += buffer.getShort();
+                heightMap[i] = height;
+            }
+            waterLevel = new byte[TILE_SIZE * TILE_SIZE];
+            in.readFully(waterLevel);
+        }
+        terrain = new byte[TILE_SIZE * TILE_SIZE];
+        in.readFully(terrain);
+        layerData = new HashMap<>();
+        for (int count = in.readInt(); count > 0; count--) {
+            final Layer layer = layers.apply(in.readInt());
+            final byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            layerData.put(layer, data);
+        }
+        bitLayerData = new HashMap<>();
+        for (int count = in.readInt(); count > 0; count--) {
+            final Layer layer = layers.apply(in.readInt());
+            final byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            bitLayerData.put(layer, BitSet.valueOf(data));
+        }
+        cachedLayers = null;
+    }
+
+    /**
+     * Get the entry of the compartmentalised world file from which the contents of this tile can be loaded or copied,
+     * or {@code null} if the tile has been modified since it was loaded or saved, or was never stored in that format.
+     */
+    synchronized TileStore.Entry getStoredEntry() {
+        return storedEntry;
+    }
+
+    /**
+     * Atomically replace the entry from which the contents of this tile can be loaded or copied, but only if it is
+     * still the expected one, in other words if the tile has not been modified in the meantime.
+     *
+     * @return {@code true} if the entry was replaced.
+     */
+    synchronized boolean replaceStoredEntry(TileStore.Entry expectedEntry, TileStore.Entry newEntry) {
+        if (storedEntry == expectedEntry) {
+            storedEntry = newEntry;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Indicates whether the contents of this tile still have to be loaded from a compartmentalised world file.
+     */
+    synchronized boolean isUnloaded() {
+        return unloaded;
+    }
+
+    /**
+     * Get the seeds of this tile without loading the contents of the tile, since the seeds are not stored with the
+     * rest of the contents in the compartmentalised world format.
+     */
+    synchronized HashSet<Seed> getSeedsWithoutLoading() {
+        return unloaded ? seeds : getSeeds();
+    }
+
+    /**
+     * Set the seeds of a tile of which the contents have not been loaded yet.
+     */
+    synchronized void setSeedsWithoutLoading(HashSet<Seed> seeds) {
+        this.seeds = ((seeds != null) && (! seeds.isEmpty())) ? seeds : null;
+    }
+
+    /**
+     * Make sure this tile no longer depends on a compartmentalised world file, unless its current entry is one of the
+     * specified entries, by loading its contents if that has not happened yet and forgetting its entry.
+     *
+     * @param store The world file on which the tile should no longer depend.
+     * @param retainedEntries The entries, by identity, which the tile may keep.
+     */
+    synchronized void releaseStore(TileStore store, Set<TileStore.Entry> retainedEntries) {
+        if ((storedEntry != null) && (storedEntry.section.getStore() == store) && (! retainedEntries.contains(storedEntry))) {
+            ensureLoaded();
+            storedEntry = null;
+        }
+    }
+
+    /**
+     * Get the contents as they were loaded from a compartmentalised world file, for which the undo levels contain
+     * placeholders if the tile was registered with the undo manager before it was loaded. Loads the tile if that has
+     * not happened yet.
+     */
+    synchronized StoredContents getStoredContents() {
+        ensureLoaded();
+        return storedContents;
+    }
+
     private boolean getBitPerBlockLayerValue(BitSet bitSet, int x, int y) {
         return bitSet.get(x | (y << TILE_SIZE_BITS));
     }
@@ -1458,20 +1838,40 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
     }
 
     private void registerUndoBuffers() {
-        if (tall) {
-            undoManager.addBuffer(TALL_HEIGHTMAP_BUFFER_KEY,  tallHeightMap,  this);
-            undoManager.addBuffer(TALL_WATERLEVEL_BUFFER_KEY, tallWaterLevel, this);
+        if (unloaded) {
+            // The contents are the same on all undo levels until the tile is loaded and edited, so register
+            // placeholders for them rather than loading the tile. ensureReadable() and ensureWriteable() substitute
+            // the stored contents for them
+            if (tall) {
+                undoManager.addBuffer(TALL_HEIGHTMAP_BUFFER_KEY,  new PagedArrayBuffer<>(new int[0]),   this);
+                undoManager.addBuffer(TALL_WATERLEVEL_BUFFER_KEY, new PagedArrayBuffer<>(new short[0]), this);
+            } else {
+                undoManager.addBuffer(HEIGHTMAP_BUFFER_KEY,  new PagedArrayBuffer<>(new short[0]), this);
+                undoManager.addBuffer(WATERLEVEL_BUFFER_KEY, new PagedArrayBuffer<>(new byte[0]),  this);
+            }
+            undoManager.addBuffer(TERRAIN_BUFFER_KEY,        new PagedArrayBuffer<>(new byte[0]), this);
+            undoManager.addBuffer(LAYER_DATA_BUFFER_KEY,     LayerDataBuffer.placeholder(), this);
+            undoManager.addBuffer(BIT_LAYER_DATA_BUFFER_KEY, LayerDataBuffer.placeholder(), this);
+            readableBuffers = EnumSet.noneOf(TileBuffer.class);
+            writeableBuffers = EnumSet.noneOf(TileBuffer.class);
+        } else if (tall) {
+            undoManager.addBuffer(TALL_HEIGHTMAP_BUFFER_KEY,  new PagedArrayBuffer<>(tallHeightMap),  this);
+            undoManager.addBuffer(TALL_WATERLEVEL_BUFFER_KEY, new PagedArrayBuffer<>(tallWaterLevel), this);
             readableBuffers = EnumSet.of(TALL_HEIGHTMAP, TALL_WATERLEVEL, TERRAIN, LAYER_DATA, BIT_LAYER_DATA);
             writeableBuffers = EnumSet.of(TALL_HEIGHTMAP, TALL_WATERLEVEL, TERRAIN, LAYER_DATA, BIT_LAYER_DATA);
         } else {
-            undoManager.addBuffer(HEIGHTMAP_BUFFER_KEY,  heightMap,  this);
-            undoManager.addBuffer(WATERLEVEL_BUFFER_KEY, waterLevel, this);
+            undoManager.addBuffer(HEIGHTMAP_BUFFER_KEY,  new PagedArrayBuffer<>(heightMap),  this);
+            undoManager.addBuffer(WATERLEVEL_BUFFER_KEY, new PagedArrayBuffer<>(waterLevel), this);
             readableBuffers = EnumSet.of(HEIGHTMAP, WATERLEVEL, TERRAIN, LAYER_DATA, BIT_LAYER_DATA);
             writeableBuffers = EnumSet.of(HEIGHTMAP, WATERLEVEL, TERRAIN, LAYER_DATA, BIT_LAYER_DATA);
         }
-        undoManager.addBuffer(TERRAIN_BUFFER_KEY,        terrain,      this);
-        undoManager.addBuffer(LAYER_DATA_BUFFER_KEY,     layerData,    this);
-        undoManager.addBuffer(BIT_LAYER_DATA_BUFFER_KEY, bitLayerData, this);
+        if (! unloaded) {
+            undoManager.addBuffer(TERRAIN_BUFFER_KEY,        new PagedArrayBuffer<>(terrain), this);
+            layerDataBuffer = new LayerDataBuffer<>(layerData);
+            bitLayerDataBuffer = new LayerDataBuffer<>(bitLayerData);
+            undoManager.addBuffer(LAYER_DATA_BUFFER_KEY,     layerDataBuffer,    this);
+            undoManager.addBuffer(BIT_LAYER_DATA_BUFFER_KEY, bitLayerDataBuffer, this);
+        }
         if (seeds != null) {
             undoManager.addBuffer(SEEDS_BUFFER_KEY, seeds, this);
             readableBuffers.add(SEEDS);
@@ -1480,55 +1880,96 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
     }
 
     private void unregisterUndoBuffers() {
-        // Also make sure that we have all the data from the current undo level
-        // references, because after this we can't get at it any more
         if (tall) {
-            ensureReadable(TALL_HEIGHTMAP);
-            undoManager.removeBuffer(TALL_HEIGHTMAP_BUFFER_KEY);
-            ensureReadable(TALL_WATERLEVEL);
-            undoManager.removeBuffer(TALL_WATERLEVEL_BUFFER_KEY);
+            unregisterUndoBuffer(TALL_HEIGHTMAP, TALL_HEIGHTMAP_BUFFER_KEY);
+            unregisterUndoBuffer(TALL_WATERLEVEL, TALL_WATERLEVEL_BUFFER_KEY);
         } else {
-            ensureReadable(HEIGHTMAP);
-            undoManager.removeBuffer(HEIGHTMAP_BUFFER_KEY);
-            ensureReadable(WATERLEVEL);
-            undoManager.removeBuffer(WATERLEVEL_BUFFER_KEY);
+            unregisterUndoBuffer(HEIGHTMAP, HEIGHTMAP_BUFFER_KEY);
+            unregisterUndoBuffer(WATERLEVEL, WATERLEVEL_BUFFER_KEY);
         }
-        ensureReadable(TERRAIN);
-        undoManager.removeBuffer(TERRAIN_BUFFER_KEY);
-        ensureReadable(LAYER_DATA);
-        undoManager.removeBuffer(LAYER_DATA_BUFFER_KEY);
-        ensureReadable(BIT_LAYER_DATA);
-        undoManager.removeBuffer(BIT_LAYER_DATA_BUFFER_KEY);
+        unregisterUndoBuffer(TERRAIN, TERRAIN_BUFFER_KEY);
+        unregisterUndoBuffer(LAYER_DATA, LAYER_DATA_BUFFER_KEY);
+        unregisterUndoBuffer(BIT_LAYER_DATA, BIT_LAYER_DATA_BUFFER_KEY);
         if (seeds != null) {
-            ensureReadable(SEEDS);
-            undoManager.removeBuffer(SEEDS_BUFFER_KEY);
+            unregisterUndoBuffer(SEEDS, SEEDS_BUFFER_KEY);
         }
         readableBuffers = writeableBuffers = null;
+        layerDataBuffer = null;
+        bitLayerDataBuffer = null;
+        storedContents = null;
+    }
+
+    private void unregisterUndoBuffer(TileBuffer buffer, BufferKey<?> key) {
+        // Also make sure that we have all the data from the current undo level
+        // references, because after this we can't get at it any more. If the
+        // tile has not been loaded yet all undo levels still contain the
+        // placeholders, so there is nothing to get
+        if (! unloaded) {
+            ensureReadable(buffer);
+        }
+        undoManager.removeBuffer(key);
+    }
+
+    /**
+     * Load the contents of this tile from the compartmentalised world file from which it was loaded, if that has not
+     * happened yet.
+     */
+    private void ensureLoaded() {
+        if (unloaded) {
+            try {
+                storedEntry.load(this);
+            } catch (IOException e) {
+                throw new MDCCapturingRuntimeException("I/O error while loading tile " + x + "," + y + " from " + storedEntry, e);
+            }
+            unloaded = false;
+            if (undoManager != null) {
+                // The undo levels contain placeholders for these
+                storedContents = new StoredContents(this);
+            }
+        }
     }
 
     protected synchronized void ensureReadable(TileBuffer buffer) {
+        ensureLoaded();
         if ((undoManager != null) && (! readableBuffers.contains(buffer))) {
             switch (buffer) {
                 case HEIGHTMAP:
-                    heightMap = undoManager.getBuffer(HEIGHTMAP_BUFFER_KEY);
+                    heightMap = undoManager.getBuffer(HEIGHTMAP_BUFFER_KEY).getArray();
+                    if (heightMap.length == 0) {
+                        heightMap = storedContents.heightMap;
+                    }
                     break;
                 case TALL_HEIGHTMAP:
-                    tallHeightMap = undoManager.getBuffer(TALL_HEIGHTMAP_BUFFER_KEY);
+                    tallHeightMap = undoManager.getBuffer(TALL_HEIGHTMAP_BUFFER_KEY).getArray();
+                    if (tallHeightMap.length == 0) {
+                        tallHeightMap = storedContents.tallHeightMap;
+                    }
                     break;
                 case TERRAIN:
-                    terrain = undoManager.getBuffer(TERRAIN_BUFFER_KEY);
+                    terrain = undoManager.getBuffer(TERRAIN_BUFFER_KEY).getArray();
+                    if (terrain.length == 0) {
+                        terrain = storedContents.terrain;
+                    }
                     break;
                 case WATERLEVEL:
-                    waterLevel = undoManager.getBuffer(WATERLEVEL_BUFFER_KEY);
+                    waterLevel = undoManager.getBuffer(WATERLEVEL_BUFFER_KEY).getArray();
+                    if (waterLevel.length == 0) {
+                        waterLevel = storedContents.waterLevel;
+                    }
                     break;
                 case TALL_WATERLEVEL:
-                    tallWaterLevel = undoManager.getBuffer(TALL_WATERLEVEL_BUFFER_KEY);
+                    tallWaterLevel = undoManager.getBuffer(TALL_WATERLEVEL_BUFFER_KEY).getArray();
+                    if (tallWaterLevel.length == 0) {
+                        tallWaterLevel = storedContents.tallWaterLevel;
+                    }
                     break;
                 case LAYER_DATA:
-                    layerData = undoManager.getBuffer(LAYER_DATA_BUFFER_KEY);
+                    final LayerDataBuffer<byte[]> layerBuffer = undoManager.getBuffer(LAYER_DATA_BUFFER_KEY);
+                    layerData = layerBuffer.isPlaceholder() ? storedContents.layerData : layerBuffer.getData();
                     break;
                 case BIT_LAYER_DATA:
-                    bitLayerData = undoManager.getBuffer(BIT_LAYER_DATA_BUFFER_KEY);
+                    final LayerDataBuffer<BitSet> bitLayerBuffer = undoManager.getBuffer(BIT_LAYER_DATA_BUFFER_KEY);
+                    bitLayerData = bitLayerBuffer.isPlaceholder() ? storedContents.bitLayerData : bitLayerBuffer.getData();
                     break;
                 case SEEDS:
                     seeds = undoManager.getBuffer(SEEDS_BUFFER_KEY);
@@ -1539,28 +1980,62 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
     }
 
     private void ensureWriteable(TileBuffer buffer) {
+        ensureLoaded();
         if ((undoManager != null) && (! writeableBuffers.contains(buffer))) {
             switch (buffer) {
+                // Placeholders for the stored contents are replaced with a copy of the stored contents in the current
+                // undo level, leaving the stored contents intact for the previous undo levels
                 case HEIGHTMAP:
-                    heightMap = undoManager.getBufferForEditing(HEIGHTMAP_BUFFER_KEY);
+                    heightMap = undoManager.getBufferForEditing(HEIGHTMAP_BUFFER_KEY).getArrayForEditing();
+                    if (heightMap.length == 0) {
+                        heightMap = storedContents.heightMap.clone();
+                        undoManager.addBuffer(HEIGHTMAP_BUFFER_KEY, new PagedArrayBuffer<>(heightMap), this);
+                    }
                     break;
                 case TALL_HEIGHTMAP:
-                    tallHeightMap = undoManager.getBufferForEditing(TALL_HEIGHTMAP_BUFFER_KEY);
+                    tallHeightMap = undoManager.getBufferForEditing(TALL_HEIGHTMAP_BUFFER_KEY).getArrayForEditing();
+                    if (tallHeightMap.length == 0) {
+                        tallHeightMap = storedContents.tallHeightMap.clone();
+                        undoManager.addBuffer(TALL_HEIGHTMAP_BUFFER_KEY, new PagedArrayBuffer<>(tallHeightMap), this);
+                    }
                     break;
                 case TERRAIN:
-                    terrain = undoManager.getBufferForEditing(TERRAIN_BUFFER_KEY);
+                    terrain = undoManager.getBufferForEditing(TERRAIN_BUFFER_KEY).getArrayForEditing();
+                    if (terrain.length == 0) {
+                        terrain = storedContents.terrain.clone();
+                        undoManager.addBuffer(TERRAIN_BUFFER_KEY, new PagedArrayBuffer<>(terrain), this);
+                    }
                     break;
                 case WATERLEVEL:
-                    waterLevel = undoManager.getBufferForEditing(WATERLEVEL_BUFFER_KEY);
+                    waterLevel = undoManager.getBufferForEditing(WATERLEVEL_BUFFER_KEY).getArrayForEditing();
+                    if (waterLevel.length == 0) {
+                        waterLevel = storedContents.waterLevel.clone();
+                        undoManager.addBuffer(WATERLEVEL_BUFFER_KEY, new PagedArrayBuffer<>(waterLevel), this);
+                    }
                     break;
                 case TALL_WATERLEVEL:
-                    tallWaterLevel = undoManager.getBufferForEditing(TALL_WATERLEVEL_BUFFER_KEY);
+                    tallWaterLevel = undoManager.getBufferForEditing(TALL_WATERLEVEL_BUFFER_KEY).getArrayForEditing();
+                    if (tallWaterLevel.length == 0) {
+                        tallWaterLevel = storedContents.tallWaterLevel.clone();
+                        undoManager.addBuffer(TALL_WATERLEVEL_BUFFER_KEY, new PagedArrayBuffer<>(tallWaterLevel), this);
+                    }
                     break;
                 case LAYER_DATA:
-                    layerData = undoManager.getBufferForEditing(LAYER_DATA_BUFFER_KEY);
+                    layerDataBuffer = undoManager.getBufferForEditing(LAYER_DATA_BUFFER_KEY);
+                    if (layerDataBuffer.isPlaceholder()) {
+                        // The clone shares the data of the layers with the stored contents until they are edited
+                        layerDataBuffer = new LayerDataBuffer<>(storedContents.layerData).clone();
+                        undoManager.addBuffer(LAYER_DATA_BUFFER_KEY, layerDataBuffer, this);
+                    }
+                    layerData = layerDataBuffer.getData();
                     break;
                 case BIT_LAYER_DATA:
-                    bitLayerData = undoManager.getBufferForEditing(BIT_LAYER_DATA_BUFFER_KEY);
+                    bitLayerDataBuffer = undoManager.getBufferForEditing(BIT_LAYER_DATA_BUFFER_KEY);
+                    if (bitLayerDataBuffer.isPlaceholder()) {
+                        bitLayerDataBuffer = new LayerDataBuffer<>(storedContents.bitLayerData).clone();
+                        undoManager.addBuffer(BIT_LAYER_DATA_BUFFER_KEY, bitLayerDataBuffer, this);
+                    }
+                    bitLayerData = bitLayerDataBuffer.getData();
                     break;
                 case SEEDS:
                     seeds = undoManager.getBufferForEditing(SEEDS_BUFFER_KEY);
@@ -1571,7 +2046,42 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
         }
     }
 
+    /**
+     * Get the data of a byte or nibble sized layer for the purpose of modifying it. When an undo manager is installed
+     * the data of each layer is shared between undo levels until it is modified, so it must not be modified in place
+     * without going through this method. {@link #ensureWriteable(TileBuffer) ensureWriteable(LAYER_DATA)} must have
+     * been invoked first.
+     */
+    private byte[] getLayerDataForEditing(Layer layer) {
+        return (undoManager != null) ? layerDataBuffer.getForEditing(layer) : layerData.get(layer);
+    }
+
+    private void putLayerData(Layer layer, byte[] data) {
+        if (undoManager != null) {
+            layerDataBuffer.put(layer, data);
+        } else {
+            layerData.put(layer, data);
+        }
+    }
+
+    /**
+     * Get the data of a bit sized layer for the purpose of modifying it. See {@link #getLayerDataForEditing(Layer)}.
+     * {@link #ensureWriteable(TileBuffer) ensureWriteable(BIT_LAYER_DATA)} must have been invoked first.
+     */
+    private BitSet getBitLayerDataForEditing(Layer layer) {
+        return (undoManager != null) ? bitLayerDataBuffer.getForEditing(layer) : bitLayerData.get(layer);
+    }
+
+    private void putBitLayerData(Layer layer, BitSet data) {
+        if (undoManager != null) {
+            bitLayerDataBuffer.put(layer, data);
+        } else {
+            bitLayerData.put(layer, data);
+        }
+    }
+
     private void heightMapChanged() {
+        storedEntry = null;
         if (eventInhibitionCounter != 0) {
             heightMapDirty = true;
         } else {
@@ -1582,6 +2092,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
     }
 
     private void terrainChanged() {
+        storedEntry = null;
         if (eventInhibitionCounter != 0) {
             terrainDirty = true;
         } else {
@@ -1592,6 +2103,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
     }
 
     private void waterLevelChanged() {
+        storedEntry = null;
         if (eventInhibitionCounter != 0) {
             waterLevelDirty = true;
         } else {
@@ -1602,6 +2114,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
     }
 
     private void layerDataChanged(Layer layer) {
+        storedEntry = null;
         if (eventInhibitionCounter != 0) {
             dirtyLayers.add(layer);
         } else {
@@ -1613,6 +2126,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
     }
 
     private void allBitLayerDataChanged() {
+        storedEntry = null;
         if (eventInhibitionCounter != 0) {
             bitLayersDirty = true;
         } else {
@@ -1623,6 +2137,7 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
     }
 
     private void allNonBitLayerDataChanged() {
+        storedEntry = null;
         if (eventInhibitionCounter != 0) {
             nonBitLayersDirty = true;
         } else {
@@ -1666,6 +2181,21 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
         in.defaultReadObject();
         init();
     }
+
+    /**
+     * Feed the contents of a buffer from the start up to the current position to a digest, and clear the buffer.
+     */
+    private static void digest(MessageDigest digest, ByteBuffer buffer) {
+        digest(digest, buffer, buffer.position());
+    }
+
+    /**
+     * Feed the first {@code length} bytes of a buffer to a digest, and clear the buffer.
+     */
+    private static void digest(MessageDigest digest, ByteBuffer buffer, int length) {
+        digest.update(buffer.array(), 0, length);
+        buffer.clear();
+    }
     
     private synchronized void writeObject(ObjectOutputStream out) throws IOException {
         prepareForSaving();
@@ -1711,22 +2241,40 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
     private transient Set<TileBuffer> readableBuffers;
     private transient Set<TileBuffer> writeableBuffers;
     private transient UndoManager undoManager;
+    private transient LayerDataBuffer<byte[]> layerDataBuffer;
+    private transient LayerDataBuffer<BitSet> bitLayerDataBuffer;
     private transient List<Layer> cachedLayers;
     private transient volatile Set<Layer> dirtyLayers;
     private transient int maxY;
     private transient volatile int eventInhibitionCounter;
-
-    private transient BufferKey<short[]>            HEIGHTMAP_BUFFER_KEY;
-    private transient BufferKey<int[]>              TALL_HEIGHTMAP_BUFFER_KEY;
-    private transient BufferKey<byte[]>             TERRAIN_BUFFER_KEY;
-    private transient BufferKey<byte[]>             WATERLEVEL_BUFFER_KEY;
-    private transient BufferKey<short[]>            TALL_WATERLEVEL_BUFFER_KEY;
-    private transient BufferKey<Map<Layer, byte[]>> LAYER_DATA_BUFFER_KEY;
-    private transient BufferKey<Map<Layer, BitSet>> BIT_LAYER_DATA_BUFFER_KEY;
-    private transient BufferKey<HashSet<Seed>>      SEEDS_BUFFER_KEY;
+    /**
+     * The entry of a compartmentalised world file which holds the current contents of this tile. Cleared whenever the
+     * tile is modified.
+     */
+    private transient TileStore.Entry storedEntry;
+    /**
+     * Whether the contents of this tile still have to be loaded from {@link #storedEntry}.
+     */
+    private transient boolean unloaded;
+    /**
+     * The contents as they were loaded from {@link #storedEntry}, if the tile was registered with the undo manager
+     * before it was loaded, in which case the undo levels contain placeholders for these.
+     */
+    private transient StoredContents storedContents;
+
+    private transient BufferKey<PagedArrayBuffer<short[]>> HEIGHTMAP_BUFFER_KEY;
+    private transient BufferKey<PagedArrayBuffer<int[]>>   TALL_HEIGHTMAP_BUFFER_KEY;
+    private transient BufferKey<PagedArrayBuffer<byte[]>>  TERRAIN_BUFFER_KEY;
+    private transient BufferKey<PagedArrayBuffer<byte[]>>  WATERLEVEL_BUFFER_KEY;
+    private transient BufferKey<PagedArrayBuffer<short[]>> TALL_WATERLEVEL_BUFFER_KEY;
+    private transient BufferKey<LayerDataBuffer<byte[]>>   LAYER_DATA_BUFFER_KEY;
+    private transient BufferKey<LayerDataBuffer<BitSet>>   BIT_LAYER_DATA_BUFFER_KEY;
+    private transient BufferKey<HashSet<Seed>>             SEEDS_BUFFER_KEY;
     
     private static final Terrain[] TERRAIN_VALUES = Terrain.values();
 
+    private static final int CONTENTS_FORMAT_VERSION = 1;
+
     private static final float SQRT_OF_EIGHT = (float) Math.sqrt(8.0);
     
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Tile.class);
@@ -1770,6 +2318,30 @@ public class Tile extends InstanceKeeper implements Serializable, UndoListener,
         final TileBuffer buffer;
     }
 
+    /**
+     * The contents of a tile as loaded from a compartmentalised world file. These are never modified; the undo manager
+     * refers to them with placeholders until they are first edited, at which point they are copied.
+     */
+    static final class StoredContents {
+        StoredContents(Tile tile) {
+            heightMap = tile.heightMap;
+            tallHeightMap = tile.tallHeightMap;
+            terrain = tile.terrain;
+            waterLevel = tile.waterLevel;
+            tallWaterLevel = tile.tallWaterLevel;
+            layerData = tile.layerData;
+            bitLayerData = tile.bitLayerData;
+        }
+
+        final short[] heightMap;
+        final int[] tallHeightMap;
+        final byte[] terrain;
+        final byte[] waterLevel;
+        final short[] tallWaterLevel;
+        final Map<Layer, byte[]> layerData;
+        final Map<Layer, BitSet> bitLayerData;
+    }
+
     public enum TileBuffer {
         HEIGHTMAP, TERRAIN, WATERLEVEL, LAYER_DATA, BIT_LAYER_DATA, TALL_HEIGHTMAP, TALL_WATERLEVEL, SEEDS
     }
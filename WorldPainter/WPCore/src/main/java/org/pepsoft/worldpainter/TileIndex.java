@@ -0,0 +1,183 @@
+package org.pepsoft.worldpainter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An open addressing hash table of {@link Tile}s keyed by their tile coordinates, which can be read concurrently
+ * without locking and without allocating any objects. Modifications must be externally synchronised; readers will
+ * see a concurrent modification either completely or not at all.
+ *
+ * <p>Removed tiles leave a tombstone behind, which is reused if a tile is added again at the same coordinates, and
+ * is cleaned up when the table is next rehashed.
+ */
+final class TileIndex {
+    TileIndex() {
+        table = new Table(MIN_CAPACITY);
+    }
+
+    TileIndex(int expectedSize) {
+        table = new Table(capacityFor(expectedSize));
+    }
+
+    /**
+     * Get the tile at the specified tile coordinates, or {@code null} if there is no tile there.
+     */
+    Tile get(int x, int y) {
+        final Table table = this.table;
+        final long key = key(x, y);
+        final int mask = table.mask;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            final long slotKey = table.keys.get(i);
+            if (slotKey == key) {
+                return table.tiles.get(i);
+            } else if (slotKey == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Indicates whether there is a tile at the specified tile coordinates.
+     */
+    boolean contains(int x, int y) {
+        return get(x, y) != null;
+    }
+
+    /**
+     * Store a tile at its tile coordinates, replacing any tile that was already there. Must be externally
+     * synchronised with other modifications.
+     */
+    void put(Tile tile) {
+        final long key = key(tile.getX(), tile.getY());
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Tile coordinates out of range: " + tile.getX() + "," + tile.getY());
+        }
+        final int slot = findSlot(table, key);
+        if (table.keys.get(slot) == key) {
+            if (table.tiles.get(slot) == null) {
+                size++;
+            }
+            table.tiles.set(slot, tile);
+            return;
+        }
+        if (((usedSlots + 1) * 2) > table.keys.length()) {
+            // Rehash; also gets rid of the tombstones
+            final Table newTable = new Table(capacityFor(size + 1));
+            for (int i = 0; i < table.keys.length(); i++) {
+                final Tile existingTile = table.tiles.get(i);
+                if (existingTile != null) {
+                    final long existingKey = table.keys.get(i);
+                    final int newSlot = findSlot(newTable, existingKey);
+                    newTable.tiles.set(newSlot, existingTile);
+                    newTable.keys.set(newSlot, existingKey);
+                }
+            }
+            final int newSlot = findSlot(newTable, key);
+            newTable.tiles.set(newSlot, tile);
+            newTable.keys.set(newSlot, key);
+            usedSlots = ++size;
+            table = newTable;
+        } else {
+            // Set the tile first, so that a concurrent reader which sees the key also sees the tile
+            table.tiles.set(slot, tile);
+            table.keys.set(slot, key);
+            usedSlots++;
+            size++;
+        }
+    }
+
+    /**
+     * Remove the tile at the specified tile coordinates, if any. Must be externally synchronised with other
+     * modifications.
+     *
+     * @return The tile that was removed, or {@code null} if there was no tile at the specified coordinates.
+     */
+    Tile remove(int x, int y) {
+        final long key = key(x, y);
+        final int slot = findSlot(table, key);
+        if (table.keys.get(slot) == key) {
+            final Tile tile = table.tiles.getAndSet(slot, null);
+            if (tile != null) {
+                size--;
+            }
+            return tile;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Remove all tiles. Must be externally synchronised with other modifications.
+     */
+    void clear() {
+        table = new Table(MIN_CAPACITY);
+        size = 0;
+        usedSlots = 0;
+    }
+
+    /**
+     * Get the number of tiles in the index.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Find the slot containing the specified key, or otherwise the empty slot where it should be inserted.
+     */
+    private static int findSlot(Table table, long key) {
+        final int mask = table.mask;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            final long slotKey = table.keys.get(i);
+            if ((slotKey == key) || (slotKey == EMPTY)) {
+                return i;
+            }
+        }
+    }
+
+    private static long key(int x, int y) {
+        return (((long) x) << 32) | (y & 0xffffffffL);
+    }
+
+    private static int hash(long key) {
+        // Fibonacci hashing; the high bits are well mixed, so fold them down
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static int capacityFor(int size) {
+        // Keep the load factor at or under 0.25 directly after rehashing, so that it takes a while before the next
+        // rehash is needed
+        final int capacity = Integer.highestOneBit(Math.max(size * 4 - 1, MIN_CAPACITY - 1)) << 1;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Too many tiles: " + size);
+        }
+        return capacity;
+    }
+
+    private volatile Table table;
+    private int size, usedSlots;
+
+    /**
+     * The key of empty slots. Corresponds to tile coordinates {@code Integer.MIN_VALUE,0}, which are far outside the
+     * range of valid block coordinates.
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    static final class Table {
+        Table(int capacity) {
+            keys = new AtomicLongArray(capacity);
+            tiles = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                keys.set(i, EMPTY);
+            }
+        }
+
+        final AtomicLongArray keys;
+        final AtomicReferenceArray<Tile> tiles;
+        final int mask;
+    }
+}
@@ -11,7 +11,6 @@ import org.pepsoft.worldpainter.layers.Layer;
 
 import java.util.BitSet;
 import java.util.EnumSet;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -21,10 +20,13 @@ import java.util.Set;
 public final class TileSnapshot extends Tile {
     public TileSnapshot(Tile tile, Snapshot snapshot) {
         super(tile.getX(), tile.getY(), tile.getMinHeight(), tile.getMaxHeight());
+        this.tile = tile;
         this.snapshot = snapshot;
         HEIGHTMAP_BUFFER_KEY      = new TileUndoBufferKey<>(tile, TileBuffer.HEIGHTMAP);
+        TALL_HEIGHTMAP_BUFFER_KEY = new TileUndoBufferKey<>(tile, TileBuffer.TALL_HEIGHTMAP);
         TERRAIN_BUFFER_KEY        = new TileUndoBufferKey<>(tile, TileBuffer.TERRAIN);
         WATERLEVEL_BUFFER_KEY     = new TileUndoBufferKey<>(tile, TileBuffer.WATERLEVEL);
+        TALL_WATERLEVEL_BUFFER_KEY = new TileUndoBufferKey<>(tile, TileBuffer.TALL_WATERLEVEL);
         LAYER_DATA_BUFFER_KEY     = new TileUndoBufferKey<>(tile, TileBuffer.LAYER_DATA);
         BIT_LAYER_DATA_BUFFER_KEY = new TileUndoBufferKey<>(tile, TileBuffer.BIT_LAYER_DATA);
     }
@@ -43,20 +45,44 @@ public final class TileSnapshot extends Tile {
     protected void ensureReadable(TileBuffer buffer) {
         if (! readableBuffers.contains(buffer)) {
             switch (buffer) {
+                // Empty buffers are placeholders for the contents with which the tile was loaded
                 case HEIGHTMAP:
-                    heightMap = snapshot.getBuffer(HEIGHTMAP_BUFFER_KEY);
+                    heightMap = snapshot.getBuffer(HEIGHTMAP_BUFFER_KEY).getArray();
+                    if (heightMap.length == 0) {
+                        heightMap = tile.getStoredContents().heightMap;
+                    }
+                    break;
+                case TALL_HEIGHTMAP:
+                    tallHeightMap = snapshot.getBuffer(TALL_HEIGHTMAP_BUFFER_KEY).getArray();
+                    if (tallHeightMap.length == 0) {
+                        tallHeightMap = tile.getStoredContents().tallHeightMap;
+                    }
                     break;
                 case TERRAIN:
-                    terrain = snapshot.getBuffer(TERRAIN_BUFFER_KEY);
+                    terrain = snapshot.getBuffer(TERRAIN_BUFFER_KEY).getArray();
+                    if (terrain.length == 0) {
+                        terrain = tile.getStoredContents().terrain;
+                    }
                     break;
                 case WATERLEVEL:
-                    waterLevel = snapshot.getBuffer(WATERLEVEL_BUFFER_KEY);
+                    waterLevel = snapshot.getBuffer(WATERLEVEL_BUFFER_KEY).getArray();
+                    if (waterLevel.length == 0) {
+                        waterLevel = tile.getStoredContents().waterLevel;
+                    }
+                    break;
+                case TALL_WATERLEVEL:
+                    tallWaterLevel = snapshot.getBuffer(TALL_WATERLEVEL_BUFFER_KEY).getArray();
+                    if (tallWaterLevel.length == 0) {
+                        tallWaterLevel = tile.getStoredContents().tallWaterLevel;
+                    }
                     break;
                 case LAYER_DATA:
-                    layerData = snapshot.getBuffer(LAYER_DATA_BUFFER_KEY);
+                    final LayerDataBuffer<byte[]> layerBuffer = snapshot.getBuffer(LAYER_DATA_BUFFER_KEY);
+                    layerData = layerBuffer.isPlaceholder() ? tile.getStoredContents().layerData : layerBuffer.getData();
                     break;
                 case BIT_LAYER_DATA:
-                    bitLayerData = snapshot.getBuffer(BIT_LAYER_DATA_BUFFER_KEY);
+                    final LayerDataBuffer<BitSet> bitLayerBuffer = snapshot.getBuffer(BIT_LAYER_DATA_BUFFER_KEY);
+                    bitLayerData = bitLayerBuffer.isPlaceholder() ? tile.getStoredContents().bitLayerData : bitLayerBuffer.getData();
                     break;
             }
             readableBuffers.add(buffer);
@@ -113,14 +139,17 @@ public final class TileSnapshot extends Tile {
         return "TileSnapshot[x=" + getX() + ",y=" + getY() + "]";
     }
     
+    private final Tile tile;
     private final Snapshot snapshot;
     private final Set<TileBuffer> readableBuffers = EnumSet.noneOf(TileBuffer.class);
 
-    private transient BufferKey<short[]>            HEIGHTMAP_BUFFER_KEY;
-    private transient BufferKey<byte[]>             TERRAIN_BUFFER_KEY;
-    private transient BufferKey<byte[]>             WATERLEVEL_BUFFER_KEY;
-    private transient BufferKey<Map<Layer, byte[]>> LAYER_DATA_BUFFER_KEY;
-    private transient BufferKey<Map<Layer, BitSet>> BIT_LAYER_DATA_BUFFER_KEY;
+    private transient BufferKey<PagedArrayBuffer<short[]>> HEIGHTMAP_BUFFER_KEY;
+    private transient BufferKey<PagedArrayBuffer<int[]>>   TALL_HEIGHTMAP_BUFFER_KEY;
+    private transient BufferKey<PagedArrayBuffer<byte[]>>  TERRAIN_BUFFER_KEY;
+    private transient BufferKey<PagedArrayBuffer<byte[]>>  WATERLEVEL_BUFFER_KEY;
+    private transient BufferKey<PagedArrayBuffer<short[]>> TALL_WATERLEVEL_BUFFER_KEY;
+    private transient BufferKey<LayerDataBuffer<byte[]>>   LAYER_DATA_BUFFER_KEY;
+    private transient BufferKey<LayerDataBuffer<BitSet>>   BIT_LAYER_DATA_BUFFER_KEY;
 
     private static final long serialVersionUID = 2011101501L;
 }
\ No newline at end of file
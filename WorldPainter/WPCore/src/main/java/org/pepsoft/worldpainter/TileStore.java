@@ -0,0 +1,502 @@
+package org.pepsoft.worldpainter;
+
+import org.pepsoft.util.WPCustomObjectInputStream;
+import org.pepsoft.util.mdc.MDCCapturingRuntimeException;
+import org.pepsoft.util.plugins.PluginManager;
+import org.pepsoft.worldpainter.gardenofeden.Seed;
+import org.pepsoft.worldpainter.layers.Layer;
+import org.pepsoft.worldpainter.objects.AbstractObject;
+
+import java.awt.*;
+import java.io.*;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.*;
+import java.util.zip.*;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A world file in the compartmentalised format, from which the contents of the tiles are only loaded when they are
+ * first accessed. The file is a zip file with the following entries:
+ *
+ * <ul>
+ *     <li>{@code metadata.json}: the metadata of the world.
+ *     <li>{@code world-data.bin}: the serialised {@link World2}, without its dimensions.
+ *     <li>{@code <anchor>/dimension.bin}: for each dimension the serialised {@link Dimension} without its tiles,
+ *     followed in the same stream by the table of layers used by the tiles, and the seeds of the tiles by tile
+ *     coordinates.
+ *     <li>{@code <anchor>/tiles/<x>,<y>.bin}: for each tile its contents in the binary encoding of
+ *     {@link Tile#writeContents(DataOutputStream, java.util.function.ToIntFunction)}, deflated.
+ * </ul>
+ *
+ * <p>The tile entries are stored in the zip file without further compression, so that the entries of tiles which have
+ * not been modified can be copied to a new file as-is when the world is saved again.
+ *
+ * <p>Files written by {@link World2#save(ZipOutputStream)}, which contain {@code <anchor>/dim-data.bin} entries with
+ * only the dimension, and {@code <anchor>/region-data-<x>,<y>.bin} entries with the serialised tiles of each region,
+ * can also be loaded, in which case all tiles are loaded up front.
+ *
+ * <p>The file is opened when it is first accessed. {@link #close() Closing} it only releases the file handle; it is
+ * opened again if it is accessed afterwards.
+ */
+final class TileStore implements Closeable {
+    TileStore(File file) {
+        this.file = file;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Read an entry which is not a tile entry.
+     *
+     * @return The entry as a stream, or {@code null} if the entry does not exist.
+     */
+    synchronized InputStream getInputStream(String name) throws IOException {
+        final ZipFile zipFile = getZipFile();
+        final ZipEntry entry = zipFile.getEntry(name);
+        return (entry != null) ? zipFile.getInputStream(entry) : null;
+    }
+
+    /**
+     * Make sure that none of the tiles which were loaded from or bound to this file depend on it any more, except
+     * those of which the current entry is one of the specified entries. Tiles of which the contents have not been
+     * loaded yet are loaded, and no tile will be copied from this file when the world is saved again.
+     *
+     * @param retainedEntries The entries of tiles which may still depend on this file, by identity.
+     */
+    void release(Set<Entry> retainedEntries) {
+        // Don't hold the lock while locking the tiles, since they may be loading their contents from this file
+        final List<WeakReference<Tile>> tileRefs;
+        synchronized (this) {
+            tileRefs = new ArrayList<>(tiles);
+        }
+        for (WeakReference<Tile> tileRef: tileRefs) {
+            final Tile tile = tileRef.get();
+            if (tile != null) {
+                tile.releaseStore(this, retainedEntries);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (zipFile != null) {
+            try {
+                zipFile.close();
+            } finally {
+                zipFile = null;
+            }
+        }
+    }
+
+    /**
+     * Load the world and its dimensions. The tiles are created, but their contents are not loaded until they are
+     * accessed.
+     */
+    @SuppressWarnings("unchecked") // Guaranteed by the format
+    World2 loadWorld() throws IOException, ClassNotFoundException {
+        final World2 world;
+        try (ObjectInputStream in = createObjectInputStream(WORLD_DATA_ENTRY)) {
+            world = (World2) in.readObject();
+        }
+
+        // Find the dimensions and their tiles
+        final Map<String, List<String>> tileEntriesByPath = new LinkedHashMap<>(), regionEntriesByPath = new LinkedHashMap<>();
+        synchronized (this) {
+            for (Enumeration<? extends ZipEntry> e = getZipFile().entries(); e.hasMoreElements(); ) {
+                final String name = e.nextElement().getName();
+                if (name.endsWith("/" + DIMENSION_DATA_ENTRY)) {
+                    tileEntriesByPath.computeIfAbsent(name.substring(0, name.length() - DIMENSION_DATA_ENTRY.length()), k -> new ArrayList<>());
+                } else if (name.endsWith(TILE_ENTRY_SUFFIX) && name.contains("/" + TILES_DIRECTORY)) {
+                    tileEntriesByPath.computeIfAbsent(name.substring(0, name.lastIndexOf("/" + TILES_DIRECTORY) + 1), k -> new ArrayList<>()).add(name);
+                } else if (name.endsWith("/" + LEGACY_DIMENSION_DATA_ENTRY)) {
+                    regionEntriesByPath.computeIfAbsent(name.substring(0, name.length() - LEGACY_DIMENSION_DATA_ENTRY.length()), k -> new ArrayList<>());
+                } else if (name.contains("/" + LEGACY_REGION_ENTRY_PREFIX)) {
+                    regionEntriesByPath.computeIfAbsent(name.substring(0, name.lastIndexOf("/" + LEGACY_REGION_ENTRY_PREFIX) + 1), k -> new ArrayList<>()).add(name);
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<String>> entry: regionEntriesByPath.entrySet()) {
+            final String path = entry.getKey();
+            final Dimension dimension;
+            try (ObjectInputStream in = createObjectInputStream(path + LEGACY_DIMENSION_DATA_ENTRY)) {
+                dimension = (Dimension) in.readObject();
+            }
+            dimension.setWorld(world);
+            final List<Tile> tiles = new ArrayList<>();
+            for (String name: entry.getValue()) {
+                try (ObjectInputStream in = createObjectInputStream(name)) {
+                    tiles.addAll((List<Tile>) in.readObject());
+                }
+            }
+            for (Tile tile: tiles) {
+                final HashSet<Seed> tileSeeds = tile.getSeeds();
+                if (tileSeeds != null) {
+                    tileSeeds.forEach(seed -> seed.garden = dimension.getGarden());
+                }
+            }
+            dimension.addTiles(tiles);
+            world.restoreDimension(dimension);
+        }
+
+        for (Map.Entry<String, List<String>> entry: tileEntriesByPath.entrySet()) {
+            final String path = entry.getKey();
+            final Dimension dimension;
+            final List<Layer> layers;
+            final Map<Point, HashSet<Seed>> seeds;
+            try (ObjectInputStream in = createObjectInputStream(path + DIMENSION_DATA_ENTRY)) {
+                dimension = (Dimension) in.readObject();
+                layers = (List<Layer>) in.readObject();
+                seeds = (Map<Point, HashSet<Seed>>) in.readObject();
+            }
+            dimension.setWorld(world);
+            final Section section = new Section(path, layers);
+            section.store = this;
+            final List<Tile> tiles = new ArrayList<>(entry.getValue().size());
+            final int minHeight = dimension.getMinHeight(), maxHeight = dimension.getMaxHeight();
+            for (String name: entry.getValue()) {
+                final String[] coords = name.substring(path.length() + TILES_DIRECTORY.length(), name.length() - TILE_ENTRY_SUFFIX.length()).split(",");
+                final Tile tile = new Tile(Integer.parseInt(coords[0]), Integer.parseInt(coords[1]), minHeight, maxHeight, new Entry(section, name));
+                final HashSet<Seed> tileSeeds = seeds.get(new Point(tile.getX(), tile.getY()));
+                if (tileSeeds != null) {
+                    tileSeeds.forEach(seed -> seed.garden = dimension.getGarden());
+                    tile.setSeedsWithoutLoading(tileSeeds);
+                }
+                tiles.add(tile);
+            }
+            dimension.addTiles(tiles);
+            world.restoreDimension(dimension);
+            addTiles(tiles);
+        }
+        world.setTileStore(this);
+        return world;
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    /**
+     * Record tiles which depend on this file, so that they can be {@link #release(Set) released} from it.
+     */
+    private synchronized void addTiles(Collection<Tile> tiles) {
+        tiles.forEach(tile -> this.tiles.add(new WeakReference<>(tile)));
+    }
+
+    private ZipFile getZipFile() throws IOException {
+        if (zipFile == null) {
+            zipFile = new ZipFile(file);
+        }
+        return zipFile;
+    }
+
+    private ObjectInputStream createObjectInputStream(String name) throws IOException {
+        final InputStream in = getInputStream(name);
+        if (in == null) {
+            throw new FileNotFoundException("Entry " + name + " missing from " + file);
+        }
+        return new WPCustomObjectInputStream(new BufferedInputStream(in), PluginManager.getPluginClassLoader(), AbstractObject.class);
+    }
+
+    /**
+     * Determine whether a file is a zip file, and therefore (potentially) in the compartmentalised format.
+     */
+    static boolean isCompartmentalised(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            final byte[] magic = new byte[4];
+            return (in.readNBytes(magic, 0, 4) == 4) && Arrays.equals(magic, ZIP_MAGIC);
+        }
+    }
+
+    /**
+     * The location of the file. Only changes when the file is moved into place after it has been written, while the
+     * lock is held, so that tiles which are being loaded wait until the file is in place.
+     */
+    private volatile File file;
+    private ZipFile zipFile;
+    private final List<WeakReference<Tile>> tiles = new ArrayList<>();
+
+    static final String METADATA_ENTRY = "metadata.json", WORLD_DATA_ENTRY = "world-data.bin",
+            DIMENSION_DATA_ENTRY = "dimension.bin", LEGACY_DIMENSION_DATA_ENTRY = "dim-data.bin",
+            LEGACY_REGION_ENTRY_PREFIX = "region-data-";
+
+    private static final String TILES_DIRECTORY = "tiles/", TILE_ENTRY_SUFFIX = ".bin";
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+    private static final int WRITE_BATCH_SIZE = 256;
+
+    /**
+     * The tiles of one dimension in a world file, and the table of layers by which their contents refer to layers.
+     */
+    static final class Section {
+        Section(String path, List<Layer> layers) {
+            this.path = path;
+            this.layers = new ArrayList<>(layers);
+            for (int i = 0; i < layers.size(); i++) {
+                layerIndices.put(layers.get(i), i);
+            }
+        }
+
+        /**
+         * Get the file which contains this section, or {@code null} if it has not been (successfully) written to a
+         * file.
+         */
+        TileStore getStore() {
+            return store;
+        }
+
+        synchronized List<Layer> getLayers() {
+            return new ArrayList<>(layers);
+        }
+
+        synchronized Layer getLayer(int index) {
+            if ((index < 0) || (index >= layers.size())) {
+                throw new MDCCapturingRuntimeException("Invalid layer index " + index + " in " + store + ":" + path);
+            }
+            return layers.get(index);
+        }
+
+        /**
+         * Get the index of a layer in the layer table, adding it if it is not in there yet.
+         */
+        synchronized int getIndex(Layer layer) {
+            return layerIndices.computeIfAbsent(layer, key -> {
+                layers.add(key);
+                return layers.size() - 1;
+            });
+        }
+
+        private final String path;
+        private final List<Layer> layers;
+        private final Map<Layer, Integer> layerIndices = new HashMap<>();
+        /**
+         * The file which contains this section, or {@code null} if it is still being written, or was written to a
+         * stream rather than a file.
+         */
+        private volatile TileStore store;
+    }
+
+    /**
+     * The entry of a single tile in a world file.
+     */
+    static final class Entry {
+        Entry(Section section, String name) {
+            this.section = section;
+            this.name = name;
+        }
+
+        /**
+         * Load the contents of a tile from this entry.
+         */
+        void load(Tile tile) throws IOException {
+            try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(readRawData())))) {
+                tile.readContents(in, section::getLayer);
+            }
+        }
+
+        /**
+         * Read the deflated contents of the entry.
+         */
+        byte[] readRawData() throws IOException {
+            final TileStore store = section.store;
+            if (store == null) {
+                throw new IOException("Tile entry " + name + " was not saved to a file");
+            }
+            try (InputStream in = store.getInputStream(name)) {
+                if (in == null) {
+                    throw new FileNotFoundException("Entry " + name + " missing from " + store);
+                }
+                return in.readAllBytes();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return section.store + ":" + name;
+        }
+
+        final Section section;
+        final String name;
+    }
+
+    /**
+     * Writes the tiles of the dimensions of a world. The entries of tiles which have not been modified since they were
+     * loaded from or saved to a world file are copied from that file, as long as it is still available, rather than
+     * being encoded and compressed again.
+     */
+    static final class Writer {
+        /**
+         * Create a new writer.
+         *
+         * @param out The stream to which to write the entries.
+         * @param copy Whether a copy of the world is being written, such as an autosave file, to which the tiles will
+         *             not be {@link #bind(TileStore, TileStore, File, FileAction) bound}. The entries of the tiles are
+         *             then left as they are, so that unmodified tiles can still be copied from the file from which they
+         *             were loaded or to which they were last saved.
+         */
+        Writer(ZipOutputStream out, boolean copy) {
+            this.out = out;
+            this.copy = copy;
+        }
+
+        /**
+         * Write the entries for a collection of tiles.
+         *
+         * @param path The path of the dimension in the world file.
+         * @param tiles The tiles to write.
+         * @return The section containing the layer table to store with the dimension.
+         */
+        Section writeTiles(String path, Collection<Tile> tiles) throws IOException {
+            // Extend the layer table of the file the tiles were loaded from, if any, so that the layer indices in the
+            // entries of unmodified tiles remain valid and the entries can be copied as-is
+            Section baseSection = null;
+            for (Tile tile: tiles) {
+                final Entry storedEntry = tile.getStoredEntry();
+                if ((storedEntry != null) && (storedEntry.section.store != null)) {
+                    baseSection = storedEntry.section;
+                    break;
+                }
+            }
+            final Section section = new Section(path, (baseSection != null) ? baseSection.getLayers() : Collections.emptyList());
+            sections.add(section);
+
+            // Encode the modified tiles in parallel, in batches to limit the memory used
+            final Section copyableSection = baseSection;
+            final List<Tile> tileList = new ArrayList<>(tiles);
+            for (int i = 0; i < tileList.size(); i += WRITE_BATCH_SIZE) {
+                final List<Object> batch = tileList.subList(i, Math.min(i + WRITE_BATCH_SIZE, tileList.size())).parallelStream()
+                        .map(tile -> {
+                            final Entry storedEntry = tile.getStoredEntry();
+                            final Entry newEntry = new Entry(section, path + TILES_DIRECTORY + tile.getX() + "," + tile.getY() + TILE_ENTRY_SUFFIX);
+                            if ((storedEntry != null) && (storedEntry.section == copyableSection)) {
+                                return new CopiedTile(tile, storedEntry, newEntry);
+                            } else {
+                                return encode(tile, newEntry);
+                            }
+                        }).collect(toList());
+                writtenTiles.addAll(tileList.subList(i, Math.min(i + WRITE_BATCH_SIZE, tileList.size())));
+                for (Object result: batch) {
+                    if (result instanceof CopiedTile) {
+                        final CopiedTile copiedTile = (CopiedTile) result;
+                        writeStoredEntry(copiedTile.newEntry.name, copiedTile.oldEntry.readRawData());
+                        copiedTiles.add(copiedTile);
+                    } else {
+                        final EncodedTile encodedTile = (EncodedTile) result;
+                        writeStoredEntry(encodedTile.entry.name, encodedTile.data);
+                    }
+                }
+            }
+            return section;
+        }
+
+        /**
+         * Link the written sections and tiles to the file to which they were written, after it has been successfully
+         * closed, and move it to its final location. Afterwards, tiles which have not been loaded yet will be loaded
+         * from the new file, and tiles which are not modified will be copied from it the next time the world is saved.
+         *
+         * <p>The file from which the world was previously loaded or to which it was previously saved may be replaced
+         * or moved by the move, which is not possible on all platforms while it is open. It is therefore closed first,
+         * after loading any tiles which would still depend on it. Tiles which are loaded while the file is being moved
+         * wait until it is in place.
+         *
+         * @param store The file to which the tiles were written, in its original location.
+         * @param previousStore The file from which the world was previously loaded or to which it was previously saved,
+         *                      if any.
+         * @param destination The final location of the file.
+         * @param move The action which moves the file to its final location. If it fails the tiles stay linked to the
+         *             file in its original location.
+         * @throws IOException If the file could not be moved to its final location.
+         */
+        void bind(TileStore store, TileStore previousStore, File destination, FileAction move) throws IOException {
+            // The entries of the copied tiles will be replaced with their entries in the new file; all other tiles must
+            // no longer depend on the previous file
+            if (previousStore != null) {
+                final Set<Entry> retainedEntries = Collections.newSetFromMap(new IdentityHashMap<>());
+                copiedTiles.forEach(copiedTile -> retainedEntries.add(copiedTile.oldEntry));
+                previousStore.release(retainedEntries);
+            }
+            synchronized (store) {
+                sections.forEach(section -> section.store = store);
+                copiedTiles.forEach(copiedTile -> copiedTile.tile.replaceStoredEntry(copiedTile.oldEntry, copiedTile.newEntry));
+                store.addTiles(writtenTiles);
+                if (previousStore != null) {
+                    previousStore.close();
+                }
+                move.perform();
+                store.file = destination;
+            }
+        }
+
+        private EncodedTile encode(Tile tile, Entry entry) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            // Hold the lock on the tile while encoding it and setting the new entry, so that any subsequent
+            // modification clears it again. The entry only becomes usable once the section is bound to a file
+            synchronized (tile) {
+                try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+                    tile.writeContents(out, entry.section::getIndex);
+                } catch (IOException e) {
+                    throw new MDCCapturingRuntimeException("I/O error while encoding tile " + tile.getX() + "," + tile.getY(), e);
+                }
+                if (! copy) {
+                    tile.replaceStoredEntry(tile.getStoredEntry(), entry);
+                }
+            }
+            return new EncodedTile(bytes.toByteArray(), entry);
+        }
+
+        private void writeStoredEntry(String name, byte[] data) throws IOException {
+            final ZipEntry entry = new ZipEntry(name);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            final CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.setCrc(crc.getValue());
+            out.putNextEntry(entry);
+            try {
+                out.write(data);
+            } finally {
+                out.closeEntry();
+            }
+        }
+
+        private final ZipOutputStream out;
+        private final boolean copy;
+        private final List<Section> sections = new ArrayList<>();
+        private final List<CopiedTile> copiedTiles = new ArrayList<>();
+        private final List<Tile> writtenTiles = new ArrayList<>();
+    }
+
+    /**
+     * An operation on files which may fail with an {@link IOException}.
+     */
+    @FunctionalInterface
+    interface FileAction {
+        void perform() throws IOException;
+    }
+
+    private static final class EncodedTile {
+        EncodedTile(byte[] data, Entry entry) {
+            this.data = data;
+            this.entry = entry;
+        }
+
+        final byte[] data;
+        final Entry entry;
+    }
+
+    private static final class CopiedTile {
+        CopiedTile(Tile tile, Entry oldEntry, Entry newEntry) {
+            this.tile = tile;
+            this.oldEntry = oldEntry;
+            this.newEntry = newEntry;
+        }
+
+        final Tile tile;
+        final Entry oldEntry, newEntry;
+    }
+}
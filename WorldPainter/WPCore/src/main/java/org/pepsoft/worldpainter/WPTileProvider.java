@@ -15,6 +15,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.util.List;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -43,6 +47,9 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
         this.effect = effect;
         this.transparentVoid = transparentVoid;
         this.colourRamp = colourRamp;
+        for (int level = 1; level <= MAX_PYRAMID_LEVEL; level++) {
+            pyramid[level] = new HashMap<>();
+        }
     }
 
     public WPTileProvider(TileProvider tileProvider, ColourScheme colourScheme, CustomBiomeManager customBiomeManager, Set<Layer> hiddenLayers, boolean contourLines, int contourSeparation, TileRenderer.LightOrigin lightOrigin, ColourRamp colourRamp) {
@@ -58,6 +65,7 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
             this.hiddenLayers.addAll(hiddenLayers);
         }
         tileRendererRef = createNewTileRendererRef();
+        invalidateAllPyramidImages();
     }
 
     public synchronized Set<Layer> getHiddenLayers() {
@@ -72,6 +80,20 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
         if (hideAllLayers != this.hideAllLayers) {
             this.hideAllLayers = hideAllLayers;
             tileRendererRef = createNewTileRendererRef();
+            invalidateAllPyramidImages();
+        }
+    }
+
+    /**
+     * Discard any cached zoomed out images containing the specified tiles, for instance because the way in which they
+     * are rendered has changed in a way that the tile provider is not notified of. Changes to the tiles themselves are
+     * picked up automatically.
+     *
+     * @param tileCoords The coordinates of the tiles to discard, in tile coordinates (not corrected for zoom).
+     */
+    public void invalidateTiles(Set<Point> tileCoords) {
+        for (Point coords: tileCoords) {
+            invalidatePyramidImages(coords.x, coords.y);
         }
     }
 
@@ -102,6 +124,8 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
         try {
             if (zoom == 0) {
                 return paintUnzoomedTile(tileImage, x, y, imageX, imageY);
+            } else if (isPyramidUsed()) {
+                return paintPyramidTile(tileImage, x, y, imageX, imageY);
             } else {
                 final Graphics2D g2 = (Graphics2D) tileImage.getGraphics();
                 try {
@@ -161,6 +185,8 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
             for (Tile tile: ((Dimension) tileProvider).getTiles()) {
                 tile.addListener(this);
             }
+            // We may have missed changes while we weren't listening
+            invalidateAllPyramidImages();
         }
         if (! listeners.contains(tileListener)) {
             listeners.add(tileListener);
@@ -205,6 +231,7 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
     public void tilesAdded(Dimension dimension, Set<Tile> tiles) {
         for (Tile tile: tiles) {
             tile.addListener(this);
+            invalidatePyramidImages(tile.getX(), tile.getY());
         }
         fireTilesChanged(tiles);
     }
@@ -213,6 +240,7 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
     public void tilesRemoved(Dimension dimension, Set<Tile> tiles) {
         for (Tile tile: tiles) {
             tile.removeListener(this);
+            invalidatePyramidImages(tile.getX(), tile.getY());
         }
         fireTilesChanged(tiles);
     }
@@ -278,7 +306,129 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
         }
     }
     
+    /**
+     * Paint a zoomed out tile from the overview pyramid, building the necessary pyramid images if they are not cached.
+     */
+    private boolean paintPyramidTile(final Image tileImage, final int x, final int y, final int imageX, final int imageY) {
+        final BufferedImage pyramidImage = getPyramidImage(-zoom, x, y);
+        final Graphics2D g2 = (Graphics2D) tileImage.getGraphics();
+        try {
+            g2.setComposite(AlphaComposite.Src);
+            if (pyramidImage != EMPTY_PYRAMID_IMAGE) {
+                g2.drawImage(pyramidImage, imageX, imageY, null);
+            } else {
+                g2.setBackground(new Color(0x00ffffff & VoidRenderer.getColour(), true));
+                g2.clearRect(imageX, imageY, TILE_SIZE, TILE_SIZE);
+            }
+            applyEffects(g2);
+        } finally {
+            g2.dispose();
+        }
+        return true;
+    }
+
+    /**
+     * Get an image from the overview pyramid. An image at level {@code n} covers 2<sup>n</sup> by 2<sup>n</sup> tiles
+     * at a scale of 1:2<sup>n</sup>. Level 1 images are rendered from the tiles; higher levels are downsampled from the
+     * four images below them, so that only the images containing changed tiles ever need to be rebuilt.
+     *
+     * @return The requested image, or {@link #EMPTY_PYRAMID_IMAGE} if there are no tiles in the area it covers.
+     */
+    private BufferedImage getPyramidImage(int level, int x, int y) {
+        final Point coords = new Point(x, y);
+        final long expectedInvalidationCount;
+        synchronized (pyramid) {
+            final Reference<BufferedImage> imageRef = pyramid[level].get(coords);
+            final BufferedImage image = (imageRef != null) ? imageRef.get() : null;
+            if (image != null) {
+                return image;
+            }
+            expectedInvalidationCount = pyramidInvalidationCount;
+        }
+        final BufferedImage image = (level == 1) ? renderPyramidImage(x, y) : downsamplePyramidImages(level, x, y);
+        synchronized (pyramid) {
+            // Don't cache the image if any tile was invalidated while we were building it, as it might be stale. It will
+            // be rebuilt the next time it is painted
+            if (pyramidInvalidationCount == expectedInvalidationCount) {
+                pyramid[level].put(coords, new SoftReference<>(image));
+            }
+        }
+        return image;
+    }
+
+    private BufferedImage renderPyramidImage(int x, int y) {
+        final int subSize = TILE_SIZE / 2;
+        BufferedImage image = null;
+        int[] pixels = null;
+        for (int dx = 0; dx < 2; dx++) {
+            for (int dy = 0; dy < 2; dy++) {
+                if (isUnzoomedTilePresent(x * 2 + dx, y * 2 + dy)) {
+                    if (image == null) {
+                        image = createPyramidImage();
+                        pixels = getPixels(image);
+                        Arrays.fill(pixels, 0x00ffffff & VoidRenderer.getColour());
+                    }
+                    tileRendererRef.get().renderTile(tileProvider.getTile(x * 2 + dx, y * 2 + dy), image, dx * subSize, dy * subSize);
+                }
+            }
+        }
+        return (image != null) ? image : EMPTY_PYRAMID_IMAGE;
+    }
+
+    private BufferedImage downsamplePyramidImages(int level, int x, int y) {
+        final int subSize = TILE_SIZE / 2;
+        BufferedImage image = null;
+        int[] pixels = null;
+        for (int dx = 0; dx < 2; dx++) {
+            for (int dy = 0; dy < 2; dy++) {
+                final BufferedImage subImage = getPyramidImage(level - 1, x * 2 + dx, y * 2 + dy);
+                if (subImage == EMPTY_PYRAMID_IMAGE) {
+                    continue;
+                }
+                if (image == null) {
+                    image = createPyramidImage();
+                    pixels = getPixels(image);
+                    Arrays.fill(pixels, 0x00ffffff & VoidRenderer.getColour());
+                }
+                final int[] subPixels = getPixels(subImage);
+                for (int px = 0; px < subSize; px++) {
+                    for (int py = 0; py < subSize; py++) {
+                        final int offset = px * 2 + py * 2 * TILE_SIZE;
+                        pixels[(dx * subSize + px) + (dy * subSize + py) * TILE_SIZE] = average(subPixels[offset], subPixels[offset + 1], subPixels[offset + TILE_SIZE], subPixels[offset + TILE_SIZE + 1]);
+                    }
+                }
+            }
+        }
+        return (image != null) ? image : EMPTY_PYRAMID_IMAGE;
+    }
+
+    /**
+     * Discard the pyramid images containing a tile, on every level.
+     */
+    private void invalidatePyramidImages(int tileX, int tileY) {
+        synchronized (pyramid) {
+            pyramidInvalidationCount++;
+            for (int level = 1; level < pyramid.length; level++) {
+                pyramid[level].remove(new Point(tileX >> level, tileY >> level));
+            }
+        }
+    }
+
+    private boolean isPyramidUsed() {
+        return active && (zoom < 0) && (-zoom <= MAX_PYRAMID_LEVEL);
+    }
+
+    private void invalidateAllPyramidImages() {
+        synchronized (pyramid) {
+            pyramidInvalidationCount++;
+            for (int level = 1; level < pyramid.length; level++) {
+                pyramid[level].clear();
+            }
+        }
+    }
+
     private void fireTileChanged(Tile tile) {
+        invalidatePyramidImages(tile.getX(), tile.getY());
         Point coords = getTileCoordinates(tile);
         for (TileListener listener: listeners) {
             listener.tileChanged(this, coords.x, coords.y);
@@ -325,8 +475,10 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
 
     @NotNull
     private ThreadLocal<TileRenderer> createNewTileRendererRef() {
+        // When zoomed out, active tile providers only render tiles directly for the lowest level of the pyramid
+        final int rendererZoom = isPyramidUsed() ? -1 : zoom;
         return ThreadLocal.withInitial(() -> {
-            TileRenderer tileRenderer = new TileRenderer(tileProvider, colourScheme, customBiomeManager, zoom, transparentVoid, colourRamp);
+            TileRenderer tileRenderer = new TileRenderer(tileProvider, colourScheme, customBiomeManager, rendererZoom, transparentVoid, colourRamp);
             synchronized (WPTileProvider.this) {
                 if (hideAllLayers) {
                     tileRenderer.setHideAllLayers(true);
@@ -359,6 +511,25 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
         }
     }
 
+    private static BufferedImage createPyramidImage() {
+        return new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private static int[] getPixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Average four ARGB colours, per channel.
+     */
+    private static int average(int colour1, int colour2, int colour3, int colour4) {
+        final int a = ((colour1 >>> 24) + (colour2 >>> 24) + (colour3 >>> 24) + (colour4 >>> 24) + 2) >> 2;
+        final int r = (((colour1 >> 16) & 0xff) + ((colour2 >> 16) & 0xff) + ((colour3 >> 16) & 0xff) + ((colour4 >> 16) & 0xff) + 2) >> 2;
+        final int g = (((colour1 >> 8) & 0xff) + ((colour2 >> 8) & 0xff) + ((colour3 >> 8) & 0xff) + ((colour4 >> 8) & 0xff) + 2) >> 2;
+        final int b = ((colour1 & 0xff) + (colour2 & 0xff) + (colour3 & 0xff) + (colour4 & 0xff) + 2) >> 2;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
     private final TileProvider tileProvider;
     private final ColourScheme colourScheme;
     private final Set<Layer> hiddenLayers;
@@ -373,8 +544,17 @@ public class WPTileProvider implements org.pepsoft.util.swing.TileProvider, Dime
     private int zoom = 0;
     private boolean hideAllLayers;
     private volatile ThreadLocal<TileRenderer> tileRendererRef;
+    /**
+     * The overview pyramid of zoomed out images, indexed by level. Only used for active tile providers, since those
+     * are notified of changes to the tiles. Guarded by itself.
+     */
+    @SuppressWarnings("unchecked") // Generic array creation
+    private final Map<Point, Reference<BufferedImage>>[] pyramid = new Map[MAX_PYRAMID_LEVEL + 1];
+    private long pyramidInvalidationCount;
 
     private static final Logger logger = LoggerFactory.getLogger(WPTileProvider.class);
+    private static final BufferedImage EMPTY_PYRAMID_IMAGE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+    private static final int MAX_PYRAMID_LEVEL = 16;
 
     public static final Set<Layer> HIDE_ALL_LAYERS = Collections.emptySet();
 
@@ -591,22 +591,21 @@ public class World2 extends InstanceKeeper implements Serializable, Cloneable {
         return MemoryUtils.getSize(this, new HashSet<>(Arrays.asList(UndoManager.class, Dimension.Listener.class, PropertyChangeSupport.class, Layer.class, Terrain.class)));
     }
 
+    /**
+     * Prepare the tiles of all dimensions for serialisation. See {@link Dimension#prepareForSaving()}.
+     */
+    void prepareForSaving() {
+        dimensionsByAnchor.values().forEach(Dimension::prepareForSaving);
+    }
+
+    /**
+     * Save the world to a zip file with a separate entry for the world and each dimension, and the tiles of each
+     * dimension grouped by region. Such files can be loaded by {@link WorldIO#load(File)}, although all tiles are loaded
+     * up front.
+     */
     public synchronized void save(ZipOutputStream out) throws IOException {
         // First serialise everything but the dimensions to a separate file
-        out.putNextEntry(new ZipEntry("world-data.bin"));
-        try {
-            final Map<Anchor, Dimension> savedDimensions = dimensionsByAnchor;
-            try {
-                dimensionsByAnchor = null;
-                final ObjectOutputStream dataout = new ObjectOutputStream(out);
-                dataout.writeObject(this);
-                dataout.flush();
-            } finally {
-                dimensionsByAnchor = savedDimensions;
-            }
-        } finally {
-            out.closeEntry();
-        }
+        saveWorldData(out);
 
         // Then serialise the dimensions individually
         for (Dimension dimension: dimensionsByAnchor.values()) {
@@ -614,6 +613,54 @@ public class World2 extends InstanceKeeper implements Serializable, Cloneable {
         }
     }
 
+    /**
+     * Save the world to a world file in the compartmentalised format. See {@link TileStore}.
+     */
+    synchronized void save(ZipOutputStream out, TileStore.Writer writer) throws IOException {
+        // First serialise everything but the dimensions to a separate file
+        saveWorldData(out);
+
+        // Then serialise the dimensions individually
+        for (Dimension dimension: dimensionsByAnchor.values()) {
+            dimension.save(out, writer);
+        }
+    }
+
+    /**
+     * Close the world file from which the contents of the tiles of this world are loaded on demand, if the world was
+     * loaded from or saved to a file in the compartmentalised format, in order to release the file handle. This should
+     * be invoked when the world is no longer in use. If tiles which have not been loaded yet are accessed anyway the
+     * file is opened again.
+     *
+     * @throws IOException If an I/O error occurs while closing the file.
+     */
+    public void closeWorldFile() throws IOException {
+        final TileStore tileStore = getTileStore();
+        if (tileStore != null) {
+            tileStore.close();
+        }
+    }
+
+    /**
+     * Get the world file in the compartmentalised format from which the contents of the tiles of this world are loaded
+     * on demand, if any.
+     */
+    synchronized TileStore getTileStore() {
+        return tileStore;
+    }
+
+    synchronized void setTileStore(TileStore tileStore) {
+        this.tileStore = tileStore;
+    }
+
+    /**
+     * Add a dimension which was loaded separately from a world file in the compartmentalised format. Unlike
+     * {@link #addDimension(Dimension)} this has no side effects such as recording history.
+     */
+    synchronized void restoreDimension(Dimension dimension) {
+        dimensionsByAnchor.put(dimension.getAnchor(), dimension);
+    }
+
     /**
      * Get the set of warnings generated during loading, if any.
      * 
@@ -641,6 +688,23 @@ public class World2 extends InstanceKeeper implements Serializable, Cloneable {
         out.defaultWriteObject();
     }
 
+    private void saveWorldData(ZipOutputStream out) throws IOException {
+        out.putNextEntry(new ZipEntry(TileStore.WORLD_DATA_ENTRY));
+        try {
+            final Map<Anchor, Dimension> savedDimensions = dimensionsByAnchor;
+            try {
+                dimensionsByAnchor = null;
+                final ObjectOutputStream dataout = new ObjectOutputStream(out);
+                dataout.writeObject(this);
+                dataout.flush();
+            } finally {
+                dimensionsByAnchor = savedDimensions;
+            }
+        } finally {
+            out.closeEntry();
+        }
+    }
+
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
         propertyChangeSupport = new PropertyChangeSupport(this);
@@ -965,6 +1029,7 @@ public class World2 extends InstanceKeeper implements Serializable, Cloneable {
     private transient Set<Warning> warnings;
     private transient Map<String, Object> metadata;
     private transient long changeNo;
+    private transient TileStore tileStore;
 
     @Deprecated
     public static final int BIOME_ALGORITHM_NONE                = -1;
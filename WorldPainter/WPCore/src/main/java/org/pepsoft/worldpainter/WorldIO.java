@@ -6,6 +6,7 @@ import org.pepsoft.minecraft.Direction;
 import org.pepsoft.minecraft.SeededGenerator;
 import org.pepsoft.minecraft.SuperflatGenerator;
 import org.pepsoft.minecraft.SuperflatPreset;
+import org.pepsoft.util.ParallelGZIPOutputStream;
 import org.pepsoft.util.WPCustomObjectInputStream;
 import org.pepsoft.util.plugins.PluginManager;
 import org.pepsoft.worldpainter.history.HistoryEntry;
@@ -15,17 +16,21 @@ import org.pepsoft.worldpainter.layers.exporters.ExporterSettings;
 import org.pepsoft.worldpainter.layers.exporters.ResourcesExporter;
 import org.pepsoft.worldpainter.objects.AbstractObject;
 import org.pepsoft.worldpainter.plugins.WPPluginManager;
+import org.pepsoft.worldpainter.util.BackupUtils;
 import org.pepsoft.worldpainter.vo.EventVO;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.zip.*;
 
 import static com.fasterxml.jackson.core.JsonGenerator.Feature.AUTO_CLOSE_TARGET;
 import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static java.util.Collections.emptySet;
 import static org.pepsoft.minecraft.Material.*;
 import static org.pepsoft.worldpainter.DefaultPlugin.JAVA_MCREGION;
 import static org.pepsoft.worldpainter.Dimension.Anchor.NORMAL_DETAIL;
+import static org.pepsoft.worldpainter.FeatureFlags.COMPARTMENTALISED_WORLD_FILES;
 import static org.pepsoft.worldpainter.Generator.DEFAULT;
 
 // TODO why this design again? Just make these utility methods, surely?
@@ -59,43 +64,121 @@ public class WorldIO {
      * Save the world to a binary stream, such that it can later be loaded using
      * {@link #load(InputStream)}. The stream is closed before returning.
      *
+     * <p>The tiles are prepared for saving, and the serialised data is
+     * compressed, using multiple threads. The output is a regular GZIP stream.
+     *
      * @param out The stream to which to save the world.
      * @throws IOException If an I/O error occurred saving the world.
      */
     public void save(OutputStream out) throws IOException {
-        try (ObjectOutputStream wrappedOut = new ObjectOutputStream(new GZIPOutputStream(out))) {
+        world.prepareForSaving();
+        try (ObjectOutputStream wrappedOut = new ObjectOutputStream(new ParallelGZIPOutputStream(out))) {
             wrappedOut.writeObject(getMetadata());
             wrappedOut.writeObject(world);
         }
     }
 
     /**
-     * Save the world to a binary stream, such that it can later be loaded using {@link #load(InputStream)}. The stream
-     * is closed before returning.
+     * Save the world to a file, such that it can later be loaded using {@link #load(File)}. See
+     * {@link #save(File, int)}.
+     *
+     * @param file The file to which to save the world.
+     * @throws IOException If an I/O error occurred saving the world.
+     */
+    public void save(File file) throws IOException {
+        save(file, 0);
+    }
+
+    /**
+     * Save the world to a file, such that it can later be loaded using {@link #load(File)}. The world is saved in the
+     * compartmentalised format (see {@link #saveCompartmentalised(File)}), unless the
+     * {@link FeatureFlags#COMPARTMENTALISED_WORLD_FILES} flag has been switched off, in which case it is saved in the
+     * same format as {@link #save(OutputStream)}.
      *
-     * <p>This version uses a format that compresses every region separately, for faster access to individual regions
-     * without having to load the entire world.
+     * <p>The world is first saved to a temporary file next to the file, with the extension {@code .tmp} appended,
+     * which only replaces the file once it has been completely written. If that fails after the temporary file was
+     * written, the temporary file is left in place.
      *
-     * @param out The stream to which to save the world.
+     * @param file The file to which to save the world.
+     * @param backups The number of backups to keep of the file, if it already exists. The existing file and backups
+     *                are rotated as per {@link BackupUtils#getBackupFile(File, int)}.
      * @throws IOException If an I/O error occurred saving the world.
      */
-    // TODO this saves multiple copies of layers, etc.! Either solve that on loading, or else use this only for
-    //  exporting
-    public void saveCompartmentalised(OutputStream out) throws IOException {
-        try (ZipOutputStream wrappedOut = new ZipOutputStream(out)) {
-            final ObjectMapper objectMapper = new ObjectMapper()
-                    .disable(AUTO_CLOSE_TARGET)
-                    .disable(WRITE_DATES_AS_TIMESTAMPS);
-            wrappedOut.putNextEntry(new ZipEntry("metadata.json"));
+    public void save(File file, int backups) throws IOException {
+        if (COMPARTMENTALISED_WORLD_FILES) {
+            saveCompartmentalised(file, backups);
+        } else {
+            final File tempFile = getTempFile(file);
             try {
-                objectMapper.writeValue(wrappedOut, getMetadata());
-            } finally {
-                wrappedOut.closeEntry();
+                save(new FileOutputStream(tempFile));
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tempFile.toPath());
+                throw e;
+            }
+
+            // Saving in this format loaded all tiles, so they no longer need the compartmentalised world file, if any,
+            // which may be replaced
+            final TileStore previousStore = world.getTileStore();
+            if (previousStore != null) {
+                previousStore.release(emptySet());
+                previousStore.close();
+                world.setTileStore(null);
             }
-            world.save(wrappedOut);
+            replaceFile(tempFile, file, backups);
+        }
+    }
+
+    /**
+     * Save a copy of the world to a file, such as an autosave file, in the same format as {@link #save(File)}, but
+     * without the tiles of the world being linked to the file. Tiles which have not been loaded yet are not loaded, and
+     * tiles which have not been modified are still copied from the file from which the world was loaded or to which it
+     * was last saved the next time it is saved. The copy is therefore always saved in the compartmentalised format if
+     * the world was loaded from or saved to a file in that format. The file is written directly, without a temporary
+     * file.
+     *
+     * @param file The file to which to save the world.
+     * @throws IOException If an I/O error occurred saving the world.
+     */
+    public void saveCopy(File file) throws IOException {
+        if (COMPARTMENTALISED_WORLD_FILES || (world.getTileStore() != null)) {
+            writeCompartmentalised(new FileOutputStream(file), true);
+        } else {
+            save(new FileOutputStream(file));
         }
     }
 
+    /**
+     * Save the world to a binary stream in the compartmentalised format, such that it can later be loaded using
+     * {@link #load(File)} once the stream has been written to a file. The stream is closed before returning.
+     *
+     * <p>This format stores every tile separately, in a compact binary encoding, so that the tiles can be loaded on
+     * demand without having to load the entire world. Tiles which have not been modified since they were loaded from a
+     * file in this format are copied from that file without being decoded or compressed again.
+     *
+     * @param out The stream to which to save the world.
+     * @throws IOException If an I/O error occurred saving the world.
+     */
+    public void saveCompartmentalised(OutputStream out) throws IOException {
+        writeCompartmentalised(out, true);
+    }
+
+    /**
+     * Save the world to a file in the compartmentalised format, such that it can later be loaded using
+     * {@link #load(File)}. See {@link #saveCompartmentalised(OutputStream)}.
+     *
+     * <p>Afterwards, tiles of the world which have not been loaded yet will be loaded from the new file, and tiles
+     * which are not modified will be copied from it the next time the world is saved in this format. The file must
+     * therefore not be modified, moved or deleted while the world is in use. The world file from which the world was
+     * previously loaded or to which it was previously saved is closed, after loading the contents of any tiles that
+     * still depend on it. The new file is closed by {@link World2#closeWorldFile()}.
+     *
+     * @param file The file to which to save the world.
+     * @throws IOException If an I/O error occurred saving the world.
+     */
+    public void saveCompartmentalised(File file) throws IOException {
+        saveCompartmentalised(file, 0);
+    }
+
     /**
      * Load a world from a binary stream to which it was previously saved by
      * {@link #save(OutputStream)}, or by a previous version of WorldPainter.
@@ -140,6 +223,123 @@ public class WorldIO {
         }
     }
 
+    /**
+     * Load a world from a file. This may be a file in the compartmentalised format saved by
+     * {@link #saveCompartmentalised(File)}, in which case the contents of the tiles are only loaded from the file
+     * when they are first accessed, so the file must not be modified or deleted while the world is in use. Otherwise
+     * the file is loaded as by {@link #load(InputStream)}.
+     *
+     * @param file The file from which to load the world.
+     * @throws IOException If an I/O error occurred loading the world.
+     * @throws UnloadableWorldException If some other error occurred loading the
+     *     world. If metadata was present and could be loaded it will be stored
+     *     in the exception.
+     */
+    public void load(File file) throws IOException, UnloadableWorldException {
+        if (! TileStore.isCompartmentalised(file)) {
+            load(new BufferedInputStream(new FileInputStream(file)));
+            return;
+        }
+        Map<String, Object> metadata = null;
+        world = null;
+        final TileStore tileStore = new TileStore(file);
+        try {
+            try (InputStream in = tileStore.getInputStream(TileStore.METADATA_ENTRY)) {
+                if (in != null) {
+                    metadata = readMetadata(in);
+                }
+            }
+            world = tileStore.loadWorld();
+        } catch (ZipException | StreamCorruptedException | IllegalArgumentException | ClassNotFoundException | InvalidClassException | EOFException | ClassCastException e) {
+            tileStore.close();
+            throw new UnloadableWorldException(e.getClass().getSimpleName() + " while loading world", e, metadata);
+        } catch (IOException | RuntimeException e) {
+            tileStore.close();
+            throw e;
+        }
+        if (metadata != null) {
+            world.setMetadata(metadata);
+        }
+    }
+
+    void saveCompartmentalised(File file, int backups) throws IOException {
+        // Write to a temporary file first, since unmodified tiles may be copied from the existing file
+        final File tempFile = getTempFile(file);
+        final TileStore.Writer writer;
+        try {
+            writer = writeCompartmentalised(new FileOutputStream(tempFile), false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw e;
+        }
+        final TileStore store = new TileStore(tempFile);
+        final TileStore previousStore = world.getTileStore();
+        world.setTileStore(store);
+        writer.bind(store, previousStore, file, () -> replaceFile(tempFile, file, backups));
+    }
+
+    /**
+     * Replace a file with a newly written temporary file, rotating the existing file into backups first if requested.
+     */
+    private void replaceFile(File tempFile, File file, int backups) throws IOException {
+        if (file.isFile()) {
+            if (backups > 0) {
+                for (int i = backups; i > 0; i--) {
+                    final File nextBackupFile = (i > 1) ? BackupUtils.getBackupFile(file, i - 1) : file;
+                    if (nextBackupFile.isFile()) {
+                        final File backupFile = BackupUtils.getBackupFile(file, i);
+                        if (backupFile.isFile()) {
+                            if (! backupFile.delete()) {
+                                throw new IOException("Could not delete old backup file " + backupFile.getName() + "; world is saved as " + tempFile.getName());
+                            }
+                        }
+                        if (! nextBackupFile.renameTo(backupFile)) {
+                            throw new IOException("Could not move " + nextBackupFile.getName() + " to " + backupFile.getName() + "; world is saved as " + tempFile.getName());
+                        }
+                    }
+                }
+            } else if (! file.delete()) {
+                throw new IOException("Could not delete existing file " + file.getName() + "; world is saved as " + tempFile.getName());
+            }
+        }
+        if (! tempFile.renameTo(file)) {
+            throw new IOException("Could not move " + tempFile.getName() + " to " + file.getName() + "; world is saved as " + tempFile.getName());
+        }
+    }
+
+    private TileStore.Writer writeCompartmentalised(OutputStream out, boolean copy) throws IOException {
+        try (ZipOutputStream wrappedOut = new ZipOutputStream(new BufferedOutputStream(out))) {
+            final ObjectMapper objectMapper = new ObjectMapper()
+                    .disable(AUTO_CLOSE_TARGET)
+                    .disable(WRITE_DATES_AS_TIMESTAMPS);
+            wrappedOut.putNextEntry(new ZipEntry(TileStore.METADATA_ENTRY));
+            try {
+                objectMapper.writeValue(wrappedOut, getMetadata());
+            } finally {
+                wrappedOut.closeEntry();
+            }
+            final TileStore.Writer writer = new TileStore.Writer(wrappedOut, copy);
+            world.save(wrappedOut, writer);
+            return writer;
+        }
+    }
+
+    /**
+     * Read the metadata from JSON, restoring the types which are stored in the metadata by {@link #save(OutputStream)}.
+     */
+    @SuppressWarnings("unchecked") // Guaranteed by Jackson
+    private Map<String, Object> readMetadata(InputStream in) throws IOException {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final Map<String, Object> metadata = objectMapper.readValue(in, Map.class);
+        if (metadata.get(World2.METADATA_KEY_TIMESTAMP) != null) {
+            metadata.put(World2.METADATA_KEY_TIMESTAMP, objectMapper.convertValue(metadata.get(World2.METADATA_KEY_TIMESTAMP), Date.class));
+        }
+        if (metadata.get(World2.METADATA_KEY_PLUGINS) != null) {
+            metadata.put(World2.METADATA_KEY_PLUGINS, objectMapper.convertValue(metadata.get(World2.METADATA_KEY_PLUGINS), String[][].class));
+        }
+        return metadata;
+    }
+
     @NotNull
     private Map<String, Object> getMetadata() {
         final Map<String, Object> metadata = new HashMap<>();
@@ -246,5 +446,9 @@ public class WorldIO {
         }
     }
 
+    private static File getTempFile(File file) {
+        return new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+    }
+
     private World2 world;
 }
\ No newline at end of file
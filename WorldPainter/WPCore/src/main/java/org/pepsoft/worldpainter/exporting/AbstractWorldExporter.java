@@ -12,6 +12,10 @@ import org.pepsoft.util.undo.UndoManager;
 import org.pepsoft.worldpainter.Dimension;
 import org.pepsoft.worldpainter.Dimension.Anchor;
 import org.pepsoft.worldpainter.*;
+import org.pepsoft.worldpainter.exporting.ExportReport.DimensionReport;
+import org.pepsoft.worldpainter.exporting.ExportReport.Phase;
+import org.pepsoft.worldpainter.exporting.ExportReport.RegionReport;
+import org.pepsoft.worldpainter.exporting.ExportReport.Timing;
 import org.pepsoft.worldpainter.gardenofeden.GardenExporter;
 import org.pepsoft.worldpainter.gardenofeden.Seed;
 import org.pepsoft.worldpainter.layers.*;
@@ -20,6 +24,7 @@ import org.pepsoft.worldpainter.layers.tunnel.TunnelLayer;
 import org.pepsoft.worldpainter.platforms.JavaExportSettings;
 import org.pepsoft.worldpainter.plugins.BlockBasedPlatformProvider;
 import org.pepsoft.worldpainter.plugins.PlatformManager;
+import org.pepsoft.worldpainter.util.ContentDigester;
 import org.pepsoft.worldpainter.vo.AttributeKeyVO;
 import org.pepsoft.worldpainter.vo.EventVO;
 import org.slf4j.Logger;
@@ -28,6 +33,8 @@ import org.slf4j.LoggerFactory;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.List;
@@ -40,6 +47,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toMap;
 import static org.pepsoft.minecraft.ChunkFactory.Stage.*;
@@ -51,7 +59,11 @@ import static org.pepsoft.worldpainter.DefaultPlugin.JAVA_ANVIL;
 import static org.pepsoft.worldpainter.DefaultPlugin.JAVA_MCREGION;
 import static org.pepsoft.worldpainter.Dimension.Role.DETAIL;
 import static org.pepsoft.worldpainter.Dimension.Role.MASTER;
+import static org.pepsoft.worldpainter.FeatureFlags.PIPELINED_SAVING;
+import static org.pepsoft.worldpainter.FeatureFlags.QUEUE_BASED_PROPAGATION;
 import static org.pepsoft.worldpainter.Platform.Capability.POPULATE;
+import static org.pepsoft.worldpainter.exporting.ExportReport.currentThreadCpuTime;
+import static org.pepsoft.worldpainter.exporting.ExportReport.record;
 import static org.pepsoft.worldpainter.exporting.WorldExportSettings.Step.*;
 import static org.pepsoft.worldpainter.layers.tunnel.TunnelLayer.Mode.CUSTOM_DIMENSION;
 import static org.pepsoft.worldpainter.util.ThreadUtils.chooseThreadCount;
@@ -225,8 +237,22 @@ public abstract class AbstractWorldExporter implements WorldExporter {
                 }
             }
 
+            // Determine which regions are unchanged since the previous export, if any, so that they can be reused
+            final Set<Point> reusableRegions = ((exportManifest != null) && (! tilesSelected))
+                    ? updateExportManifest(dimension, ceiling, master, regions)
+                    : Collections.emptySet();
+
             final Map<Point, List<Fixup>> fixups = new HashMap<>();
-            final ExecutorService executor = createExecutorService("exporting", sortedRegions.size());
+            final int threadCount = chooseThreadCount("exporting", sortedRegions.size());
+            final ExecutorService executor = createThreadPool("exporting", threadCount);
+            // Saving (serialising, compressing and writing) the regions is done on a separate, smaller pool so that it
+            // overlaps with the generation of the next regions. The semaphore limits the number of generated regions
+            // waiting to be saved, so that the generating threads block rather than filling up the heap
+            final int savingThreadCount = PIPELINED_SAVING ? Math.max(threadCount / 2, 1) : 0;
+            final ExecutorService savingExecutor = PIPELINED_SAVING ? createThreadPool("saving", savingThreadCount) : null;
+            final Semaphore regionsInFlight = PIPELINED_SAVING ? new Semaphore(savingThreadCount * 2) : null;
+            final DimensionReport dimensionReport = new DimensionReport(dim, dimension.getName(), threadCount, savingThreadCount);
+            final long wallStart = System.nanoTime();
             final RuntimeException[] exception = new RuntimeException[1];
             final ParallelProgressManager parallelProgressManager = (progressReceiver != null) ? new ParallelProgressManager(progressReceiver, regions.size()) : null;
             final AtomicBoolean abort = new AtomicBoolean();
@@ -234,7 +260,8 @@ public abstract class AbstractWorldExporter implements WorldExporter {
                 // Export each individual region
                 for (Point region: sortedRegions) {
                     final Point regionCoords = region;
-                    executor.execute(() -> {
+                    final boolean reusable = reusableRegions.contains(regionCoords);
+                    executor.execute(measuringBusyTime(dimensionReport.getGeneratingBusyTime(), () -> {
                         if (abort.get()) {
                             return;
                         }
@@ -248,67 +275,88 @@ public abstract class AbstractWorldExporter implements WorldExporter {
                             }
                         }
                         try {
+                            if (reusable && reuseRegion(dimension, worldDir, regionCoords)) {
+                                if (logger.isDebugEnabled()) {
+                                    logger.debug("Reused region " + regionCoords.x + "," + regionCoords.y + " from previous export");
+                                }
+                                if (previousExportManifest.hasRegionFixups(dim, regionCoords)) {
+                                    exportManifest.addRegionWithFixups(dim, regionCoords);
+                                }
+                                dimensionReport.addRegion(new RegionReport(regionCoords.x, regionCoords.y, true, 0, Thread.currentThread().getName(), Collections.emptyMap()));
+                                regionExported(regionCoords, new ExportResults(), worldDir, combined, regions, fixups, exportedRegions, collectedStats, dimensionReport, progressReceiver1);
+                                if (progressReceiver1 != null) {
+                                    progressReceiver1.setProgress(1.0f);
+                                }
+                                return;
+                            }
                             final int minHeight = dimension.getMinHeight(), maxHeight = dimension.getMaxHeight();
                             final Map<Layer, LayerExporter> exporters = getExportersForRegion(combined, regionCoords);
                             final Map<Layer, LayerExporter> ceilingExporters = (ceiling != null) ? getExportersForRegion(ceiling, region) : null;
                             final WorldPainterChunkFactory chunkFactory = new WorldPainterChunkFactory(combined, exporters, platform, maxHeight);
                             final WorldPainterChunkFactory ceilingChunkFactory = (ceiling != null) ? new WorldPainterChunkFactory(ceiling, ceilingExporters, platform, maxHeight) : null;
 
-                            WorldRegion worldRegion = new WorldRegion(regionCoords.x, regionCoords.y, minHeight, maxHeight, platform);
-                            ExportResults exportResults = null;
-                            try {
-                                exportResults = exportRegion(worldRegion, combined, ceiling, regionCoords, tilesSelected, exporters, ceilingExporters, chunkFactory, ceilingChunkFactory, (progressReceiver1 != null) ? new SubProgressReceiver(progressReceiver1, 0.0f, 0.9f) : null);
-                                if (logger.isDebugEnabled()) {
-                                    logger.debug("Generated region " + regionCoords.x + "," + regionCoords.y);
-                                }
-                                if (exportResults.chunksGenerated) {
-                                    synchronized (collectedStats) {
-                                        collectedStats.landArea += exportResults.stats.landArea;
-                                        collectedStats.surfaceArea += exportResults.stats.surfaceArea;
-                                        collectedStats.waterArea += exportResults.stats.waterArea;
-                                        exportResults.stats.timings.forEach(
-                                                (layer, duration) -> collectedStats.timings.computeIfAbsent(layer, k -> new AtomicLong()).addAndGet(duration.get()));
-                                    }
+                            final WorldRegion worldRegion = new WorldRegion(regionCoords.x, regionCoords.y, minHeight, maxHeight, platform);
+                            final ExportResults exportResults = exportRegion(worldRegion, combined, ceiling, regionCoords, tilesSelected, exporters, ceilingExporters, chunkFactory, ceilingChunkFactory, (progressReceiver1 != null) ? new SubProgressReceiver(progressReceiver1, 0.0f, 0.9f) : null);
+                            if (logger.isDebugEnabled()) {
+                                logger.debug("Generated region " + regionCoords.x + "," + regionCoords.y);
+                            }
+                            if (exportResults.chunksGenerated) {
+                                synchronized (collectedStats) {
+                                    collectedStats.landArea += exportResults.stats.landArea;
+                                    collectedStats.surfaceArea += exportResults.stats.surfaceArea;
+                                    collectedStats.waterArea += exportResults.stats.waterArea;
+                                    exportResults.stats.timings.forEach(
+                                            (layer, duration) -> collectedStats.timings.computeIfAbsent(layer, k -> new AtomicLong()).addAndGet(duration.get()));
                                 }
-                            } finally {
-                                if ((exportResults != null) && exportResults.chunksGenerated) {
-                                    long saveStart = System.nanoTime();
-                                    worldRegion.save(worldDir, dim);
-                                    long saveDuration = System.nanoTime() - saveStart;
-                                    collectedStats.timings.computeIfAbsent(DISK_WRITING, k -> new AtomicLong()).addAndGet(saveDuration);
-                                    if (logger.isDebugEnabled()) {
-                                        logger.debug("Saving region took {} ms", saveDuration / 1_000_000);
+                                if (PIPELINED_SAVING) {
+                                    // Hand the region over to the saving pool, blocking if too many regions are already
+                                    // waiting to be saved
+                                    final String generatingThread = Thread.currentThread().getName();
+                                    regionsInFlight.acquire();
+                                    try {
+                                        savingExecutor.execute(measuringBusyTime(dimensionReport.getSavingBusyTime(), () -> {
+                                            try {
+                                                if (abort.get()) {
+                                                    return;
+                                                }
+                                                saveRegion(worldRegion, worldDir, dim, combined, collectedStats, exportResults);
+                                            } catch (Throwable t) {
+                                                handleRegionException(t, regionCoords, progressReceiver1, abort, exception);
+                                                return;
+                                            } finally {
+                                                regionsInFlight.release();
+                                            }
+                                            try {
+                                                dimensionReport.addRegion(new RegionReport(regionCoords.x, regionCoords.y, false, exportResults.chunkCount, generatingThread, exportResults.phaseTimings));
+                                                regionExported(regionCoords, exportResults, worldDir, combined, regions, fixups, exportedRegions, collectedStats, dimensionReport, progressReceiver1);
+                                            } catch (Throwable t) {
+                                                handleRegionException(t, regionCoords, progressReceiver1, abort, exception);
+                                            }
+                                        }));
+                                    } catch (Throwable t) {
+                                        regionsInFlight.release();
+                                        throw t;
                                     }
+                                    return;
                                 }
+                                saveRegion(worldRegion, worldDir, dim, combined, collectedStats, exportResults);
                             }
-                            synchronized (fixups) {
-                                if ((exportResults.fixups != null) && (!exportResults.fixups.isEmpty())) {
-                                    fixups.put(new Point(regionCoords.x, regionCoords.y), exportResults.fixups);
-                                }
-                                exportedRegions.add(regionCoords);
-                            }
-                            performFixupsIfNecessary(worldDir, combined, regions, fixups, exportedRegions, collectedStats, progressReceiver1);
+                            dimensionReport.addRegion(new RegionReport(regionCoords.x, regionCoords.y, false, exportResults.chunkCount, Thread.currentThread().getName(), exportResults.phaseTimings));
+                            regionExported(regionCoords, exportResults, worldDir, combined, regions, fixups, exportedRegions, collectedStats, dimensionReport, progressReceiver1);
                         } catch (Throwable t) {
-                            if (chainContains(t, OperationCancelled.class)) {
-                                logger.debug("Operation cancelled on thread {} (message: \"{}\")", Thread.currentThread().getName(), t.getMessage());
-                            } else {
-                                logger.error(t.getClass().getSimpleName() + " while exporting region {},{} (message: \"{}\")", region.x, region.y, t.getMessage(), t);
-                            }
-                            abort.set(true);
-                            if (progressReceiver1 != null) {
-                                progressReceiver1.exceptionThrown(t);
-                            } else {
-                                if (exception[0] == null) {
-                                    exception[0] = new RuntimeException(t.getClass().getSimpleName() + " while exporting region" + region.x + "," + region.y, exception[0]);
-                                }
-                            }
+                            handleRegionException(t, regionCoords, progressReceiver1, abort, exception);
                         }
-                    });
+                    }));
                 }
             } finally {
+                // Shut down the generating pool first, since it is the one submitting jobs to the saving pool
                 executor.shutdown();
                 try {
                     executor.awaitTermination(366, TimeUnit.DAYS);
+                    if (savingExecutor != null) {
+                        savingExecutor.shutdown();
+                        savingExecutor.awaitTermination(366, TimeUnit.DAYS);
+                    }
                 } catch (InterruptedException e) {
                     throw new MDCCapturingRuntimeException("Thread interrupted while waiting for all tasks to finish", e);
                 }
@@ -329,7 +377,7 @@ public abstract class AbstractWorldExporter implements WorldExporter {
                             progressReceiver.setMessage("Doing remaining fixups for " + dimension.getName());
                             progressReceiver.reset();
                         }
-                        performFixups(worldDir, combined, collectedStats, progressReceiver, fixups);
+                        performFixups(worldDir, combined, collectedStats, dimensionReport, progressReceiver, fixups);
                     }
                 }
             }
@@ -337,6 +385,15 @@ public abstract class AbstractWorldExporter implements WorldExporter {
             // Calculate total size of dimension
             collectedStats.time = System.currentTimeMillis() - start;
 
+            // Complete the report for the dimension
+            for (RegionReport regionReport: dimensionReport.getRegions()) {
+                regionReport.setBytesWritten(getRegionSize(worldDir, dim, new Point(regionReport.getX(), regionReport.getZ())));
+            }
+            dimensionReport.finish(System.nanoTime() - wallStart, collectedStats.timings);
+            if (exportReport != null) {
+                exportReport.addDimension(dimensionReport);
+            }
+
             if (progressReceiver != null) {
                 progressReceiver.setProgress(1.0f);
             }
@@ -535,6 +592,7 @@ public abstract class AbstractWorldExporter implements WorldExporter {
                 if (chunkCreationResult != null) {
                     if ((chunkX >= lowestRegionChunkX) && (chunkX <= highestRegionChunkX) && (chunkY >= lowestRegionChunkY) && (chunkY <= highestRegionChunkY)) {
                         exportResults.chunksGenerated = true;
+                        exportResults.chunkCount++;
                         exportResults.stats.landArea += chunkCreationResult.stats.landArea;
                         exportResults.stats.surfaceArea += chunkCreationResult.stats.surfaceArea;
                         exportResults.stats.waterArea += chunkCreationResult.stats.waterArea;
@@ -597,6 +655,7 @@ public abstract class AbstractWorldExporter implements WorldExporter {
             if (logger.isDebugEnabled()) {
                 logger.debug("Start of {} stage for region {},{}", stage, regionCoords.x, regionCoords.y);
             }
+            final long stageStart = System.nanoTime(), cpuStart = currentThreadCpuTime();
             for (Layer layer: secondaryPassLayers) {
                 final SecondPassLayerExporter exporter = (SecondPassLayerExporter) exporters.get(layer);
                 if (! exporter.getStages().contains(stage)) {
@@ -633,6 +692,7 @@ public abstract class AbstractWorldExporter implements WorldExporter {
                     progressReceiver.setProgress((float) counter / stageCount);
                 }
             }
+            record(exportResults.phaseTimings, (stage == SecondPassLayerExporter.Stage.CARVE) ? Phase.CARVE : Phase.ADD_FEATURES, stageStart, cpuStart);
         }
 
         // Garden / seeds second pass
@@ -724,10 +784,14 @@ public abstract class AbstractWorldExporter implements WorldExporter {
 
             // Calculate secondary light
             calculator.setDirtyArea(new Box((regionCoords.x << 9) - 16, ((regionCoords.x + 1) << 9) + 16, lowMark, highMark + 1, (regionCoords.y << 9) - 16, ((regionCoords.y + 1) << 9) + 16));
-            int iteration = 1;
-            while (calculator.secondPass()) {
-                if (progressReceiver != null) {
-                    progressReceiver.setProgress(0.2f + 0.8f * (iteration++ / maxIterations));
+            if (QUEUE_BASED_PROPAGATION) {
+                calculator.propagate();
+            } else {
+                int iteration = 1;
+                while (calculator.secondPass()) {
+                    if (progressReceiver != null) {
+                        progressReceiver.setProgress(0.2f + 0.8f * (iteration++ / maxIterations));
+                    }
                 }
             }
             calculator.finalise();
@@ -791,6 +855,7 @@ public abstract class AbstractWorldExporter implements WorldExporter {
             }
 
             // First pass. Create terrain and apply layers which don't need access to neighbouring chunks
+            final long firstPassStart = System.nanoTime(), firstPassCpuStart = currentThreadCpuTime();
             ExportResults exportResults = firstPass(minecraftWorld, dimension, regionCoords, tiles, tileSelection, exporters,chunkFactory, false,
                     (progressReceiver != null) ? new SubProgressReceiver(progressReceiver, 0.0f, ((ceiling != null) ? 0.225f : 0.45f) /* TODO why doesn't this work? */) : null);
 
@@ -800,7 +865,9 @@ public abstract class AbstractWorldExporter implements WorldExporter {
                 // chunks
                 ceilingExportResults = firstPass(minecraftWorld, ceiling, regionCoords, ceilingTiles, tileSelection, ceilingExporters, ceilingChunkFactory, true,
                         (progressReceiver != null) ? new SubProgressReceiver(progressReceiver, 0.225f, 0.225f) : null);
+                exportResults.chunkCount = Math.max(exportResults.chunkCount, ceilingExportResults.chunkCount);
             }
+            record(exportResults.phaseTimings, Phase.FIRST_PASS, firstPassStart, firstPassCpuStart);
 
             if (exportResults.chunksGenerated || ((ceiling != null) && ceilingExportResults.chunksGenerated)) {
                 // Second pass. Apply layers which need information from or apply changes to neighbouring chunks
@@ -819,20 +886,25 @@ public abstract class AbstractWorldExporter implements WorldExporter {
                     // Add ceiling timings to surface timings
                     ceilingExportResults.stats.timings.forEach(
                             (stage, duration) -> exportResults.stats.timings.computeIfAbsent(stage, k -> new AtomicLong()).addAndGet(duration.get()));
+                    ceilingExportResults.phaseTimings.forEach(
+                            (phase, timing) -> exportResults.phaseTimings.computeIfAbsent(phase, k -> new Timing()).add(timing.getWallTime(), timing.getCpuTime()));
                 }
 
                 // Post-processing. Fix covered grass blocks, things like that
                 final BlockBasedExportSettings exportSettings = getExportSettings(dimension, platform);
-                long start = System.nanoTime();
+                long start = System.nanoTime(), cpuStart = currentThreadCpuTime();
                 PlatformManager.getInstance().getPostProcessor(platform).postProcess(minecraftWorld, new Rectangle(regionCoords.x << 9, regionCoords.y << 9, 512, 512), exportSettings,
                         (progressReceiver != null) ? new SubProgressReceiver(progressReceiver, 0.55f, 0.1f) : null);
                 exportResults.stats.timings.put(POST_PROCESSING, new AtomicLong(System.nanoTime() - start));
+                record(exportResults.phaseTimings, Phase.POST_PROCESSING, start, cpuStart);
 
                 // Third pass. Calculate lighting and/or leaf distances (if requested, and supported by the platform)
                 if (BlockPropertiesCalculator.isBlockPropertiesPassNeeded(platform, worldExportSettings, exportSettings)) {
                     start = System.nanoTime();
+                    cpuStart = currentThreadCpuTime();
                     blockPropertiesPass(minecraftWorld, regionCoords, exportSettings, (progressReceiver != null) ? new SubProgressReceiver(progressReceiver, 0.65f, 0.35f) : null);
                     exportResults.stats.timings.put(BLOCK_PROPERTIES, new AtomicLong(System.nanoTime() - start));
+                    record(exportResults.phaseTimings, Phase.BLOCK_PROPERTIES, start, cpuStart);
                 }
             }
 
@@ -909,14 +981,299 @@ public abstract class AbstractWorldExporter implements WorldExporter {
         return true;
     }
 
+    /**
+     * Start recording the digests of the exported regions in an export manifest, which can be obtained with
+     * {@link #getExportManifest()} after the export, and optionally reuse unchanged regions from a previous export.
+     * Has no effect on exports of a tile selection.
+     *
+     * @param previousExportManifest The manifest of a previous export, the regions of which are available to
+     *                               {@link #reuseRegion(Dimension, File, Point)}, or {@code null} if regions should
+     *                               not be reused.
+     */
+    protected final void startExportManifest(ExportManifest previousExportManifest) {
+        this.previousExportManifest = previousExportManifest;
+        exportManifest = new ExportManifest();
+    }
+
+    /**
+     * Get the export manifest recorded since {@link #startExportManifest(ExportManifest)} was invoked.
+     *
+     * @return The export manifest, or {@code null} if none is being recorded.
+     */
+    protected final ExportManifest getExportManifest() {
+        return exportManifest;
+    }
+
+    /**
+     * Start recording the time spent on each phase of the export of each region of each dimension in an export report,
+     * which can be obtained with {@link #getExportReport()}.
+     */
+    protected final void startExportReport() {
+        exportReport = new ExportReport(world.getName(), platform.id);
+    }
+
+    /**
+     * Get the report of the most recent export, if the exporter records one.
+     *
+     * @return The report of the most recent export, or {@code null} if no report was recorded.
+     */
+    public final ExportReport getExportReport() {
+        return exportReport;
+    }
+
+    /**
+     * Get the total size on disk of the files of an exported region, for the export report. This default
+     * implementation does not know where the regions are stored and returns zero.
+     *
+     * @param worldDir     The directory of the map being exported to.
+     * @param dim          The dimension to which the region belongs.
+     * @param regionCoords The coordinates of the region.
+     * @return The size on disk of the files of the region in bytes, or zero if not known.
+     */
+    protected long getRegionSize(File worldDir, int dim, Point regionCoords) {
+        return 0L;
+    }
+
+    /**
+     * Reuse a region from a previous export, which has been determined to be unchanged, instead of generating it. This
+     * default implementation does not support reusing regions and returns {@code false}.
+     *
+     * @param dimension    The dimension being exported.
+     * @param worldDir     The directory of the map being exported to.
+     * @param regionCoords The coordinates of the region to reuse.
+     * @return {@code true} if the region was reused, or {@code false} if it should be generated after all.
+     */
+    protected boolean reuseRegion(Dimension dimension, File worldDir, Point regionCoords) throws IOException {
+        return false;
+    }
+
+    /**
+     * Calculate the digests of the regions to be exported, record them in the export manifest and determine which
+     * regions can be reused from the previous export, if any. A region can only be reused if its own digest has not
+     * changed, and none of its neighbours have to be regenerated while either of them produces fixups.
+     */
+    private Set<Point> updateExportManifest(Dimension dimension, Dimension ceiling, Dimension master, Set<Point> regions) {
+        final int dim = dimension.getAnchor().dim;
+        final long start = System.currentTimeMillis();
+        final String fingerprint = calculateFingerprint(dimension, ceiling, master);
+        // Tiles this far outside a region can influence it: directly, through border and wall tiles, and through the
+        // tiles of the surrounding chunks which are taken into account while exporting it
+        final int radius = 1 + (((dimension.getBorder() != null) && (! dimension.getBorder().isEndless())) ? dimension.getBorderSize() : 0)
+                + ((((dimension.getBorder() == null) || (! dimension.getBorder().isEndless())) && (dimension.getWallType() != null)) ? 1 : 0);
+        final Map<Tile, byte[]> tileDigests = Collections.synchronizedMap(new IdentityHashMap<>());
+        final Map<Point, String> regionDigests = regions.parallelStream().collect(toMap(identity(),
+                regionCoords -> calculateRegionDigest(regionCoords, radius, fingerprint, dimension, ceiling, tileDigests)));
+        exportManifest.setFingerprint(dim, fingerprint);
+        regionDigests.forEach((regionCoords, digest) -> exportManifest.setRegionDigest(dim, regionCoords, digest));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Calculating digests of {} regions took {} ms", regions.size(), System.currentTimeMillis() - start);
+        }
+
+        if (previousExportManifest == null) {
+            return Collections.emptySet();
+        } else if (! fingerprint.equals(previousExportManifest.getFingerprint(dim))) {
+            logger.info("Settings of dimension {} changed since previous export; regenerating all regions", dimension.getName());
+            return Collections.emptySet();
+        }
+        // Objects which do not fit in the region in which they are located are rendered by fixups after the
+        // neighbouring regions have been generated, so they cross region boundaries. A region which produced fixups
+        // (or may now do so, because it changed) therefore has to be regenerated together with its neighbours, and
+        // vice versa; the first so that no stale parts of its objects are left in them, the second so that its objects
+        // are rendered into them again. Since the fixups of reused regions are not performed, this is propagated until
+        // no reused region produced fixups which affect a regenerated region
+        final Set<Point> regionsToRegenerate = new HashSet<>();
+        final Deque<Point> queue = new ArrayDeque<>();
+        for (Point regionCoords: regions) {
+            if (! Objects.equals(regionDigests.get(regionCoords), previousExportManifest.getRegionDigest(dim, regionCoords))) {
+                regionsToRegenerate.add(regionCoords);
+                queue.add(regionCoords);
+            }
+        }
+        while (! queue.isEmpty()) {
+            final Point regionCoords = queue.remove();
+            final boolean spillsOver = (! Objects.equals(regionDigests.get(regionCoords), previousExportManifest.getRegionDigest(dim, regionCoords)))
+                    || previousExportManifest.hasRegionFixups(dim, regionCoords);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    final Point coords = new Point(regionCoords.x + dx, regionCoords.y + dz);
+                    if (regions.contains(coords) && (! regionsToRegenerate.contains(coords))
+                            && (spillsOver || previousExportManifest.hasRegionFixups(dim, coords))) {
+                        regionsToRegenerate.add(coords);
+                        queue.add(coords);
+                    }
+                }
+            }
+        }
+        final Set<Point> reusableRegions = new HashSet<>(regions);
+        reusableRegions.removeAll(regionsToRegenerate);
+        logger.info("{} of {} regions of dimension {} unchanged since previous export", reusableRegions.size(), regions.size(), dimension.getName());
+        return reusableRegions;
+    }
+
+    /**
+     * Calculate a fingerprint of everything which influences the export of all regions of a dimension, other than the
+     * tiles of the dimension and its ceiling. The settings are digested by content rather than in serialised form, so
+     * that the fingerprint is stable across sessions.
+     */
+    private String calculateFingerprint(Dimension dimension, Dimension ceiling, Dimension master) {
+        final ContentDigester digester = new ContentDigester();
+        digester.update(Version.VERSION)
+                .update(platform.id)
+                .update(worldExportSettings.getStepsToSkip())
+                .update(world.isCreateGoodiesChest())
+                .update(world.getSpawnPoint())
+                .update(world.getSpawnPointDimension());
+        for (int i = 0; i < Terrain.CUSTOM_TERRAIN_COUNT; i++) {
+            digester.update(world.getMixedMaterial(i));
+        }
+        for (Dimension d: new Dimension[] {dimension, ceiling, master}) {
+            if (d == null) {
+                digester.update(null);
+                continue;
+            }
+            final BlockBasedExportSettings exportSettings = getExportSettings(d, platform);
+            digester.update(d.getAnchor())
+                    .update(d.getSeed())
+                    .update(d.getMinecraftSeed())
+                    .update(d.getTileFactory())
+                    .update(d.getSubsurfaceMaterial())
+                    .update(d.isPopulate())
+                    .update(d.getBorder())
+                    .update(d.getBorderLevel())
+                    .update(d.getBorderSize())
+                    .update(d.getWallType())
+                    .update(d.getRoofType())
+                    .update(d.getMinHeight())
+                    .update(d.getMaxHeight())
+                    .update(d.getCeilingHeight())
+                    .update(d.getTopLayerMinDepth())
+                    .update(d.getTopLayerVariation())
+                    .update(d.getSubsurfaceLayerAnchor())
+                    .update(d.getTopLayerAnchor())
+                    .update(d.isBottomless())
+                    .update(d.isCoverSteepTerrain())
+                    .update(d.getUndergroundBiome())
+                    .update(d.getScale())
+                    .update(d.getGenerator())
+                    .update(d.getExportSettings())
+                    .update(exportSettings.isCalculateSkyLight())
+                    .update(exportSettings.isCalculateBlockLight())
+                    .update(exportSettings.isCalculateLeafDistance())
+                    .update(exportSettings.isRemoveFloatingLeaves())
+                    .update(d.getCustomBiomes())
+                    .update(d.getCustomLayers())
+                    .update(d.getAllLayerSettings());
+        }
+        if (master != null) {
+            // Master tiles cover many regions, so any change to them invalidates the entire dimension
+            final List<Tile> masterTiles = new ArrayList<>(master.getTiles());
+            masterTiles.sort(Comparator.<Tile>comparingInt(Tile::getX).thenComparingInt(Tile::getY));
+            for (Tile tile: masterTiles) {
+                digester.update(tile.getContentDigest());
+            }
+        }
+        return digester.digestAsHex();
+    }
+
+    /**
+     * Calculate a digest of everything which influences the export of a region: the fingerprint of the dimension and
+     * the contents of all tiles of the dimension and its ceiling within {@code radius} tiles of the region.
+     */
+    private String calculateRegionDigest(Point regionCoords, int radius, String fingerprint, Dimension dimension, Dimension ceiling, Map<Tile, byte[]> tileDigests) {
+        final MessageDigest digest = ContentDigester.createDigest();
+        digest.update(fingerprint.getBytes(UTF_8));
+        final ByteBuffer buffer = ByteBuffer.allocate(16);
+        digest.update(buffer.putInt(regionCoords.x).putInt(regionCoords.y).array(), 0, 8);
+        final int tileX1 = (regionCoords.x << 2) - radius, tileX2 = (regionCoords.x << 2) + 3 + radius;
+        final int tileY1 = (regionCoords.y << 2) - radius, tileY2 = (regionCoords.y << 2) + 3 + radius;
+        for (Dimension d: new Dimension[] {dimension, ceiling}) {
+            if (d == null) {
+                continue;
+            }
+            for (int tileX = tileX1; tileX <= tileX2; tileX++) {
+                for (int tileY = tileY1; tileY <= tileY2; tileY++) {
+                    final Tile tile = d.getTile(tileX, tileY);
+                    if (tile != null) {
+                        buffer.clear();
+                        digest.update(buffer.putInt((d == dimension) ? 0 : 1).putInt(tileX).putInt(tileY).array(), 0, 12);
+                        digest.update(tileDigests.computeIfAbsent(tile, Tile::getContentDigest));
+                    }
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Save a generated region to disk, using the storage settings from the
+     * export settings of the dimension, and record the time it took.
+     */
+    private void saveRegion(WorldRegion worldRegion, File worldDir, int dim, Dimension dimension, ChunkFactory.Stats stats, ExportResults exportResults) throws IOException {
+        final long saveStart = System.nanoTime(), cpuStart = currentThreadCpuTime();
+        worldRegion.save(worldDir, dim, getExportSettings(dimension, platform));
+        record(exportResults.phaseTimings, Phase.SAVING, saveStart, cpuStart);
+        final long saveDuration = System.nanoTime() - saveStart;
+        stats.timings.computeIfAbsent(DISK_WRITING, k -> new AtomicLong()).addAndGet(saveDuration);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Saving region took {} ms", saveDuration / 1_000_000);
+        }
+    }
+
+    /**
+     * Register a region as exported (and saved to disk, if it contained any
+     * chunks), record its fixups and perform any fixups which have become
+     * possible as a result.
+     */
+    private void regionExported(Point regionCoords, ExportResults exportResults, File worldDir, Dimension dimension,
+                                Set<Point> regionsToExport, Map<Point, List<Fixup>> fixups, Set<Point> exportedRegions,
+                                ChunkFactory.Stats stats, DimensionReport dimensionReport, ProgressReceiver progressReceiver) throws OperationCancelled {
+        synchronized (fixups) {
+            if ((exportResults.fixups != null) && (! exportResults.fixups.isEmpty())) {
+                fixups.put(new Point(regionCoords.x, regionCoords.y), exportResults.fixups);
+                if (exportManifest != null) {
+                    exportManifest.addRegionWithFixups(dimension.getAnchor().dim, regionCoords);
+                }
+            }
+            exportedRegions.add(regionCoords);
+        }
+        performFixupsIfNecessary(worldDir, dimension, regionsToExport, fixups, exportedRegions, stats, dimensionReport, progressReceiver);
+    }
+
+    /**
+     * Log an exception which occurred while exporting or saving a region, abort
+     * the export and report the exception to the progress receiver, or record
+     * it for rethrowing if there is no progress receiver.
+     */
+    private void handleRegionException(Throwable t, Point region, ProgressReceiver progressReceiver, AtomicBoolean abort, RuntimeException[] exception) {
+        if (chainContains(t, OperationCancelled.class)) {
+            logger.debug("Operation cancelled on thread {} (message: \"{}\")", Thread.currentThread().getName(), t.getMessage());
+        } else {
+            logger.error(t.getClass().getSimpleName() + " while exporting region {},{} (message: \"{}\")", region.x, region.y, t.getMessage(), t);
+        }
+        abort.set(true);
+        if (progressReceiver != null) {
+            progressReceiver.exceptionThrown(t);
+        } else {
+            synchronized (exception) {
+                if (exception[0] == null) {
+                    exception[0] = new RuntimeException(t.getClass().getSimpleName() + " while exporting region" + region.x + "," + region.y, t);
+                }
+            }
+        }
+    }
+
     /**
      * Apply all fixups which can be applied because all surrounding regions
      * have been exported (or are not going to be), but only if another thread
      * is not already doing it
+     *
+     * @param dimensionReport The report to which to add the time spent on the
+     *                        fixups. May be {@code null}.
      */
     protected void performFixupsIfNecessary(final File worldDir, final Dimension dimension, final Set<Point> regionsToExport,
                                             final Map<Point, List<Fixup>> fixups, final Set<Point> exportedRegions,
-                                            final ChunkFactory.Stats stats, final ProgressReceiver progressReceiver) throws ProgressReceiver.OperationCancelled {
+                                            final ChunkFactory.Stats stats, final DimensionReport dimensionReport,
+                                            final ProgressReceiver progressReceiver) throws ProgressReceiver.OperationCancelled {
         if (performingFixups.tryAcquire()) {
             try {
                 Map<Point, List<Fixup>> myFixups = new HashMap<>();
@@ -931,7 +1288,7 @@ public abstract class AbstractWorldExporter implements WorldExporter {
                     }
                 }
                 if (! myFixups.isEmpty()) {
-                    performFixups(worldDir, dimension, stats, (progressReceiver != null) ? new SubProgressReceiver(progressReceiver, 0.9f, 0.1f) : null, myFixups);
+                    performFixups(worldDir, dimension, stats, dimensionReport, (progressReceiver != null) ? new SubProgressReceiver(progressReceiver, 0.9f, 0.1f) : null, myFixups);
                 }
             } finally {
                 performingFixups.release();
@@ -939,18 +1296,25 @@ public abstract class AbstractWorldExporter implements WorldExporter {
         }
     }
 
+    /**
+     * Apply the specified fixups.
+     *
+     * @param dimensionReport The report to which to add the time spent on the
+     *                        fixups of each region. May be {@code null}.
+     */
     protected void performFixups(final File worldDir, final Dimension dimension, final ChunkFactory.Stats stats,
-                                 final ProgressReceiver progressReceiver, final Map<Point, List<Fixup>> fixups) throws OperationCancelled {
+                                 final DimensionReport dimensionReport, final ProgressReceiver progressReceiver,
+                                 final Map<Point, List<Fixup>> fixups) throws OperationCancelled {
         long start = System.nanoTime();
         int count = 0, total = 0;
         for (Entry<Point, List<Fixup>> entry: fixups.entrySet()) {
             total += entry.getValue().size();
         }
         // Make sure to honour the read-only layer: TODO: this means nothing at the moment. Is it still relevant?
-        final CachingMinecraftWorld minecraftWorld = new CachingMinecraftWorld(worldDir, dimension.getAnchor().dim, dimension.getMinHeight(), dimension.getMaxHeight(), platform, false, 512);
+        final ExportSettings exportSettings = getExportSettings(dimension, platform);
+        final CachingMinecraftWorld minecraftWorld = new CachingMinecraftWorld(worldDir, dimension.getAnchor().dim, dimension.getMinHeight(), dimension.getMaxHeight(), platform, false, 512, exportSettings);
         final long duration;
         try {
-            final ExportSettings exportSettings = getExportSettings(dimension, platform);
             for (Entry<Point, List<Fixup>> entry: fixups.entrySet()) {
                 if (progressReceiver != null) {
                     progressReceiver.setMessage("Performing fixups for region " + entry.getKey().x + "," + entry.getKey().y);
@@ -959,19 +1323,28 @@ public abstract class AbstractWorldExporter implements WorldExporter {
                 if (logger.isDebugEnabled()) {
                     logger.debug("Performing " + regionFixups.size() + " fixups for region " + entry.getKey().x + "," + entry.getKey().y);
                 }
+                final long regionStart = System.nanoTime(), cpuStart = currentThreadCpuTime();
                 for (Fixup fixup: regionFixups) {
                     fixup.fixup(minecraftWorld, dimension, platform, worldExportSettings, exportSettings);
                     if (progressReceiver != null) {
                         progressReceiver.setProgress((float) ++count / total);
                     }
                 }
+                if (dimensionReport != null) {
+                    dimensionReport.addTime(entry.getKey(), Phase.FIXUPS, System.nanoTime() - regionStart, currentThreadCpuTime() - cpuStart);
+                }
             }
             duration = System.nanoTime() - start;
             stats.timings.computeIfAbsent(FIXUPS, k -> new AtomicLong()).addAndGet(duration);
         } finally {
             start = System.nanoTime();
+            final long cpuStart = currentThreadCpuTime();
             minecraftWorld.close();
-            stats.timings.computeIfAbsent(DISK_WRITING, k -> new AtomicLong()).addAndGet(System.nanoTime() - start);
+            final long closeDuration = System.nanoTime() - start;
+            stats.timings.computeIfAbsent(DISK_WRITING, k -> new AtomicLong()).addAndGet(closeDuration);
+            if (dimensionReport != null) {
+                dimensionReport.addTime(null, Phase.SAVING, closeDuration, currentThreadCpuTime() - cpuStart);
+            }
         }
         if (logger.isTraceEnabled()) {
             logger.trace("Fixups for " + fixups.size() + " regions took " + (duration / 1_000_000) + " ms");
@@ -1017,7 +1390,11 @@ public abstract class AbstractWorldExporter implements WorldExporter {
     }
 
     protected final ExecutorService createExecutorService(String operation, int jobCount) {
-        return MDCThreadPoolExecutor.newFixedThreadPool(chooseThreadCount(operation, jobCount), new ThreadFactory() {
+        return createThreadPool(operation, chooseThreadCount(operation, jobCount));
+    }
+
+    protected final ExecutorService createThreadPool(String operation, int threadCount) {
+        return MDCThreadPoolExecutor.newFixedThreadPool(threadCount, new ThreadFactory() {
             @Override
             public synchronized Thread newThread(Runnable r) {
                 Thread thread = new Thread(threadGroup, r, operation.toLowerCase().replaceAll("\\s+", "-") + "-" + nextID++);
@@ -1242,7 +1619,11 @@ public abstract class AbstractWorldExporter implements WorldExporter {
         return chest;
     }
 
-    private BlockBasedExportSettings getExportSettings(Dimension dimension, Platform platform) {
+    /**
+     * Get the export settings of a dimension, or the default export settings of the platform if the dimension has none
+     * or they are not block based.
+     */
+    protected BlockBasedExportSettings getExportSettings(Dimension dimension, Platform platform) {
         final ExportSettings dimensionExportSettings = dimension.getExportSettings();
         if (dimensionExportSettings instanceof BlockBasedExportSettings) {
             return (BlockBasedExportSettings) dimensionExportSettings;
@@ -1252,12 +1633,29 @@ public abstract class AbstractWorldExporter implements WorldExporter {
         }
     }
 
+    /**
+     * Wrap a task so that the wall time it takes is added to a counter, for determining the utilisation of the thread
+     * pool on which it runs.
+     */
+    private static Runnable measuringBusyTime(AtomicLong busyTime, Runnable task) {
+        return () -> {
+            final long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                busyTime.addAndGet(System.nanoTime() - start);
+            }
+        };
+    }
+
     protected final World2 world;
     protected final BlockBasedPlatformProvider platformProvider;
     protected final Semaphore performingFixups = new Semaphore(1);
     protected final Platform platform;
     protected final WorldExportSettings worldExportSettings;
     protected final boolean populateSupported;
+    private ExportManifest previousExportManifest, exportManifest;
+    private ExportReport exportReport;
 
     public static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyyMMddHHmmss");
 
@@ -1302,5 +1700,16 @@ public abstract class AbstractWorldExporter implements WorldExporter {
          * have been generated
          */
         public List<Fixup> fixups;
+
+        /**
+         * The number of chunks generated for this region.
+         */
+        public int chunkCount;
+
+        /**
+         * The wall and CPU time spent on this region in each phase of the
+         * export.
+         */
+        public final Map<Phase, Timing> phaseTimings = new EnumMap<>(Phase.class);
     }
 }
\ No newline at end of file
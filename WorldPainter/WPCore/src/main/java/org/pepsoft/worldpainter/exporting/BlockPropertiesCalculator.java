@@ -8,6 +8,7 @@ package org.pepsoft.worldpainter.exporting;
 import org.pepsoft.minecraft.Chunk;
 import org.pepsoft.minecraft.Material;
 import org.pepsoft.util.Box;
+import org.pepsoft.util.LongQueue;
 import org.pepsoft.worldpainter.Platform;
 
 import java.util.Arrays;
@@ -128,50 +129,7 @@ public class BlockPropertiesCalculator {
                     for (int zInChunk = 0; zInChunk < 16; zInChunk++) {
                         final int x = (chunkX << 4) | xInChunk, z = (chunkZ << 4) | zInChunk;
                         for (int y = maxY; y >= dirtyArea.getY1() ; y--) {
-                            boolean changedBlock = false;
-                            Material material = chunk.getMaterial(xInChunk, y, zInChunk);
-                            if (leafDistance && material.leafBlock) {
-                                final int currentDistance = material.getProperty(DISTANCE, 8);
-                                final int distance = Math.min(currentDistance, calculateDistance(chunk, x, y, z));
-                                if (distance != currentDistance) {
-                                    material = material.withProperty(DISTANCE, distance);
-                                    chunk.setMaterial(xInChunk, y, zInChunk, material);
-                                    changedBlock = true;
-                                }
-                            }
-                            if (skyLight) {
-                                final int currentSkylightLevel = chunk.getSkyLightLevel(xInChunk, y, zInChunk);
-                                final int newSkyLightLevel;
-                                if (material.opaque) {
-                                    // Opaque block
-                                    newSkyLightLevel = 0;
-                                } else {
-                                    // Transparent block, or unknown block. We err on the side of transparency for
-                                    // unknown blocks to try and cause less visible lighting bugs
-                                    newSkyLightLevel = (currentSkylightLevel < 15) ? calculateSkyLightLevel(chunk, x, y, z, material) : 15;
-                                }
-                                if (newSkyLightLevel != currentSkylightLevel) {
-                                    chunk.setSkyLightLevel(xInChunk, y, zInChunk, newSkyLightLevel);
-                                    changedBlock = true;
-                                }
-                            }
-                            if (blockLight) {
-                                final int currentBlockLightLevel = chunk.getBlockLightLevel(xInChunk, y, zInChunk);
-                                final int newBlockLightLevel;
-                                if (material.opaque) {
-                                    // Opaque block
-                                    newBlockLightLevel = (material.blockLight > 0) ? currentBlockLightLevel : 0;
-                                } else {
-                                    // Transparent block, or unknown block. We err on the side of transparency for
-                                    // unknown blocks to try and cause less visible lighting bugs
-                                    newBlockLightLevel = max(currentBlockLightLevel, calculateBlockLightLevel(chunk, x, y, z));
-                                }
-                                if (newBlockLightLevel != currentBlockLightLevel) {
-                                    chunk.setBlockLightLevel(xInChunk, y, zInChunk, newBlockLightLevel);
-                                    changedBlock = true;
-                                }
-                            }
-                            if (changedBlock) {
+                            if (updateBlock(chunk, x, y, z)) {
                                 changed = true;
                                 if (y - 1 < lowestY) {
                                     lowestY = y - 1;
@@ -192,6 +150,66 @@ public class BlockPropertiesCalculator {
         return changed;
     }
 
+    /**
+     * For the current dirty area, propagate the selected block properties to surrounding blocks until the process is
+     * complete. This produces the same result as invoking {@link #secondPass()} until it returns {@code false}, but
+     * only scans the dirty area once, after which it only revisits the neighbours of blocks that were actually changed,
+     * using a work queue.
+     */
+    public void propagate() {
+        final int x1InChunks = dirtyArea.getX1() >> 4, z1InChunks = dirtyArea.getZ1() >> 4,
+                x2InChunks = (dirtyArea.getX2() - 1) >> 4, z2InChunks = (dirtyArea.getZ2() - 1) >> 4;
+        final LongQueue queue = new LongQueue();
+
+        // Seed the queue by visiting the entire dirty area once
+        for (int chunkX = x1InChunks; chunkX <= x2InChunks; chunkX++) {
+            for (int chunkZ = z1InChunks; chunkZ <= z2InChunks; chunkZ++) {
+                final Chunk chunk = world.getChunk(chunkX, chunkZ);
+                if (chunk == null) {
+                    continue;
+                }
+                final int maxY = Math.min(dirtyArea.getY2() - 1, maxHeights[chunkZ - maxHeightsZOffset][chunkX - maxHeightsXOffset]);
+                for (int xInChunk = 0; xInChunk < 16; xInChunk++) {
+                    for (int zInChunk = 0; zInChunk < 16; zInChunk++) {
+                        final int x = (chunkX << 4) | xInChunk, z = (chunkZ << 4) | zInChunk;
+                        for (int y = maxY; y >= dirtyArea.getY1() ; y--) {
+                            if (updateBlock(chunk, x, y, z)) {
+                                enqueueNeighbours(queue, x, y, z);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        // Process the queue until no more changes occur. The neighbours of a changed block are the only blocks which
+        // can be affected by the change, so this converges to the same fixed point as repeated full scans
+        Chunk chunk = null;
+        int chunkX = Integer.MIN_VALUE, chunkZ = Integer.MIN_VALUE;
+        while (! queue.isEmpty()) {
+            final long packedCoords = queue.remove();
+            final int x = unpackX(packedCoords), y = unpackY(packedCoords), z = unpackZ(packedCoords);
+            if (((x >> 4) != chunkX) || ((z >> 4) != chunkZ)) {
+                chunkX = x >> 4;
+                chunkZ = z >> 4;
+                if ((chunkX < x1InChunks) || (chunkX > x2InChunks) || (chunkZ < z1InChunks) || (chunkZ > z2InChunks)) {
+                    chunk = null;
+                } else {
+                    chunk = world.getChunk(chunkX, chunkZ);
+                }
+            }
+            if ((chunk == null)
+                    || (y < minHeight)
+                    || (y >= maxHeight)
+                    || (y > maxHeights[chunkZ - maxHeightsZOffset][chunkX - maxHeightsXOffset])) {
+                continue;
+            }
+            if (updateBlock(chunk, x, y, z)) {
+                enqueueNeighbours(queue, x, y, z);
+            }
+        }
+    }
+
     /**
      * Set the blocks to their initial values for one entire chunk.
      */
@@ -443,13 +461,73 @@ public class BlockPropertiesCalculator {
     }
 
     private int getOpacity(Material material) {
-        if (material.containsWater()) {
+        // Use the ID-indexed tables, which avoids looking up the waterlogged property for every block
+        final int id = material.id;
+        if (Material.containsWater(id)) {
             return waterOpacity;
         } else {
-            return material.opacity;
+            return Material.getOpacity(id);
         }
     }
 
+    // MC coordinate system. Returns true if any of the properties of the block changed
+    private boolean updateBlock(Chunk chunk, int x, int y, int z) {
+        final int xInChunk = x & 0xf, zInChunk = z & 0xf;
+        boolean changedBlock = false;
+        Material material = chunk.getMaterial(xInChunk, y, zInChunk);
+        if (leafDistance && material.leafBlock) {
+            final int currentDistance = material.getProperty(DISTANCE, 8);
+            final int distance = Math.min(currentDistance, calculateDistance(chunk, x, y, z));
+            if (distance != currentDistance) {
+                material = material.withProperty(DISTANCE, distance);
+                chunk.setMaterial(xInChunk, y, zInChunk, material);
+                changedBlock = true;
+            }
+        }
+        if (skyLight) {
+            final int currentSkylightLevel = chunk.getSkyLightLevel(xInChunk, y, zInChunk);
+            final int newSkyLightLevel;
+            if (material.opaque) {
+                // Opaque block
+                newSkyLightLevel = 0;
+            } else {
+                // Transparent block, or unknown block. We err on the side of transparency for
+                // unknown blocks to try and cause less visible lighting bugs
+                newSkyLightLevel = (currentSkylightLevel < 15) ? calculateSkyLightLevel(chunk, x, y, z, material) : 15;
+            }
+            if (newSkyLightLevel != currentSkylightLevel) {
+                chunk.setSkyLightLevel(xInChunk, y, zInChunk, newSkyLightLevel);
+                changedBlock = true;
+            }
+        }
+        if (blockLight) {
+            final int currentBlockLightLevel = chunk.getBlockLightLevel(xInChunk, y, zInChunk);
+            final int newBlockLightLevel;
+            if (material.opaque) {
+                // Opaque block
+                newBlockLightLevel = (material.blockLight > 0) ? currentBlockLightLevel : 0;
+            } else {
+                // Transparent block, or unknown block. We err on the side of transparency for
+                // unknown blocks to try and cause less visible lighting bugs
+                newBlockLightLevel = max(currentBlockLightLevel, calculateBlockLightLevel(chunk, x, y, z));
+            }
+            if (newBlockLightLevel != currentBlockLightLevel) {
+                chunk.setBlockLightLevel(xInChunk, y, zInChunk, newBlockLightLevel);
+                changedBlock = true;
+            }
+        }
+        return changedBlock;
+    }
+
+    private void enqueueNeighbours(LongQueue queue, int x, int y, int z) {
+        queue.add(packCoords(x, y + 1, z));
+        queue.add(packCoords(x - 1, y, z));
+        queue.add(packCoords(x + 1, y, z));
+        queue.add(packCoords(x, y, z - 1));
+        queue.add(packCoords(x, y, z + 1));
+        queue.add(packCoords(x, y - 1, z));
+    }
+
     // MC coordinate system
     private int calculateSkyLightLevel(Chunk chunk, int x, int y, int z, Material material) {
         int skyLightLevel = getSkyLightLevelAt(chunk, x, y + 1, z);
@@ -600,6 +678,23 @@ public class BlockPropertiesCalculator {
         }
     }
 
+    // MC coordinate system
+    private static long packCoords(int x, int y, int z) {
+        return (((long) (x & 0x3ffffff)) << 38) | (((long) (z & 0x3ffffff)) << 12) | (y & 0xfff);
+    }
+
+    private static int unpackX(long packedCoords) {
+        return (int) (packedCoords >> 38);
+    }
+
+    private static int unpackY(long packedCoords) {
+        return (int) ((packedCoords << 52) >> 52);
+    }
+
+    private static int unpackZ(long packedCoords) {
+        return (int) ((packedCoords << 26) >> 38);
+    }
+
     private final MinecraftWorld world;
     private final boolean skyLight, blockLight, leafDistance, removeFloatingLeaves;
     private final int minHeight, maxHeight, waterOpacity;
@@ -158,6 +158,11 @@ public class BorderChunkFactory {
                         return borderLevel;
                     }
 
+                    @Override
+                    public void getColumns(int x, int y, int width, int height, int[] intHeights, int[] waterLevels, Terrain[] terrains, Layer[] layers, int[][] layerValues) {
+                        getColumnsIndividually(x, y, width, height, intHeights, waterLevels, terrains, layers, layerValues);
+                    }
+
                     private static final long serialVersionUID = 1L;
                 };
                 for (Layer layer: minimumLayers) {
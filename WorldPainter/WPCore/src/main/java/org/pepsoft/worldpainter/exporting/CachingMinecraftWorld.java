@@ -20,6 +20,16 @@ import static org.pepsoft.minecraft.Constants.BLK_AIR;
  */
 public class CachingMinecraftWorld implements MinecraftWorld {
     public CachingMinecraftWorld(File worldDir, int dimension, int minHeight, int maxHeight, Platform platform, boolean readOnly, int cacheSize) {
+        this(worldDir, dimension, minHeight, maxHeight, platform, readOnly, cacheSize, null);
+    }
+
+    /**
+     * Create a caching Minecraft world which saves chunks honouring any storage related settings (such as the chunk
+     * compression) in the specified export settings.
+     *
+     * @param exportSettings The export settings to honour. May be {@code null}.
+     */
+    public CachingMinecraftWorld(File worldDir, int dimension, int minHeight, int maxHeight, Platform platform, boolean readOnly, int cacheSize, ExportSettings exportSettings) {
         this.minHeight = minHeight;
         this.maxHeight = maxHeight;
         this.cacheSize = cacheSize;
@@ -28,6 +38,7 @@ public class CachingMinecraftWorld implements MinecraftWorld {
         lruList = new HashList<>(cacheSize);
         dirtyChunks = new HashSet<>(cacheSize);
         chunkStore = PlatformManager.getInstance().getChunkStore(platform, worldDir, dimension);
+        JavaChunkStore.applyExportSettings(chunkStore, exportSettings);
     }
 
     @Override
@@ -0,0 +1,165 @@
+package org.pepsoft.worldpainter.exporting;
+
+import org.pepsoft.worldpainter.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.io.*;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A record of the digests of the inputs from which the regions of an exported map were generated, stored in the map
+ * directory. Used to determine which regions are unchanged when the same world is exported to the same map again, so
+ * that they can be reused rather than regenerated.
+ *
+ * <p>The digest of each region covers the contents of all tiles which influence the region, as well as a fingerprint
+ * of all settings which influence the entire dimension, including the WorldPainter version. The manifest also records
+ * which regions produced fixups, since those have to be regenerated together with their neighbours.
+ */
+public final class ExportManifest {
+    /**
+     * Get the fingerprint of the dimension-wide settings with which a dimension was exported.
+     *
+     * @return The fingerprint, or {@code null} if the dimension was not exported.
+     */
+    public synchronized String getFingerprint(int dim) {
+        return fingerprints.get(dim);
+    }
+
+    public synchronized void setFingerprint(int dim, String fingerprint) {
+        fingerprints.put(dim, fingerprint);
+    }
+
+    /**
+     * Get the digest of the inputs from which a region was generated.
+     *
+     * @return The digest, or {@code null} if the region was not exported.
+     */
+    public synchronized String getRegionDigest(int dim, Point regionCoords) {
+        return regionDigests.get(new RegionKey(dim, regionCoords.x, regionCoords.y));
+    }
+
+    public synchronized void setRegionDigest(int dim, Point regionCoords, String digest) {
+        regionDigests.put(new RegionKey(dim, regionCoords.x, regionCoords.y), digest);
+    }
+
+    /**
+     * Determine whether the export of a region produced fixups, which modify the neighbouring regions.
+     *
+     * @return {@code true} if the region produced fixups.
+     */
+    public synchronized boolean hasRegionFixups(int dim, Point regionCoords) {
+        return regionsWithFixups.contains(new RegionKey(dim, regionCoords.x, regionCoords.y));
+    }
+
+    /**
+     * Record that the export of a region produced fixups, which modify the neighbouring regions.
+     */
+    public synchronized void addRegionWithFixups(int dim, Point regionCoords) {
+        regionsWithFixups.add(new RegionKey(dim, regionCoords.x, regionCoords.y));
+    }
+
+    /**
+     * Store the manifest in a map directory.
+     */
+    public synchronized void save(File worldDir) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(KEY_FORMAT_VERSION, Integer.toString(FORMAT_VERSION));
+        properties.setProperty(KEY_WORLDPAINTER_VERSION, Version.VERSION);
+        fingerprints.forEach((dim, fingerprint) -> properties.setProperty("dim." + dim + ".fingerprint", fingerprint));
+        regionDigests.forEach((key, digest) -> properties.setProperty("dim." + key.dim + ".region." + key.x + "," + key.z, digest));
+        regionsWithFixups.forEach(key -> properties.setProperty("dim." + key.dim + ".fixups." + key.x + "," + key.z, "true"));
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(worldDir, FILE_NAME)), UTF_8)) {
+            properties.store(out, "WorldPainter export manifest; used to speed up re-exporting. Do not edit");
+        }
+    }
+
+    /**
+     * Load the manifest from a map directory.
+     *
+     * @return The manifest, or {@code null} if the map does not contain a manifest, or it could not be read.
+     */
+    public static ExportManifest load(File worldDir) {
+        final File file = new File(worldDir, FILE_NAME);
+        if (! file.isFile()) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (Reader in = new InputStreamReader(new FileInputStream(file), UTF_8)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warn("I/O error while reading export manifest {}; ignoring it", file, e);
+            return null;
+        }
+        if (! Integer.toString(FORMAT_VERSION).equals(properties.getProperty(KEY_FORMAT_VERSION))) {
+            logger.info("Export manifest {} has unsupported format version {}; ignoring it", file, properties.getProperty(KEY_FORMAT_VERSION));
+            return null;
+        }
+        final ExportManifest manifest = new ExportManifest();
+        try {
+            for (String key: properties.stringPropertyNames()) {
+                if (! key.startsWith("dim.")) {
+                    continue;
+                }
+                final String[] parts = key.split("\\.");
+                final int dim = Integer.parseInt(parts[1]);
+                if ((parts.length == 3) && parts[2].equals("fingerprint")) {
+                    manifest.setFingerprint(dim, properties.getProperty(key));
+                } else if ((parts.length == 4) && parts[2].equals("region")) {
+                    final String[] coords = parts[3].split(",");
+                    manifest.setRegionDigest(dim, new Point(Integer.parseInt(coords[0]), Integer.parseInt(coords[1])), properties.getProperty(key));
+                } else if ((parts.length == 4) && parts[2].equals("fixups")) {
+                    final String[] coords = parts[3].split(",");
+                    manifest.addRegionWithFixups(dim, new Point(Integer.parseInt(coords[0]), Integer.parseInt(coords[1])));
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Malformed export manifest {}; ignoring it", file, e);
+            return null;
+        }
+        return manifest;
+    }
+
+    private final Map<Integer, String> fingerprints = new HashMap<>();
+    private final Map<RegionKey, String> regionDigests = new HashMap<>();
+    private final Set<RegionKey> regionsWithFixups = new HashSet<>();
+
+    /**
+     * The name of the manifest file in the map directory.
+     */
+    public static final String FILE_NAME = "worldpainter-export.properties";
+
+    private static final String KEY_FORMAT_VERSION = "formatVersion", KEY_WORLDPAINTER_VERSION = "worldPainterVersion";
+    private static final int FORMAT_VERSION = 2;
+    private static final Logger logger = LoggerFactory.getLogger(ExportManifest.class);
+
+    private static final class RegionKey {
+        RegionKey(int dim, int x, int z) {
+            this.dim = dim;
+            this.x = x;
+            this.z = z;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if ((o == null) || (getClass() != o.getClass())) {
+                return false;
+            }
+            final RegionKey regionKey = (RegionKey) o;
+            return (dim == regionKey.dim) && (x == regionKey.x) && (z == regionKey.z);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * ((31 * dim) + x)) + z;
+        }
+
+        final int dim, x, z;
+    }
+}
@@ -0,0 +1,397 @@
+package org.pepsoft.worldpainter.exporting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.pepsoft.minecraft.ChunkFactory.Stage;
+import org.pepsoft.worldpainter.Version;
+import org.pepsoft.worldpainter.layers.Layer;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * A machine-readable report of where the time went during an export: the wall and CPU time spent in each phase of the
+ * export, per dimension and per region, as well as chunk counts, sizes on disk and thread utilisation. Stored as JSON
+ * in the map directory, and available to scripts as the result of the {@code exportWorld()} operation.
+ *
+ * <p>All times are in nanoseconds, except the start time, which is in milliseconds since the epoch. CPU times are zero
+ * if the JVM does not support measuring them.
+ */
+public final class ExportReport {
+    ExportReport(String worldName, String platformId) {
+        this.worldName = worldName;
+        this.platformId = platformId;
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public String getPlatformId() {
+        return platformId;
+    }
+
+    public String getWorldPainterVersion() {
+        return Version.VERSION;
+    }
+
+    /**
+     * Get the time at which the export started, in milliseconds since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Get the wall time of the entire export in nanoseconds, or of the export so far if it has not finished yet.
+     */
+    public synchronized long getWallTime() {
+        return (wallTime != -1) ? wallTime : (System.nanoTime() - wallStart);
+    }
+
+    /**
+     * Get the reports for the exported dimensions, in the order in which they were exported.
+     */
+    public synchronized List<DimensionReport> getDimensions() {
+        return new ArrayList<>(dimensions);
+    }
+
+    /**
+     * Store the report in a map directory, as {@value #FILE_NAME}.
+     */
+    public void save(File worldDir) throws IOException {
+        OBJECT_MAPPER.writeValue(new File(worldDir, FILE_NAME), this);
+    }
+
+    synchronized void addDimension(DimensionReport dimensionReport) {
+        dimensions.add(dimensionReport);
+    }
+
+    synchronized void finish() {
+        wallTime = System.nanoTime() - wallStart;
+    }
+
+    /**
+     * Get the CPU time used by the current thread in nanoseconds, or zero if that is not supported.
+     */
+    static long currentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0L;
+    }
+
+    /**
+     * Add the wall and CPU time which have elapsed on the current thread since the specified starting times to a
+     * phase.
+     */
+    static void record(Map<Phase, Timing> timings, Phase phase, long wallStart, long cpuStart) {
+        timings.computeIfAbsent(phase, k -> new Timing()).add(System.nanoTime() - wallStart, currentThreadCpuTime() - cpuStart);
+    }
+
+    private final String worldName, platformId;
+    private final long startTime = System.currentTimeMillis(), wallStart = System.nanoTime();
+    private final List<DimensionReport> dimensions = new ArrayList<>();
+    private long wallTime = -1;
+
+    /**
+     * The name of the report file in the map directory.
+     */
+    public static final String FILE_NAME = "worldpainter-export-report.json";
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(INDENT_OUTPUT);
+
+    /**
+     * The phases of the export of a region.
+     */
+    public enum Phase {
+        /**
+         * Generating the terrain and applying the layers which only need access to the chunk being generated.
+         */
+        FIRST_PASS,
+
+        /**
+         * The carve stage of the second pass, in which layers which need access to neighbouring chunks remove blocks.
+         */
+        CARVE,
+
+        /**
+         * The add features stage of the second pass, in which layers which need access to neighbouring chunks add
+         * blocks.
+         */
+        ADD_FEATURES,
+
+        /**
+         * Post-processing the generated chunks, e.g. fixing covered grass blocks and unsupported blocks.
+         */
+        POST_PROCESSING,
+
+        /**
+         * Calculating and propagating light and leaf distances.
+         */
+        BLOCK_PROPERTIES,
+
+        /**
+         * Applying layers which straddle region boundaries after the neighbouring regions have been exported.
+         */
+        FIXUPS,
+
+        /**
+         * Serialising, compressing and writing the chunks to disk.
+         */
+        SAVING
+    }
+
+    /**
+     * The accumulated wall and CPU time of one phase, in nanoseconds.
+     */
+    public static final class Timing {
+        public synchronized long getWallTime() {
+            return wallTime;
+        }
+
+        public synchronized long getCpuTime() {
+            return cpuTime;
+        }
+
+        synchronized void add(long wallTime, long cpuTime) {
+            this.wallTime += wallTime;
+            this.cpuTime += cpuTime;
+        }
+
+        private long wallTime, cpuTime;
+    }
+
+    /**
+     * The report for one exported dimension.
+     */
+    public static final class DimensionReport {
+        DimensionReport(int dim, String name, int threadCount, int savingThreadCount) {
+            this.dim = dim;
+            this.name = name;
+            this.threadCount = threadCount;
+            this.savingThreadCount = savingThreadCount;
+        }
+
+        public int getDim() {
+            return dim;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the wall time of the export of the dimension in nanoseconds.
+         */
+        public synchronized long getWallTime() {
+            return wallTime;
+        }
+
+        /**
+         * Get the number of threads which generated regions.
+         */
+        public int getThreadCount() {
+            return threadCount;
+        }
+
+        /**
+         * Get the number of threads which saved generated regions, or zero if regions were saved by the threads that
+         * generated them.
+         */
+        public int getSavingThreadCount() {
+            return savingThreadCount;
+        }
+
+        /**
+         * Get the fraction of the available time of the region generating threads which they spent working on
+         * regions, as opposed to being idle (e.g. because there were fewer regions than threads left).
+         */
+        public synchronized double getThreadUtilisation() {
+            return utilisation(generatingBusyTime.get(), threadCount);
+        }
+
+        /**
+         * Get the fraction of the available time of the saving threads which they spent saving regions, or zero if
+         * regions were saved by the threads that generated them.
+         */
+        public synchronized double getSavingThreadUtilisation() {
+            return utilisation(savingBusyTime.get(), savingThreadCount);
+        }
+
+        /**
+         * Get the total wall and CPU time spent in each phase, for all regions together.
+         */
+        public synchronized Map<Phase, Timing> getPhases() {
+            return unmodifiableMap(new EnumMap<>(phases));
+        }
+
+        /**
+         * Get the total time spent on each layer and stage as reported by the chunk factories and exporters, keyed by
+         * name, in nanoseconds. These are wall times of the individual threads.
+         */
+        public synchronized Map<String, Long> getLayerTimings() {
+            return unmodifiableMap(layerTimings);
+        }
+
+        public synchronized int getRegionCount() {
+            return regions.size();
+        }
+
+        /**
+         * Get the number of regions which were reused from a previous export rather than generated.
+         */
+        public synchronized int getReusedRegionCount() {
+            return (int) regions.values().stream().filter(RegionReport::isReused).count();
+        }
+
+        public synchronized int getChunkCount() {
+            return regions.values().stream().mapToInt(RegionReport::getChunkCount).sum();
+        }
+
+        /**
+         * Get the total size on disk of the region files of the dimension in bytes.
+         */
+        public synchronized long getBytesWritten() {
+            return regions.values().stream().mapToLong(RegionReport::getBytesWritten).sum();
+        }
+
+        /**
+         * Get the reports of the individual regions, in the order of their coordinates.
+         */
+        public synchronized List<RegionReport> getRegions() {
+            final List<RegionReport> regionList = new ArrayList<>(regions.values());
+            regionList.sort(Comparator.comparingInt(RegionReport::getZ).thenComparingInt(RegionReport::getX));
+            return regionList;
+        }
+
+        synchronized void addRegion(RegionReport regionReport) {
+            regions.put(new Point(regionReport.x, regionReport.z), regionReport);
+            regionReport.getPhases().forEach((phase, timing) -> phases.computeIfAbsent(phase, k -> new Timing()).add(timing.getWallTime(), timing.getCpuTime()));
+        }
+
+        /**
+         * Add the time spent in a phase to a region which has already been added, if it exists, and to the totals for
+         * the dimension.
+         */
+        synchronized void addTime(Point regionCoords, Phase phase, long wallTime, long cpuTime) {
+            final RegionReport regionReport = (regionCoords != null) ? regions.get(regionCoords) : null;
+            if (regionReport != null) {
+                regionReport.addTime(phase, wallTime, cpuTime);
+            }
+            phases.computeIfAbsent(phase, k -> new Timing()).add(wallTime, cpuTime);
+        }
+
+        AtomicLong getGeneratingBusyTime() {
+            return generatingBusyTime;
+        }
+
+        AtomicLong getSavingBusyTime() {
+            return savingBusyTime;
+        }
+
+        synchronized void finish(long wallTime, Map<Object, AtomicLong> timings) {
+            this.wallTime = wallTime;
+            timings.forEach((key, duration) -> layerTimings.merge(
+                    (key instanceof Layer) ? ((Layer) key).getName() : ((key instanceof Stage) ? ((Stage) key).getName() : key.toString()),
+                    duration.get(), Long::sum));
+        }
+
+        private double utilisation(long busyTime, int threads) {
+            return ((wallTime > 0) && (threads > 0)) ? ((double) busyTime / ((double) wallTime * threads)) : 0.0;
+        }
+
+        private final int dim, threadCount, savingThreadCount;
+        private final String name;
+        private final Map<Point, RegionReport> regions = new HashMap<>();
+        private final Map<Phase, Timing> phases = new EnumMap<>(Phase.class);
+        private final Map<String, Long> layerTimings = new TreeMap<>();
+        private final AtomicLong generatingBusyTime = new AtomicLong(), savingBusyTime = new AtomicLong();
+        private long wallTime;
+    }
+
+    /**
+     * The report for one exported region.
+     */
+    public static final class RegionReport {
+        RegionReport(int x, int z, boolean reused, int chunkCount, String thread, Map<Phase, Timing> phases) {
+            this.x = x;
+            this.z = z;
+            this.reused = reused;
+            this.chunkCount = chunkCount;
+            this.thread = thread;
+            this.phases.putAll(phases);
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+        /**
+         * Indicates whether the region was reused from a previous export rather than generated.
+         */
+        public boolean isReused() {
+            return reused;
+        }
+
+        /**
+         * Get the number of chunks generated for the region. Zero for reused regions.
+         */
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        /**
+         * Get the name of the thread which generated the region.
+         */
+        public String getThread() {
+            return thread;
+        }
+
+        /**
+         * Get the total size on disk of the region files of the region in bytes, or zero if not known.
+         */
+        public synchronized long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        /**
+         * Get the total wall time spent on the region, over all phases, in nanoseconds.
+         */
+        public synchronized long getWallTime() {
+            return phases.values().stream().mapToLong(Timing::getWallTime).sum();
+        }
+
+        /**
+         * Get the wall and CPU time spent on the region in each phase.
+         */
+        public synchronized Map<Phase, Timing> getPhases() {
+            return unmodifiableMap(new EnumMap<>(phases));
+        }
+
+        synchronized void setBytesWritten(long bytesWritten) {
+            this.bytesWritten = bytesWritten;
+        }
+
+        synchronized void addTime(Phase phase, long wallTime, long cpuTime) {
+            phases.computeIfAbsent(phase, k -> new Timing()).add(wallTime, cpuTime);
+        }
+
+        private final int x, z, chunkCount;
+        private final boolean reused;
+        private final String thread;
+        private final Map<Phase, Timing> phases = new EnumMap<>(Phase.class);
+        private long bytesWritten;
+    }
+}
@@ -392,6 +392,16 @@ public class FlatteningDimension extends RODelegatingDimension<FlatteningDimensi
             return tiles[layerToUse[x >> 4][y >> 4]].getWaterLevel(x, y);
         }
 
+        @Override
+        public void getColumns(int x, int y, int width, int height, int[] intHeights, int[] waterLevels, Terrain[] terrains, Layer[] layers, int[][] layerValues) {
+            if (((x >> 4) == ((x + width - 1) >> 4)) && ((y >> 4) == ((y + height - 1) >> 4))) {
+                // The block lies within one chunk, so it comes from one underlying tile
+                tiles[layerToUse[x >> 4][y >> 4]].getColumns(x, y, width, height, intHeights, waterLevels, terrains, layers, layerValues);
+            } else {
+                super.getColumns(x, y, width, height, intHeights, waterLevels, terrains, layers, layerValues);
+            }
+        }
+
         @Override
         public List<Layer> getLayers() {
             return layers;
@@ -1,22 +1,24 @@
 package org.pepsoft.worldpainter.exporting;
 
 import com.google.common.collect.ImmutableSet;
-import org.jnbt.NBTInputStream;
-import org.jnbt.NBTOutputStream;
 import org.jnbt.Tag;
 import org.pepsoft.minecraft.*;
 import org.pepsoft.util.mdc.MDCCapturingRuntimeException;
 import org.pepsoft.util.mdc.MDCThreadPoolExecutor;
 import org.pepsoft.worldpainter.Platform;
+import org.pepsoft.worldpainter.platforms.JavaExportSettings;
 import org.pepsoft.worldpainter.platforms.JavaPlatformProvider;
 import org.pepsoft.worldpainter.plugins.PlatformManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.*;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -25,13 +27,16 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 
 import static java.util.Collections.singleton;
 import static java.util.Collections.synchronizedSet;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 import static org.pepsoft.minecraft.DataType.REGION;
 import static org.pepsoft.worldpainter.DefaultPlugin.DEFAULT_JAVA_PLATFORMS;
 import static org.pepsoft.worldpainter.DefaultPlugin.JAVA_MCREGION;
+import static org.pepsoft.worldpainter.FeatureFlags.PARALLEL_COMPRESSION;
 import static org.pepsoft.worldpainter.util.ThreadUtils.chooseThreadCount;
 
 /**
@@ -39,8 +44,17 @@ import static org.pepsoft.worldpainter.util.ThreadUtils.chooseThreadCount;
  */
 public class JavaChunkStore implements ChunkStore {
     public JavaChunkStore(Platform platform, File regionDir, int minHeight, int maxHeight) {
+        this(platform, regionDir, false, minHeight, maxHeight);
+    }
+
+    /**
+     * Create a chunk store, optionally in read only mode. In read only mode the region files are opened read only,
+     * which means they are memory mapped, and the chunk store cannot be used to save or edit chunks.
+     */
+    public JavaChunkStore(Platform platform, File regionDir, boolean readOnly, int minHeight, int maxHeight) {
         this.platform = platform;
         this.regionDir = regionDir;
+        this.readOnly = readOnly;
         this.minHeight = minHeight;
         this.maxHeight = maxHeight;
         platformProvider = (JavaPlatformProvider) PlatformManager.getInstance().getPlatformProvider(platform);
@@ -48,6 +62,47 @@ public class JavaChunkStore implements ChunkStore {
             throw new IllegalArgumentException("Unsupported platform " + platform);
         }
         dataTypes = ImmutableSet.copyOf(platformProvider.getDataTypes(platform));
+        chunkCodec = platformProvider.getChunkCodec(platform);
+        final Set<File> regionFileDirs = new HashSet<>();
+        for (DataType type: dataTypes) {
+            regionFileDirs.add(platformProvider.getRegionFileFile(platform, regionDir, type, new Point(0, 0)).getParentFile());
+        }
+        this.regionFileDirs = ImmutableSet.copyOf(regionFileDirs);
+    }
+
+    /**
+     * Get the compression scheme with which chunks are saved.
+     */
+    public ChunkCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the compression level with which chunks are saved, if the compression scheme supports levels.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Set the compression scheme and level with which chunks are saved. The default is
+     * {@link ChunkCompression#DEFLATE} at the default level.
+     *
+     * @param compression      The compression scheme to use.
+     * @param compressionLevel The zlib compression level (0-9, or -1 for the default) to use. Ignored if the
+     *                         compression scheme does not support levels.
+     * @throws IllegalArgumentException If the version of Minecraft for which this store was created does not support
+     *                                  the compression scheme.
+     * @see RegionFile#setCompression(ChunkCompression, int)
+     */
+    public void setCompression(ChunkCompression compression, int compressionLevel) {
+        if (! compression.isSupportedBy(platform)) {
+            throw new IllegalArgumentException("Chunk compression " + compression + " not supported by " + platform.displayName);
+        }
+        synchronized (compressionLock) {
+            this.compression = compression;
+            this.compressionLevel = compressionLevel;
+        }
     }
 
     @FunctionalInterface
@@ -65,6 +120,9 @@ public class JavaChunkStore implements ChunkStore {
     }
 
     public boolean visitRegions(RegionVisitor visitor, boolean readOnly, String operation, Set<DataType> dataTypes) throws IOException {
+        if (! readOnly) {
+            ensureWriteable();
+        }
         flush();
 
         final Pattern regionFilePattern = (platform == JAVA_MCREGION)
@@ -92,23 +150,10 @@ public class JavaChunkStore implements ChunkStore {
             for (File file: requireNonNull(files)) {
                 final Matcher matcher = regionFilePattern.matcher(file.getName());
                 if (matcher.matches()) {
-                    final Map<DataType, RegionFile> regionFilesToVisit = new HashMap<>();
                     final Point coords = new Point(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
-                    for (DataType type: dataTypes) {
-                        final RegionKey key = new RegionKey(type, coords);
-                        final RegionFile regionFile;
-                        if (regionFiles.containsKey(key)) {
-                            regionFilesToVisit.put(type, regionFiles.get(key));
-                        } else {
-                            regionFile = (type == REGION) ? new RegionFile(file, readOnly) : platformProvider.getRegionFile(platform, regionDir, type, coords, readOnly);
-                            if (regionFile != null) {
-                                regionFiles.put(key, regionFile);
-                                regionFilesToVisit.put(type, regionFile);
-                            }
-                        }
-                    }
+                    final Map<DataType, RegionFileCache.Handle> handles = acquireRegionFiles(coords, dataTypes, readOnly);
                     try {
-                        if (! visitor.visitRegion(regionFilesToVisit)) {
+                        if (! visitor.visitRegion(getRegionFiles(handles))) {
                             return false;
                         }
                     } catch (RuntimeException e) {
@@ -116,10 +161,7 @@ public class JavaChunkStore implements ChunkStore {
                     } catch (Exception e) {
                         throw new MDCCapturingRuntimeException("Checked exception visiting region file " + file, e);
                     } finally {
-                        for (Map.Entry<DataType, RegionFile> entry: regionFilesToVisit.entrySet()) {
-                            entry.getValue().close();
-                            regionFiles.remove(new RegionKey(entry.getKey(), coords));
-                        }
+                        release(handles.values());
                     }
                 }
             }
@@ -178,20 +220,18 @@ public class JavaChunkStore implements ChunkStore {
 
     @Override
     public void saveChunk(Chunk chunk) {
+        ensureWriteable();
         final int x = chunk.getxPos(), z = chunk.getzPos();
-        final Map<DataType, ? extends Tag> tags = ((NBTItem) chunk).toMultipleNBT();
+        final Map<DataType, ? extends Tag> tags = chunkCodec.toMultipleNBT((NBTItem) chunk);
         platformProvider.getDataTypes(platform).forEach(type -> {
             try {
                 if (tags.containsKey(type)) {
-                    final RegionFile regionFile = getOrCreateRegionFile(new Point(x >> 5, z >> 5), type);
-                    try (NBTOutputStream out = new NBTOutputStream(regionFile.getChunkDataOutputStream(x & 31, z & 31))) {
-                        out.writeTag(tags.get(type));
+                    try (RegionFileCache.Handle handle = acquireRegionFile(new Point(x >> 5, z >> 5), type, false);
+                            OutputStream out = handle.getRegionFile().getChunkDataOutputStream(x & 31, z & 31)) {
+                        chunkCodec.writeTag(tags.get(type), out);
                     }
                 } else {
-                    final RegionFile regionFile = getRegionFile(new Point(x >> 5, z >> 5), type);
-                    if ((regionFile != null) && regionFile.containsChunk(x & 31, z & 31)) {
-                        regionFile.delete(x & 31, z & 31);
-                    }
+                    deleteChunk(x, z, type);
                 }
             } catch (IOException e) {
                 throw new MDCCapturingRuntimeException("I/O error saving chunk @" + x + "," + z + " to region of type " + type, e);
@@ -199,41 +239,76 @@ public class JavaChunkStore implements ChunkStore {
         });
     }
 
+    /**
+     * Serialises and compresses the chunks in parallel on the common fork/join pool, and then writes the compressed
+     * data to the region files in the order in which the chunks were specified.
+     */
+    @Override
+    public void saveChunks(Collection<? extends Chunk> chunks) {
+        ensureWriteable();
+        if ((! PARALLEL_COMPRESSION) || (chunks.size() < 2)) {
+            chunks.forEach(this::saveChunk);
+            return;
+        }
+        final Set<DataType> dataTypes = platformProvider.getDataTypes(platform);
+        final ChunkCompression compression;
+        final int compressionLevel;
+        synchronized (compressionLock) {
+            compression = this.compression;
+            compressionLevel = this.compressionLevel;
+        }
+        final List<Map<DataType, ByteArrayOutputStream>> compressedChunks = chunks.parallelStream()
+                .map(chunk -> compressChunk(chunk, dataTypes, compression, compressionLevel))
+                .collect(toList());
+        final Iterator<Map<DataType, ByteArrayOutputStream>> compressedChunkIterator = compressedChunks.iterator();
+        for (Chunk chunk: chunks) {
+            final int x = chunk.getxPos(), z = chunk.getzPos();
+            final Map<DataType, ByteArrayOutputStream> compressedData = compressedChunkIterator.next();
+            for (DataType type: dataTypes) {
+                try {
+                    if (compressedData.containsKey(type)) {
+                        try (RegionFileCache.Handle handle = acquireRegionFile(new Point(x >> 5, z >> 5), type, false)) {
+                            final ByteArrayOutputStream buffer = compressedData.get(type);
+                            handle.getRegionFile().writeCompressedChunk(x & 31, z & 31, buffer.toByteArray(), buffer.size(), compression);
+                        }
+                    } else {
+                        deleteChunk(x, z, type);
+                    }
+                } catch (IOException e) {
+                    throw new MDCCapturingRuntimeException("I/O error saving chunk @" + x + "," + z + " to region of type " + type, e);
+                }
+            }
+        }
+    }
+
     @Override
     public void doInTransaction(Runnable task) {
         task.run();
     }
 
     /**
-     * Saves all dirty chunks and closes all files. Ensures that all changes are
-     * saved and no system resources are being used, but the objects can still
-     * be used; any subsequent operations will open files as needed again.
+     * Closes all region files of this chunk store which are held open by the {@link RegionFileCache} and are not in
+     * use. Chunks are written to the region files as they are saved, so this ensures that no system resources are
+     * being used, but the objects can still be used; any subsequent operations will open files as needed again.
      */
     @Override
     public void flush() {
-        synchronized (regionFiles) {
-            try {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Closing " + regionFiles.size() + " region files");
-                }
-                for (RegionFile regionFile: regionFiles.values()) {
-                    regionFile.close();
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("I/O error while closing region files", e);
+        try {
+            for (File regionFileDir: regionFileDirs) {
+                RegionFileCache.clear(regionFileDir);
             }
-            regionFiles.clear();
+        } catch (IOException e) {
+            throw new RuntimeException("I/O error while closing region files", e);
         }
     }
 
     @Override
     public boolean isChunkPresent(int x, int z) {
-        try {
-            final RegionFile regionFile = getRegionFile(new Point(x >> 5, z >> 5), REGION);
-            if (regionFile == null) {
+        try (RegionFileCache.Handle handle = acquireRegionFileIfExists(new Point(x >> 5, z >> 5), REGION)) {
+            if (handle == null) {
                 return false;
             } else {
-                return regionFile.containsChunk(x & 31, z & 31);
+                return handle.getRegionFile().containsChunk(x & 31, z & 31);
             }
         } catch (IOException e) {
             throw new RuntimeException("I/O error determining chunk presence", e);
@@ -252,21 +327,22 @@ public class JavaChunkStore implements ChunkStore {
         try {
             final Map<DataType, Tag> tags = new HashMap<>();
             for (DataType type: dataTypes) {
-                final RegionFile regionFile = getRegionFile(new Point(x >> 5, z >> 5), type);
-                if (regionFile == null) {
-                    continue;
-                }
-                final InputStream chunkIn = regionFile.getChunkDataInputStream(x & 31, z & 31);
-                if (chunkIn != null) {
-                    try (NBTInputStream in = new NBTInputStream(chunkIn)) {
-                        tags.put(type, in.readTag());
+                try (RegionFileCache.Handle handle = acquireRegionFileIfExists(new Point(x >> 5, z >> 5), type)) {
+                    if (handle == null) {
+                        continue;
+                    }
+                    final InputStream chunkIn = handle.getRegionFile().getChunkDataInputStream(x & 31, z & 31);
+                    if (chunkIn != null) {
+                        try (InputStream in = chunkIn) {
+                            tags.put(type, chunkCodec.readTag(in));
+                        }
                     }
                 }
             }
             if (! tags.containsKey(REGION)) {
                 return null;
             }
-            return platformProvider.createChunk(platform, tags, minHeight, maxHeight, false);
+            return platformProvider.createChunk(platform, tags, minHeight, maxHeight, readOnly);
         } catch (IOException e) {
             throw new RuntimeException("I/O error loading chunk", e);
         }
@@ -281,6 +357,7 @@ public class JavaChunkStore implements ChunkStore {
      */
     @Override
     public Chunk getChunkForEditing(int x, int z) {
+        ensureWriteable();
         return getChunk(x, z);
     }
 
@@ -289,32 +366,86 @@ public class JavaChunkStore implements ChunkStore {
         flush();
     }
 
-    private RegionFile getRegionFile(Point regionCoords, DataType type) throws IOException {
-        synchronized (regionFiles) {
-            final RegionKey key = new RegionKey(type, regionCoords);
-            RegionFile regionFile = regionFiles.get(key);
-            if (regionFile == null) {
-                regionFile = platformProvider.getRegionFileIfExists(platform, regionDir, type, regionCoords, false);
-                if (regionFile != null) {
-                    regionFiles.put(key, regionFile);
+    /**
+     * Acquire a region file from the {@link RegionFileCache}, creating it if it does not exist and {@code readOnly} is
+     * {@code false}. Otherwise {@code null} is returned if it does not exist.
+     */
+    private RegionFileCache.Handle acquireRegionFile(Point regionCoords, DataType type, boolean readOnly) throws IOException {
+        return configure(platformProvider.acquireRegionFile(platform, regionDir, type, regionCoords, readOnly));
+    }
+
+    /**
+     * Acquire a region file from the {@link RegionFileCache}, if it exists. Otherwise {@code null} is returned. The
+     * region file is opened for reading and writing, unless this chunk store is read only.
+     */
+    private RegionFileCache.Handle acquireRegionFileIfExists(Point regionCoords, DataType type) throws IOException {
+        return configure(platformProvider.acquireRegionFileIfExists(platform, regionDir, type, regionCoords, readOnly));
+    }
+
+    /**
+     * Acquire the region files of all specified data types for a region which exist, or all of them if
+     * {@code readOnly} is {@code false}.
+     */
+    private Map<DataType, RegionFileCache.Handle> acquireRegionFiles(Point regionCoords, Set<DataType> dataTypes, boolean readOnly) throws IOException {
+        final Map<DataType, RegionFileCache.Handle> handles = new EnumMap<>(DataType.class);
+        try {
+            for (DataType type: dataTypes) {
+                final RegionFileCache.Handle handle = acquireRegionFile(regionCoords, type, readOnly);
+                if (handle != null) {
+                    handles.put(type, handle);
                 }
             }
-            return regionFile;
+        } catch (IOException | RuntimeException e) {
+            release(handles.values());
+            throw e;
+        }
+        return handles;
+    }
+
+    /**
+     * Configure a region file obtained from the {@link RegionFileCache}, which may previously have been used by
+     * another chunk store, for writing by this one.
+     */
+    private RegionFileCache.Handle configure(RegionFileCache.Handle handle) {
+        if ((handle != null) && (! handle.getRegionFile().isReadOnly())) {
+            synchronized (compressionLock) {
+                handle.getRegionFile().setCompression(compression, compressionLevel);
+            }
+        }
+        return handle;
+    }
+
+    private void ensureWriteable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Chunk store for " + regionDir + " is read only");
         }
     }
 
-    private RegionFile getOrCreateRegionFile(Point regionCoords, DataType type) throws IOException {
-        synchronized (regionFiles) {
-            final RegionKey key = new RegionKey(type, regionCoords);
-            RegionFile regionFile = regionFiles.get(key);
-            if (regionFile == null) {
-                regionFile = platformProvider.getRegionFile(platform, regionDir, type, regionCoords, false);
-                regionFiles.put(key, regionFile);
+    private void deleteChunk(int x, int z, DataType type) throws IOException {
+        try (RegionFileCache.Handle handle = acquireRegionFileIfExists(new Point(x >> 5, z >> 5), type)) {
+            if ((handle != null) && handle.getRegionFile().containsChunk(x & 31, z & 31)) {
+                handle.getRegionFile().delete(x & 31, z & 31);
             }
-            return regionFile;
         }
     }
 
+    private Map<DataType, ByteArrayOutputStream> compressChunk(Chunk chunk, Set<DataType> dataTypes, ChunkCompression compression, int compressionLevel) {
+        final Map<DataType, ? extends Tag> tags = chunkCodec.toMultipleNBT((NBTItem) chunk);
+        final Map<DataType, ByteArrayOutputStream> compressedData = new EnumMap<>(DataType.class);
+        for (DataType type: dataTypes) {
+            if (tags.containsKey(type)) {
+                final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+                try (OutputStream out = RegionFile.getCompressingOutputStream(buffer, compression, compressionLevel)) {
+                    chunkCodec.writeTag(tags.get(type), out);
+                } catch (IOException e) {
+                    throw new MDCCapturingRuntimeException("I/O error compressing chunk @" + chunk.getxPos() + "," + chunk.getzPos() + " for region of type " + type, e);
+                }
+                compressedData.put(type, buffer);
+            }
+        }
+        return compressedData;
+    }
+
     @SuppressWarnings("ResultOfMethodCallIgnored") // We're just after the groups
     private boolean visitRegionsInParallel(File[] files, Pattern regionFilePattern, RegionVisitor visitor, String operation) {
         final int threadCount = chooseThreadCount(operation, files.length);
@@ -344,36 +475,16 @@ public class JavaChunkStore implements ChunkStore {
                         }
                     }
                     try {
-                        final Map<DataType, RegionFile> regionFilesToVisit = new HashMap<>();
                         final Matcher matcher = regionFilePattern.matcher(file.getName());
                         matcher.find();
                         final Point coords = new Point(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
-                        synchronized (regionFiles) {
-                            for (DataType type: dataTypes) {
-                                final RegionKey key = new RegionKey(type, coords);
-                                final RegionFile regionFile;
-                                if (regionFiles.containsKey(key)) {
-                                    regionFilesToVisit.put(type, regionFiles.get(key));
-                                } else {
-                                    regionFile = (type == REGION) ? new RegionFile(file, true) : platformProvider.getRegionFile(platform, regionDir, type, coords, true);
-                                    if (regionFile != null) {
-                                        regionFiles.put(key, regionFile);
-                                        regionFilesToVisit.put(type, regionFile);
-                                    }
-                                }
-                            }
-                        }
+                        final Map<DataType, RegionFileCache.Handle> handles = acquireRegionFiles(coords, dataTypes, true);
                         try {
-                            if (! visitor.visitRegion(regionFilesToVisit)) {
+                            if (! visitor.visitRegion(getRegionFiles(handles))) {
                                 cancelled.set(true);
                             }
                         } finally {
-                            synchronized (regionFiles) {
-                                for (Map.Entry<DataType, RegionFile> entry: regionFilesToVisit.entrySet()) {
-                                    entry.getValue().close();
-                                    regionFiles.remove(new RegionKey(entry.getKey(), coords));
-                                }
-                            }
+                            release(handles.values());
                         }
                     } catch (Throwable e) {
                         logger.error(e.getClass().getSimpleName() + " while visiting region file " + file + " (message: " + e.getMessage() + ")", e);
@@ -414,8 +525,8 @@ public class JavaChunkStore implements ChunkStore {
                                 for (Map.Entry<DataType, RegionFile> entry: regions.entrySet()) {
                                     final InputStream chunkIn = entry.getValue().getChunkDataInputStream(x & 31, z & 31);
                                     if (chunkIn != null) {
-                                        try (NBTInputStream in = new NBTInputStream(chunkIn)) {
-                                            tags.put(entry.getKey(), in.readTag());
+                                        try (InputStream in = chunkIn) {
+                                            tags.put(entry.getKey(), chunkCodec.readTag(in));
                                         }
                                     }
                                 }
@@ -455,36 +566,61 @@ public class JavaChunkStore implements ChunkStore {
     private final Platform platform;
     private final JavaPlatformProvider platformProvider;
     private final File regionDir;
-    private final Map<RegionKey, RegionFile> regionFiles = new HashMap<>();
+    private final boolean readOnly;
+    private final Set<File> regionFileDirs;
     private final int minHeight, maxHeight;
     private final Set<DataType> dataTypes;
+    private final ChunkCodec chunkCodec;
+    private final Object compressionLock = new Object();
+    /** Guarded by {@link #compressionLock}. */
+    private ChunkCompression compression = ChunkCompression.DEFLATE;
+    /** Guarded by {@link #compressionLock}. */
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
 
     public static void main(String[] args) {
         System.out.println("All checks passed");
     }
 
-    private static final Logger logger = LoggerFactory.getLogger(JavaChunkStore.class);
-
-    static class RegionKey {
-        RegionKey(DataType type, Point coords) {
-            this.type = type;
-            this.coords = coords;
+    /**
+     * Apply the storage related settings (such as the chunk compression) from a set of export settings to a chunk
+     * store, if it is a Java chunk store and they are Java export settings.
+     *
+     * @param chunkStore     The chunk store to configure.
+     * @param exportSettings The export settings to apply. May be {@code null}.
+     * @throws IllegalArgumentException If the platform of the chunk store does not support the settings.
+     */
+    static void applyExportSettings(ChunkStore chunkStore, ExportSettings exportSettings) {
+        if ((exportSettings instanceof JavaExportSettings) && (chunkStore instanceof JavaChunkStore)) {
+            ((JavaChunkStore) chunkStore).setCompression(((JavaExportSettings) exportSettings).getChunkCompression(), ((JavaExportSettings) exportSettings).getCompressionLevel());
         }
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            RegionKey regionKey = (RegionKey) o;
-            return type == regionKey.type && coords.equals(regionKey.coords);
-        }
+    private static Map<DataType, RegionFile> getRegionFiles(Map<DataType, RegionFileCache.Handle> handles) {
+        final Map<DataType, RegionFile> regionFiles = new EnumMap<>(DataType.class);
+        handles.forEach((type, handle) -> regionFiles.put(type, handle.getRegionFile()));
+        return regionFiles;
+    }
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(type, coords);
+    /**
+     * Close a number of region file handles, attempting to close all of them even if closing one fails.
+     */
+    private static void release(Collection<RegionFileCache.Handle> handles) throws IOException {
+        IOException exception = null;
+        for (RegionFileCache.Handle handle: handles) {
+            try {
+                handle.close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
         }
-
-        private final DataType type;
-        private final Point coords;
     }
+
+    private static final Logger logger = LoggerFactory.getLogger(JavaChunkStore.class);
 }
\ No newline at end of file
@@ -21,12 +21,16 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.*;
 import java.io.*;
+import java.nio.file.Files;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.pepsoft.minecraft.Constants.*;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Collections.emptyList;
+import static org.pepsoft.minecraft.DataType.REGION;
 import static org.pepsoft.minecraft.SuperflatPreset.Structure.*;
 import static org.pepsoft.util.mdc.MDCUtils.doWithMdcContext;
 import static org.pepsoft.worldpainter.Constants.*;
@@ -36,9 +40,11 @@ import static org.pepsoft.worldpainter.Dimension.Anchor.*;
 import static org.pepsoft.worldpainter.Dimension.Border.ENDLESS_BARRIER;
 import static org.pepsoft.worldpainter.Dimension.Border.ENDLESS_WATER;
 import static org.pepsoft.worldpainter.Dimension.Role.DETAIL;
+import static org.pepsoft.worldpainter.FeatureFlags.INCREMENTAL_EXPORT;
 import static org.pepsoft.worldpainter.Platform.Capability.GENERATOR_PER_DIMENSION;
 import static org.pepsoft.worldpainter.biomeschemes.Minecraft1_21Biomes.*;
 import static org.pepsoft.worldpainter.util.BiomeUtils.getBiomeScheme;
+import static org.pepsoft.worldpainter.util.MinecraftUtil.getRegionDir;
 
 /**
  *
@@ -243,7 +249,15 @@ public class JavaWorldExporter extends AbstractWorldExporter { // TODO can this
                 } else {
                     throw new IllegalStateException("Directory already exists and no backup directory specified");
                 }
+                previousWorldDir = backupDir;
+            } else {
+                previousWorldDir = null;
+            }
+            previousExternalChunkFiles.clear();
+            if (selectedTiles == null) {
+                startExportManifest((INCREMENTAL_EXPORT && (previousWorldDir != null)) ? ExportManifest.load(previousWorldDir) : null);
             }
+            startExportReport();
 
             // Record start of export
             long start = System.currentTimeMillis();
@@ -291,6 +305,19 @@ public class JavaWorldExporter extends AbstractWorldExporter { // TODO can this
                     sessionOut.writeLong(System.currentTimeMillis());
                 }
 
+                // Record the state of the exported regions so that unchanged ones can be reused by the next export
+                if (getExportManifest() != null) {
+                    getExportManifest().save(worldDir);
+                }
+
+                // Record where the time went, for diagnosing slow exports and comparing runs
+                getExportReport().finish();
+                try {
+                    getExportReport().save(worldDir);
+                } catch (IOException e) {
+                    logger.warn("I/O error while writing export report to {}; continuing without it", worldDir, e);
+                }
+
                 // Record the export in the world history
                 if (selectedTiles == null) {
                     world.addHistoryEntry(HistoryEntry.WORLD_EXPORTED_FULL, name, worldDir);
@@ -376,6 +403,53 @@ public class JavaWorldExporter extends AbstractWorldExporter { // TODO can this
         }, "dimension.anchor", dimension.getAnchor(), "dimension.minHeight", dimension.getMinHeight(), "dimension.maxHeight", dimension.getMaxHeight());
     }
 
+    /**
+     * Reuse a region by copying its region files, including any external chunk files, from the backup of the previous
+     * export.
+     */
+    @Override
+    protected boolean reuseRegion(Dimension dimension, File worldDir, Point regionCoords) throws IOException {
+        if (previousWorldDir == null) {
+            return false;
+        }
+        final int dim = dimension.getAnchor().dim;
+        final File previousRegionDir = getRegionDir(previousWorldDir, dim), regionDir = getRegionDir(worldDir, dim);
+        final Set<DataType> dataTypes = platformProvider.getDataTypes(platform);
+        // Not all data types are necessarily present; e.g. there is no entities file if the region contains no
+        // entities. The region would not contain them now either, since it is unchanged
+        if (! platformProvider.getRegionFileFile(platform, previousRegionDir, REGION, regionCoords).isFile()) {
+            logger.warn("Region file for region {},{} missing from previous export; regenerating region", regionCoords.x, regionCoords.y);
+            return false;
+        }
+        for (DataType dataType: dataTypes) {
+            final File previousRegionFile = platformProvider.getRegionFileFile(platform, previousRegionDir, dataType, regionCoords);
+            if (! previousRegionFile.isFile()) {
+                continue;
+            }
+            final File regionFile = platformProvider.getRegionFileFile(platform, regionDir, dataType, regionCoords);
+            Files.copy(previousRegionFile.toPath(), regionFile.toPath(), REPLACE_EXISTING);
+            final Map<Point, List<File>> previousChunkFilesByRegion = previousExternalChunkFiles.computeIfAbsent(previousRegionFile.getParentFile(), RegionFile::getExternalChunkFiles);
+            for (File previousChunkFile: previousChunkFilesByRegion.getOrDefault(regionCoords, emptyList())) {
+                Files.copy(previousChunkFile.toPath(), new File(regionFile.getParentFile(), previousChunkFile.getName()).toPath(), REPLACE_EXISTING);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the total size of the region files of a region, for all data types. External chunk files, which are rare,
+     * are not included, since finding them requires listing the entire region directory.
+     */
+    @Override
+    protected long getRegionSize(File worldDir, int dim, Point regionCoords) {
+        final File regionDir = getRegionDir(worldDir, dim);
+        long size = 0L;
+        for (DataType dataType: platformProvider.getDataTypes(platform)) {
+            size += platformProvider.getRegionFileFile(platform, regionDir, dataType, regionCoords).length();
+        }
+        return size;
+    }
+
     private void copyDataPacks(File worldDir) throws IOException {
         if (world.getDataPacks() != null) {
             final File dataPacksDir = new File(worldDir, "datapacks");
@@ -399,6 +473,12 @@ public class JavaWorldExporter extends AbstractWorldExporter { // TODO can this
     }
 
     protected final JavaPlatformProvider platformProvider;
+    private File previousWorldDir;
+    /**
+     * The external chunk files in the region directories of {@link #previousWorldDir}, by region directory and region
+     * coordinates, so that each directory only needs to be listed once.
+     */
+    private final Map<File, Map<Point, List<File>>> previousExternalChunkFiles = new ConcurrentHashMap<>();
 
     private static final Logger logger = LoggerFactory.getLogger(JavaWorldExporter.class);
 }
\ No newline at end of file
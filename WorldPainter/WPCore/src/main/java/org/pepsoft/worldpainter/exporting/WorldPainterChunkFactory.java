@@ -154,15 +154,24 @@ public class WorldPainterChunkFactory implements ChunkFactory {
             }
         }
 
+        // Read all the per-column data for the chunk from the tile in one go
+        final boolean copy2DBiomes = copyBiomes && biomesSupported2D;
+        final int[] intHeights = new int[256], waterLevels = new int[256], voids = new int[256], floodWithLavas = new int[256];
+        final int[] biomes = copy2DBiomes ? new int[256] : null;
+        final Terrain[] terrains = new Terrain[256];
+        tile.getColumns(xOffsetInTile, yOffsetInTile, 16, 16, intHeights, waterLevels, terrains,
+                copy2DBiomes ? COLUMN_LAYERS_WITH_BIOME : COLUMN_LAYERS, new int[][] {voids, floodWithLavas, biomes});
+
         for (int x = 0; x < 16; x++) {
             for (int z = 0; z < 16; z++) {
                 final int xInTile = xOffsetInTile | x;
                 final int yInTile = yOffsetInTile | z;
                 final int worldX = (tileX << TILE_SIZE_BITS) | xInTile;
                 final int worldY = (tileY << TILE_SIZE_BITS) | yInTile;
+                final int index = x | (z << 4);
 
-                if (copyBiomes && biomesSupported2D) {
-                    int biome = dimension.getLayerValueAt(Biome.INSTANCE, worldX, worldY);
+                if (copy2DBiomes) {
+                    int biome = biomes[index];
                     if (biome == 255) {
                         biome = dimension.getAutoBiome(tile, xInTile, yInTile);
                         if ((biome < 0) || (biome > 255)) {
@@ -172,15 +181,15 @@ public class WorldPainterChunkFactory implements ChunkFactory {
                     biomeUtils.set2DBiome(chunk, x, z, biome);
                 }
 
-                final int intHeight = tile.getIntHeight(xInTile, yInTile);
-                final int waterLevel = tile.getWaterLevel(xInTile, yInTile);
+                final int intHeight = intHeights[index];
+                final int waterLevel = waterLevels[index];
                 final boolean underWater = waterLevel > intHeight;
-                final boolean _void = tile.getBitLayerValue(org.pepsoft.worldpainter.layers.Void.INSTANCE, xInTile, yInTile);
+                final boolean _void = voids[index] != 0;
                 if (! _void) {
-                    final Terrain terrain = tile.getTerrain(xInTile, yInTile);
+                    final Terrain terrain = terrains[index];
                     final boolean floodWithLava;
                     if (underWater) {
-                        floodWithLava = tile.getBitLayerValue(FloodWithLava.INSTANCE, xInTile, yInTile);
+                        floodWithLava = floodWithLavas[index] != 0;
                         result.stats.waterArea++;
                     } else {
                         floodWithLava = false;
@@ -383,5 +392,7 @@ public class WorldPainterChunkFactory implements ChunkFactory {
     public static final long SUGAR_CANE_SEED_OFFSET = 127411424;
     public static final float SUGAR_CANE_CHANCE = PerlinNoise.getLevelForPromillage(325);
 
+    private static final Layer[] COLUMN_LAYERS = {org.pepsoft.worldpainter.layers.Void.INSTANCE, FloodWithLava.INSTANCE};
+    private static final Layer[] COLUMN_LAYERS_WITH_BIOME = {org.pepsoft.worldpainter.layers.Void.INSTANCE, FloodWithLava.INSTANCE, Biome.INSTANCE};
     private static final Logger logger = LoggerFactory.getLogger(WorldPainterChunkFactory.class);
 }
\ No newline at end of file
@@ -10,6 +10,8 @@ import org.pepsoft.worldpainter.plugins.BlockBasedPlatformProvider;
 import org.pepsoft.worldpainter.plugins.PlatformManager;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.pepsoft.minecraft.Constants.BLK_AIR;
 
@@ -255,17 +257,30 @@ public class WorldRegion implements MinecraftWorld {
     }
 
     public void save(File worldDir, int dimension) {
+        save(worldDir, dimension, null);
+    }
+
+    /**
+     * Save the chunks of this region, honouring any storage related settings (such as the chunk compression) in the
+     * specified export settings.
+     *
+     * @param worldDir       The directory of the map to which to save the region.
+     * @param dimension      The dimension to which to save the region.
+     * @param exportSettings The export settings to honour. May be {@code null}.
+     */
+    public void save(File worldDir, int dimension, ExportSettings exportSettings) {
         try (ChunkStore chunkStore = platformProvider.getChunkStore(platform, worldDir, dimension)) {
-            chunkStore.doInTransaction(() -> {
-                for (int x = 0; x < CHUNKS_PER_SIDE; x++) {
-                    for (int z = 0; z < CHUNKS_PER_SIDE; z++) {
-                        final Chunk chunk = chunks[x + 1][z + 1];
-                        if (chunk != null) {
-                            chunkStore.saveChunk(chunk);
-                        }
+            JavaChunkStore.applyExportSettings(chunkStore, exportSettings);
+            final List<Chunk> chunksToSave = new ArrayList<>(CHUNKS_PER_SIDE * CHUNKS_PER_SIDE);
+            for (int x = 0; x < CHUNKS_PER_SIDE; x++) {
+                for (int z = 0; z < CHUNKS_PER_SIDE; z++) {
+                    final Chunk chunk = chunks[x + 1][z + 1];
+                    if (chunk != null) {
+                        chunksToSave.add(chunk);
                     }
                 }
-            });
+            }
+            chunkStore.doInTransaction(() -> chunkStore.saveChunks(chunksToSave));
         }
     }
 
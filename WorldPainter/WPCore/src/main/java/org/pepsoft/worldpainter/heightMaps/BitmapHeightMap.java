@@ -21,7 +21,7 @@ import static java.awt.image.DataBuffer.*;
  *
  * @author SchmitzP
  */
-public final class BitmapHeightMap extends AbstractHeightMap {
+public final class BitmapHeightMap extends AbstractHeightMap implements ImageHeightMap {
     private BitmapHeightMap(String name, BufferedImage image, int channel, File imageFile, boolean repeat) {
         super(name);
         this.image = image;
@@ -67,6 +67,7 @@ public final class BitmapHeightMap extends AbstractHeightMap {
         return image;
     }
 
+    @Override
     public int getChannel() {
         return channel;
     }
@@ -75,10 +76,12 @@ public final class BitmapHeightMap extends AbstractHeightMap {
         return repeat;
     }
 
+    @Override
     public int getWidth() {
         return width;
     }
 
+    @Override
     public int getHeight() {
         return height;
     }
@@ -86,6 +89,7 @@ public final class BitmapHeightMap extends AbstractHeightMap {
     /**
      * Get the theoretical minimum value as determined by the image format, regardless of the actual minimum value.
      */
+    @Override
     public double getMinHeight() {
         return minHeight;
     }
@@ -93,22 +97,27 @@ public final class BitmapHeightMap extends AbstractHeightMap {
     /**
      * Get the theoretical maximum value as determined by the image format, regardless of the actual maximum value.
      */
+    @Override
     public double getMaxHeight() {
         return maxHeight;
     }
 
+    @Override
     public boolean isFloatingPoint() {
         return floatingPoint;
     }
 
+    @Override
     public int getBitDepth() {
         return bitDepth;
     }
 
+    @Override
     public boolean hasAlpha() {
         return hasAlpha;
     }
 
+    @Override
     public boolean isSigned() {
         return signed;
     }
@@ -131,6 +140,30 @@ public final class BitmapHeightMap extends AbstractHeightMap {
         return getHeight((int) x, (int) y);
     }
 
+    /**
+     * Reads the samples of the area directly from the raster in bulk if the area lies entirely within the image.
+     */
+    @Override
+    public void getHeights(int x, int y, int width, int height, double[] heights) {
+        if ((! repeat) && extent.contains(x, y, width, height)) {
+            if (floatingPoint) {
+                raster.getSamples(x, y, width, height, channel, heights);
+            } else {
+                final int count = width * height;
+                final int[] samples = raster.getSamples(x, y, width, height, channel, (int[]) null);
+                for (int i = 0; i < count; i++) {
+                    heights[i] = signed ? samples[i] : (samples[i] & 0xffffffffL);
+                }
+            }
+        } else {
+            for (int dy = 0; dy < height; dy++) {
+                for (int dx = 0; dx < width; dx++) {
+                    heights[dy * width + dx] = getHeight(x + dx, y + dy);
+                }
+            }
+        }
+    }
+
     @Override
     public Rectangle getExtent() {
         return extent;
@@ -180,6 +213,7 @@ public final class BitmapHeightMap extends AbstractHeightMap {
         return range;
     }
 
+    @Override
     public File getImageFile() {
         return imageFile;
     }
@@ -0,0 +1,94 @@
+package org.pepsoft.worldpainter.heightMaps;
+
+import org.pepsoft.worldpainter.HeightMap;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A height map which is backed by a single channel of an image, such as a greyscale height map or a DEM.
+ */
+public interface ImageHeightMap extends HeightMap {
+    /**
+     * Get the image file from which the image was loaded, if known.
+     *
+     * @return The image file from which the image was loaded, or {@code null} if it is not known.
+     */
+    File getImageFile();
+
+    /**
+     * Get the index of the channel of the image from which the heights are taken.
+     */
+    int getChannel();
+
+    /**
+     * Get the width of the image in pixels.
+     */
+    int getWidth();
+
+    /**
+     * Get the height of the image in pixels.
+     */
+    int getHeight();
+
+    /**
+     * Get the number of bits per sample of the image.
+     */
+    int getBitDepth();
+
+    /**
+     * Get the theoretical minimum value as determined by the image format, regardless of the actual minimum value.
+     */
+    double getMinHeight();
+
+    /**
+     * Get the theoretical maximum value as determined by the image format, regardless of the actual maximum value.
+     */
+    double getMaxHeight();
+
+    boolean isFloatingPoint();
+
+    boolean isSigned();
+
+    boolean hasAlpha();
+
+    /**
+     * Load an image file as a height map, using the first channel of the image. If the image is too large to
+     * comfortably load into memory, and of a format that supports it, a {@link TiledImageHeightMap} is returned which
+     * decodes the image piecemeal as needed. Otherwise, the image is loaded into memory in its entirety and a
+     * {@link BitmapHeightMap} is returned.
+     *
+     * @param file The image file to load.
+     * @return The image file as a height map.
+     * @throws UnsupportedImageException If the file is not an image of a supported type, or is damaged. The message
+     * is suitable for showing to the user.
+     * @throws IOException If an I/O error occurs while reading the image.
+     */
+    static ImageHeightMap load(File file) throws IOException {
+        if (TiledImageHeightMap.isTooLargeToLoad(file)) {
+            return new TiledImageHeightMap(file.getName(), file, 0);
+        }
+        final BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new UnsupportedImageException("Not an image file of a supported type, or damaged file!");
+        } else if ((image.getType() == BufferedImage.TYPE_BYTE_BINARY) || (image.getType() == BufferedImage.TYPE_BYTE_INDEXED)) {
+            throw new UnsupportedImageException("Indexed image not supported! Please convert to non-indexed.");
+        } else if (image.isAlphaPremultiplied()) {
+            throw new UnsupportedImageException("Premultiplied alpha not supported! Please convert to non-premultiplied.");
+        }
+        return BitmapHeightMap.build().withName(file.getName()).withImage(image).withFile(file).now();
+    }
+
+    /**
+     * Thrown by {@link #load(File)} if a file is not an image of a supported type.
+     */
+    class UnsupportedImageException extends IOException {
+        public UnsupportedImageException(String message) {
+            super(message);
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,589 @@
+package org.pepsoft.worldpainter.heightMaps;
+
+import org.pepsoft.util.FileUtils;
+import org.pepsoft.util.IconUtils;
+import org.pepsoft.util.ProgressReceiver;
+import org.pepsoft.util.ProgressReceiver.OperationCancelled;
+import org.pepsoft.util.mdc.MDCCapturingRuntimeException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.io.*;
+import java.util.List;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static java.awt.image.DataBuffer.*;
+
+/**
+ * An image height map which does not load the entire image into memory, but decodes it in blocks as they are needed,
+ * keeping a bounded number of recently used blocks in memory. Intended for height maps which are too large to load
+ * in their entirety, such as large DEMs. The blocks correspond to the tiles of the image if it is tiled, or to
+ * horizontal bands of the image otherwise.
+ *
+ * <p>This only performs well for image formats which support decoding part of an image without decoding everything
+ * that precedes it, such as TIFF. See {@link #isTooLargeToLoad(File)}.
+ *
+ * <p>When serialised, only a reference to the image file and its checksum is stored, not the image data. When the
+ * height map is first accessed after deserialisation the file is checked against the checksum, and an exception is
+ * thrown if the file no longer exists or has changed.
+ *
+ * <p>Different blocks may be decoded concurrently by different threads, each using its own image reader. The image
+ * readers are kept open until the height map is {@link #close() closed}.
+ *
+ * <p>The maximum amount of memory used for decoded blocks, in MB, may be configured with the
+ * {@code org.pepsoft.worldpainter.heightMapCacheSize} system property. The default is 256 MB.
+ */
+public final class TiledImageHeightMap extends AbstractHeightMap implements ImageHeightMap, Closeable {
+    /**
+     * Create a new tiled image height map. Only the header of the image is read.
+     *
+     * @param name The name of the height map.
+     * @param imageFile The image file.
+     * @param channel The index of the channel of the image from which to take the heights.
+     * @throws IOException If an I/O error occurs while reading the header of the image.
+     * @throws IllegalArgumentException If the image is of an unsupported type, or does not have the specified channel.
+     */
+    public TiledImageHeightMap(String name, File imageFile, int channel) throws IOException {
+        super(name);
+        this.imageFile = imageFile;
+        this.channel = channel;
+        final ImageReader reader = openReader(imageFile);
+        try {
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+            final ImageTypeSpecifier imageType = getImageType(reader);
+            if ((imageType.getColorModel() instanceof IndexColorModel) || imageType.getColorModel().isAlphaPremultiplied()) {
+                throw new IllegalArgumentException("Unsupported image type for tiled image height map: " + imageFile);
+            }
+            final SampleModel sampleModel = imageType.getSampleModel();
+            if ((channel < 0) || (channel >= sampleModel.getNumBands())) {
+                throw new IllegalArgumentException("Image " + imageFile + " does not have channel " + channel);
+            }
+            bitDepth = sampleModel.getSampleSize(channel);
+            switch (sampleModel.getTransferType()) {
+                case TYPE_FLOAT:
+                    minHeight = -Float.MAX_VALUE;
+                    maxHeight = Float.MAX_VALUE;
+                    floatingPoint = true;
+                    signed = true;
+                    break;
+                case TYPE_DOUBLE:
+                    minHeight = -Double.MAX_VALUE;
+                    maxHeight = Double.MAX_VALUE;
+                    floatingPoint = true;
+                    signed = true;
+                    break;
+                case TYPE_SHORT:
+                    minHeight = -(1L << (bitDepth - 1));
+                    maxHeight = (1L << (bitDepth - 1)) - 1L;
+                    floatingPoint = false;
+                    signed = true;
+                    break;
+                default:
+                    minHeight = 0;
+                    maxHeight = (1L << bitDepth) - 1L;
+                    floatingPoint = false;
+                    signed = false;
+                    break;
+            }
+            hasAlpha = imageType.getColorModel().hasAlpha();
+            final int bytesPerPixel = getBytesPerPixel(sampleModel);
+            if (reader.isImageTiled(0)) {
+                // Combine very small tiles, to limit the overhead per block
+                final int tileWidth = reader.getTileWidth(0), tileHeight = reader.getTileHeight(0);
+                blockWidth = Math.min(tileWidth * Math.max(MIN_BLOCK_SIZE / tileWidth, 1), width);
+                blockHeight = Math.min(tileHeight * Math.max(MIN_BLOCK_SIZE / tileHeight, 1), height);
+            } else {
+                // The image is presumably stored in horizontal strips, so use bands spanning the width of the image, to
+                // avoid decoding the same strips for several blocks
+                blockWidth = width;
+                blockHeight = (int) Math.max(Math.min(TARGET_BLOCK_BYTES / ((long) width * bytesPerPixel), height), 1);
+            }
+            final long blockBytes = (long) blockWidth * blockHeight * bytesPerPixel;
+            maxCachedBlocks = (int) Math.max(CACHE_SIZE * 1024L * 1024L / blockBytes, MIN_CACHED_BLOCKS);
+        } finally {
+            closeReader(reader);
+        }
+        extent = new Rectangle(0, 0, width, height);
+        checksumVerified = true;
+    }
+
+    @Override
+    public File getImageFile() {
+        return imageFile;
+    }
+
+    @Override
+    public int getChannel() {
+        return channel;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getBitDepth() {
+        return bitDepth;
+    }
+
+    @Override
+    public double getMinHeight() {
+        return minHeight;
+    }
+
+    @Override
+    public double getMaxHeight() {
+        return maxHeight;
+    }
+
+    @Override
+    public boolean isFloatingPoint() {
+        return floatingPoint;
+    }
+
+    @Override
+    public boolean isSigned() {
+        return signed;
+    }
+
+    @Override
+    public boolean hasAlpha() {
+        return hasAlpha;
+    }
+
+    // HeightMap
+
+    @Override
+    public double getHeight(int x, int y) {
+        if (extent.contains(x, y)) {
+            final Block block = getBlock(x / blockWidth, y / blockHeight);
+            if (floatingPoint) {
+                return block.raster.getSampleDouble(x - block.x, y - block.y, channel);
+            } else {
+                final int sample = block.raster.getSample(x - block.x, y - block.y, channel);
+                return signed ? sample : (sample & 0xffffffffL);
+            }
+        } else {
+            return minHeight;
+        }
+    }
+
+    @Override
+    public double getHeight(float x, float y) {
+        return getHeight((int) x, (int) y);
+    }
+
+    /**
+     * Reads the samples of the area in bulk from each block it intersects if the area lies entirely within the image.
+     */
+    @Override
+    public void getHeights(int x, int y, int width, int height, double[] heights) {
+        if (! extent.contains(x, y, width, height)) {
+            super.getHeights(x, y, width, height, heights);
+            return;
+        }
+        final double[] doubleSamples = floatingPoint ? new double[Math.min(width, blockWidth) * Math.min(height, blockHeight)] : null;
+        final int[] intSamples = floatingPoint ? null : new int[Math.min(width, blockWidth) * Math.min(height, blockHeight)];
+        for (int blockY = y / blockHeight; blockY <= (y + height - 1) / blockHeight; blockY++) {
+            for (int blockX = x / blockWidth; blockX <= (x + width - 1) / blockWidth; blockX++) {
+                final Block block = getBlock(blockX, blockY);
+                final int x1 = Math.max(x, block.x), y1 = Math.max(y, block.y);
+                final int x2 = Math.min(x + width, block.x + block.raster.getWidth()), y2 = Math.min(y + height, block.y + block.raster.getHeight());
+                final int w = x2 - x1, h = y2 - y1;
+                if (floatingPoint) {
+                    block.raster.getSamples(x1 - block.x, y1 - block.y, w, h, channel, doubleSamples);
+                    for (int dy = 0; dy < h; dy++) {
+                        System.arraycopy(doubleSamples, dy * w, heights, (y1 - y + dy) * width + (x1 - x), w);
+                    }
+                } else {
+                    block.raster.getSamples(x1 - block.x, y1 - block.y, w, h, channel, intSamples);
+                    for (int dy = 0; dy < h; dy++) {
+                        final int offset = (y1 - y + dy) * width + (x1 - x);
+                        for (int dx = 0; dx < w; dx++) {
+                            final int sample = intSamples[dy * w + dx];
+                            heights[offset + dx] = signed ? sample : (sample & 0xffffffffL);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Rectangle getExtent() {
+        return extent;
+    }
+
+    @Override
+    public int getColour(int x, int y) {
+        if (extent.contains(x, y)) {
+            final Block block = getBlock(x / blockWidth, y / blockHeight);
+            return block.image.getRGB(x - block.x, y - block.y);
+        } else {
+            return 0;
+        }
+    }
+
+    @Override
+    public Icon getIcon() {
+        return ICON_TILED_IMAGE_HEIGHTMAP;
+    }
+
+    /**
+     * Get the <em>actual</em> minimum and maximum values contained in the image data. Note that the first invocation
+     * decodes the entire image, one block at a time, so it should not be invoked on the event dispatch thread. See
+     * {@link #getRange(ProgressReceiver)} for a version which reports progress.
+     */
+    @Override
+    public double[] getRange() {
+        try {
+            return getRange(null);
+        } catch (OperationCancelled e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Get the <em>actual</em> minimum and maximum values contained in the image data, reporting progress to a
+     * progress receiver if the image has to be decoded to determine them.
+     *
+     * @param progressReceiver The progress receiver to which to report progress. May be {@code null}.
+     * @return The lowest and highest value contained in the image data.
+     * @throws OperationCancelled If the progress receiver cancelled the operation.
+     */
+    public double[] getRange(ProgressReceiver progressReceiver) throws OperationCancelled {
+        if (range == null) {
+            double imageLowValue = Double.MAX_VALUE, imageHighValue = -Double.MAX_VALUE;
+            final double[] heights = new double[blockWidth * blockHeight];
+            outer:
+            for (int y = 0; y < height; y += blockHeight) {
+                if (progressReceiver != null) {
+                    progressReceiver.setProgress((float) y / height);
+                }
+                for (int x = 0; x < width; x += blockWidth) {
+                    final int w = Math.min(blockWidth, width - x), h = Math.min(blockHeight, height - y);
+                    getHeights(x, y, w, h, heights);
+                    for (int i = 0; i < w * h; i++) {
+                        final double value = heights[i];
+                        if (value < imageLowValue) {
+                            imageLowValue = value;
+                        }
+                        if (value > imageHighValue) {
+                            imageHighValue = value;
+                        }
+                    }
+                    if ((imageLowValue <= minHeight) && (imageHighValue >= maxHeight)) {
+                        // No point in looking any further!
+                        break outer;
+                    }
+                }
+            }
+            range = new double[] { imageLowValue, imageHighValue };
+            if (progressReceiver != null) {
+                progressReceiver.setProgress(1.0f);
+            }
+        }
+        return range;
+    }
+
+    /**
+     * Whether the actual range of the image data is already known, in other words whether {@link #getRange()} can
+     * return without decoding the image.
+     */
+    public boolean isRangeKnown() {
+        return range != null;
+    }
+
+    // Closeable
+
+    /**
+     * Close the image readers and discard the decoded blocks. The height map may still be used after it has been
+     * closed, in which case the image file is opened again.
+     */
+    @Override
+    public void close() throws IOException {
+        final BlockCache cache;
+        synchronized (this) {
+            cache = this.cache;
+            this.cache = null;
+            lastBlock = null;
+        }
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    private Block getBlock(int blockX, int blockY) {
+        Block block = lastBlock;
+        if ((block == null) || (block.blockX != blockX) || (block.blockY != blockY)) {
+            block = getCache().getBlock(blockX, blockY);
+            lastBlock = block;
+        }
+        return block;
+    }
+
+    private BlockCache getCache() {
+        BlockCache cache = this.cache;
+        if ((cache == null) || cache.isClosed()) {
+            synchronized (this) {
+                cache = this.cache;
+                if ((cache == null) || cache.isClosed()) {
+                    verifyChecksum();
+                    cache = new BlockCache();
+                    this.cache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    private void verifyChecksum() {
+        if (checksumVerified || (checksum == null)) {
+            return;
+        }
+        if (! imageFile.isFile()) {
+            throw new MDCCapturingRuntimeException("Image file " + imageFile + " of height map " + name + " not found");
+        }
+        try {
+            if (! Arrays.equals(FileUtils.getMD5(imageFile).getBytes(), checksum)) {
+                throw new MDCCapturingRuntimeException("Image file " + imageFile + " of height map " + name + " has changed");
+            }
+        } catch (IOException e) {
+            throw new MDCCapturingRuntimeException("I/O error while verifying image file " + imageFile + " of height map " + name, e);
+        }
+        checksumVerified = true;
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        if (checksum == null) {
+            checksum = FileUtils.getMD5(imageFile).getBytes();
+        }
+        out.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        checksumVerified = false;
+    }
+
+    /**
+     * Determine whether an image would be better loaded as a {@code TiledImageHeightMap} than decoded into memory in
+     * its entirety. That is the case if the image supports decoding parts of it efficiently, and decoding it in its
+     * entirety would take more than a quarter of the maximum heap size.
+     *
+     * @param file The image file to check.
+     * @return {@code true} if the image should be loaded as a {@code TiledImageHeightMap}.
+     * @throws IOException If an I/O error occurs while reading the header of the image.
+     */
+    public static boolean isTooLargeToLoad(File file) throws IOException {
+        final ImageReader reader;
+        try {
+            reader = openReader(file);
+        } catch (IllegalArgumentException e) {
+            // Unsupported format
+            return false;
+        }
+        try {
+            if (! reader.getFormatName().toLowerCase().startsWith("tif")) {
+                return false;
+            }
+            final long size = (long) reader.getWidth(0) * reader.getHeight(0) * getBytesPerPixel(getImageType(reader).getSampleModel());
+            return size > (Runtime.getRuntime().maxMemory() / 4);
+        } finally {
+            closeReader(reader);
+        }
+    }
+
+    private static ImageReader openReader(File file) throws IOException {
+        final ImageInputStream in = ImageIO.createImageInputStream(file);
+        if (in == null) {
+            throw new IOException("Could not open image file " + file);
+        }
+        final Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (! readers.hasNext()) {
+            in.close();
+            throw new IllegalArgumentException("Unsupported image format: " + file);
+        }
+        // Prefer the reader built into the JRE, if any, as not all third party readers reliably support reading
+        // regions of tiled images
+        ImageReader reader = readers.next();
+        while (readers.hasNext() && (! reader.getClass().getName().startsWith("com.sun.imageio."))) {
+            reader = readers.next();
+        }
+        reader.setInput(in, false, true);
+        return reader;
+    }
+
+    private static void closeReader(ImageReader reader) throws IOException {
+        final ImageInputStream in = (ImageInputStream) reader.getInput();
+        reader.dispose();
+        in.close();
+    }
+
+    private static ImageTypeSpecifier getImageType(ImageReader reader) throws IOException {
+        final ImageTypeSpecifier rawImageType = reader.getRawImageType(0);
+        return (rawImageType != null) ? rawImageType : reader.getImageTypes(0).next();
+    }
+
+    private static int getBytesPerPixel(SampleModel sampleModel) {
+        return Math.max(sampleModel.getNumBands() * DataBuffer.getDataTypeSize(sampleModel.getDataType()) / 8, 1);
+    }
+
+    private final File imageFile;
+    private final int channel, width, height, bitDepth, blockWidth, blockHeight, maxCachedBlocks;
+    private final Rectangle extent;
+    private final boolean floatingPoint, hasAlpha, signed;
+    private final double minHeight, maxHeight;
+    private byte[] checksum;
+    private volatile double[] range;
+    private transient volatile BlockCache cache;
+    private transient volatile Block lastBlock;
+    private transient boolean checksumVerified;
+
+    private static final int CACHE_SIZE = Integer.getInteger("org.pepsoft.worldpainter.heightMapCacheSize", 256); // MB
+    private static final int MIN_BLOCK_SIZE = 256, MIN_CACHED_BLOCKS = Math.max(Runtime.getRuntime().availableProcessors() * 2, 4);
+    private static final long TARGET_BLOCK_BYTES = 4 * 1024 * 1024;
+    private static final long serialVersionUID = 1L;
+    private static final Icon ICON_TILED_IMAGE_HEIGHTMAP = IconUtils.loadScaledIcon("org/pepsoft/worldpainter/icons/height_map.png");
+
+    /**
+     * A decoded block of the image.
+     */
+    private static final class Block {
+        Block(int blockX, int blockY, int x, int y, BufferedImage image) {
+            this.blockX = blockX;
+            this.blockY = blockY;
+            this.x = x;
+            this.y = y;
+            this.image = image;
+            raster = image.getRaster();
+        }
+
+        final int blockX, blockY, x, y;
+        final BufferedImage image;
+        final Raster raster;
+    }
+
+    /**
+     * The open image readers and the least recently used decoded blocks. Shared between clones of the height map.
+     *
+     * <p>The map of blocks is only locked to look up or register a block; the blocks themselves are decoded outside
+     * the lock, so that different threads can decode different blocks at the same time. Threads which need a block
+     * that is still being decoded by another thread wait for that block only.
+     */
+    private final class BlockCache implements Closeable {
+        BlockCache() {
+            blocks = new LinkedHashMap<Long, FutureTask<Block>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, FutureTask<Block>> eldest) {
+                    return size() > maxCachedBlocks;
+                }
+            };
+        }
+
+        Block getBlock(int blockX, int blockY) {
+            final long key = ((long) blockY << 32) | (blockX & 0xffffffffL);
+            FutureTask<Block> task;
+            boolean decode = false;
+            synchronized (this) {
+                task = blocks.get(key);
+                if (task == null) {
+                    task = new FutureTask<>(() -> decodeBlock(blockX, blockY));
+                    blocks.put(key, task);
+                    decode = true;
+                }
+            }
+            if (decode) {
+                task.run();
+            }
+            try {
+                return task.get();
+            } catch (ExecutionException e) {
+                synchronized (this) {
+                    blocks.remove(key, task);
+                }
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw new MDCCapturingRuntimeException("I/O error while reading image file " + imageFile + " of height map " + name, cause);
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else {
+                    throw new MDCCapturingRuntimeException("Exception while reading image file " + imageFile + " of height map " + name, cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MDCCapturingRuntimeException("Interrupted while reading image file " + imageFile + " of height map " + name, e);
+            }
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() throws IOException {
+            final List<ImageReader> readers;
+            synchronized (this) {
+                closed = true;
+                blocks.clear();
+                readers = new ArrayList<>(idleReaders);
+                idleReaders.clear();
+            }
+            for (ImageReader reader: readers) {
+                closeReader(reader);
+            }
+        }
+
+        private Block decodeBlock(int blockX, int blockY) throws IOException {
+            ImageReader reader;
+            synchronized (this) {
+                reader = idleReaders.poll();
+            }
+            if (reader == null) {
+                reader = openReader(imageFile);
+            }
+            try {
+                final int x = blockX * blockWidth, y = blockY * blockHeight;
+                final ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle(x, y, Math.min(blockWidth, width - x), Math.min(blockHeight, height - y)));
+                return new Block(blockX, blockY, x, y, reader.read(0, param));
+            } finally {
+                boolean release;
+                synchronized (this) {
+                    release = closed;
+                    if (! release) {
+                        idleReaders.push(reader);
+                    }
+                }
+                if (release) {
+                    closeReader(reader);
+                }
+            }
+        }
+
+        private final Map<Long, FutureTask<Block>> blocks;
+        private final Deque<ImageReader> idleReaders = new ArrayDeque<>();
+        private boolean closed;
+    }
+}
\ No newline at end of file
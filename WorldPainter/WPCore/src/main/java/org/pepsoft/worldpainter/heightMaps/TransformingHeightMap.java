@@ -109,6 +109,19 @@ public class TransformingHeightMap extends DelegatingHeightMap {
         }
     }
 
+    @Override
+    public void getHeights(int x, int y, int width, int height, double[] heights) {
+        if (translateOnly && (! isConstant())) {
+            children[0].getHeights(x - offsetX, y - offsetY, width, height, heights);
+        } else {
+            for (int dy = 0; dy < height; dy++) {
+                for (int dx = 0; dx < width; dx++) {
+                    heights[dy * width + dx] = getHeight(x + dx, y + dy);
+                }
+            }
+        }
+    }
+
     @Override
     public int doGetColour(int x, int y) {
         if (translateOnly) {
@@ -13,7 +13,7 @@ import org.pepsoft.util.ProgressReceiver;
 import org.pepsoft.util.swing.TileProvider;
 import org.pepsoft.worldpainter.Dimension;
 import org.pepsoft.worldpainter.*;
-import org.pepsoft.worldpainter.heightMaps.BitmapHeightMap;
+import org.pepsoft.worldpainter.heightMaps.ImageHeightMap;
 import org.pepsoft.worldpainter.heightMaps.TransformingHeightMap;
 import org.pepsoft.worldpainter.history.HistoryEntry;
 import org.pepsoft.worldpainter.layers.Void;
@@ -25,13 +25,20 @@ import org.pepsoft.worldpainter.themes.Theme;
 
 import java.awt.*;
 import java.io.File;
-import java.util.Map;
+import java.util.List;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import static org.pepsoft.minecraft.Constants.DEFAULT_MAX_HEIGHT_ANVIL;
 import static org.pepsoft.minecraft.Constants.DEFAULT_WATER_LEVEL;
 import static org.pepsoft.worldpainter.Constants.*;
 import static org.pepsoft.worldpainter.Dimension.Anchor.NORMAL_DETAIL;
 import static org.pepsoft.worldpainter.Dimension.Role.MASTER;
+import static org.pepsoft.worldpainter.util.ThreadUtils.chooseThreadCount;
 
 /**
  *
@@ -145,72 +152,77 @@ public class HeightMapImporter {
         final int variation = Math.min(15, (worldWaterLevel - floor) / 2);
         final PerlinNoise noiseGenerator = new PerlinNoise(0);
         noiseGenerator.setSeed(dimension.getSeed());
-        int tileCount = 0;
-        for (int tileX = tileX1; tileX <= tileX2; tileX++) {
-            for (int tileY = tileY1; tileY <= tileY2; tileY++) {
-                boolean tileIsNew;
-                Tile tile = dimension.getTileForEditing(tileX, tileY);
-                if (tile == null) {
-                    if (createTiles) {
-                        tile = tileFactory.createTile(tileX, tileY);
-                        tileIsNew = true;
-                    } else {
-                        tileCount++;
-                        if (progressReceiver != null) {
-                            progressReceiver.setProgress((float) tileCount / totalTileCount);
-                        }
-                        continue;
+
+        // Look up the existing tiles up front, on this thread, since getTileForEditing() may modify the state of the
+        // dimension. Go row by row, since image formats typically store (and therefore decode) the image in horizontal
+        // bands, which matters for height maps which load the image piecemeal
+        final List<Point> tileCoords = new ArrayList<>(totalTileCount);
+        final Map<Point, Tile> existingTiles = new HashMap<>();
+        for (int tileY = tileY1; tileY <= tileY2; tileY++) {
+            for (int tileX = tileX1; tileX <= tileX2; tileX++) {
+                final Tile tile = dimension.getTileForEditing(tileX, tileY);
+                if (tile != null) {
+                    existingTiles.put(new Point(tileX, tileY), tile);
+                    tileCoords.add(new Point(tileX, tileY));
+                } else if (createTiles) {
+                    tileCoords.add(new Point(tileX, tileY));
+                }
+            }
+        }
+
+        // Import the tiles in parallel. New tiles are added to the dimension in batches, to limit the contention on the
+        // dimension and the number of events fired
+        final AtomicInteger tileCount = new AtomicInteger(totalTileCount - tileCoords.size());
+        final AtomicReference<ProgressReceiver.OperationCancelled> cancelled = new AtomicReference<>();
+        final List<Tile> newTiles = new ArrayList<>(TILE_BATCH_SIZE);
+        final ForkJoinPool pool = new ForkJoinPool(chooseThreadCount("importing height map", tileCoords.size()));
+        try {
+            pool.invoke(new ForEachTileTask(tileCoords, 0, tileCoords.size(), coords -> {
+                if (cancelled.get() != null) {
+                    return;
+                }
+                final Tile existingTile = existingTiles.get(coords);
+                if (existingTile != null) {
+                    existingTile.inhibitEvents();
+                    try {
+                        importTile(existingTile, false, x1, y1, x2, y2, floor, variation, noiseGenerator);
+                    } finally {
+                        existingTile.releaseEvents();
                     }
                 } else {
-                    tileIsNew = false;
-                    tile.inhibitEvents();
-                }
-                final int xOffset = tileX << TILE_SIZE_BITS;
-                final int yOffset = tileY << TILE_SIZE_BITS;
-                for (int x = 0; x < TILE_SIZE; x++) {
-                    for (int y = 0; y < TILE_SIZE; y++) {
-                        final int imageX = xOffset + x;
-                        final int imageY = yOffset + y;
-                        if ((imageX >= x1) && (imageX <= x2) && (imageY >= y1) && (imageY <= y2)) {
-                            final double imageLevel = heightMap.getHeight(imageX, imageY);
-                            final float height = calculateHeight(imageLevel);
-                            if (onlyRaise && (! tileIsNew)) {
-                                if (height > tile.getHeight(x, y)) {
-                                    tile.setHeight(x, y, height);
-                                    if (theme != null) {
-                                        theme.apply(tile, x, y);
-                                    }
-                                }
-                            } else {
-                                tile.setHeight(x, y, height);
-                                tile.setWaterLevel(x, y, worldWaterLevel);
-                                if (useVoidBelow && (imageLevel <= voidBelowLevel)) {
-                                    tile.setBitLayerValue(org.pepsoft.worldpainter.layers.Void.INSTANCE, x, y, true);
-                                }
-                                if (theme != null) {
-                                    theme.apply(tile, x, y);
-                                }
-                            }
-                        } else if (tileIsNew) {
-                            tile.setHeight(x, y, floor + (noiseGenerator.getPerlinNoise(imageX / MEDIUM_BLOBS, imageY / MEDIUM_BLOBS) + 0.5f) * variation);
-                            tile.setTerrain(x, y, Terrain.BEACHES);
-                            tile.setWaterLevel(x, y, worldWaterLevel);
-                            if (useVoidBelow) {
-                                tile.setBitLayerValue(org.pepsoft.worldpainter.layers.Void.INSTANCE, x, y, true);
-                            }
+                    final Tile tile = tileFactory.createTile(coords.x, coords.y);
+                    importTile(tile, true, x1, y1, x2, y2, floor, variation, noiseGenerator);
+                    final List<Tile> batch;
+                    synchronized (newTiles) {
+                        newTiles.add(tile);
+                        if (newTiles.size() >= TILE_BATCH_SIZE) {
+                            batch = new ArrayList<>(newTiles);
+                            newTiles.clear();
+                        } else {
+                            batch = null;
                         }
                     }
+                    if (batch != null) {
+                        dimension.addTiles(batch);
+                    }
                 }
-                if (tileIsNew) {
-                    dimension.addTile(tile);
-                } else {
-                    tile.releaseEvents();
-                }
-                tileCount++;
+                tileCount.incrementAndGet();
                 if (progressReceiver != null) {
-                    progressReceiver.setProgress((float) tileCount / totalTileCount);
+                    try {
+                        synchronized (progressReceiver) {
+                            progressReceiver.setProgress((float) tileCount.get() / totalTileCount);
+                        }
+                    } catch (ProgressReceiver.OperationCancelled e) {
+                        cancelled.compareAndSet(null, e);
+                    }
                 }
-            }
+            }));
+        } finally {
+            pool.shutdown();
+            dimension.addTiles(newTiles);
+        }
+        if (cancelled.get() != null) {
+            throw cancelled.get();
         }
     }
 
@@ -386,15 +398,56 @@ public class HeightMapImporter {
         this.minecraftSeed = minecraftSeed;
     }
 
+    private void importTile(Tile tile, boolean tileIsNew, int x1, int y1, int x2, int y2, int floor, int variation, PerlinNoise noiseGenerator) {
+        final int xOffset = tile.getX() << TILE_SIZE_BITS;
+        final int yOffset = tile.getY() << TILE_SIZE_BITS;
+        final double[] imageLevels = new double[TILE_SIZE * TILE_SIZE];
+        heightMap.getHeights(xOffset, yOffset, TILE_SIZE, TILE_SIZE, imageLevels);
+        for (int x = 0; x < TILE_SIZE; x++) {
+            for (int y = 0; y < TILE_SIZE; y++) {
+                final int imageX = xOffset + x;
+                final int imageY = yOffset + y;
+                if ((imageX >= x1) && (imageX <= x2) && (imageY >= y1) && (imageY <= y2)) {
+                    final double imageLevel = imageLevels[x | (y << TILE_SIZE_BITS)];
+                    final float height = calculateHeight(imageLevel);
+                    if (onlyRaise && (! tileIsNew)) {
+                        if (height > tile.getHeight(x, y)) {
+                            tile.setHeight(x, y, height);
+                            if (theme != null) {
+                                theme.apply(tile, x, y);
+                            }
+                        }
+                    } else {
+                        tile.setHeight(x, y, height);
+                        tile.setWaterLevel(x, y, worldWaterLevel);
+                        if (useVoidBelow && (imageLevel <= voidBelowLevel)) {
+                            tile.setBitLayerValue(org.pepsoft.worldpainter.layers.Void.INSTANCE, x, y, true);
+                        }
+                        if (theme != null) {
+                            theme.apply(tile, x, y);
+                        }
+                    }
+                } else if (tileIsNew) {
+                    tile.setHeight(x, y, floor + (noiseGenerator.getPerlinNoise(imageX / MEDIUM_BLOBS, imageY / MEDIUM_BLOBS) + 0.5f) * variation);
+                    tile.setTerrain(x, y, Terrain.BEACHES);
+                    tile.setWaterLevel(x, y, worldWaterLevel);
+                    if (useVoidBelow) {
+                        tile.setBitLayerValue(org.pepsoft.worldpainter.layers.Void.INSTANCE, x, y, true);
+                    }
+                }
+            }
+        }
+    }
+
     private void calculateFlags() {
-        // If the height map is a bitmap height map, or a transforming height map with a scale of 100% and based on a
-        // bitmap height map, then it is definitely unscaled, meaning we can apply a delta to the bitmap values to make
+        // If the height map is an image height map, or a transforming height map with a scale of 100% and based on an
+        // image height map, then it is definitely unscaled, meaning we can apply a delta to the bitmap values to make
         // each block height 1/8 higher, in order to make smooth snow work less surprisingly
-        mayBeScaled = ! ((heightMap instanceof BitmapHeightMap)
+        mayBeScaled = ! ((heightMap instanceof ImageHeightMap)
                 || ((heightMap instanceof TransformingHeightMap)
                     && (((TransformingHeightMap) heightMap).getScaleX() == 1.0f)
                     && (((TransformingHeightMap) heightMap).getScaleY() == 1.0f)
-                    && (((TransformingHeightMap) heightMap).getBaseHeightMap() instanceof BitmapHeightMap)));
+                    && (((TransformingHeightMap) heightMap).getBaseHeightMap() instanceof ImageHeightMap)));
         oneOnOne = (worldLowLevel == imageLowLevel) && (worldHighLevel == imageHighLevel);
         highRes = (imageHighLevel >= maxHeight) && (worldHighLevel < maxHeight);
         levelScale = (worldHighLevel - worldLowLevel) / (imageHighLevel - imageLowLevel);
@@ -431,8 +484,41 @@ public class HeightMapImporter {
     private long minecraftSeed = World2.DEFAULT_OCEAN_SEED;
     private Rectangle extentInTiles;
 
+    /**
+     * The number of newly created tiles to add to the dimension at a time.
+     */
+    private static final int TILE_BATCH_SIZE = 256;
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HeightMapImporter.class);
 
+    /**
+     * Performs an action for each of a range of tile coordinates, splitting the range in half until single tiles
+     * remain.
+     */
+    private static class ForEachTileTask extends RecursiveAction {
+        ForEachTileTask(List<Point> tileCoords, int from, int to, Consumer<Point> action) {
+            this.tileCoords = tileCoords;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if ((to - from) <= 1) {
+                if (to > from) {
+                    action.accept(tileCoords.get(from));
+                }
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new ForEachTileTask(tileCoords, from, middle, action), new ForEachTileTask(tileCoords, middle, to, action));
+            }
+        }
+
+        private final List<Point> tileCoords;
+        private final int from, to;
+        private final Consumer<Point> action;
+    }
+
     private static class PreviewTileFactory extends HeightMapTileFactory {
         private PreviewTileFactory(long seed, HeightMap heightMap, Dimension targetDimension, int minHeight, int maxHeight, boolean floodWithLava, Theme theme, HeightMap imageHeightMap, boolean voidBelow, double voidBelowLevel, boolean leaveTerrain) {
             super(seed, heightMap, minHeight, maxHeight, floodWithLava, theme);
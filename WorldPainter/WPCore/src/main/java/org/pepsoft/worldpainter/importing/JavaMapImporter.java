@@ -26,12 +26,12 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.Boolean.TRUE;
-import static java.util.Collections.synchronizedMap;
-import static java.util.Collections.synchronizedSet;
 import static java.util.stream.Collectors.joining;
 import static org.pepsoft.minecraft.Constants.*;
 import static org.pepsoft.minecraft.Material.*;
@@ -238,35 +238,44 @@ public class JavaMapImporter extends MapImporter {
         return warnings;
     }
 
-    @SuppressWarnings({"StringEquality", "StringConcatenationInsideStringBufferAppend"}) // Interned strings; readability
+    /**
+     * Import the chunks of one dimension. The chunks are visited in parallel, so everything the visitor touches is
+     * either thread-safe without the use of shared monitors, or confined to the thread visiting the chunk. The tiles are
+     * built up in a staging map and only added to the dimension at the end, in one go, so that the visitor does not need
+     * to take the dimension's lock for every block.
+     */
+    @SuppressWarnings("StringEquality") // Interned strings
     private String importDimension(File worldDir, Dimension dimension, ProgressReceiver progressReceiver) throws ProgressReceiver.OperationCancelled {
         if (progressReceiver != null) {
             progressReceiver.setMessage(dimension.getName() + " dimension");
         }
         final int minHeight = dimension.getMinHeight(), maxHeight = dimension.getMaxHeight();
         final int maxY = maxHeight - 1;
-        final Set<Point> newChunks = synchronizedSet(new HashSet<>());
-        final Set<String> manMadeBlockTypes = synchronizedSet(new HashSet<>());
+        final Map<Point, Tile> stagedTiles = new ConcurrentHashMap<>();
+        final Set<Point> newChunks = ConcurrentHashMap.newKeySet();
+        final Set<String> manMadeBlockTypes = ConcurrentHashMap.newKeySet();
         final BiomeScheme standardBiomes = getBiomeScheme(platform);
-        final Set<Integer> unknownBiomes = synchronizedSet(new HashSet<>());
+        final Set<Integer> unknownBiomes = ConcurrentHashMap.newKeySet();
         final boolean importBiomes = platform.capabilities.contains(BIOMES) || platform.capabilities.contains(BIOMES_3D) || platform.capabilities.contains(NAMED_BIOMES);
-        final Set<Integer> customNumberedBiomes = synchronizedSet(new HashSet<>());
-        final Map<String, Integer> customNamedBiomes = synchronizedMap(new HashMap<>());
+        final Set<Integer> customNumberedBiomes = ConcurrentHashMap.newKeySet();
+        final Map<String, Integer> customNamedBiomes = new ConcurrentHashMap<>();
         final AtomicInteger nextCustomBiomeId = new AtomicInteger(FIRST_UNALLOCATED_ID);
-        final Set<String> allBiomes = synchronizedSet(new HashSet<>());
-        final Set<Integer> invalidBiomeIds = synchronizedSet(new HashSet<>());
+        final Set<String> allBiomes = ConcurrentHashMap.newKeySet();
+        final Set<Integer> invalidBiomeIds = ConcurrentHashMap.newKeySet();
         final AtomicBoolean deviatingBuildHeights = new AtomicBoolean();
-        try (ChunkStore chunkStore = PlatformManager.getInstance().getChunkStore(platform, worldDir, dimension.getAnchor().dim)) {
+        try (ChunkStore chunkStore = PlatformManager.getInstance().getReadOnlyChunkStore(platform, worldDir, dimension.getAnchor().dim)) {
             final int total = chunkStore.getChunkCount();
             final AtomicInteger count = new AtomicInteger();
-            final StringBuffer reportBuilder = new StringBuffer();
-            final Map<Platform, AtomicInteger> nonNativePlatformsEncountered = synchronizedMap(new HashMap<>());
+            final Queue<String> reportLines = new ConcurrentLinkedQueue<>();
+            final Map<Platform, AtomicInteger> nonNativePlatformsEncountered = new ConcurrentHashMap<>();
             if (! chunkStore.visitChunks(new ChunkVisitor() {
                 @Override
                 public boolean visitChunk(Chunk chunk) {
                     try {
-                        if (progressReceiver != null) {
-                            progressReceiver.setProgress((float) count.getAndIncrement() / total);
+                        // Only report progress occasionally, since progress receivers are typically synchronised
+                        final int chunkNo = count.getAndIncrement();
+                        if ((progressReceiver != null) && ((chunkNo % PROGRESS_INTERVAL) == 0)) {
+                            progressReceiver.setProgress((float) chunkNo / total);
                         }
                         final MinecraftCoords chunkCoords = chunk.getCoords();
                         if ((chunksToSkip != null) && chunksToSkip.contains(chunkCoords)) {
@@ -288,20 +297,18 @@ public class JavaMapImporter extends MapImporter {
                         final int chunkZ = chunkCoords.z;
                         final int chunkMinHeight = Math.max(minHeight, chunk.getMinHeight());
 
-                        final Point tileCoords = new Point(chunkX >> 3, chunkZ >> 3);
-                        Tile tile = dimension.getTile(tileCoords);
-                        if (tile == null) {
-                            tile = dimension.getTileFactory().createTile(tileCoords.x, tileCoords.y);
+                        final Tile tile = stagedTiles.computeIfAbsent(new Point(chunkX >> 3, chunkZ >> 3), tileCoords -> {
                             for (int xx = 0; xx < 8; xx++) {
                                 for (int yy = 0; yy < 8; yy++) {
                                     newChunks.add(new Point((tileCoords.x << TILE_SIZE_BITS) | (xx << 4), (tileCoords.y << TILE_SIZE_BITS) | (yy << 4)));
                                 }
                             }
-                            dimension.addTile(tile);
-                        }
+                            return dimension.getTileFactory().createTile(tileCoords.x, tileCoords.y);
+                        });
+                        final int tileOffsetX = (chunkX << 4) & TILE_SIZE_MASK, tileOffsetY = (chunkZ << 4) & TILE_SIZE_MASK;
 
                         if (populateSupported && (! chunk.isTerrainPopulated())) {
-                            tile.setBitLayerValue(Populate.INSTANCE, (chunkX << 4) & TILE_SIZE_MASK, (chunkZ << 4) & TILE_SIZE_MASK, true);
+                            tile.setBitLayerValue(Populate.INSTANCE, tileOffsetX, tileOffsetY, true);
                         }
 
                         boolean manMadeStructuresBelowGround = false;
@@ -376,24 +383,24 @@ public class JavaMapImporter extends MapImporter {
 
                                     final int blockX = (chunkX << 4) | xx;
                                     final int blockY = (chunkZ << 4) | zz;
-                                    final Point coords = new Point(blockX, blockY);
-                                    dimension.setTerrainAt(coords, terrain);
-                                    dimension.setHeightAt(coords, Math.max(height, minHeight));
-                                    dimension.setWaterLevelAt(blockX, blockY, waterLevel);
+                                    final int localX = tileOffsetX | xx, localY = tileOffsetY | zz;
+                                    tile.setTerrain(localX, localY, terrain);
+                                    tile.setHeight(localX, localY, Math.max(height, minHeight));
+                                    tile.setWaterLevel(localX, localY, waterLevel);
                                     if (frost) {
-                                        dimension.setBitLayerValueAt(Frost.INSTANCE, blockX, blockY, true);
+                                        tile.setBitLayerValue(Frost.INSTANCE, localX, localY, true);
                                     }
                                     if (floodWithLava) {
-                                        dimension.setBitLayerValueAt(FloodWithLava.INSTANCE, blockX, blockY, true);
+                                        tile.setBitLayerValue(FloodWithLava.INSTANCE, localX, localY, true);
                                     }
                                     if (height == -Float.MAX_VALUE) {
-                                        dimension.setBitLayerValueAt(org.pepsoft.worldpainter.layers.Void.INSTANCE, blockX, blockY, true);
+                                        tile.setBitLayerValue(org.pepsoft.worldpainter.layers.Void.INSTANCE, localX, localY, true);
                                     }
                                     if (importBiomes) {
                                         int biome = 255;
                                         if (chunk.isBiomesAvailable()) {
                                             biome = chunk.getBiome(xx, zz);
-                                            if ((! standardBiomes.isBiomePresent(biome)) && (! customNumberedBiomes.contains(biome))) {
+                                            if (! standardBiomes.isBiomePresent(biome)) {
                                                 customNumberedBiomes.add(biome);
                                             }
                                         } else if (chunk.is3DBiomesAvailable()) {
@@ -401,8 +408,8 @@ public class JavaMapImporter extends MapImporter {
                                             // information
                                             // TODO make this clear to the user
                                             // TODO add way of editing 3D biomes
-                                            biome = chunk.get3DBiome(xx >> 2, dimension.getIntHeightAt(blockX, blockY) >> 2, zz >> 2);
-                                            if ((! standardBiomes.isBiomePresent(biome)) && (! customNumberedBiomes.contains(biome))) {
+                                            biome = chunk.get3DBiome(xx >> 2, tile.getIntHeight(localX, localY) >> 2, zz >> 2);
+                                            if (! standardBiomes.isBiomePresent(biome)) {
                                                 customNumberedBiomes.add(biome);
                                             }
                                         } else if (chunk.isNamedBiomesAvailable()) {
@@ -410,31 +417,29 @@ public class JavaMapImporter extends MapImporter {
                                             // information
                                             // TODOMC118 make this clear to the user
                                             // TODOMC118 add way of editing 3D biomes
-                                            String biomeStr = chunk.getNamedBiome(xx >> 2, dimension.getIntHeightAt(blockX, blockY) >> 2, zz >> 2);
+                                            String biomeStr = chunk.getNamedBiome(xx >> 2, tile.getIntHeight(localX, localY) >> 2, zz >> 2);
                                             if (biomeStr != null) {
                                                 if (collectDebugInfo) {
                                                     allBiomes.add(biomeStr);
                                                 }
                                                 if (BIOMES_BY_MODERN_ID.containsKey(biomeStr)) {
                                                     biome = BIOMES_BY_MODERN_ID.get(biomeStr);
-                                                } else if (customNamedBiomes.containsKey(biomeStr)) {
-                                                    // This is a new biome that WorldPainter does not know about yet, or one
-                                                    // from a mod, but we have encountered it before and assigned it a
-                                                    // custom ID; reuse that
-                                                    biome = customNamedBiomes.get(biomeStr);
                                                 } else {
                                                     // This is a new biome that WorldPainter does not know about yet, or one
-                                                    // from a mod, that we have not yet encountered before. Choose a custom
-                                                    // ID for it and record it
-                                                    int customId;
-                                                    do {
-                                                        customId = nextCustomBiomeId.getAndIncrement();
-                                                    } while ((MODERN_IDS[customId] != null) && (customId < 255));
-                                                    if (customId >= 255) {
-                                                        throw new RuntimeException("More unknown biomes in dimension than available custom biome ids");
-                                                    }
-                                                    biome = customId;
-                                                    customNamedBiomes.put(biomeStr, biome);
+                                                    // from a mod. If we have encountered it before we have assigned it a
+                                                    // custom ID; reuse that. Otherwise choose a custom ID for it and
+                                                    // record it. This is atomic, so that concurrently visited chunks
+                                                    // always agree on the ID
+                                                    biome = customNamedBiomes.computeIfAbsent(biomeStr, key -> {
+                                                        int customId;
+                                                        do {
+                                                            customId = nextCustomBiomeId.getAndIncrement();
+                                                        } while ((MODERN_IDS[customId] != null) && (customId < 255));
+                                                        if (customId >= 255) {
+                                                            throw new RuntimeException("More unknown biomes in dimension than available custom biome ids");
+                                                        }
+                                                        return customId;
+                                                    });
                                                 }
                                             }
                                         }
@@ -446,17 +451,16 @@ public class JavaMapImporter extends MapImporter {
                                         // dimension. However, if it matches what the automatic biome would be, don't
                                         // copy it, so that WorldPainter will automatically adjust the biome when the
                                         // user makes changes
-                                        if ((biome != 255) && (biome != dimension.getAutoBiome(blockX, blockY))) {
+                                        if ((biome != 255) && (biome != dimension.getAutoBiome(tile, localX, localY))) {
                                             if ((biome < 0) || (biome > 255)) {
                                                 // This has been seen in the wild; perhaps a modded map?
-                                                if (! invalidBiomeIds.contains(biome)) {
-                                                    invalidBiomeIds.add(biome);
-                                                    reportBuilder.append("Unsupported biome ID " + biome + " encountered at location " + blockX + "," + blockY + "; ignoring biome and marking chunk(s) Read-Only" + EOL);
+                                                if (invalidBiomeIds.add(biome)) {
+                                                    reportLines.add("Unsupported biome ID " + biome + " encountered at location " + blockX + "," + blockY + "; ignoring biome and marking chunk(s) Read-Only" + EOL);
                                                     logger.error("Unsupported biome ID {} encountered at location {},{}; ignoring biome and marking chunk(s) Read-Only", biome, blockX, blockY);
                                                 }
                                                 markReadOnly = true;
                                             } else {
-                                                dimension.setLayerValueAt(Biome.INSTANCE, blockX, blockY, biome);
+                                                tile.setLayerValue(Biome.INSTANCE, localX, localY, biome);
                                             }
                                         }
                                     }
@@ -464,11 +468,11 @@ public class JavaMapImporter extends MapImporter {
                             }
                             newChunks.remove(new Point(chunkX << 4, chunkZ << 4));
                         } catch (NullPointerException e) {
-                            reportBuilder.append("Null pointer exception while reading chunk " + chunkX + "," + chunkZ + "; skipping chunk" + EOL);
+                            reportLines.add("Null pointer exception while reading chunk " + chunkX + "," + chunkZ + "; skipping chunk" + EOL);
                             logger.error("Null pointer exception while reading chunk {},{}; skipping chunk", chunkX, chunkZ, e);
                             return true;
                         } catch (ArrayIndexOutOfBoundsException e) {
-                            reportBuilder.append("Array index out of bounds while reading chunk " + chunkX + "," + chunkZ + " (message: \"" + e.getMessage() + "\"); skipping chunk" + EOL);
+                            reportLines.add("Array index out of bounds while reading chunk " + chunkX + "," + chunkZ + " (message: \"" + e.getMessage() + "\"); skipping chunk" + EOL);
                             logger.error("Array index out of bounds while reading chunk {},{}; skipping chunk", chunkX, chunkZ, e);
                             return true;
                         }
@@ -477,7 +481,7 @@ public class JavaMapImporter extends MapImporter {
                                 || ((readOnlyOption == MAN_MADE) && (manMadeStructuresBelowGround || manMadeStructuresAboveGround))
                                 || ((readOnlyOption == MAN_MADE_ABOVE_GROUND) && manMadeStructuresAboveGround)
                                 || (readOnlyOption == ALL)) {
-                            dimension.setBitLayerValueAt(ReadOnly.INSTANCE, chunkX << 4, chunkZ << 4, true);
+                            tile.setBitLayerValue(ReadOnly.INSTANCE, tileOffsetX, tileOffsetY, true);
                         }
                     } catch (ProgressReceiver.OperationCancelled e) {
                         return false;
@@ -488,13 +492,16 @@ public class JavaMapImporter extends MapImporter {
 
                 @Override
                 public boolean chunkError(MinecraftCoords coords, String message) {
-                    reportBuilder.append("\"" + message + "\" while reading chunk " + coords.x + "," + coords.z + "; skipping chunk" + EOL);
+                    reportLines.add("\"" + message + "\" while reading chunk " + coords.x + "," + coords.z + "; skipping chunk" + EOL);
                     return true;
                 }
             })) {
                 throw new ProgressReceiver.OperationCancelled("Operation cancelled");
             }
+            dimension.addTiles(stagedTiles.values());
 
+            final StringBuilder reportBuilder = new StringBuilder();
+            reportLines.forEach(reportBuilder::append);
             if (! nonNativePlatformsEncountered.isEmpty()) {
                 if (reportBuilder.length() > 0) {
                     reportBuilder.insert(0, EOL + EOL);
@@ -578,6 +585,7 @@ public class JavaMapImporter extends MapImporter {
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(JavaMapImporter.class);
     private static final String EOL = System.getProperty("line.separator");
     private static final LongAttributeKey SEED = new LongAttributeKey("seed");
+    private static final int PROGRESS_INTERVAL = 64;
 
     static {
         TERRAIN_MAPPING.put(MC_STONE, Terrain.STONE);
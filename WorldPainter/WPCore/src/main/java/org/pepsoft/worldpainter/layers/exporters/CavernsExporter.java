@@ -15,6 +15,7 @@ import org.pepsoft.worldpainter.exporting.MinecraftWorld;
 import org.pepsoft.worldpainter.exporting.SecondPassLayerExporter;
 import org.pepsoft.worldpainter.layers.Caverns;
 import org.pepsoft.worldpainter.layers.Void;
+import org.pepsoft.worldpainter.util.LatticeNoise;
 
 import java.awt.*;
 import java.io.IOException;
@@ -36,6 +37,7 @@ import static org.pepsoft.worldpainter.exporting.SecondPassLayerExporter.Stage.C
 public class CavernsExporter extends AbstractCavesExporter<Caverns> implements SecondPassLayerExporter {
     public CavernsExporter(Dimension dimension, Platform platform, ExporterSettings settings) {
         super(dimension, platform, (settings instanceof CavernsSettings) ? ((CavernsSettings) settings) : new CavernsSettings(), Caverns.INSTANCE);
+        latticeNoise = ((CavernsSettings) super.settings).isInterpolateNoise() ? new LatticeNoise(perlinNoise, MEDIUM_BLOBS, SMALL_BLOBS, minHeight, maxHeight) : null;
     }
     
     @Override
@@ -61,6 +63,9 @@ public class CavernsExporter extends AbstractCavesExporter<Caverns> implements S
             final Chunk chunk = chunkSupplier.get();
             final int xOffset = (chunkX & 7) << 4;
             final int zOffset = (chunkZ & 7) << 4;
+            if (latticeNoise != null) {
+                latticeNoise.setChunk(tile.getX() * TILE_SIZE + xOffset, tile.getY() * TILE_SIZE + zOffset);
+            }
             setupForColumn(seed, tile, maxY, (settings.getWaterLevel() >= minHeight) ? settings.getWaterLevel() : minHeight - 1, glassCeiling,
                     surfaceBreaking, settings.isLeaveWater(), settings.isFloodWithLava()); // TODO shouldn't we at least reset the flags for every column?
             for (int x = 0; x < 16; x++) {
@@ -96,7 +101,7 @@ public class CavernsExporter extends AbstractCavesExporter<Caverns> implements S
                                 // Widen the caverns towards the bottom
                                 bias -= (minHeight + 5 - y) * 0.05f;
                             }
-                            final float cavernLikelyhood = perlinNoise.getPerlinNoise(worldX / MEDIUM_BLOBS, worldY / MEDIUM_BLOBS, y / SMALL_BLOBS) + 0.5f - bias;
+                            final float cavernLikelyhood = getNoise(x, z, worldX, worldY, y) + 0.5f - bias;
 //                            if ((x == 0) && (z == 0)) {
 //                                System.out.println(y + ": bias: " + bias + ", cavernLikelyHood: " + cavernLikelyhood);
 //                            }
@@ -131,6 +136,9 @@ public class CavernsExporter extends AbstractCavesExporter<Caverns> implements S
         visitChunksForLayerInAreaForEditing(minecraftWorld, layer, area, dimension, (tile, chunkX, chunkZ, chunkSupplier) -> {
             final int xOffsetInTile = (chunkX & 7) << 4;
             final int yOffsetInTile = (chunkZ & 7) << 4;
+            if (latticeNoise != null) {
+                latticeNoise.setChunk(tile.getX() * TILE_SIZE + xOffsetInTile, tile.getY() * TILE_SIZE + yOffsetInTile);
+            }
             for (int x = 0; x < 16; x++) {
                 for (int z = 0; z < 16; z++) {
                     final int xInTile = xOffsetInTile + x, yInTile = yOffsetInTile + z;
@@ -154,7 +162,7 @@ public class CavernsExporter extends AbstractCavesExporter<Caverns> implements S
                                 // Widen the caverns towards the bottom
                                 bias -= (minHeight + 5 - y) * 0.05f;
                             }
-                            final float cavernLikelyhood = perlinNoise.getPerlinNoise(worldX / MEDIUM_BLOBS, worldY / MEDIUM_BLOBS, y / SMALL_BLOBS) + 0.5f - bias;
+                            final float cavernLikelyhood = getNoise(x, z, worldX, worldY, y) + 0.5f - bias;
                             if (cavernLikelyhood > CAVERN_CHANCE) {
                                 decorateBlock(minecraftWorld, random, worldX, worldY, y);
                             }
@@ -167,7 +175,14 @@ public class CavernsExporter extends AbstractCavesExporter<Caverns> implements S
         return null;
     }
 
+    private float getNoise(int xInChunk, int zInChunk, int worldX, int worldY, int height) {
+        return (latticeNoise != null)
+                ? latticeNoise.getNoise(xInChunk, zInChunk, height)
+                : perlinNoise.getPerlinNoise(worldX / MEDIUM_BLOBS, worldY / MEDIUM_BLOBS, height / SMALL_BLOBS);
+    }
+
     private final PerlinNoise perlinNoise = new PerlinNoise(0);
+    private final LatticeNoise latticeNoise;
 //    private int lowestValueCavern = Integer.MAX_VALUE;
     
     private static final float CAVERN_CHANCE = 0.5f;
@@ -248,6 +263,18 @@ public class CavernsExporter extends AbstractCavesExporter<Caverns> implements S
             this.maximumLevel = maximumLevel;
         }
 
+        /**
+         * Whether to sample the cavern noise on a coarse lattice and interpolate it, rather than evaluating it for
+         * every block. This is much faster, but makes the caverns deviate slightly from those exported without it.
+         */
+        public boolean isInterpolateNoise() {
+            return interpolateNoise;
+        }
+
+        public void setInterpolateNoise(boolean interpolateNoise) {
+            this.interpolateNoise = interpolateNoise;
+        }
+
         public CaveDecorationSettings getCaveDecorationSettings() {
             return decorationSettings;
         }
@@ -289,6 +316,9 @@ public class CavernsExporter extends AbstractCavesExporter<Caverns> implements S
             if (this.maximumLevel != other.maximumLevel) {
                 return false;
             }
+            if (this.interpolateNoise != other.interpolateNoise) {
+                return false;
+            }
             if (! Objects.equals(this.decorationSettings, other.decorationSettings)) {
                 return false;
             }
@@ -306,6 +336,7 @@ public class CavernsExporter extends AbstractCavesExporter<Caverns> implements S
             hash = 29 * hash + (this.leaveWater ? 1 : 0);
             hash = 29 * hash + this.minimumLevel;
             hash = 29 * hash + this.maximumLevel;
+            hash = 29 * hash + (this.interpolateNoise ? 1 : 0);
             hash = 29 * hash + ((this.decorationSettings != null) ? this.decorationSettings.hashCode() : 0);
             return hash;
         }
@@ -336,7 +367,7 @@ public class CavernsExporter extends AbstractCavesExporter<Caverns> implements S
         }
 
         private int waterLevel = Integer.MIN_VALUE, cavernsEverywhereLevel;
-        private boolean floodWithLava, glassCeiling, surfaceBreaking, leaveWater = true;
+        private boolean floodWithLava, glassCeiling, surfaceBreaking, leaveWater = true, interpolateNoise;
         private int minimumLevel = Integer.MIN_VALUE, maximumLevel = Integer.MAX_VALUE;
         private CaveDecorationSettings decorationSettings = new CaveDecorationSettings();
         
@@ -12,8 +12,10 @@ import org.pepsoft.util.Version;
 import org.pepsoft.worldpainter.*;
 import org.pepsoft.worldpainter.exporting.AbstractLayerExporter;
 import org.pepsoft.worldpainter.exporting.FirstPassLayerExporter;
+import org.pepsoft.worldpainter.layers.Layer;
 import org.pepsoft.worldpainter.layers.Resources;
 import org.pepsoft.worldpainter.layers.Void;
+import org.pepsoft.worldpainter.util.LatticeNoise;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -65,6 +67,15 @@ public class ResourcesExporter extends AbstractLayerExporter<Resources> implemen
                 noiseGenerators[i].setSeed(dimension.getSeed() + seedOffsets[i]);
             }
         }
+        if (resourcesSettings.isInterpolateNoise()) {
+            latticeNoises = new LatticeNoise[this.activeMaterials.length];
+            for (int i = 0; i < this.activeMaterials.length; i++) {
+                final float scale = this.activeMaterials[i].isNamedOneOf(MC_DIRT, MC_GRAVEL) ? SMALL_BLOBS : TINY_BLOBS;
+                latticeNoises[i] = new LatticeNoise(noiseGenerators[i], scale, scale, minHeight, maxHeight);
+            }
+        } else {
+            latticeNoises = null;
+        }
     }
 
     @Override
@@ -78,17 +89,25 @@ public class ResourcesExporter extends AbstractLayerExporter<Resources> implemen
         final int xOffset = (chunk.getxPos() & 7) << 4;
         final int zOffset = (chunk.getzPos() & 7) << 4;
         final boolean coverSteepTerrain = dimension.isCoverSteepTerrain(), nether = (dimension.getAnchor().dim == DIM_NETHER);
+        if (latticeNoises != null) {
+            for (LatticeNoise latticeNoise: latticeNoises) {
+                latticeNoise.setChunk(tile.getX() * TILE_SIZE + xOffset, tile.getY() * TILE_SIZE + zOffset);
+            }
+        }
+        final int[] terrainHeights = new int[256], voids = new int[256], resourcesValues = new int[256];
+        tile.getColumns(xOffset, zOffset, 16, 16, terrainHeights, null, null, COLUMN_LAYERS, new int[][] {voids, resourcesValues});
 //        int[] counts = new int[256];
         for (int x = 0; x < 16; x++) {
             for (int z = 0; z < 16; z++) {
                 final int localX = xOffset + x, localY = zOffset + z;
                 final int worldX = tile.getX() * TILE_SIZE + localX, worldY = tile.getY() * TILE_SIZE + localY;
-                if (tile.getBitLayerValue(Void.INSTANCE, localX, localY)) {
+                final int index = x | (z << 4);
+                if (voids[index] != 0) {
                     continue;
                 }
-                final int resourcesValue = Math.max(minimumLevel, tile.getLayerValue(Resources.INSTANCE, localX, localY));
+                final int resourcesValue = Math.max(minimumLevel, resourcesValues[index]);
                 if (resourcesValue > 0) {
-                    final int terrainheight = tile.getIntHeight(localX, localY);
+                    final int terrainheight = terrainHeights[index];
                     final int topLayerDepth = dimension.getTopLayerDepth(worldX, worldY, terrainheight);
                     int subsurfaceMaxHeight = terrainheight - topLayerDepth;
                     if (coverSteepTerrain) {
@@ -112,9 +131,11 @@ public class ResourcesExporter extends AbstractLayerExporter<Resources> implemen
                             if ((chance <= 0.5f)
                                     && (y >= minLevels[i])
                                     && (y <= maxLevels[i])
-                                    && (activeMaterials[i].isNamedOneOf(MC_DIRT, MC_GRAVEL)
-                                        ? (noiseGenerators[i].getPerlinNoise(dirtX, dirtY, dirtZ) >= chance)
-                                        : (noiseGenerators[i].getPerlinNoise(dx, dy, dz) >= chance))) {
+                                    && ((latticeNoises != null)
+                                        ? (latticeNoises[i].getNoise(x, z, y) >= chance)
+                                        : (activeMaterials[i].isNamedOneOf(MC_DIRT, MC_GRAVEL)
+                                            ? (noiseGenerators[i].getPerlinNoise(dirtX, dirtY, dirtZ) >= chance)
+                                            : (noiseGenerators[i].getPerlinNoise(dx, dy, dz) >= chance)))) {
 //                                counts[oreType]++;
                                 final Material existingMaterial = chunk.getMaterial(x, y, z);
                                 if (existingMaterial.isNamed(MC_DEEPSLATE) && ORE_TO_DEEPSLATE_VARIANT.containsKey(activeMaterials[i].name)) {
@@ -144,9 +165,11 @@ public class ResourcesExporter extends AbstractLayerExporter<Resources> implemen
 
     private final Material[] activeMaterials;
     private final PerlinNoise[] noiseGenerators;
+    private final LatticeNoise[] latticeNoises;
     private final int[] minLevels, maxLevels;
     private final float[][] chances;
 
+    private static final Layer[] COLUMN_LAYERS = {Void.INSTANCE, Resources.INSTANCE};
     private static final Map<String, Material> ORE_TO_DEEPSLATE_VARIANT = ImmutableMap.of(
             MC_COAL_ORE, DEEPSLATE_COAL_ORE,
             MC_COPPER_ORE, DEEPSLATE_COPPER_ORE,
@@ -176,6 +199,19 @@ public class ResourcesExporter extends AbstractLayerExporter<Resources> implemen
             this.minimumLevel = minimumLevel;
         }
         
+        /**
+         * Whether to sample the noise for resources with larger blobs (dirt and gravel) on a coarse lattice and
+         * interpolate it, rather than evaluating it for every block. This is faster, but makes the blobs deviate
+         * slightly from those exported without it.
+         */
+        public boolean isInterpolateNoise() {
+            return interpolateNoise;
+        }
+
+        public void setInterpolateNoise(boolean interpolateNoise) {
+            this.interpolateNoise = interpolateNoise;
+        }
+
         public Set<Material> getMaterials() {
             return settings.keySet();
         }
@@ -385,6 +421,7 @@ public class ResourcesExporter extends AbstractLayerExporter<Resources> implemen
         
         private int minimumLevel = 8;
         private Map<Material, ResourceSettings> settings;
+        private boolean interpolateNoise;
         /** @deprecated */
         @Deprecated private Map<Integer, Integer> maxLevels = null;
         /** @deprecated */
@@ -26,6 +26,7 @@ import java.util.UUID;
 
 import static org.pepsoft.minecraft.Constants.*;
 import static org.pepsoft.minecraft.Material.AIR;
+import static org.pepsoft.worldpainter.FeatureFlags.QUEUE_BASED_PROPAGATION;
 import static org.pepsoft.worldpainter.Platform.Capability.NAME_BASED;
 import static org.pepsoft.worldpainter.Platform.Capability.WATERLOGGED_LEAVES;
 import static org.pepsoft.worldpainter.objects.WPObject.*;
@@ -173,9 +174,11 @@ public abstract class WPObjectExporter<L extends Layer> extends AbstractLayerExp
                         }
                         // Make sure each entity has a unique ID, otherwise
                         // Minecraft will see them all as duplicates and remove
-                        // them:
-                        entity.setUUID(UUID.randomUUID());
-                        world.addEntity(entityX, entityY, entityZ, entity);
+                        // them. Do this on a copy, to avoid modifying the
+                        // object, which may be shared between threads:
+                        final Entity entityCopy = entity.clone();
+                        entityCopy.setUUID(UUID.randomUUID());
+                        world.addEntity(entityX, entityY, entityZ, entityCopy);
                     }
                 }
             }
@@ -274,9 +277,11 @@ public abstract class WPObjectExporter<L extends Layer> extends AbstractLayerExp
                         }
                         // Make sure each entity has a unique ID, otherwise
                         // Minecraft will see them all as duplicates and remove
-                        // them:
-                        entity.setUUID(UUID.randomUUID());
-                        world.addEntity(entityX, entityY, entityZ, entity);
+                        // them. Do this on a copy, to avoid modifying the
+                        // object, which may be shared between threads:
+                        final Entity entityCopy = entity.clone();
+                        entityCopy.setUUID(UUID.randomUUID());
+                        world.addEntity(entityX, entityY, entityZ, entityCopy);
                     }
                 }
             }
@@ -603,7 +608,11 @@ public abstract class WPObjectExporter<L extends Layer> extends AbstractLayerExp
                 logger.trace("Recalculating light in " + blockPropertiesCalculator.getDirtyArea());
             }
             blockPropertiesCalculator.firstPass();
-            while (blockPropertiesCalculator.secondPass());
+            if (QUEUE_BASED_PROPAGATION) {
+                blockPropertiesCalculator.propagate();
+            } else {
+                while (blockPropertiesCalculator.secondPass());
+            }
             blockPropertiesCalculator.finalise();
         }
 
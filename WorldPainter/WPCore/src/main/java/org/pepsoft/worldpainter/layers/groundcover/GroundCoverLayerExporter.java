@@ -11,6 +11,7 @@ import org.pepsoft.worldpainter.Dimension;
 import org.pepsoft.worldpainter.*;
 import org.pepsoft.worldpainter.exporting.*;
 import org.pepsoft.worldpainter.heightMaps.NoiseHeightMap;
+import org.pepsoft.worldpainter.layers.Layer;
 
 import javax.vecmath.Point3i;
 import java.awt.*;
@@ -46,6 +47,7 @@ public class GroundCoverLayerExporter extends AbstractLayerExporter<GroundCoverL
             noiseHeightMap = null;
             noiseOffset = 0;
         }
+        columnLayers = new Layer[] {layer};
     }
     
     @Override
@@ -71,15 +73,16 @@ public class GroundCoverLayerExporter extends AbstractLayerExporter<GroundCoverL
             layeredMaterialAnchor = GroundCoverLayer.LayerAnchor.BEDROCK;
         }
         final boolean namedBlocks = platform.capabilities.contains(NAME_BASED);
+        final int[] terrainHeights = new int[256], values = new int[256];
+        tile.getColumns(xOffset, zOffset, 16, 16, terrainHeights, null, null, columnLayers, new int[][] {values});
         for (int x = 0; x < 16; x++) {
-            final int localX = xOffset + x;
             final int worldX = (chunk.getxPos() << 4) + x;
             for (int z = 0; z < 16; z++) {
-                final int localY = zOffset + z;
-                if (! tile.getBitLayerValue(layer, localX, localY)) {
+                final int index = x | (z << 4);
+                if (values[index] == 0) {
                     continue;
                 }
-                final int terrainheight = tile.getIntHeight(localX, localY);
+                final int terrainheight = terrainHeights[index];
                 final Material blockBelow = ((terrainheight >= minHeight) && (terrainheight < maxHeight)) ? chunk.getMaterial(x, terrainheight, z) : AIR;
                 if (blockBelow.empty || blockBelow.insubstantial) {
                     continue;
@@ -275,6 +278,7 @@ public class GroundCoverLayerExporter extends AbstractLayerExporter<GroundCoverL
     
     private final NoiseHeightMap noiseHeightMap;
     private final int noiseOffset;
+    private final Layer[] columnLayers;
     
     private static final long NOISE_SEED_OFFSET = 135101785L;
 }
\ No newline at end of file
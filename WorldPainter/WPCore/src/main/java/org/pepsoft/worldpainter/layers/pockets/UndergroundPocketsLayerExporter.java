@@ -10,6 +10,8 @@ import org.pepsoft.util.PerlinNoise;
 import org.pepsoft.worldpainter.*;
 import org.pepsoft.worldpainter.exporting.AbstractLayerExporter;
 import org.pepsoft.worldpainter.exporting.FirstPassLayerExporter;
+import org.pepsoft.worldpainter.layers.Layer;
+import org.pepsoft.worldpainter.layers.Void;
 
 import java.awt.image.BufferedImage;
 
@@ -29,6 +31,7 @@ public class UndergroundPocketsLayerExporter extends AbstractLayerExporter<Under
             biasedThresholds[i - 1] = PerlinNoise.getLevelForPromillage(MathUtils.clamp(0f, (float) (layer.getFrequency() * Math.pow(0.9, 8 - i)), 1000f));
         }
         scale = TINY_BLOBS * (layer.getScale() / 100.0);
+        columnLayers = new Layer[] {Void.INSTANCE, layer};
     }
 
     @Override
@@ -51,18 +54,21 @@ public class UndergroundPocketsLayerExporter extends AbstractLayerExporter<Under
         if (noiseGenerator.getSeed() != seed + seedOffset) {
             noiseGenerator.setSeed(seed + seedOffset);
         }
+        final int[] terrainHeights = new int[256], voids = new int[256], values = new int[256];
+        tile.getColumns(xOffset, yOffset, 16, 16, terrainHeights, null, null, columnLayers, new int[][] {voids, values});
         // Coordinates in chunk
         for (int x = 0; x < 16; x++) {
             for (int y = 0; y < 16; y++) {
                 // Coordinates in tile
                 final int localX = xOffset + x, localY = yOffset + y;
-                if (tile.getBitLayerValue(org.pepsoft.worldpainter.layers.Void.INSTANCE, localX, localY)) {
+                final int index = x | (y << 4);
+                if (voids[index] != 0) {
                     continue;
                 }
-                final int value = tile.getLayerValue(layer, localX, localY);
+                final int value = values[index];
                 if (value > 0) {
                     final float biasedThreshold = biasedThresholds[value - 1];
-                    final int terrainheight = tile.getIntHeight(localX, localY);
+                    final int terrainheight = terrainHeights[index];
                     // Coordinates in world
                     final int worldX = tile.getX() << TILE_SIZE_BITS | localX, worldY = tile.getY() << TILE_SIZE_BITS | localY;
                     int minZ = Math.max(minHeight + 1, minLevel);
@@ -214,4 +220,5 @@ public class UndergroundPocketsLayerExporter extends AbstractLayerExporter<Under
     private final float[] biasedThresholds = new float[15];
     private final long seedOffset;
     private final double scale;
+    private final Layer[] columnLayers;
 }
@@ -583,7 +583,7 @@ public class JavaWorldMerger extends JavaWorldExporter { // TODO can this be mad
                                                 logger.debug("Merged region " + regionCoords.x + "," + regionCoords.y);
                                             }
                                         } finally {
-                                            minecraftWorld.save(worldDir, dim);
+                                            minecraftWorld.save(worldDir, dim, getExportSettings(combined, platform));
                                         }
                                         synchronized (fixups) {
                                             if (! regionFixups.isEmpty()) {
@@ -592,7 +592,7 @@ public class JavaWorldMerger extends JavaWorldExporter { // TODO can this be mad
                                             exportedRegions.add(regionCoords);
                                         }
                                         try {
-                                            performFixupsIfNecessary(worldDir, combined, allRegionCoords, fixups, exportedRegions, stats, progressReceiver1);
+                                            performFixupsIfNecessary(worldDir, combined, allRegionCoords, fixups, exportedRegions, stats, null, progressReceiver1);
                                         } catch (InvalidMapException e) {
                                             throw createInvalidMapException(e.getMessage(), backupWorldDir);
                                         }
@@ -665,7 +665,7 @@ public class JavaWorldMerger extends JavaWorldExporter { // TODO can this be mad
                                         }
                                     } finally {
                                         if ((exportResults != null) && exportResults.chunksGenerated) {
-                                            minecraftWorld.save(worldDir, dim);
+                                            minecraftWorld.save(worldDir, dim, getExportSettings(combined, platform));
                                         }
                                     }
                                     synchronized (fixups) {
@@ -675,7 +675,7 @@ public class JavaWorldMerger extends JavaWorldExporter { // TODO can this be mad
                                         exportedRegions.add(regionCoords);
                                     }
                                     try {
-                                        performFixupsIfNecessary(worldDir, combined, allRegionCoords, fixups, exportedRegions, stats, progressReceiver1);
+                                        performFixupsIfNecessary(worldDir, combined, allRegionCoords, fixups, exportedRegions, stats, null, progressReceiver1);
                                     } catch (InvalidMapException e) {
                                         throw createInvalidMapException(e.getMessage(), backupWorldDir);
                                     }
@@ -727,6 +727,15 @@ public class JavaWorldMerger extends JavaWorldExporter { // TODO can this be mad
                     }
                 }
 
+                // The region files of the existing map have all been read now, so don't keep them open
+                try {
+                    for (DataType dataType: dataTypes) {
+                        RegionFileCache.clear(new File(backupDimensionDir, dataType.name().toLowerCase()));
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("I/O error while closing region files of existing map", e);
+                }
+
                 // It's possible for there to be fixups left, if thread A was performing fixups and thread B added new
                 // ones and then quit, or if regions were copied from the existing map
                 if (! abort.get()) {
@@ -737,7 +746,7 @@ public class JavaWorldMerger extends JavaWorldExporter { // TODO can this be mad
                                 progressReceiver.reset();
                             }
                             try {
-                                performFixups(worldDir, dimension, stats, (progressReceiver != null) ? new SubProgressReceiver(progressReceiver, 0.9f, 0.1f) : null, fixups);
+                                performFixups(worldDir, dimension, stats, null, (progressReceiver != null) ? new SubProgressReceiver(progressReceiver, 0.9f, 0.1f) : null, fixups);
                             } catch (InvalidMapException e) {
                                 throw createInvalidMapException(e.getMessage(), backupWorldDir);
                             }
@@ -931,19 +940,21 @@ public class JavaWorldMerger extends JavaWorldExporter { // TODO can this be mad
         // TODO: we used to do one extra ring of chunks here. Not sure why, perhaps we'll rediscover it...
         //  Edit: was it to get accurate lighting around the edges? NOTE: if we change this back we also need to re-
         //  instate multiple region file (by coordinates) support!
+        final Map<DataType, RegionFileCache.Handle> handles = new HashMap<>();
         final Map<DataType, RegionFile> regionFiles = new HashMap<>();
         final Set<DataType> dataTypes = platformProvider.getDataTypes(platform);
-        for (DataType dataType: dataTypes) {
-            RegionFile regionFile = platformProvider.getRegionFile(platform, oldRegionDir, dataType, regionCoords, true);
-            if (regionFile != null) {
-                regionFiles.put(dataType, regionFile);
-            }
-        }
-        if (! regionFiles.containsKey(REGION)) {
-            throw new IllegalStateException("No region files of type REGION found for coordinates " + regionCoords + " in " + oldRegionDir.getParent());
-        }
         final StringBuilder reportBuilder = new StringBuilder();
         try {
+            for (DataType dataType: dataTypes) {
+                final RegionFileCache.Handle handle = platformProvider.acquireRegionFile(platform, oldRegionDir, dataType, regionCoords, true);
+                if (handle != null) {
+                    handles.put(dataType, handle);
+                    regionFiles.put(dataType, handle.getRegionFile());
+                }
+            }
+            if (! regionFiles.containsKey(REGION)) {
+                throw new IllegalStateException("No region files of type REGION found for coordinates " + regionCoords + " in " + oldRegionDir.getParent());
+            }
             final int lowestChunkX = regionCoords.x << 5;
             final int highestChunkX = (regionCoords.x << 5) + 31;
             final int lowestChunkY = regionCoords.y << 5;
@@ -1052,8 +1063,8 @@ public class JavaWorldMerger extends JavaWorldExporter { // TODO can this be mad
                 }
             }
         } finally {
-            for (RegionFile regionFile: regionFiles.values()) {
-                regionFile.close();
+            for (RegionFileCache.Handle handle: handles.values()) {
+                handle.close();
             }
         }
         if (progressReceiver != null) {
@@ -1193,19 +1204,21 @@ public class JavaWorldMerger extends JavaWorldExporter { // TODO can this be mad
             progressReceiver.setMessage("Copying chunks unchanged");
         }
 
+        final Map<DataType, RegionFileCache.Handle> handles = new HashMap<>();
         final Map<DataType, RegionFile> regionFiles = new HashMap<>();
         final Set<DataType> dataTypes = platformProvider.getDataTypes(platform);
-        for (DataType dataType: dataTypes) {
-            RegionFile regionFile = platformProvider.getRegionFile(platform, oldRegionDir, dataType, regionCoords, true);
-            if (regionFile != null) {
-                regionFiles.put(dataType, regionFile);
-            }
-        }
-        if (! regionFiles.containsKey(REGION)) {
-            throw new IllegalStateException("No region files of type REGION found for coordinates " + regionCoords + " in " + oldRegionDir.getParent());
-        }
         final StringBuilder reportBuilder = new StringBuilder();
         try {
+            for (DataType dataType: dataTypes) {
+                final RegionFileCache.Handle handle = platformProvider.acquireRegionFile(platform, oldRegionDir, dataType, regionCoords, true);
+                if (handle != null) {
+                    handles.put(dataType, handle);
+                    regionFiles.put(dataType, handle.getRegionFile());
+                }
+            }
+            if (! regionFiles.containsKey(REGION)) {
+                throw new IllegalStateException("No region files of type REGION found for coordinates " + regionCoords + " in " + oldRegionDir.getParent());
+            }
             final int lowestChunkX = regionCoords.x << 5;
             final int highestChunkX = (regionCoords.x << 5) + 31;
             final int lowestChunkY = regionCoords.y << 5;
@@ -1260,8 +1273,8 @@ public class JavaWorldMerger extends JavaWorldExporter { // TODO can this be mad
                 }
             }
         } finally {
-            for (RegionFile regionFile: regionFiles.values()) {
-                regionFile.close();
+            for (RegionFileCache.Handle handle: handles.values()) {
+                handle.close();
             }
         }
         if (progressReceiver != null) {
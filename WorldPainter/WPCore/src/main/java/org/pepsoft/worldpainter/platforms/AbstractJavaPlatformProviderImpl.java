@@ -1,7 +1,9 @@
 package org.pepsoft.worldpainter.platforms;
 
 import org.jnbt.Tag;
+import org.pepsoft.minecraft.ChunkCodec;
 import org.pepsoft.minecraft.DataType;
+import org.pepsoft.minecraft.JNBTChunkCodec;
 import org.pepsoft.minecraft.NBTChunk;
 import org.pepsoft.worldpainter.exporting.PostProcessor;
 
@@ -40,4 +42,11 @@ abstract class AbstractJavaPlatformProviderImpl {
      * Get the post-processor for this platform.
      */
     abstract PostProcessor getPostProcessor();
+
+    /**
+     * Get the codec with which to read and write chunks for this platform.
+     */
+    ChunkCodec getChunkCodec() {
+        return JNBTChunkCodec.INSTANCE;
+    }
 }
\ No newline at end of file
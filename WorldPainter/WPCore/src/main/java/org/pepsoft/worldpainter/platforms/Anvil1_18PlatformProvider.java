@@ -1,15 +1,14 @@
 package org.pepsoft.worldpainter.platforms;
 
 import com.google.common.collect.ImmutableSet;
-import org.pepsoft.minecraft.DataType;
-import org.pepsoft.minecraft.MC118AnvilChunk;
-import org.pepsoft.minecraft.NBTChunk;
+import org.pepsoft.minecraft.*;
 import org.pepsoft.worldpainter.exporting.PostProcessor;
 
 import java.util.Set;
 
 import static org.pepsoft.minecraft.DataType.ENTITIES;
 import static org.pepsoft.minecraft.DataType.REGION;
+import static org.pepsoft.worldpainter.FeatureFlags.FAST_CHUNK_CODEC;
 
 final class Anvil1_18PlatformProvider extends AnvilPlatformProvider {
     @Override
@@ -27,5 +26,10 @@ final class Anvil1_18PlatformProvider extends AnvilPlatformProvider {
         return DATA_TYPES;
     }
 
+    @Override
+    ChunkCodec getChunkCodec() {
+        return FAST_CHUNK_CODEC ? MC118AnvilChunkCodec.INSTANCE : JNBTChunkCodec.INSTANCE;
+    }
+
     private static final Set<DataType> DATA_TYPES = ImmutableSet.of(REGION, ENTITIES);
 }
\ No newline at end of file
@@ -5,12 +5,17 @@
  */
 package org.pepsoft.worldpainter.platforms;
 
+import org.pepsoft.minecraft.ChunkCompression;
+import org.pepsoft.worldpainter.Platform;
 import org.pepsoft.worldpainter.exporting.BlockBasedExportSettings;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.Objects;
 
+import static java.util.zip.Deflater.BEST_COMPRESSION;
+import static java.util.zip.Deflater.DEFAULT_COMPRESSION;
+import static org.pepsoft.minecraft.ChunkCompression.DEFLATE;
 import static org.pepsoft.worldpainter.platforms.JavaExportSettings.FloatMode.DROP;
 import static org.pepsoft.worldpainter.platforms.JavaExportSettings.FloatMode.LEAVE_FLOATING;
 
@@ -33,6 +38,8 @@ public class JavaExportSettings extends BlockBasedExportSettings {
         removeFloatingLeaves = false;
         makeAllLeavesPersistent = false;
         leavePlants = false;
+        chunkCompression = DEFLATE;
+        compressionLevel = DEFAULT_COMPRESSION;
     }
 
     public JavaExportSettings(FloatMode waterMode, FloatMode lavaMode, FloatMode sandMode, FloatMode gravelMode, FloatMode cementNode, boolean flowWater, boolean flowLava, boolean calculateSkyLight, boolean calculateBlockLight, boolean calculateLeafDistance, boolean removeFloatingLeaves, boolean makeAllLeavesPersistent, boolean removePlants) {
@@ -55,6 +62,8 @@ public class JavaExportSettings extends BlockBasedExportSettings {
         this.removeFloatingLeaves = removeFloatingLeaves;
         this.makeAllLeavesPersistent = makeAllLeavesPersistent;
         this.leavePlants = ! removePlants;
+        chunkCompression = DEFLATE;
+        compressionLevel = DEFAULT_COMPRESSION;
     }
 
     public FloatMode getWaterMode() {
@@ -105,8 +114,49 @@ public class JavaExportSettings extends BlockBasedExportSettings {
         return makeAllLeavesPersistent;
     }
 
+    /**
+     * The compression scheme with which to store the chunks in the region files.
+     */
+    public ChunkCompression getChunkCompression() {
+        return chunkCompression;
+    }
+
+    /**
+     * The zlib compression level (0-9, or -1 for the default) with which to compress the chunks, if the compression
+     * scheme supports levels.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
     public JavaExportSettings withMakeAllLeavesPersistent(final boolean makeAllLeavesPersistent) {
-        return new JavaExportSettings(waterMode, lavaMode, sandMode, gravelMode, cementMode, flowWater, flowLava, calculateSkyLight, calculateBlockLight, calculateLeafDistance, removeFloatingLeaves, makeAllLeavesPersistent, ! leavePlants);
+        final JavaExportSettings settings = new JavaExportSettings(waterMode, lavaMode, sandMode, gravelMode, cementMode, flowWater, flowLava, calculateSkyLight, calculateBlockLight, calculateLeafDistance, removeFloatingLeaves, makeAllLeavesPersistent, ! leavePlants);
+        settings.chunkCompression = chunkCompression;
+        settings.compressionLevel = compressionLevel;
+        return settings;
+    }
+
+    /**
+     * Create a copy of these settings with a different chunk compression scheme and level. Note that Minecraft only
+     * supports {@link ChunkCompression#NONE} from 1.15.1 and {@link ChunkCompression#LZ4} from 1.20.5. Exporting with
+     * a scheme which the platform does not support fails (see {@link ChunkCompression#isSupportedBy(Platform)}).
+     *
+     * @param chunkCompression The compression scheme with which to store the chunks in the region files.
+     * @param compressionLevel The zlib compression level (0-9, or -1 for the default). Ignored if the compression
+     *                         scheme does not support levels.
+     * @return A copy of these settings with the specified chunk compression.
+     */
+    public JavaExportSettings withChunkCompression(final ChunkCompression chunkCompression, final int compressionLevel) {
+        if (chunkCompression == null) {
+            throw new NullPointerException();
+        }
+        if ((compressionLevel < DEFAULT_COMPRESSION) || (compressionLevel > BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
+        }
+        final JavaExportSettings settings = new JavaExportSettings(waterMode, lavaMode, sandMode, gravelMode, cementMode, flowWater, flowLava, calculateSkyLight, calculateBlockLight, calculateLeafDistance, removeFloatingLeaves, makeAllLeavesPersistent, ! leavePlants);
+        settings.chunkCompression = chunkCompression;
+        settings.compressionLevel = compressionLevel;
+        return settings;
     }
 
     @Override
@@ -114,12 +164,12 @@ public class JavaExportSettings extends BlockBasedExportSettings {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         JavaExportSettings that = (JavaExportSettings) o;
-        return flowWater == that.flowWater && flowLava == that.flowLava && calculateSkyLight == that.calculateSkyLight && calculateBlockLight == that.calculateBlockLight && calculateLeafDistance == that.calculateLeafDistance && waterMode == that.waterMode && lavaMode == that.lavaMode && sandMode == that.sandMode && gravelMode == that.gravelMode && cementMode == that.cementMode && removeFloatingLeaves == that.removeFloatingLeaves && makeAllLeavesPersistent == that.makeAllLeavesPersistent && leavePlants == that.leavePlants;
+        return flowWater == that.flowWater && flowLava == that.flowLava && calculateSkyLight == that.calculateSkyLight && calculateBlockLight == that.calculateBlockLight && calculateLeafDistance == that.calculateLeafDistance && waterMode == that.waterMode && lavaMode == that.lavaMode && sandMode == that.sandMode && gravelMode == that.gravelMode && cementMode == that.cementMode && removeFloatingLeaves == that.removeFloatingLeaves && makeAllLeavesPersistent == that.makeAllLeavesPersistent && leavePlants == that.leavePlants && chunkCompression == that.chunkCompression && compressionLevel == that.compressionLevel;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(waterMode, lavaMode, sandMode, gravelMode, cementMode, flowWater, flowLava, calculateSkyLight, calculateBlockLight, calculateLeafDistance, removeFloatingLeaves, makeAllLeavesPersistent, leavePlants);
+        return Objects.hash(waterMode, lavaMode, sandMode, gravelMode, cementMode, flowWater, flowLava, calculateSkyLight, calculateBlockLight, calculateLeafDistance, removeFloatingLeaves, makeAllLeavesPersistent, leavePlants, chunkCompression, compressionLevel);
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -129,6 +179,10 @@ public class JavaExportSettings extends BlockBasedExportSettings {
             calculateBlockLight = true;
             calculateLeafDistance = true;
         }
+        if (version < 2) {
+            chunkCompression = DEFLATE;
+            compressionLevel = DEFAULT_COMPRESSION;
+        }
         version = CURRENT_VERSION;
     }
 
@@ -142,8 +196,10 @@ public class JavaExportSettings extends BlockBasedExportSettings {
     final boolean removeFloatingLeaves, makeAllLeavesPersistent;
     int version = CURRENT_VERSION;
     final boolean leavePlants;
+    ChunkCompression chunkCompression;
+    int compressionLevel;
 
-    private static final int CURRENT_VERSION = 1;
+    private static final int CURRENT_VERSION = 2;
     private static final long serialVersionUID = 1L;
 
     public enum FloatMode { DROP, SUPPORT, LEAVE_FLOATING }
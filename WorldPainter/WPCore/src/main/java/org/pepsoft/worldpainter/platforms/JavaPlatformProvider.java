@@ -57,6 +57,13 @@ public final class JavaPlatformProvider extends AbstractPlatformProvider impleme
         return implementations.get(platform).createChunk(tags, minHeight, maxHeight, readOnly);
     }
 
+    /**
+     * Get the codec with which to read and write chunks for a platform.
+     */
+    public ChunkCodec getChunkCodec(Platform platform) {
+        return implementations.get(platform).getChunkCodec();
+    }
+
     public File[] getRegionFiles(Platform platform, File regionDir, DataType dataType) {
         return implementations.get(platform).getRegionFiles(regionDir, dataType);
     }
@@ -82,6 +89,30 @@ public final class JavaPlatformProvider extends AbstractPlatformProvider impleme
         return file.isFile() ? new RegionFile(file, readOnly) : null;
     }
 
+    /**
+     * Acquire a region file from the {@link RegionFileCache}. If {@code readOnly} is false, a region file will be
+     * created if it does not exist. Otherwise, {@code null} will be returned if the region file does not exist. The
+     * region file is kept open until the returned handle is closed.
+     */
+    public RegionFileCache.Handle acquireRegionFile(Platform platform, File regionDir, DataType dataType, Point coords, boolean readOnly) throws IOException {
+        return RegionFileCache.acquireRegionFile(getRegionFileFile(platform, regionDir, dataType, coords), readOnly);
+    }
+
+    /**
+     * Acquire a region file from the {@link RegionFileCache}, if it exists. Otherwise, {@code null} will be returned.
+     * The region file is kept open until the returned handle is closed.
+     */
+    public RegionFileCache.Handle acquireRegionFileIfExists(Platform platform, File regionDir, DataType dataType, Point coords, boolean readOnly) throws IOException {
+        return RegionFileCache.acquireRegionFileIfExists(getRegionFileFile(platform, regionDir, dataType, coords), readOnly);
+    }
+
+    /**
+     * Get the location of a region file, whether it exists or not.
+     */
+    public File getRegionFileFile(Platform platform, File regionDir, DataType dataType, Point coords) {
+        return implementations.get(platform).getRegionFileFile(regionDir, dataType, coords);
+    }
+
     // BlockBasedPlatformProvider
 
     @Override
@@ -103,17 +134,18 @@ public final class JavaPlatformProvider extends AbstractPlatformProvider impleme
 
     @Override
     public JavaChunkStore getChunkStore(Platform platform, File worldDir, int dimension) {
-        ensurePlatformSupported(platform);
-        JavaLevel level;
-        File levelDatFile = new File(worldDir, "level.dat");
-        try {
-            level = JavaLevel.load(levelDatFile);
-        } catch (IOException e) {
-            throw new RuntimeException("I/O error while trying to read level.dat", e);
-        }
-        return new JavaChunkStore(platform, getRegionDir(worldDir, dimension), level.getMinHeight(), level.getMaxHeight());
+        return getChunkStore(platform, worldDir, dimension, false);
     }
 
+    /**
+     * Returns a {@link JavaChunkStore} in read only mode, which memory maps the region files.
+     */
+    @Override
+    public JavaChunkStore getReadOnlyChunkStore(Platform platform, File worldDir, int dimension) {
+        return getChunkStore(platform, worldDir, dimension, true);
+    }
+
+
     @Override
     public PostProcessor getPostProcessor(Platform platform) {
         return implementations.get(platform).getPostProcessor();
@@ -202,11 +234,19 @@ public final class JavaPlatformProvider extends AbstractPlatformProvider impleme
         return superReason;
     }
 
-    private File getRegionFileFile(Platform platform, File regionDir, DataType dataType, Point coords) {
-        return implementations.get(platform).getRegionFileFile(regionDir, dataType, coords);
+    @SuppressWarnings("ConstantConditions") // Yes, we just checked that
+    private JavaChunkStore getChunkStore(Platform platform, File worldDir, int dimension, boolean readOnly) {
+        ensurePlatformSupported(platform);
+        JavaLevel level;
+        File levelDatFile = new File(worldDir, "level.dat");
+        try {
+            level = JavaLevel.load(levelDatFile);
+        } catch (IOException e) {
+            throw new RuntimeException("I/O error while trying to read level.dat", e);
+        }
+        return new JavaChunkStore(platform, getRegionDir(worldDir, dimension), readOnly, level.getMinHeight(), level.getMaxHeight());
     }
 
-    @SuppressWarnings("ConstantConditions") // Yes, we just checked that
     private boolean containsFiles(File dir) {
         return dir.isDirectory() && (dir.listFiles().length > 0);
     }
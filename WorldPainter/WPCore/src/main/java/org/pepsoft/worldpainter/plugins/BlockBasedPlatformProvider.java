@@ -84,6 +84,26 @@ public interface BlockBasedPlatformProvider extends PlatformProvider {
      */
     ChunkStore getChunkStore(Platform platform, File worldDir, int dimension);
 
+    /**
+     * Obtain a {@link ChunkStore} which will only be used to read chunks, for a
+     * platform supported by this provider and for a specific map base directory
+     * and dimension number. Implementations may use a more efficient way of
+     * reading the files for such a chunk store.
+     *
+     * <p>The default implementation delegates to
+     * {@link #getChunkStore(Platform, File, int)}.
+     *
+     * @param platform The platform for which to provide a chunk store.
+     * @param worldDir The map base directory for which to provide a chunk
+     *                 store.
+     * @param dimension The dimension number for which to provide a chunk store.
+     * @return A chunk store which will read chunks in the appropriate format
+     *     for the specified dimension under the specified base directory.
+     */
+    default ChunkStore getReadOnlyChunkStore(Platform platform, File worldDir, int dimension) {
+        return getChunkStore(platform, worldDir, dimension);
+    }
+
     /**
      * Obtain a {@link PostProcessor} for a platform supported by this provider.
      *
@@ -47,6 +47,10 @@ public class PlatformManager extends AbstractProviderManager<Platform, PlatformP
         return ((BlockBasedPlatformProvider) getImplementation(platform)).getChunkStore(platform, worldDir, dimension);
     }
 
+    public ChunkStore getReadOnlyChunkStore(Platform platform, File worldDir, int dimension) {
+        return ((BlockBasedPlatformProvider) getImplementation(platform)).getReadOnlyChunkStore(platform, worldDir, dimension);
+    }
+
     public WorldExporter getExporter(World2 world, WorldExportSettings exportSettings) {
         return getImplementation(world.getPlatform()).getExporter(world, exportSettings);
     }
@@ -6,7 +6,7 @@ import org.pepsoft.worldpainter.UnloadableWorldException;
 import org.pepsoft.worldpainter.World2;
 import org.pepsoft.worldpainter.WorldIO;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.Set;
 
@@ -17,7 +17,7 @@ public class AnalyseMaterials extends AbstractTool {
         initialisePlatform();
 
         WorldIO worldIO = new WorldIO();
-        worldIO.load(new FileInputStream(args[0]));
+        worldIO.load(new File(args[0]));
         World2 world = worldIO.getWorld();
         Set<Material> materials = gatherAllMaterials(world, world.getPlatform());
         materials.forEach(System.out::println);
@@ -15,7 +15,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.cert.CertificateException;
 import java.util.LinkedList;
@@ -37,12 +36,9 @@ public class Export extends AbstractTool {
 
         File worldFile = new File(args[0]);
         logger.info("Loading " + worldFile);
-        World2 world;
-        try (FileInputStream in = new FileInputStream(worldFile)) {
-            WorldIO worldIO = new WorldIO();
-            worldIO.load(in);
-            world = worldIO.getWorld();
-        }
+        WorldIO worldIO = new WorldIO();
+        worldIO.load(worldFile);
+        World2 world = worldIO.getWorld();
 
         for (int i = 0; i < Terrain.CUSTOM_TERRAIN_COUNT; i++) {
             MixedMaterial material = world.getMixedMaterial(i);
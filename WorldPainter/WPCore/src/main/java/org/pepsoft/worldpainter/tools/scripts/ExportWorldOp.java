@@ -21,6 +21,7 @@ import org.pepsoft.util.ProgressReceiver;
 import org.pepsoft.worldpainter.MixedMaterial;
 import org.pepsoft.worldpainter.Terrain;
 import org.pepsoft.worldpainter.World2;
+import org.pepsoft.worldpainter.exporting.ExportReport;
 import org.pepsoft.worldpainter.exporting.JavaWorldExporter;
 import org.pepsoft.worldpainter.util.MinecraftUtil;
 
@@ -28,10 +29,12 @@ import java.io.File;
 import java.io.IOException;
 
 /**
+ * Export a world to a map. The result of the operation is a report of the time spent on each phase of the export,
+ * per dimension and per region, which is also stored as {@value ExportReport#FILE_NAME} in the map directory.
  *
  * @author SchmitzP
  */
-public class ExportWorldOp extends AbstractOperation<Void> {
+public class ExportWorldOp extends AbstractOperation<ExportReport> {
     public ExportWorldOp(ScriptingContext context, World2 world) throws ScriptException {
         super(context);
         if (world == null) {
@@ -53,7 +56,7 @@ public class ExportWorldOp extends AbstractOperation<Void> {
     }
     
     @Override
-    public Void go() throws ScriptException {
+    public ExportReport go() throws ScriptException {
         goCalled();
 
         // Load any custom materials defined in the world
@@ -73,14 +76,13 @@ public class ExportWorldOp extends AbstractOperation<Void> {
         
             // Export the world
             exporter.export(baseDir, world.getName(), backupDir, null);
+            return exporter.getExportReport();
         } catch (ProgressReceiver.OperationCancelled e) {
             // Can never happen since we don't pass a progress receiver in
             throw new InternalError();
         } catch (IOException e) {
             throw new ScriptException("I/O error while exporting world", e);
         }
-        
-        return null;
     }
     
     private final World2 world;
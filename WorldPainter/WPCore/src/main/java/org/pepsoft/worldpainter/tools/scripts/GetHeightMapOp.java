@@ -26,6 +26,7 @@ package org.pepsoft.worldpainter.tools.scripts;
 
 import org.pepsoft.worldpainter.HeightMap;
 import org.pepsoft.worldpainter.heightMaps.BitmapHeightMap;
+import org.pepsoft.worldpainter.heightMaps.TiledImageHeightMap;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -64,12 +65,26 @@ public class GetHeightMapOp extends AbstractOperation<HeightMap> {
         return this;
     }
 
+    /**
+     * Don't load the image into memory, but decode it piecemeal as it is accessed. Only advisable for image formats
+     * which support that efficiently, such as TIFF. This is done automatically for TIFF images which are too large to
+     * load into memory.
+     */
+    public GetHeightMapOp streaming() {
+        streaming = true;
+        return this;
+    }
+
     @Override
     public HeightMap go() throws ScriptException {
         goCalled();
 
         File file = sanityCheckFileName(fileName);
         try {
+            if (streaming || TiledImageHeightMap.isTooLargeToLoad(file)) {
+                // Don't load the image into memory, but decode it piecemeal as needed
+                return new TiledImageHeightMap(file.getName(), file, (channel == -1) ? 0 : channel);
+            }
             BufferedImage image = ImageIO.read(file);
             boolean greyscale = (image.getType() == BufferedImage.TYPE_BYTE_BINARY) || (image.getType() == BufferedImage.TYPE_BYTE_GRAY);
             if (channel == -1) {
@@ -80,6 +95,8 @@ public class GetHeightMapOp extends AbstractOperation<HeightMap> {
                 }
                 return BitmapHeightMap.build().withName(file.getName()).withImage(image).withChannel(channel).withFile(file).now();
             }
+        } catch (IllegalArgumentException e) {
+            throw new ScriptException("Unsupported image " + fileName + ": " + e.getMessage(), e);
         } catch (IOException e) {
             throw new ScriptException("I/O error while loading image " + fileName, e);
         }
@@ -87,4 +104,5 @@ public class GetHeightMapOp extends AbstractOperation<HeightMap> {
     
     private String fileName;
     private int channel = -1;
+    private boolean streaming;
 }
\ No newline at end of file
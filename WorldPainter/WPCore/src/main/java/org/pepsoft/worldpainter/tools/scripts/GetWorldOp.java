@@ -29,7 +29,6 @@ import org.pepsoft.worldpainter.World2;
 import org.pepsoft.worldpainter.WorldIO;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 
 /**
@@ -53,7 +52,7 @@ public class GetWorldOp extends AbstractOperation<World2> {
         File file = sanityCheckFileName(fileName);
         WorldIO worldIO = new WorldIO();
         try {
-            worldIO.load(new FileInputStream(file));
+            worldIO.load(file);
         } catch (IOException e) {
             throw new ScriptException("I/O error while loading world " + fileName, e);
         } catch (UnloadableWorldException e) {
@@ -27,7 +27,7 @@ package org.pepsoft.worldpainter.tools.scripts;
 import org.pepsoft.util.ProgressReceiver;
 import org.pepsoft.worldpainter.*;
 import org.pepsoft.worldpainter.heightMaps.BicubicHeightMap;
-import org.pepsoft.worldpainter.heightMaps.BitmapHeightMap;
+import org.pepsoft.worldpainter.heightMaps.ImageHeightMap;
 import org.pepsoft.worldpainter.heightMaps.TransformingHeightMap;
 import org.pepsoft.worldpainter.importing.HeightMapImporter;
 import org.pepsoft.worldpainter.themes.Theme;
@@ -48,7 +48,7 @@ public class ImportHeightMapOp extends AbstractOperation<World2> {
     }
 
     public ImportHeightMapOp fromHeightMap(HeightMap heightMap) {
-        this.heightMap = (BitmapHeightMap) heightMap;
+        this.heightMap = (ImageHeightMap) heightMap;
         return this;
     }
 
@@ -187,7 +187,7 @@ public class ImportHeightMapOp extends AbstractOperation<World2> {
     }
     
     private final HeightMapImporter importer = new HeightMapImporter();
-    private BitmapHeightMap heightMap;
+    private ImageHeightMap heightMap;
     private boolean fromLevelsSpecified, toLevelsSpecified;
     private int scale = 100, waterLevel = DEFAULT_WATER_LEVEL, offsetX, offsetY, lowerBuildLimit = Integer.MIN_VALUE, upperBuildLimit = Integer.MAX_VALUE;
     private Platform platform = Configuration.getInstance().getDefaultPlatform();
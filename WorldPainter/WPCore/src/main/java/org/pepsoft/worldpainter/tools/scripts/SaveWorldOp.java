@@ -27,10 +27,8 @@ package org.pepsoft.worldpainter.tools.scripts;
 import org.pepsoft.worldpainter.Configuration;
 import org.pepsoft.worldpainter.World2;
 import org.pepsoft.worldpainter.WorldIO;
-import org.pepsoft.worldpainter.util.BackupUtils;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 
 /**
@@ -67,25 +65,8 @@ public class SaveWorldOp extends AbstractOperation<Void> {
         
         try {
             Configuration config = Configuration.getInstance();
-            if ((config.getWorldFileBackups() > 0) && file.isFile()) {
-                for (int i = config.getWorldFileBackups(); i > 0; i--) {
-                    File nextBackupFile = (i > 1) ? BackupUtils.getBackupFile(file, i - 1) : file;
-                    if (nextBackupFile.isFile()) {
-                        File backupFile = BackupUtils.getBackupFile(file, i);
-                        if (backupFile.isFile()) {
-                            if (! backupFile.delete()) {
-                                throw new ScriptException("Could not delete old backup file " + backupFile);
-                            }
-                        }
-                        if (! nextBackupFile.renameTo(backupFile)) {
-                            throw new ScriptException("Could not move " + nextBackupFile + " to " + backupFile);
-                        }
-                    }
-                }
-            }
-
             WorldIO worldIO = new WorldIO(world);
-            worldIO.save(new FileOutputStream(file));
+            worldIO.save(file, config.getWorldFileBackups());
         } catch (IOException e) {
             throw new ScriptException("I/O error saving file (message: " + e.getMessage() + ")", e);
         }
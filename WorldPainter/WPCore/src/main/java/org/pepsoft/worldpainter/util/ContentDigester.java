@@ -0,0 +1,248 @@
+package org.pepsoft.worldpainter.util;
+
+import org.pepsoft.util.mdc.MDCCapturingRuntimeException;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.reflect.Modifier.isStatic;
+import static java.lang.reflect.Modifier.isTransient;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Calculates a SHA-256 digest of the contents of arbitrary object graphs, which is stable across WorldPainter sessions
+ * and Java versions, unlike a digest of the Java serialised form of the objects. Used to determine whether the inputs
+ * of an export have changed since a previous export.
+ *
+ * <p>Objects are digested structurally: the non-static, non-transient fields of WorldPainter and third party classes
+ * in name order, the elements of arrays and lists in order, and the elements of sets and the entries of maps in an
+ * order which does not depend on their iteration order. Enums are digested by name and other JDK classes by their
+ * string representation. Cycles and shared objects are supported.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public final class ContentDigester {
+    public ContentDigester() {
+        digest = createDigest();
+    }
+
+    /**
+     * Add the contents of an object to the digest.
+     *
+     * @param object The object to add. May be {@code null}.
+     * @return This digester.
+     */
+    public ContentDigester update(Object object) {
+        digest.update(digestOf(object));
+        return this;
+    }
+
+    /**
+     * Complete the digest. The digester is reset afterwards.
+     *
+     * @return The digest.
+     */
+    public byte[] digest() {
+        return digest.digest();
+    }
+
+    /**
+     * Complete the digest and return it as a string of hexadecimal digits. The digester is reset afterwards.
+     *
+     * @return The digest as a string of hexadecimal digits.
+     */
+    public String digestAsHex() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private byte[] digestOf(Object object) {
+        if (object == null) {
+            return NULL_DIGEST;
+        }
+        final byte[] existingDigest = digests.get(object);
+        if (existingDigest != null) {
+            return existingDigest;
+        }
+        final Integer ancestorDepth = objectsInProgress.get(object);
+        if (ancestorDepth != null) {
+            // A cycle; refer to the ancestor by its distance, which does not depend on where the traversal started
+            final MessageDigest cycleDigest = createDigest();
+            cycleDigest.update(ByteBuffer.allocate(4).putInt(objectsInProgress.size() - ancestorDepth).array());
+            return cycleDigest.digest();
+        }
+        final Class<?> type = object.getClass();
+        final MessageDigest objectDigest = createDigest();
+        objectDigest.update(type.getName().getBytes(UTF_8));
+        if (object instanceof Enum) {
+            objectDigest.update(((Enum<?>) object).name().getBytes(UTF_8));
+            return objectDigest.digest();
+        } else if (type.isArray() && type.getComponentType().isPrimitive()) {
+            objectDigest.update(primitiveArrayBytes(object));
+            return memoise(object, objectDigest.digest());
+        } else if (object instanceof BufferedImage) {
+            final BufferedImage image = (BufferedImage) object;
+            final int width = image.getWidth(), height = image.getHeight();
+            final ByteBuffer buffer = ByteBuffer.allocate(8 + width * height * 4);
+            buffer.putInt(width).putInt(height).asIntBuffer().put(image.getRGB(0, 0, width, height, null, 0, width));
+            objectDigest.update(buffer.array());
+            return memoise(object, objectDigest.digest());
+        } else if ((! type.isArray()) && (! (object instanceof Collection)) && (! (object instanceof Map)) && isJdkClass(type)) {
+            // A value type such as a string, number, colour or file. Classes which do not override toString() will
+            // include their identity hash code, which makes the digest change every session. That is safe, since it
+            // only means that nothing will be considered unchanged
+            objectDigest.update(object.toString().getBytes(UTF_8));
+            return objectDigest.digest();
+        }
+
+        objectsInProgress.put(object, objectsInProgress.size());
+        try {
+            if (type.isArray()) {
+                final int length = Array.getLength(object);
+                for (int i = 0; i < length; i++) {
+                    objectDigest.update(digestOf(Array.get(object, i)));
+                }
+            } else if (object instanceof Set) {
+                updateUnordered(objectDigest, ((Set<?>) object).stream().map(this::digestOf).toList());
+            } else if (object instanceof Collection) {
+                for (Object element: (Collection<?>) object) {
+                    objectDigest.update(digestOf(element));
+                }
+            } else if (object instanceof Map) {
+                final List<byte[]> entryDigests = new ArrayList<>(((Map<?, ?>) object).size());
+                for (Map.Entry<?, ?> entry: ((Map<?, ?>) object).entrySet()) {
+                    final MessageDigest entryDigest = createDigest();
+                    entryDigest.update(digestOf(entry.getKey()));
+                    entryDigest.update(digestOf(entry.getValue()));
+                    entryDigests.add(entryDigest.digest());
+                }
+                updateUnordered(objectDigest, entryDigests);
+            } else {
+                final List<Field> fields = getFields(type);
+                if (fields == null) {
+                    // Fall back to the string representation; see above
+                    objectDigest.update(object.toString().getBytes(UTF_8));
+                    return objectDigest.digest();
+                }
+                for (Field field: fields) {
+                    final Object value;
+                    try {
+                        value = field.get(object);
+                    } catch (IllegalAccessException e) {
+                        throw new MDCCapturingRuntimeException("Access denied to field " + field, e);
+                    }
+                    objectDigest.update(field.getName().getBytes(UTF_8));
+                    objectDigest.update(digestOf(value));
+                }
+            }
+        } finally {
+            objectsInProgress.remove(object);
+        }
+        return memoise(object, objectDigest.digest());
+    }
+
+    private byte[] memoise(Object object, byte[] objectDigest) {
+        digests.put(object, objectDigest);
+        return objectDigest;
+    }
+
+    /**
+     * Create a new SHA-256 message digest.
+     */
+    public static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new MDCCapturingRuntimeException("SHA-256 not supported", e);
+        }
+    }
+
+    private static void updateUnordered(MessageDigest digest, List<byte[]> elementDigests) {
+        final List<byte[]> sortedDigests = new ArrayList<>(elementDigests);
+        sortedDigests.sort(Arrays::compareUnsigned);
+        sortedDigests.forEach(digest::update);
+    }
+
+    private static byte[] primitiveArrayBytes(Object array) {
+        if (array instanceof byte[]) {
+            return (byte[]) array;
+        } else if (array instanceof short[]) {
+            final short[] values = (short[]) array;
+            final ByteBuffer buffer = ByteBuffer.allocate(values.length * 2);
+            buffer.asShortBuffer().put(values);
+            return buffer.array();
+        } else if (array instanceof char[]) {
+            final char[] values = (char[]) array;
+            final ByteBuffer buffer = ByteBuffer.allocate(values.length * 2);
+            buffer.asCharBuffer().put(values);
+            return buffer.array();
+        } else if (array instanceof int[]) {
+            final int[] values = (int[]) array;
+            final ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+            buffer.asIntBuffer().put(values);
+            return buffer.array();
+        } else if (array instanceof long[]) {
+            final long[] values = (long[]) array;
+            final ByteBuffer buffer = ByteBuffer.allocate(values.length * 8);
+            buffer.asLongBuffer().put(values);
+            return buffer.array();
+        } else if (array instanceof float[]) {
+            final float[] values = (float[]) array;
+            final ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+            buffer.asFloatBuffer().put(values);
+            return buffer.array();
+        } else if (array instanceof double[]) {
+            final double[] values = (double[]) array;
+            final ByteBuffer buffer = ByteBuffer.allocate(values.length * 8);
+            buffer.asDoubleBuffer().put(values);
+            return buffer.array();
+        } else {
+            final boolean[] values = (boolean[]) array;
+            final byte[] bytes = new byte[values.length];
+            for (int i = 0; i < values.length; i++) {
+                bytes[i] = values[i] ? (byte) 1 : (byte) 0;
+            }
+            return bytes;
+        }
+    }
+
+    private static boolean isJdkClass(Class<?> type) {
+        final String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.");
+    }
+
+    /**
+     * Get the non-static, non-transient fields of a class and its superclasses, in a stable order.
+     *
+     * @return The fields, or {@code null} if not all of them are accessible.
+     */
+    private static List<Field> getFields(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, t -> {
+            final List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null; c = c.getSuperclass()) {
+                for (Field field: c.getDeclaredFields()) {
+                    if ((! isStatic(field.getModifiers())) && (! isTransient(field.getModifiers()))) {
+                        if (! field.trySetAccessible()) {
+                            return null;
+                        }
+                        fields.add(field);
+                    }
+                }
+            }
+            fields.sort(Comparator.comparing((Field field) -> field.getDeclaringClass().getName()).thenComparing(Field::getName));
+            return fields;
+        });
+    }
+
+    private final MessageDigest digest;
+    private final Map<Object, byte[]> digests = new IdentityHashMap<>();
+    private final Map<Object, Integer> objectsInProgress = new IdentityHashMap<>();
+
+    private static final byte[] NULL_DIGEST = createDigest().digest();
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,123 @@
+package org.pepsoft.worldpainter.util;
+
+import org.pepsoft.util.PerlinNoise;
+
+import java.util.Arrays;
+
+/**
+ * Samples three dimensional {@link PerlinNoise} for the blocks of a chunk by evaluating it exactly on a coarse lattice
+ * and interpolating trilinearly in between, like Minecraft does for its own terrain noise. The lattice points are
+ * evaluated lazily, so only those around blocks which are actually sampled are calculated.
+ *
+ * <p>The spacing of the lattice is derived from the scale of the noise (see {@link #getLatticeSpacing(float)}), so that
+ * the deviation from the exact noise stays small. For noise with a scale so small that the spacing would be one block
+ * the noise is not interpolated at all, so the results are identical to evaluating the noise directly.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public final class LatticeNoise {
+    /**
+     * Create a new lattice noise sampler.
+     *
+     * @param noise The noise generator to sample. Its seed should be set before invoking {@link #setChunk(int, int)}.
+     * @param horizontalScale The scale by which to divide the horizontal coordinates before evaluating the noise.
+     * @param verticalScale The scale by which to divide the vertical coordinate before evaluating the noise.
+     * @param minHeight The lowest vertical coordinate which will be sampled.
+     * @param maxHeight The highest vertical coordinate which will be sampled, plus one.
+     */
+    public LatticeNoise(PerlinNoise noise, float horizontalScale, float verticalScale, int minHeight, int maxHeight) {
+        this.noise = noise;
+        this.horizontalScale = horizontalScale;
+        this.verticalScale = verticalScale;
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+        final int horizontalSpacing = Math.min(getLatticeSpacing(horizontalScale), 16), verticalSpacing = getLatticeSpacing(verticalScale);
+        horizontalShift = Integer.numberOfTrailingZeros(horizontalSpacing);
+        horizontalMask = horizontalSpacing - 1;
+        horizontalFactor = 1.0f / horizontalSpacing;
+        verticalShift = Integer.numberOfTrailingZeros(verticalSpacing);
+        verticalMask = verticalSpacing - 1;
+        verticalFactor = 1.0f / verticalSpacing;
+        exact = (horizontalSpacing == 1) && (verticalSpacing == 1);
+        latticeWidth = (16 >> horizontalShift) + 1;
+        values = exact ? null : new float[latticeWidth * latticeWidth * (((maxHeight - 1 - minHeight) >> verticalShift) + 2)];
+    }
+
+    /**
+     * Set the chunk to sample. Must be invoked before sampling the first chunk, and whenever a different chunk is to
+     * be sampled.
+     *
+     * @param x The world X coordinate of the north-west corner of the chunk.
+     * @param y The world Y coordinate (in WorldPainter coordinates) of the north-west corner of the chunk.
+     */
+    public void setChunk(int x, int y) {
+        chunkX = x;
+        chunkY = y;
+        if (values != null) {
+            Arrays.fill(values, Float.NaN);
+        }
+    }
+
+    /**
+     * Get the (possibly interpolated) noise value for a block in the current chunk.
+     *
+     * @param x The X coordinate of the block relative to the chunk (0-15).
+     * @param y The Y coordinate (in WorldPainter coordinates) of the block relative to the chunk (0-15).
+     * @param height The height of the block.
+     * @return The noise value at the specified block.
+     */
+    public float getNoise(int x, int y, int height) {
+        if (exact || (height < minHeight) || (height >= maxHeight)) {
+            return noise.getPerlinNoise((chunkX + x) / horizontalScale, (chunkY + y) / horizontalScale, height / verticalScale);
+        }
+        final int dx = x & horizontalMask, dy = y & horizontalMask, dz = (height - minHeight) & verticalMask;
+        final int ix = x >> horizontalShift, iy = y >> horizontalShift, iz = (height - minHeight) >> verticalShift;
+        float value = sampleColumn(ix, iy, iz, dz);
+        if (dx != 0) {
+            value += (sampleColumn(ix + 1, iy, iz, dz) - value) * (dx * horizontalFactor);
+        }
+        if (dy != 0) {
+            float value2 = sampleColumn(ix, iy + 1, iz, dz);
+            if (dx != 0) {
+                value2 += (sampleColumn(ix + 1, iy + 1, iz, dz) - value2) * (dx * horizontalFactor);
+            }
+            value += (value2 - value) * (dy * horizontalFactor);
+        }
+        return value;
+    }
+
+    private float sampleColumn(int ix, int iy, int iz, int dz) {
+        final float value = sample(ix, iy, iz);
+        return (dz != 0) ? (value + (sample(ix, iy, iz + 1) - value) * (dz * verticalFactor)) : value;
+    }
+
+    private float sample(int ix, int iy, int iz) {
+        final int index = (iz * latticeWidth + iy) * latticeWidth + ix;
+        float value = values[index];
+        if (Float.isNaN(value)) {
+            value = noise.getPerlinNoise((chunkX + (ix << horizontalShift)) / horizontalScale,
+                    (chunkY + (iy << horizontalShift)) / horizontalScale,
+                    (minHeight + (iz << verticalShift)) / verticalScale);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Get the lattice spacing used for noise of a particular scale. This is the largest power of two which is no
+     * larger than an eighth of the scale, with a maximum of eight blocks.
+     *
+     * @param scale The scale of the noise.
+     * @return The lattice spacing in blocks for noise of the specified scale.
+     */
+    public static int getLatticeSpacing(float scale) {
+        return Math.min(Integer.highestOneBit(Math.max((int) (scale / 8), 1)), 8);
+    }
+
+    private final PerlinNoise noise;
+    private final float horizontalScale, verticalScale, horizontalFactor, verticalFactor;
+    private final int minHeight, maxHeight, horizontalShift, horizontalMask, verticalShift, verticalMask, latticeWidth;
+    private final boolean exact;
+    private final float[] values;
+    private int chunkX, chunkY;
+}
@@ -0,0 +1,123 @@
+package org.pepsoft.minecraft;
+
+import org.jnbt.CompoundTag;
+import org.jnbt.IntTag;
+import org.jnbt.ListTag;
+import org.jnbt.Tag;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pepsoft.worldpainter.WPContext;
+import org.pepsoft.worldpainter.plugins.WPPluginManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.*;
+import static org.pepsoft.minecraft.Constants.*;
+import static org.pepsoft.minecraft.DataType.REGION;
+import static org.pepsoft.minecraft.Material.*;
+
+public class MC118AnvilChunkCodecTest {
+    @BeforeClass
+    public static void init() {
+        // Other tests in the same JVM may already have initialised the plugins
+        if (WPPluginManager.getInstance() == null) {
+            WPPluginManager.initialise(null, WPContext.INSTANCE);
+        }
+    }
+
+    @Test
+    public void testOutputIdentical() throws IOException {
+        final MC118AnvilChunk chunk = createChunk();
+        final byte[] expected = write(JNBTChunkCodec.INSTANCE, chunk);
+        assertArrayEquals(expected, write(MC118AnvilChunkCodec.INSTANCE, chunk));
+        // Writing using the regular path after the fast path should still work
+        assertArrayEquals(expected, write(JNBTChunkCodec.INSTANCE, chunk));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final byte[] data = write(JNBTChunkCodec.INSTANCE, createChunk());
+
+        // The chunk should be loaded exactly like it is by the regular path
+        final MC118AnvilChunk chunk = read(JNBTChunkCodec.INSTANCE, data), loadedChunk = read(MC118AnvilChunkCodec.INSTANCE, data);
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                for (int y = MIN_HEIGHT; y < MAX_HEIGHT; y++) {
+                    assertSame(chunk.getMaterial(x, y, z), loadedChunk.getMaterial(x, y, z));
+                    assertEquals(chunk.getSkyLightLevel(x, y, z), loadedChunk.getSkyLightLevel(x, y, z));
+                    assertEquals(chunk.getBlockLightLevel(x, y, z), loadedChunk.getBlockLightLevel(x, y, z));
+                }
+            }
+        }
+        for (int x = 0; x < 4; x++) {
+            for (int z = 0; z < 4; z++) {
+                for (int y = MIN_HEIGHT >> 2; y < MAX_HEIGHT >> 2; y++) {
+                    assertSame(chunk.getNamedBiome(x, y, z), loadedChunk.getNamedBiome(x, y, z));
+                }
+            }
+        }
+
+        // Saving a loaded chunk with either codec should produce the same data as the regular path
+        final byte[] expected = write(JNBTChunkCodec.INSTANCE, chunk);
+        assertArrayEquals(expected, write(MC118AnvilChunkCodec.INSTANCE, loadedChunk));
+        assertArrayEquals(expected, write(JNBTChunkCodec.INSTANCE, read(MC118AnvilChunkCodec.INSTANCE, data)));
+        assertArrayEquals(expected, write(MC118AnvilChunkCodec.INSTANCE, read(JNBTChunkCodec.INSTANCE, data)));
+    }
+
+    @Test
+    public void testOldChunkNotParsed() throws IOException {
+        final MC118AnvilChunk chunk = createChunk();
+        final CompoundTag tag = (CompoundTag) chunk.toMultipleNBT().get(REGION);
+        tag.setTag(TAG_DATA_VERSION, new IntTag(TAG_DATA_VERSION, DATA_VERSION_MC_1_17_1));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JNBTChunkCodec.INSTANCE.writeTag(tag, out);
+
+        // The sections should be returned as regular tags, since the chunk will not be loaded as an MC118AnvilChunk
+        final CompoundTag readTag = (CompoundTag) MC118AnvilChunkCodec.INSTANCE.readTag(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(readTag.getTag(TAG_SECTIONS_) instanceof ListTag);
+    }
+
+    private MC118AnvilChunk createChunk() {
+        final MC118AnvilChunk chunk = new MC118AnvilChunk(3, -5, MIN_HEIGHT, MAX_HEIGHT);
+        final Random random = new Random(0);
+        final Material[] materials = {STONE, DIRT, GRASS_BLOCK, WATER, Material.get(MC_OAK_LOG, MC_AXIS, "x"), AIR};
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                for (int y = MIN_HEIGHT; y < 80; y++) {
+                    chunk.setMaterial(x, y, z, (y < 0) ? Material.get("minecraft:deepslate") : materials[random.nextInt(materials.length)]);
+                }
+                for (int y = 60; y < 90; y++) {
+                    chunk.setSkyLightLevel(x, y, z, random.nextInt(16));
+                    chunk.setBlockLightLevel(x, y, z, random.nextInt(16));
+                }
+                chunk.setHeight(x, z, 80);
+            }
+        }
+        // Biomes are stored per 4x4x4 blocks
+        for (int x = 0; x < 4; x++) {
+            for (int z = 0; z < 4; z++) {
+                for (int y = MIN_HEIGHT >> 2; y < MAX_HEIGHT >> 2; y++) {
+                    chunk.setNamedBiome(x, y, z, (y < 8) ? MC_PLAINS : (random.nextBoolean() ? "minecraft:forest" : "minecraft:desert"));
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private byte[] write(ChunkCodec codec, MC118AnvilChunk chunk) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.writeTag(codec.toMultipleNBT(chunk).get(REGION), out);
+        return out.toByteArray();
+    }
+
+    private MC118AnvilChunk read(ChunkCodec codec, byte[] data) throws IOException {
+        final Tag tag = codec.readTag(new ByteArrayInputStream(data));
+        return new MC118AnvilChunk(singletonMap(REGION, (CompoundTag) tag), MIN_HEIGHT, MAX_HEIGHT);
+    }
+
+    private static final int MIN_HEIGHT = -64, MAX_HEIGHT = 320;
+}
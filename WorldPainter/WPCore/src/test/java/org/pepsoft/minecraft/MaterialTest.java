@@ -0,0 +1,61 @@
+package org.pepsoft.minecraft;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import static org.pepsoft.minecraft.Constants.*;
+import static org.pepsoft.minecraft.Material.*;
+
+public class MaterialTest {
+    @Test
+    public void testIdTables() {
+        for (Material material: new Material[] {AIR, STONE, WATER, GLOWSTONE, Material.get(MC_OAK_STAIRS, MC_WATERLOGGED, true), Material.get(MC_WATER, MC_LEVEL, 3)}) {
+            final int id = material.id;
+            assertSame(material, getById(id));
+            assertEquals(material.opacity, getOpacity(id));
+            assertEquals(material.blockLight, getBlockLight(id));
+            assertEquals(material.receivesLight, isReceivesLight(id));
+            assertEquals(material.containsWater(), containsWater(id));
+        }
+        for (Material material: getAllMaterials()) {
+            assertEquals(material.toString(), material.containsWater(), containsWater(material.id));
+        }
+    }
+
+    @Test
+    public void testConcurrentGet() throws InterruptedException, ExecutionException {
+        final int threads = 8, count = 10000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Material[]>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    final Material[] materials = new Material[count];
+                    for (int j = 0; j < count; j++) {
+                        materials[j] = Material.get("test:concurrent_" + j);
+                    }
+                    return materials;
+                }));
+            }
+            start.countDown();
+
+            // Every thread should have gotten the same instances, and each should have a unique ID
+            final Material[] expected = futures.get(0).get();
+            for (Future<Material[]> future: futures) {
+                assertArrayEquals(expected, future.get());
+            }
+            final Set<Integer> ids = new HashSet<>();
+            for (Material material: expected) {
+                assertTrue(ids.add(material.id));
+                assertSame(material, getById(material.id));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.pepsoft.minecraft;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import static org.pepsoft.minecraft.Constants.VERSION_ANVIL;
+
+public class RegionFileCacheTest {
+    @Before
+    public void setUp() throws IOException {
+        previousMaxOpenFiles = RegionFileCache.getMaxOpenFiles();
+        RegionFileCache.clear();
+        RegionFileCache.resetStatistics();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RegionFileCache.clear();
+        RegionFileCache.setMaxOpenFiles(previousMaxOpenFiles);
+    }
+
+    @Test
+    public void testLruEviction() throws IOException {
+        final File basePath = folder.getRoot();
+        RegionFileCache.setMaxOpenFiles(2);
+        final RegionFile region0 = getRegionFile(basePath, 0);
+        final RegionFile region1 = getRegionFile(basePath, 32);
+        assertSame(region0, getRegionFile(basePath, 0));
+        // Region 1 is now the least recently used
+        getRegionFile(basePath, 64);
+        assertEquals(2, RegionFileCache.getOpenFileCount());
+        assertSame(region0, getRegionFile(basePath, 0));
+        assertNotSame(region1, getRegionFile(basePath, 32));
+
+        assertEquals(2, RegionFileCache.getHitCount());
+        assertEquals(4, RegionFileCache.getMissCount());
+        assertEquals(2, RegionFileCache.getEvictionCount());
+        assertNull(RegionFileCache.acquireRegionFileIfExists(basePath, 96, 0, VERSION_ANVIL, true));
+    }
+
+    @Test
+    public void testClearDirectory() throws IOException {
+        final File basePath1 = folder.newFolder("world1"), basePath2 = folder.newFolder("world2");
+        getRegionFile(basePath1, 0);
+        getRegionFile(basePath2, 0);
+        try (RegionFileCache.Handle handle = RegionFileCache.acquireRegionFile(new File(basePath1, "region/r.1.0.mca"), false)) {
+            assertEquals(3, RegionFileCache.getOpenFileCount());
+            RegionFileCache.clear(new File(basePath1, "region"));
+            // Only the unused region file in the specified directory should have been closed
+            assertEquals(2, RegionFileCache.getOpenFileCount());
+            writeChunk(handle.getRegionFile(), 1);
+        }
+        try (RegionFileCache.Handle handle = RegionFileCache.acquireRegionFileIfExists(new File(basePath1, "region/r.1.0.mca"), true);
+                DataInputStream in = handle.getRegionFile().getChunkDataInputStream(0, 0)) {
+            assertEquals(1, in.readInt());
+        }
+        assertNull(RegionFileCache.acquireRegionFileIfExists(new File(basePath1, "region/r.2.0.mca"), false));
+    }
+
+    @Test
+    public void testInUseFilesAreNotClosed() throws IOException {
+        final File basePath = folder.getRoot();
+        RegionFileCache.setMaxOpenFiles(1);
+        try (RegionFileCache.Handle handle0 = RegionFileCache.acquireRegionFile(basePath, 0, 0, VERSION_ANVIL, false)) {
+            try (RegionFileCache.Handle handle1 = RegionFileCache.acquireRegionFile(basePath, 32, 0, VERSION_ANVIL, false)) {
+                // Both files are in use, so neither can be evicted
+                assertEquals(2, RegionFileCache.getOpenFileCount());
+                RegionFileCache.clear();
+                writeChunk(handle0.getRegionFile(), 0);
+                writeChunk(handle1.getRegionFile(), 1);
+            }
+            assertEquals(1, RegionFileCache.getOpenFileCount());
+            assertEquals(1, RegionFileCache.getEvictionCount());
+            writeChunk(handle0.getRegionFile(), 2);
+        }
+        try (DataInputStream in = RegionFileCache.getChunkDataInputStream(basePath, 0, 0, VERSION_ANVIL)) {
+            assertEquals(2, in.readInt());
+        }
+        try (DataInputStream in = RegionFileCache.getChunkDataInputStream(basePath, 32, 0, VERSION_ANVIL)) {
+            assertEquals(1, in.readInt());
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final File basePath = folder.getRoot();
+        RegionFileCache.setMaxOpenFiles(4);
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 1024; i++) {
+                final int chunkX = (i % 16) * 32 + (i / 16) % 32, chunkZ = i / 512;
+                final int value = i;
+                futures.add(executorService.submit(() -> {
+                    try (DataOutputStream out = RegionFileCache.getChunkDataOutputStream(basePath, chunkX, chunkZ, VERSION_ANVIL)) {
+                        out.writeInt(value);
+                    }
+                    try (DataInputStream in = RegionFileCache.getChunkDataInputStream(basePath, chunkX, chunkZ, VERSION_ANVIL)) {
+                        assertEquals(value, in.readInt());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future: futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        assertTrue(RegionFileCache.getOpenFileCount() <= 4);
+        assertTrue(RegionFileCache.getEvictionCount() > 0);
+    }
+
+    /**
+     * Get a region file without holding on to it, so that it is eligible for eviction.
+     */
+    private RegionFile getRegionFile(File basePath, int chunkX) throws IOException {
+        try (RegionFileCache.Handle handle = RegionFileCache.acquireRegionFile(basePath, chunkX, 0, VERSION_ANVIL, false)) {
+            return handle.getRegionFile();
+        }
+    }
+
+    private void writeChunk(RegionFile regionFile, int value) throws IOException {
+        try (DataOutputStream out = regionFile.getChunkDataOutputStream(0, 0)) {
+            out.writeInt(value);
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private int previousMaxOpenFiles;
+}
@@ -0,0 +1,213 @@
+package org.pepsoft.minecraft;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.Point;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.*;
+
+public class RegionFileTest {
+    @Test
+    public void testConcurrentWriteAndRead() throws Exception {
+        final File file = new File(folder.getRoot(), "r.0.0.mca");
+        final byte[][] expected = new byte[1024][];
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            try (RegionFile regionFile = new RegionFile(file)) {
+                // Write all chunks, then rewrite some of them with different sizes and delete some others
+                runConcurrently(executorService, index -> writeChunk(regionFile, index, expected, 0));
+                runConcurrently(executorService, index -> {
+                    if ((index % 3) == 0) {
+                        writeChunk(regionFile, index, expected, 1);
+                    } else if ((index % 7) == 0) {
+                        regionFile.delete(index & 31, index >> 5);
+                        expected[index] = null;
+                    }
+                });
+                runConcurrently(executorService, index -> assertChunk(regionFile, index, expected));
+            }
+            assertEquals(0, file.length() % 4096);
+
+            // In read only mode the file is memory mapped
+            try (RegionFile regionFile = new RegionFile(file, true)) {
+                runConcurrently(executorService, index -> assertChunk(regionFile, index, expected));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testWriteCompressedChunk() throws Exception {
+        for (ChunkCompression compression: ChunkCompression.values()) {
+            final File file = new File(folder.getRoot(), "r.0.0.mca");
+            final byte[][] expected = new byte[1024][];
+            try (RegionFile regionFile = new RegionFile(file)) {
+                // Compress the chunks concurrently, with pooled deflaters, and then write them in order
+                final ByteArrayOutputStream[] compressed = new ByteArrayOutputStream[1024];
+                final ExecutorService executorService = Executors.newFixedThreadPool(8);
+                try {
+                    runConcurrently(executorService, index -> {
+                        final Random random = new Random(index);
+                        final byte[] data = new byte[random.nextInt(20000)];
+                        // Compressible data this time
+                        Arrays.fill(data, 0, data.length / 2, (byte) index);
+                        compressed[index] = new ByteArrayOutputStream();
+                        try (DataOutputStream out = RegionFile.getCompressingOutputStream(compressed[index], compression, (index % 11) - 1)) {
+                            out.write(data);
+                        }
+                        expected[index] = data;
+                    });
+                } finally {
+                    executorService.shutdown();
+                }
+                for (int i = 0; i < 1024; i++) {
+                    regionFile.writeCompressedChunk(i & 31, i >> 5, compressed[i].toByteArray(), compressed[i].size(), compression);
+                }
+                for (int i = 0; i < 1024; i++) {
+                    assertChunk(regionFile, i, expected);
+                }
+            }
+            try (RegionFile regionFile = new RegionFile(file, true)) {
+                for (int i = 0; i < 1024; i++) {
+                    assertChunk(regionFile, i, expected);
+                }
+            }
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testMappedStreamOutlivesClose() throws Exception {
+        final File file = new File(folder.getRoot(), "r.0.0.mca");
+        final byte[][] expected = new byte[1024][];
+        try (RegionFile regionFile = new RegionFile(file)) {
+            writeChunk(regionFile, 0, expected, 0);
+            writeChunk(regionFile, 1, expected, 0);
+        }
+
+        // A stream opened before the file is closed should remain readable, but no new streams may be opened
+        final RegionFile regionFile = new RegionFile(file, true);
+        try (DataInputStream in = regionFile.getChunkDataInputStream(0, 0)) {
+            regionFile.close();
+            final byte[] actual = new byte[expected[0].length];
+            in.readFully(actual);
+            assertArrayEquals(expected[0], actual);
+        }
+        try {
+            regionFile.getChunkDataInputStream(1, 0);
+            fail("Closed region file allowed reading a chunk");
+        } catch (IOException e) {
+            // Expected
+        }
+        regionFile.close();
+    }
+
+    @Test
+    public void testExternalChunk() throws Exception {
+        final File file = new File(folder.getRoot(), "r.-1.2.mca");
+        final File externalFile = new File(folder.getRoot(), "c.-31.66.mcc");
+        // Too large to store in the region file, even compressed
+        final byte[][] expected = new byte[1024][];
+        final int index = 1 + (2 * 32);
+        expected[index] = new byte[2 * 1024 * 1024];
+        new Random(0).nextBytes(expected[index]);
+        try (RegionFile regionFile = new RegionFile(file)) {
+            try (DataOutputStream out = regionFile.getChunkDataOutputStream(1, 2)) {
+                out.write(expected[index]);
+            }
+            assertTrue(externalFile.isFile());
+            assertChunk(regionFile, index, expected);
+        }
+        assertTrue(file.length() < 1024 * 1024);
+        assertTrue(new File(folder.getRoot(), "c.x.y.mcc").createNewFile());
+        final Map<Point, List<File>> externalChunkFiles = RegionFile.getExternalChunkFiles(folder.getRoot());
+        assertEquals(singletonMap(new Point(-1, 2), singletonList(externalFile)), externalChunkFiles);
+        try (RegionFile regionFile = new RegionFile(file, true)) {
+            assertChunk(regionFile, index, expected);
+        }
+
+        // Rewriting the chunk with a normal size should remove the external file
+        try (RegionFile regionFile = new RegionFile(file)) {
+            writeChunk(regionFile, index, expected, 0);
+            assertFalse(externalFile.exists());
+            assertChunk(regionFile, index, expected);
+        }
+
+        // As should deleting it
+        try (RegionFile regionFile = new RegionFile(file)) {
+            regionFile.setCompression(ChunkCompression.NONE, -1);
+            try (DataOutputStream out = regionFile.getChunkDataOutputStream(1, 2)) {
+                out.write(new byte[1024 * 1024]);
+            }
+            assertTrue(externalFile.isFile());
+            regionFile.delete(1, 2);
+            assertFalse(externalFile.exists());
+        }
+    }
+
+    private void writeChunk(RegionFile regionFile, int index, byte[][] expected, int generation) throws IOException {
+        // Random (and therefore incompressible) data of varying sizes, to exercise the sector allocation
+        final Random random = new Random(index * 31L + generation);
+        final byte[] data = new byte[random.nextInt(20000)];
+        random.nextBytes(data);
+        try (DataOutputStream out = regionFile.getChunkDataOutputStream(index & 31, index >> 5)) {
+            out.write(data);
+        }
+        expected[index] = data;
+    }
+
+    private void assertChunk(RegionFile regionFile, int index, byte[][] expected) throws IOException {
+        final int x = index & 31, z = index >> 5;
+        if (expected[index] == null) {
+            assertFalse(regionFile.containsChunk(x, z));
+            assertNull(regionFile.getChunkDataInputStream(x, z));
+        } else {
+            assertTrue(regionFile.containsChunk(x, z));
+            try (DataInputStream in = regionFile.getChunkDataInputStream(x, z)) {
+                final byte[] actual = new byte[expected[index].length];
+                in.readFully(actual);
+                assertArrayEquals(expected[index], actual);
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    private void runConcurrently(ExecutorService executorService, ChunkTask task) throws Exception {
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            final int index = i;
+            futures.add(executorService.submit(() -> {
+                task.run(index);
+                return null;
+            }));
+        }
+        for (Future<?> future: futures) {
+            future.get();
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    interface ChunkTask {
+        void run(int index) throws Exception;
+    }
+}
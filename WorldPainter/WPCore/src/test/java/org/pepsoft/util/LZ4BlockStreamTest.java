@@ -0,0 +1,67 @@
+package org.pepsoft.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.*;
+
+public class LZ4BlockStreamTest {
+    @Test
+    public void testXXHash32() {
+        // Reference values of the XXHash32 specification
+        assertEquals(0x02CC5D05, LZ4.xxHash32(new byte[0], 0, 0, 0));
+        assertEquals(0x32D153FF, LZ4.xxHash32("abc".getBytes(US_ASCII), 0, 3, 0));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final Random random = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            // Cover empty data, data smaller than the minimum match length and data spanning multiple blocks; random,
+            // repetitive and incompressible
+            final byte[] data = new byte[(i < 10) ? i : random.nextInt(300000)];
+            final int alphabetSize = (i % 3 == 0) ? 256 : ((i % 3 == 1) ? 4 : 1);
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte) random.nextInt(alphabetSize);
+            }
+
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (LZ4BlockOutputStream out = new LZ4BlockOutputStream(compressed)) {
+                // Write in varying chunk sizes to exercise the buffering
+                int offset = 0;
+                while (offset < data.length) {
+                    final int length = Math.min(random.nextInt(100000) + 1, data.length - offset);
+                    out.write(data, offset, length);
+                    offset += length;
+                }
+            }
+            if (alphabetSize == 1) {
+                assertTrue(compressed.size() < (data.length / 100) + 100);
+            }
+
+            try (LZ4BlockInputStream in = new LZ4BlockInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+                assertArrayEquals(data, in.readAllBytes());
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptData() throws IOException {
+        final byte[] data = new byte[10000];
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (LZ4BlockOutputStream out = new LZ4BlockOutputStream(compressed)) {
+            out.write(data);
+        }
+        final byte[] bytes = compressed.toByteArray();
+        bytes[LZ4BlockOutputStream.HEADER_LENGTH + 1] ^= 0x55;
+        try (LZ4BlockInputStream in = new LZ4BlockInputStream(new ByteArrayInputStream(bytes))) {
+            in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.pepsoft.util;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class PackedArrayCubeTest {
+    @Test
+    public void testSetGetAndPack() {
+        for (int distinctValues: new int[] {1, 2, 3, 5, 16, 17, 300, 4096}) {
+            for (boolean straddleLongs: new boolean[] {false, true}) {
+                final Random random = new Random(distinctValues);
+                final PackedArrayCube<String> cube = new PackedArrayCube<>(16, 4, straddleLongs, String.class);
+                final String[] expected = new String[4096];
+                for (int i = 0; i < 20000; i++) {
+                    final int x = random.nextInt(16), y = random.nextInt(16), z = random.nextInt(16);
+                    final String value = (random.nextInt(10) == 0) ? null : ("value" + random.nextInt(distinctValues));
+                    cube.setValue(x, y, z, value);
+                    expected[x | (y << 4) | (z << 8)] = value;
+                }
+                assertValues(expected, cube);
+
+                final PackedArrayCube<String>.PackedData packedData = cube.pack();
+                // The palette should contain exactly the values in use, in order of first occurrence
+                final List<String> expectedPalette = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(expected)));
+                assertEquals(expectedPalette, Arrays.asList(packedData.palette));
+                final int wordSize = Math.max((int) Math.ceil(Math.log(expectedPalette.size()) / Math.log(2)), 4);
+                assertEquals(straddleLongs ? (64 * wordSize) : (4096 / (64 / wordSize) + (((4096 % (64 / wordSize)) == 0) ? 0 : 1)), packedData.data.length);
+
+                assertValues(expected, new PackedArrayCube<>(16, packedData.data, packedData.palette, 4, straddleLongs, String.class));
+            }
+        }
+    }
+
+    @Test
+    public void testSingleValue() {
+        final PackedArrayCube<String> cube = new PackedArrayCube<>(4, 1, false, String.class);
+        assertTrue(cube.isEmpty());
+        cube.fill("plains");
+        assertFalse(cube.isEmpty());
+        cube.setValue(1, 2, 3, "plains");
+        PackedArrayCube<String>.PackedData packedData = cube.pack();
+        assertArrayEquals(new String[] {"plains"}, packedData.palette);
+        assertArrayEquals(new long[1], packedData.data);
+
+        cube.setValue(1, 2, 3, "desert");
+        assertEquals("desert", cube.getValue(1, 2, 3));
+        assertEquals("plains", cube.getValue(3, 2, 1));
+        cube.setValue(1, 2, 3, "plains");
+        packedData = cube.pack();
+        assertArrayEquals(new String[] {"plains"}, packedData.palette);
+
+        cube.fill(null);
+        assertTrue(cube.isEmpty());
+        cube.setValue(0, 0, 0, "desert");
+        assertFalse(cube.isEmpty());
+        cube.setValue(0, 0, 0, null);
+        assertTrue(cube.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentModificationDetected() throws InterruptedException {
+        assumeTrue("Assertions are disabled", PackedArrayCube.class.desiredAssertionStatus());
+        final PackedArrayCube<Object> cube = new PackedArrayCube<>(16, 4, false, Object.class);
+        cube.setValue(0, 0, 0, "a");
+        final CountDownLatch modifying = new CountDownLatch(1), checked = new CountDownLatch(1);
+        // A value which blocks while it is being compared to the palette, i.e. while the cube is being modified
+        final Object blockingValue = new Object() {
+            @Override
+            public boolean equals(Object obj) {
+                modifying.countDown();
+                try {
+                    checked.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return false;
+            }
+        };
+        final Thread thread = new Thread(() -> cube.setValue(1, 0, 0, blockingValue));
+        thread.start();
+        try {
+            modifying.await();
+            try {
+                cube.setValue(2, 0, 0, "b");
+                fail("Concurrent modification not detected");
+            } catch (ConcurrentModificationException e) {
+                // Expected
+            }
+            try {
+                cube.getValue(0, 0, 0);
+                fail("Read during concurrent modification not detected");
+            } catch (ConcurrentModificationException e) {
+                // Expected
+            }
+        } finally {
+            checked.countDown();
+            thread.join();
+        }
+
+        // Once the other thread is done the cube may be modified again
+        cube.setValue(2, 0, 0, "b");
+        assertEquals("b", cube.getValue(2, 0, 0));
+        assertSame(blockingValue, cube.getValue(1, 0, 0));
+    }
+
+    private void assertValues(String[] expected, PackedArrayCube<String> cube) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(Integer.toString(i), expected[i], cube.getValue(i & 0xf, (i >> 4) & 0xf, i >> 8));
+        }
+    }
+}
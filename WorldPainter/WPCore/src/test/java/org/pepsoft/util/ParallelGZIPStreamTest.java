@@ -0,0 +1,84 @@
+package org.pepsoft.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+import static org.pepsoft.util.ParallelGZIPOutputStream.BLOCK_SIZE;
+
+public class ParallelGZIPStreamTest {
+    @Test
+    public void testRoundTrip() throws IOException {
+        final Random random = new Random(0);
+        for (int i = 0; i < 30; i++) {
+            // Cover empty data, data smaller than one block and data spanning multiple blocks; random, repetitive and
+            // incompressible
+            final byte[] data = new byte[(i < 5) ? i : random.nextInt(BLOCK_SIZE * 3)];
+            final int alphabetSize = (i % 3 == 0) ? 256 : ((i % 3 == 1) ? 4 : 1);
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte) random.nextInt(alphabetSize);
+            }
+
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (ParallelGZIPOutputStream out = new ParallelGZIPOutputStream(compressed, 3)) {
+                // Write in varying chunk sizes, with the occasional flush, to exercise the buffering
+                int offset = 0;
+                while (offset < data.length) {
+                    final int length = Math.min(random.nextInt(400000) + 1, data.length - offset);
+                    out.write(data, offset, length);
+                    offset += length;
+                    if (random.nextInt(10) == 0) {
+                        out.flush();
+                    }
+                }
+                if (data.length > 0) {
+                    out.write(data[0]);
+                }
+            }
+            if (alphabetSize == 1) {
+                assertTrue(compressed.size() < (data.length / 100) + 100);
+            }
+
+            final byte[] expected = new byte[(data.length > 0) ? (data.length + 1) : 0];
+            System.arraycopy(data, 0, expected, 0, data.length);
+            if (data.length > 0) {
+                expected[data.length] = data[0];
+            }
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+                assertArrayEquals(expected, in.readAllBytes());
+                assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    @Test
+    public void testCompressionRatio() throws IOException {
+        // Using the preceding block as dictionary should keep the output close to that of a single threaded stream
+        final Random random = new Random(0);
+        final byte[] data = new byte[BLOCK_SIZE * 4];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + (random.nextInt(16) * random.nextInt(16)) % 26);
+        }
+        final ByteArrayOutputStream parallel = new ByteArrayOutputStream(), sequential = new ByteArrayOutputStream();
+        try (ParallelGZIPOutputStream out = new ParallelGZIPOutputStream(parallel)) {
+            out.write(data);
+        }
+        try (GZIPOutputStream out = new GZIPOutputStream(sequential)) {
+            out.write(data);
+        }
+        assertTrue(parallel.size() < sequential.size() * 1.01);
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteAfterClose() throws IOException {
+        final ParallelGZIPOutputStream out = new ParallelGZIPOutputStream(new ByteArrayOutputStream());
+        out.close();
+        out.write(0);
+    }
+}
@@ -0,0 +1,119 @@
+package org.pepsoft.worldpainter;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pepsoft.worldpainter.heightMaps.ConstantHeightMap;
+import org.pepsoft.worldpainter.layers.Caverns;
+import org.pepsoft.worldpainter.layers.Frost;
+import org.pepsoft.worldpainter.plugins.WPPluginManager;
+import org.pepsoft.worldpainter.themes.SimpleTheme;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE;
+import static org.pepsoft.worldpainter.Dimension.Anchor.NORMAL_DETAIL;
+
+public class ScaledDimensionTest {
+    @BeforeClass
+    public static void init() {
+        // Other tests in the same JVM may already have initialised the plugins
+        if (WPPluginManager.getInstance() == null) {
+            WPPluginManager.initialise(null, WPContext.INSTANCE);
+        }
+    }
+
+    @Test
+    public void testMaterialisedTiles() {
+        final Dimension dimension = createDimension();
+        final ScaledDimension scaledDimension = new ScaledDimension(dimension, 16.0f);
+        final ScalingHelper scalingHelper = new ScalingHelper(dimension.tiles, dimension.getTileFactory(), 16.0f);
+        assertEquals(scalingHelper.getTileCoords().size(), scaledDimension.getTileCount());
+        assertTrue(scaledDimension.isTilePresent(3, 5));
+        assertFalse(scaledDimension.isTilePresent(-1, 0));
+        assertNull(scaledDimension.getTile(-1, 0));
+
+        // The tile should be materialised once and then served from the cache
+        final Tile tile = scaledDimension.getTile(3, 5);
+        assertSame(tile, scaledDimension.getTile(3, 5));
+        assertTileEquals(scalingHelper.createScaledTile(3, 5), tile);
+
+        // Point queries should be answered from the materialised tile
+        for (int x = 3 * TILE_SIZE; x < 4 * TILE_SIZE; x += 7) {
+            for (int y = 5 * TILE_SIZE; y < 6 * TILE_SIZE; y += 7) {
+                final int xInTile = x % TILE_SIZE, yInTile = y % TILE_SIZE;
+                assertEquals(tile.getHeight(xInTile, yInTile), scaledDimension.getHeightAt(x, y), 0.0f);
+                assertEquals(tile.getWaterLevel(xInTile, yInTile), scaledDimension.getWaterLevelAt(x, y));
+                assertEquals(tile.getLayerValue(Caverns.INSTANCE, xInTile, yInTile), scaledDimension.getLayerValueAt(Caverns.INSTANCE, x, y));
+                assertEquals(tile.getBitLayerValue(Frost.INSTANCE, xInTile, yInTile), scaledDimension.getBitLayerValueAt(Frost.INSTANCE, x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException, ExecutionException {
+        final Dimension dimension = createDimension();
+        final ScaledDimension scaledDimension = new ScaledDimension(dimension, 16.0f);
+        final ScalingHelper scalingHelper = new ScalingHelper(dimension.tiles, dimension.getTileFactory(), 16.0f);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int tileX = 0; tileX < 4; tileX++) {
+                        for (int tileY = 0; tileY < 4; tileY++) {
+                            assertNotNull(scaledDimension.getTile(new Point(tileX, tileY)));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future: futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int tileX = 0; tileX < 4; tileX++) {
+            for (int tileY = 0; tileY < 4; tileY++) {
+                assertTileEquals(scalingHelper.createScaledTile(tileX, tileY), scaledDimension.getTile(tileX, tileY));
+            }
+        }
+    }
+
+    private Dimension createDimension() {
+        final Platform platform = DefaultPlugin.JAVA_ANVIL_1_19;
+        final int minHeight = platform.minZ, maxHeight = platform.standardMaxHeight;
+        final TileFactory tileFactory = new HeightMapTileFactory(0L, new ConstantHeightMap(62), minHeight, maxHeight, false,
+                SimpleTheme.createSingleTerrain(Terrain.GRASS, minHeight, maxHeight, 62));
+        final World2 world = new World2(platform, 0L, tileFactory);
+        final Dimension dimension = world.getDimension(NORMAL_DETAIL);
+        final Tile tile = tileFactory.createTile(0, 0);
+        for (int x = 0; x < TILE_SIZE; x++) {
+            for (int y = 0; y < TILE_SIZE; y++) {
+                tile.setHeight(x, y, 40 + ((x * 7 + y * 3) % 50));
+                tile.setWaterLevel(x, y, 50 + (x % 10));
+                if ((x % 5) == 0) {
+                    tile.setBitLayerValue(Frost.INSTANCE, x, y, true);
+                }
+                tile.setLayerValue(Caverns.INSTANCE, x, y, (x + y) % 16);
+            }
+        }
+        dimension.addTile(tile);
+        return dimension;
+    }
+
+    private void assertTileEquals(Tile expected, Tile actual) {
+        for (int x = 0; x < TILE_SIZE; x++) {
+            for (int y = 0; y < TILE_SIZE; y++) {
+                assertEquals(expected.getHeight(x, y), actual.getHeight(x, y), 0.0f);
+                assertEquals(expected.getWaterLevel(x, y), actual.getWaterLevel(x, y));
+                assertEquals(expected.getTerrain(x, y), actual.getTerrain(x, y));
+                assertEquals(expected.getBitLayerValue(Frost.INSTANCE, x, y), actual.getBitLayerValue(Frost.INSTANCE, x, y));
+                assertEquals(expected.getLayerValue(Caverns.INSTANCE, x, y), actual.getLayerValue(Caverns.INSTANCE, x, y));
+            }
+        }
+    }
+}
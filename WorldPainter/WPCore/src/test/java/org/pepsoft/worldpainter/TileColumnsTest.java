@@ -0,0 +1,73 @@
+package org.pepsoft.worldpainter;
+
+import org.junit.Test;
+import org.pepsoft.worldpainter.layers.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE;
+
+public class TileColumnsTest {
+    @Test
+    public void testGetColumns() {
+        // One tile with the compact and one with the tall storage format
+        assertColumnsEqual(createTile(0, 256));
+        assertColumnsEqual(createTile(-64, 320));
+    }
+
+    @Test
+    public void testGetColumnsOverridingTile() {
+        final Tile tile = new RODelegatingTile(createTile(-64, 320)) {
+            @Override
+            public int getIntHeight(int x, int y) {
+                return tile.getIntHeight(x, y) + 1;
+            }
+        };
+        assertColumnsEqual(tile);
+    }
+
+    private Tile createTile(int minHeight, int maxHeight) {
+        final Tile tile = new Tile(2, -3, minHeight, maxHeight);
+        final Terrain[] terrains = Terrain.values();
+        for (int x = 0; x < TILE_SIZE; x++) {
+            for (int y = 0; y < TILE_SIZE; y++) {
+                tile.setHeight(x, y, minHeight + 10 + ((x * 7 + y * 3) % 100) + (x % 4) * 0.25f);
+                tile.setWaterLevel(x, y, minHeight + 50 + (y % 10));
+                tile.setTerrain(x, y, terrains[(x + y * 3) % 20]);
+                if (((x + y) % 3) == 0) {
+                    tile.setBitLayerValue(Frost.INSTANCE, x, y, true);
+                }
+                tile.setLayerValue(Caverns.INSTANCE, x, y, (x * y) % 16);
+                if ((x % 2) == 0) {
+                    tile.setLayerValue(Biome.INSTANCE, x, y, y);
+                }
+            }
+        }
+        tile.setBitLayerValue(ReadOnly.INSTANCE, 16, 32, true);
+        return tile;
+    }
+
+    private void assertColumnsEqual(Tile tile) {
+        final Layer[] layers = {Frost.INSTANCE, Caverns.INSTANCE, Biome.INSTANCE, ReadOnly.INSTANCE, Resources.INSTANCE};
+        // A chunk, an unaligned block straddling several chunks, and the whole tile
+        for (int[] block: new int[][] {{16, 32, 16, 16}, {5, 9, 37, 21}, {0, 0, TILE_SIZE, TILE_SIZE}}) {
+            final int x = block[0], y = block[1], width = block[2], height = block[3], size = width * height;
+            final int[] intHeights = new int[size], waterLevels = new int[size];
+            final Terrain[] terrains = new Terrain[size];
+            final int[][] layerValues = new int[layers.length][size];
+            tile.getColumns(x, y, width, height, intHeights, waterLevels, terrains, layers, layerValues);
+            for (int dx = 0; dx < width; dx++) {
+                for (int dy = 0; dy < height; dy++) {
+                    final int index = dx + dy * width;
+                    assertEquals(tile.getIntHeight(x + dx, y + dy), intHeights[index]);
+                    assertEquals(tile.getWaterLevel(x + dx, y + dy), waterLevels[index]);
+                    assertEquals(tile.getTerrain(x + dx, y + dy), terrains[index]);
+                    assertEquals(tile.getBitLayerValue(Frost.INSTANCE, x + dx, y + dy) ? 1 : 0, layerValues[0][index]);
+                    assertEquals(tile.getLayerValue(Caverns.INSTANCE, x + dx, y + dy), layerValues[1][index]);
+                    assertEquals(tile.getLayerValue(Biome.INSTANCE, x + dx, y + dy), layerValues[2][index]);
+                    assertEquals(tile.getBitLayerValue(ReadOnly.INSTANCE, x + dx, y + dy) ? 1 : 0, layerValues[3][index]);
+                    assertEquals(tile.getLayerValue(Resources.INSTANCE, x + dx, y + dy), layerValues[4][index]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.pepsoft.worldpainter;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TileIndexTest {
+    @Test
+    public void testPutGetRemove() {
+        final Random random = new Random(0);
+        final TileIndex index = new TileIndex();
+        final Map<Point, Tile> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            // Cluster the coordinates around the origin so that there are plenty of collisions and re-adds
+            final int x = random.nextInt(64) - 32, y = random.nextInt(64) - 32;
+            final Point coords = new Point(x, y);
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(coords), index.remove(x, y));
+            } else {
+                final Tile tile = new Tile(x, y, 0, 256, false);
+                expected.put(coords, tile);
+                index.put(tile);
+            }
+            if ((i % 1000) == 0) {
+                assertContents(expected, index);
+            }
+        }
+        assertContents(expected, index);
+
+        // Extreme coordinates
+        final Tile tile = new Tile(Integer.MAX_VALUE, Integer.MIN_VALUE, 0, 256, false);
+        index.put(tile);
+        assertSame(tile, index.get(Integer.MAX_VALUE, Integer.MIN_VALUE));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.get(0, 0));
+    }
+
+    @Test
+    public void testConcurrentReads() throws InterruptedException {
+        final TileIndex index = new TileIndex();
+        final Tile permanentTile = new Tile(0, 0, 0, 256, false);
+        index.put(permanentTile);
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final Thread reader = new Thread(() -> {
+            while (! done.get()) {
+                if (index.get(0, 0) != permanentTile) {
+                    failure.set("Permanent tile not found");
+                }
+                final Tile tile = index.get(5, 7);
+                if ((tile != null) && ((tile.getX() != 5) || (tile.getY() != 7))) {
+                    failure.set("Wrong tile returned");
+                }
+            }
+        });
+        reader.start();
+        try {
+            // Grow and rehash the table repeatedly while the reader is reading
+            for (int round = 0; round < 20; round++) {
+                for (int x = 1; x < 40; x++) {
+                    for (int y = 1; y < 40; y++) {
+                        index.put(new Tile(x, y, 0, 256, false));
+                    }
+                }
+                for (int x = 1; x < 40; x++) {
+                    for (int y = 1; y < 40; y++) {
+                        index.remove(x, y);
+                    }
+                }
+            }
+        } finally {
+            done.set(true);
+            reader.join();
+        }
+        assertNull(failure.get());
+    }
+
+    private void assertContents(Map<Point, Tile> expected, TileIndex index) {
+        assertEquals(expected.size(), index.size());
+        for (int x = -33; x < 33; x++) {
+            for (int y = -33; y < 33; y++) {
+                assertSame(expected.get(new Point(x, y)), index.get(x, y));
+                assertEquals(expected.containsKey(new Point(x, y)), index.contains(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.pepsoft.worldpainter;
+
+import org.junit.Test;
+import org.pepsoft.util.undo.UndoManager;
+import org.pepsoft.worldpainter.layers.Caves;
+import org.pepsoft.worldpainter.layers.Frost;
+import org.pepsoft.worldpainter.layers.PineForest;
+import org.pepsoft.worldpainter.layers.Void;
+
+import static org.junit.Assert.*;
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE;
+
+public class TileUndoTest {
+    @Test
+    public void testLayerDataUndoRedo() {
+        final Tile tile = new Tile(0, 0, 0, 256);
+        final UndoManager undoManager = new UndoManager(10);
+        tile.register(undoManager);
+        tile.setLayerValue(PineForest.INSTANCE, 1, 1, 5);
+        tile.setBitLayerValue(Frost.INSTANCE, 1, 1, true);
+        undoManager.armSavePoint();
+
+        tile.setLayerValue(PineForest.INSTANCE, 1, 1, 7);
+        tile.setLayerValue(PineForest.INSTANCE, 2, 2, 3);
+        tile.setBitLayerValue(Void.INSTANCE, 3, 3, true);
+        undoManager.armSavePoint();
+
+        tile.clearLayerData(1, 1, null);
+        undoManager.armSavePoint();
+        assertEquals(0, tile.getLayerValue(PineForest.INSTANCE, 1, 1));
+        assertFalse(tile.getBitLayerValue(Frost.INSTANCE, 1, 1));
+
+        assertTrue(undoManager.undo());
+        assertEquals(7, tile.getLayerValue(PineForest.INSTANCE, 1, 1));
+        assertTrue(tile.getBitLayerValue(Frost.INSTANCE, 1, 1));
+
+        assertTrue(undoManager.undo());
+        assertEquals(5, tile.getLayerValue(PineForest.INSTANCE, 1, 1));
+        assertEquals(0, tile.getLayerValue(PineForest.INSTANCE, 2, 2));
+        assertFalse(tile.hasLayer(Void.INSTANCE));
+        assertTrue(tile.getBitLayerValue(Frost.INSTANCE, 1, 1));
+
+        assertTrue(undoManager.redo());
+        assertEquals(7, tile.getLayerValue(PineForest.INSTANCE, 1, 1));
+        assertEquals(3, tile.getLayerValue(PineForest.INSTANCE, 2, 2));
+        assertTrue(tile.getBitLayerValue(Void.INSTANCE, 3, 3));
+        tile.unregister();
+    }
+
+    @Test
+    public void testUnchangedLayerDataShared() {
+        final Tile tile = new Tile(0, 0, 0, 256);
+        final UndoManager undoManager = new UndoManager(10);
+        tile.register(undoManager);
+        tile.setLayerValue(PineForest.INSTANCE, 1, 1, 5);
+        tile.setBitLayerValue(Frost.INSTANCE, 1, 1, true);
+        undoManager.armSavePoint();
+        tile.ensureAllReadable();
+        final byte[] pineForestData = tile.layerData.get(PineForest.INSTANCE);
+
+        // Editing another layer should not copy the data of the unchanged layer
+        tile.setBitLayerValue(Frost.INSTANCE, 2, 2, true);
+        tile.setLayerValue(Caves.INSTANCE, 1, 1, 1);
+        assertSame(pineForestData, tile.layerData.get(PineForest.INSTANCE));
+
+        // Editing the layer itself should copy its data, leaving the previous version intact for undo
+        tile.setLayerValue(PineForest.INSTANCE, 1, 1, 6);
+        assertNotSame(pineForestData, tile.layerData.get(PineForest.INSTANCE));
+        undoManager.armSavePoint();
+        assertTrue(undoManager.undo());
+        assertEquals(5, tile.getLayerValue(PineForest.INSTANCE, 1, 1));
+        assertFalse(tile.getBitLayerValue(Frost.INSTANCE, 2, 2));
+        tile.unregister();
+    }
+
+    @Test
+    public void testHeightMapUndoRedo() {
+        final Tile tile = new Tile(0, 0, 0, 256);
+        final UndoManager undoManager = new UndoManager(10);
+        tile.register(undoManager);
+        tile.setHeight(1, 1, 62.0f);
+        tile.setTerrain(1, 1, Terrain.SAND);
+        undoManager.armSavePoint();
+
+        tile.setHeight(1, 1, 70.0f);
+        tile.setHeight(100, 120, 80.0f);
+        undoManager.armSavePoint();
+
+        tile.setHeight(1, 1, 75.0f);
+        tile.setTerrain(1, 1, Terrain.GRASS);
+        undoManager.armSavePoint();
+
+        assertTrue(undoManager.undo());
+        assertEquals(70.0f, tile.getHeight(1, 1), 0.0f);
+        assertEquals(Terrain.SAND, tile.getTerrain(1, 1));
+        assertTrue(undoManager.undo());
+        assertEquals(62.0f, tile.getHeight(1, 1), 0.0f);
+        assertEquals(0.0f, tile.getHeight(100, 120), 0.0f);
+
+        // Edit the old undo level again, which discards the redo history
+        tile.setHeight(2, 2, 64.0f);
+        undoManager.armSavePoint();
+        assertFalse(undoManager.redo());
+        assertEquals(62.0f, tile.getHeight(1, 1), 0.0f);
+        assertEquals(64.0f, tile.getHeight(2, 2), 0.0f);
+        assertTrue(undoManager.undo());
+        assertEquals(0.0f, tile.getHeight(2, 2), 0.0f);
+        assertTrue(undoManager.redo());
+        assertEquals(64.0f, tile.getHeight(2, 2), 0.0f);
+        tile.unregister();
+    }
+
+    @Test
+    public void testUnchangedPagesShared() {
+        final short[] contents = new short[TILE_SIZE * TILE_SIZE];
+        final PagedArrayBuffer<short[]> buffer1 = new PagedArrayBuffer<>(contents);
+        final PagedArrayBuffer<short[]> buffer2 = buffer1.clone();
+        buffer2.getArrayForEditing()[5] = 42;
+        final PagedArrayBuffer<short[]> buffer3 = buffer2.clone();
+        assertEquals(0, buffer1.getArray()[5]);
+        assertEquals(42, buffer2.getArray()[5]);
+        assertEquals(42, buffer3.getArray()[5]);
+
+        // Only the edited page should differ between the stored versions
+        final Object[] pages1 = buffer1.getPages(), pages2 = buffer2.getPages();
+        assertNotSame(pages1[0], pages2[0]);
+        for (int i = 1; i < pages1.length; i++) {
+            assertSame(pages1[i], pages2[i]);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.pepsoft.worldpainter;
+
+import org.junit.Test;
+import org.pepsoft.util.swing.TileListener;
+import org.pepsoft.util.swing.TileProvider;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Set;
+
+import static java.util.Collections.singleton;
+import static org.junit.Assert.*;
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE;
+import static org.pepsoft.worldpainter.Terrain.SAND;
+
+public class WPTileProviderTest {
+    @Test
+    public void testPyramidInvalidation() {
+        final Dimension dimension = TestData.createDimension(new Rectangle(0, 0, TILE_SIZE * 4, TILE_SIZE * 4), 62);
+        final WPTileProvider tileProvider = new WPTileProvider(dimension, ColourScheme.DEFAULT, null, null, false, 10, TileRenderer.LightOrigin.NORTHWEST, true, null, true, null);
+        tileProvider.addTileListener(NULL_LISTENER);
+        tileProvider.setZoom(-2);
+        final BufferedImage before = paint(tileProvider);
+        assertEquals(before.getRGB(0, 0), before.getRGB(TILE_SIZE - 1, TILE_SIZE - 1));
+
+        // Changing a tile should only change the part of the zoomed out image covering that tile
+        final Tile tile = dimension.getTile(0, 0);
+        for (int x = 0; x < TILE_SIZE; x++) {
+            for (int y = 0; y < TILE_SIZE; y++) {
+                tile.setTerrain(x, y, SAND);
+            }
+        }
+        final BufferedImage after = paint(tileProvider);
+        assertNotEquals(before.getRGB(5, 5), after.getRGB(5, 5));
+        assertEquals(before.getRGB(TILE_SIZE - 1, TILE_SIZE - 1), after.getRGB(TILE_SIZE - 1, TILE_SIZE - 1));
+
+        // The same result should be produced when zooming out step by step, through all levels of the pyramid
+        tileProvider.invalidateTiles(singleton(new Point(0, 0)));
+        tileProvider.setZoom(-1);
+        paint(tileProvider);
+        tileProvider.setZoom(-2);
+        assertEquals(after.getRGB(5, 5), paint(tileProvider).getRGB(5, 5));
+
+        // Removing a tile should make its area transparent
+        dimension.removeTile(3, 3);
+        assertEquals(0, paint(tileProvider).getRGB(TILE_SIZE - 1, TILE_SIZE - 1) >>> 24);
+        tileProvider.removeTileListener(NULL_LISTENER);
+    }
+
+    private BufferedImage paint(WPTileProvider tileProvider) {
+        final BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        assertTrue(tileProvider.paintTile(image, 0, 0, 0, 0));
+        return image;
+    }
+
+    private static final TileListener NULL_LISTENER = new TileListener() {
+        @Override public void tileChanged(TileProvider source, int x, int y) {}
+        @Override public void tilesChanged(TileProvider source, Set<Point> tiles) {}
+    };
+}
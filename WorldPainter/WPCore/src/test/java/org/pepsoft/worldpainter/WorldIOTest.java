@@ -0,0 +1,296 @@
+package org.pepsoft.worldpainter;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pepsoft.util.undo.UndoManager;
+import org.pepsoft.worldpainter.heightMaps.ConstantHeightMap;
+import org.pepsoft.worldpainter.layers.Caverns;
+import org.pepsoft.worldpainter.layers.Frost;
+import org.pepsoft.worldpainter.plugins.WPPluginManager;
+import org.pepsoft.worldpainter.themes.SimpleTheme;
+import org.pepsoft.worldpainter.util.BackupUtils;
+
+import java.awt.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE;
+import static org.pepsoft.worldpainter.Dimension.Anchor.NORMAL_DETAIL;
+
+public class WorldIOTest {
+    @BeforeClass
+    public static void init() {
+        // Other tests in the same JVM may already have initialised the plugins
+        if (WPPluginManager.getInstance() == null) {
+            WPPluginManager.initialise(null, WPContext.INSTANCE);
+        }
+    }
+
+    @Test
+    public void testCompartmentalisedRoundTrip() throws IOException, UnloadableWorldException {
+        final World2 world = createWorld();
+        final File file = folder.newFile("test.world");
+        new WorldIO(world).saveCompartmentalised(file);
+
+        final WorldIO worldIO = new WorldIO();
+        worldIO.load(file);
+        final World2 loadedWorld = worldIO.getWorld();
+        assertEquals("Test", loadedWorld.getName());
+        assertTrue(loadedWorld.getMetadata().get(World2.METADATA_KEY_TIMESTAMP) instanceof Date);
+        final Dimension loadedDimension = loadedWorld.getDimension(NORMAL_DETAIL);
+        assertSame(loadedWorld, loadedDimension.getWorld());
+        assertEquals(4, loadedDimension.getTileCount());
+
+        // The tiles should only be loaded when their contents are accessed
+        final Tile loadedTile = loadedDimension.getTile(1, 0);
+        assertTrue(loadedTile.isUnloaded());
+        assertTileEquals(world.getDimension(NORMAL_DETAIL).getTile(1, 0), loadedTile);
+        assertFalse(loadedTile.isUnloaded());
+        assertTrue(loadedDimension.getTile(0, 1).isUnloaded());
+        for (Tile tile: world.getDimension(NORMAL_DETAIL).getTiles()) {
+            assertTileEquals(tile, loadedDimension.getTile(tile.getX(), tile.getY()));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, UnloadableWorldException {
+        final World2 world = createWorld();
+        final File file = folder.newFile("test.world");
+        new WorldIO(world).save(new FileOutputStream(file));
+
+        final WorldIO worldIO = new WorldIO();
+        worldIO.load(file);
+        final Dimension loadedDimension = worldIO.getWorld().getDimension(NORMAL_DETAIL);
+        assertEquals(4, loadedDimension.getTileCount());
+        for (Tile tile: world.getDimension(NORMAL_DETAIL).getTiles()) {
+            assertTileEquals(tile, loadedDimension.getTile(tile.getX(), tile.getY()));
+        }
+    }
+
+    @Test
+    public void testOnlyModifiedTilesRewritten() throws IOException, UnloadableWorldException {
+        final World2 world = createWorld();
+        final File file1 = folder.newFile("test1.world");
+        new WorldIO(world).saveCompartmentalised(file1);
+        final WorldIO worldIO = new WorldIO();
+        worldIO.load(file1);
+        final Dimension dimension = worldIO.getWorld().getDimension(NORMAL_DETAIL);
+
+        // Read one tile and modify another
+        final Tile readTile = dimension.getTile(0, 0), modifiedTile = dimension.getTile(1, 1);
+        readTile.getHeight(5, 5);
+        modifiedTile.setHeight(5, 5, 80.0f);
+        modifiedTile.setBitLayerValue(Frost.INSTANCE, 6, 6, true);
+        assertNotNull(readTile.getStoredEntry());
+        assertNull(modifiedTile.getStoredEntry());
+
+        final File file2 = folder.newFile("test2.world");
+        worldIO.saveCompartmentalised(file2);
+
+        // Tiles which were not loaded should still not be loaded, and should now be loaded from the new file
+        final Tile unloadedTile = dimension.getTile(1, 0);
+        assertTrue(unloadedTile.isUnloaded());
+        assertEquals(file2, unloadedTile.getStoredEntry().section.getStore().getFile());
+        assertEquals(file2, readTile.getStoredEntry().section.getStore().getFile());
+        assertEquals(file2, modifiedTile.getStoredEntry().section.getStore().getFile());
+        assertTileEquals(world.getDimension(NORMAL_DETAIL).getTile(1, 0), unloadedTile);
+
+        // Saving over the file from which the tiles are loaded should be possible
+        worldIO.saveCompartmentalised(file2);
+        assertTrue(dimension.getTile(0, 1).isUnloaded());
+        assertTileEquals(world.getDimension(NORMAL_DETAIL).getTile(0, 1), dimension.getTile(0, 1));
+
+        final WorldIO worldIO2 = new WorldIO();
+        worldIO2.load(file2);
+        final Dimension dimension2 = worldIO2.getWorld().getDimension(NORMAL_DETAIL);
+        for (Tile tile: dimension.getTiles()) {
+            assertTileEquals(tile, dimension2.getTile(tile.getX(), tile.getY()));
+        }
+        assertEquals(80.0f, dimension2.getTile(1, 1).getHeight(5, 5), 0.0f);
+        assertTrue(dimension2.getTile(1, 1).getBitLayerValue(Frost.INSTANCE, 6, 6));
+    }
+
+    @Test
+    public void testSaveCopyDoesNotAffectNextSave() throws IOException, UnloadableWorldException {
+        final World2 world = createWorld();
+        final File file1 = folder.newFile("test1.world");
+        new WorldIO(world).saveCompartmentalised(file1);
+        final WorldIO worldIO = new WorldIO();
+        worldIO.load(file1);
+        final Dimension dimension = worldIO.getWorld().getDimension(NORMAL_DETAIL);
+        final Tile readTile = dimension.getTile(0, 0), modifiedTile = dimension.getTile(1, 1), unloadedTile = dimension.getTile(1, 0);
+        readTile.getHeight(5, 5);
+        modifiedTile.setHeight(5, 5, 80.0f);
+        final TileStore.Entry readEntry = readTile.getStoredEntry(), unloadedEntry = unloadedTile.getStoredEntry();
+        final byte[] readData = readEntry.readRawData(), unloadedData = unloadedEntry.readRawData();
+
+        // Saving a copy should not load any tiles, nor change their entries
+        final File autosaveFile = folder.newFile("autosave.world");
+        worldIO.saveCopy(autosaveFile);
+        assertTrue(unloadedTile.isUnloaded());
+        assertSame(readEntry, readTile.getStoredEntry());
+        assertSame(unloadedEntry, unloadedTile.getStoredEntry());
+        assertNull(modifiedTile.getStoredEntry());
+
+        // The unmodified tiles should then still be copied as-is when the world is saved
+        final File file2 = folder.newFile("test2.world");
+        worldIO.saveCompartmentalised(file2);
+        assertTrue(unloadedTile.isUnloaded());
+        assertEquals(file2, readTile.getStoredEntry().section.getStore().getFile());
+        assertEquals(file2, unloadedTile.getStoredEntry().section.getStore().getFile());
+        assertEquals(file2, modifiedTile.getStoredEntry().section.getStore().getFile());
+        assertArrayEquals(readData, readTile.getStoredEntry().readRawData());
+        assertArrayEquals(unloadedData, unloadedTile.getStoredEntry().readRawData());
+
+        final WorldIO autosaveIO = new WorldIO();
+        autosaveIO.load(autosaveFile);
+        final Dimension autosaveDimension = autosaveIO.getWorld().getDimension(NORMAL_DETAIL);
+        for (Tile tile: dimension.getTiles()) {
+            assertTileEquals(tile, autosaveDimension.getTile(tile.getX(), tile.getY()));
+        }
+        worldIO.getWorld().closeWorldFile();
+        autosaveIO.getWorld().closeWorldFile();
+    }
+
+    @Test
+    public void testUndoManagerDoesNotLoadTiles() throws IOException, UnloadableWorldException {
+        final World2 world = createWorld();
+        final File file = folder.newFile("test.world");
+        new WorldIO(world).saveCompartmentalised(file);
+        final WorldIO worldIO = new WorldIO();
+        worldIO.load(file);
+        final Dimension dimension = worldIO.getWorld().getDimension(NORMAL_DETAIL);
+
+        final UndoManager undoManager = new UndoManager(5);
+        dimension.registerUndoManager(undoManager);
+        final Tile tile = dimension.getTile(0, 0), otherTile = dimension.getTile(1, 0);
+        assertTrue(tile.isUnloaded());
+        undoManager.armSavePoint();
+        final float height = tile.getHeight(10, 10);
+        assertFalse(tile.isUnloaded());
+        tile.setHeight(10, 10, height + 10);
+        tile.setLayerValue(Caverns.INSTANCE, 10, 10, 15);
+        undoManager.armSavePoint();
+        tile.setHeight(10, 10, height + 20);
+        undoManager.armSavePoint();
+
+        // The tile was loaded and edited after the undo manager was installed, so undoing past that point should
+        // restore the contents with which it was loaded
+        assertTrue(undoManager.undo());
+        assertEquals(height + 10, tile.getHeight(10, 10), 0.0f);
+        assertTrue(undoManager.undo());
+        assertEquals(height, tile.getHeight(10, 10), 0.0f);
+        assertEquals(world.getDimension(NORMAL_DETAIL).getTile(0, 0).getLayerValue(Caverns.INSTANCE, 10, 10), tile.getLayerValue(Caverns.INSTANCE, 10, 10));
+        assertTrue(undoManager.redo());
+        assertEquals(height + 10, tile.getHeight(10, 10), 0.0f);
+        assertEquals(15, tile.getLayerValue(Caverns.INSTANCE, 10, 10));
+        final Dimension snapshot = dimension.getSnapshot();
+        assertEquals(height + 10, snapshot.getTile(new Point(0, 0)).getHeight(10, 10), 0.0f);
+        assertTileEquals(world.getDimension(NORMAL_DETAIL).getTile(1, 1), snapshot.getTile(new Point(1, 1)));
+
+        // Loading a tile should not clear the redo history
+        assertTrue(otherTile.isUnloaded());
+        assertTileEquals(world.getDimension(NORMAL_DETAIL).getTile(1, 0), otherTile);
+        assertTrue(undoManager.redo());
+        assertEquals(height + 20, tile.getHeight(10, 10), 0.0f);
+
+        dimension.unregisterUndoManager();
+        assertEquals(height + 20, tile.getHeight(10, 10), 0.0f);
+        assertTrue(dimension.getTile(0, 1).isUnloaded());
+    }
+
+    @Test
+    public void testLegacyZipFormat() throws IOException, UnloadableWorldException {
+        final World2 world = createWorld();
+        final File file = folder.newFile("test.world");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            world.save(out);
+        }
+
+        final WorldIO worldIO = new WorldIO();
+        worldIO.load(file);
+        final Dimension loadedDimension = worldIO.getWorld().getDimension(NORMAL_DETAIL);
+        assertEquals(4, loadedDimension.getTileCount());
+        for (Tile tile: world.getDimension(NORMAL_DETAIL).getTiles()) {
+            assertFalse(loadedDimension.getTile(tile.getX(), tile.getY()).isUnloaded());
+            assertTileEquals(tile, loadedDimension.getTile(tile.getX(), tile.getY()));
+        }
+    }
+
+    @Test
+    public void testSaveWithBackups() throws IOException, UnloadableWorldException {
+        final World2 world = createWorld();
+        final File file = new File(folder.getRoot(), "test.world");
+        new WorldIO(world).saveCompartmentalised(file);
+        final WorldIO worldIO = new WorldIO();
+        worldIO.load(file);
+        final Dimension dimension = worldIO.getWorld().getDimension(NORMAL_DETAIL);
+        dimension.getTile(1, 1).setHeight(5, 5, 80.0f);
+
+        // The file from which the tiles are loaded is rotated into a backup; the tiles should be loaded from the new
+        // file
+        worldIO.saveCompartmentalised(file, 1);
+        assertTrue(BackupUtils.getBackupFile(file, 1).isFile());
+        assertFalse(new File(folder.getRoot(), "test.world.tmp").exists());
+        assertTrue(dimension.getTile(0, 1).isUnloaded());
+        assertEquals(file, dimension.getTile(0, 1).getStoredEntry().section.getStore().getFile());
+        assertTileEquals(world.getDimension(NORMAL_DETAIL).getTile(0, 1), dimension.getTile(0, 1));
+
+        final WorldIO worldIO2 = new WorldIO();
+        worldIO2.load(file);
+        assertEquals(80.0f, worldIO2.getWorld().getDimension(NORMAL_DETAIL).getTile(1, 1).getHeight(5, 5), 0.0f);
+        worldIO.getWorld().closeWorldFile();
+        worldIO2.getWorld().closeWorldFile();
+    }
+
+    private World2 createWorld() {
+        final Platform platform = DefaultPlugin.JAVA_ANVIL_1_19;
+        final int minHeight = platform.minZ, maxHeight = platform.standardMaxHeight;
+        final TileFactory tileFactory = new HeightMapTileFactory(0L, new ConstantHeightMap(62), minHeight, maxHeight, false,
+                SimpleTheme.createSingleTerrain(Terrain.GRASS, minHeight, maxHeight, 62));
+        final World2 world = new World2(platform, 0L, tileFactory);
+        world.setName("Test");
+        final Dimension dimension = world.getDimension(NORMAL_DETAIL);
+        for (int tileX = 0; tileX < 2; tileX++) {
+            for (int tileY = 0; tileY < 2; tileY++) {
+                final Tile tile = tileFactory.createTile(tileX, tileY);
+                for (int x = 0; x < TILE_SIZE; x++) {
+                    for (int y = 0; y < TILE_SIZE; y++) {
+                        tile.setHeight(x, y, 40 + ((x * 7 + y * 3 + tileX * 11) % 50) + 0.25f);
+                        if (((x + y) % 3) == 0) {
+                            tile.setTerrain(x, y, Terrain.SAND);
+                        }
+                        if ((x % 5) == tileY) {
+                            tile.setBitLayerValue(Frost.INSTANCE, x, y, true);
+                        }
+                        tile.setLayerValue(Caverns.INSTANCE, x, y, (x + y) % 16);
+                    }
+                }
+                dimension.addTile(tile);
+            }
+        }
+        return world;
+    }
+
+    private void assertTileEquals(Tile expected, Tile actual) {
+        for (int x = 0; x < TILE_SIZE; x++) {
+            for (int y = 0; y < TILE_SIZE; y++) {
+                assertEquals(expected.getHeight(x, y), actual.getHeight(x, y), 0.0f);
+                assertEquals(expected.getWaterLevel(x, y), actual.getWaterLevel(x, y));
+                assertEquals(expected.getTerrain(x, y), actual.getTerrain(x, y));
+                assertEquals(expected.getBitLayerValue(Frost.INSTANCE, x, y), actual.getBitLayerValue(Frost.INSTANCE, x, y));
+                assertEquals(expected.getLayerValue(Caverns.INSTANCE, x, y), actual.getLayerValue(Caverns.INSTANCE, x, y));
+            }
+        }
+        assertEquals(expected.getLayers(), actual.getLayers());
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+}
@@ -0,0 +1,136 @@
+package org.pepsoft.worldpainter.exporting;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pepsoft.minecraft.Chunk;
+import org.pepsoft.minecraft.MC118AnvilChunk;
+import org.pepsoft.util.Box;
+import org.pepsoft.worldpainter.WPContext;
+import org.pepsoft.worldpainter.platforms.JavaExportSettings;
+import org.pepsoft.worldpainter.plugins.WPPluginManager;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.pepsoft.minecraft.Material.*;
+import static org.pepsoft.worldpainter.TestData.*;
+
+public class BlockPropertiesCalculatorTest {
+    @BeforeClass
+    public static void init() {
+        // Other tests in the same JVM may already have initialised the plugins
+        if (WPPluginManager.getInstance() == null) {
+            WPPluginManager.initialise(null, WPContext.INSTANCE);
+        }
+    }
+
+    /**
+     * Test that the work queue based propagation produces exactly the same results as repeatedly invoking
+     * {@link BlockPropertiesCalculator#secondPass()}.
+     */
+    @Test
+    public void testPropagateMatchesSecondPass() {
+        for (long seed = 0; seed < 3; seed++) {
+            final WorldRegion iterativeWorld = createWorld(seed), queueWorld = createWorld(seed);
+            final Box dirtyArea = calculateInitialLight(iterativeWorld);
+            calculateInitialLight(queueWorld);
+
+            final BlockPropertiesCalculator iterativeCalculator = new BlockPropertiesCalculator(iterativeWorld, PLATFORM, null, EXPORT_SETTINGS);
+            iterativeCalculator.setDirtyArea(dirtyArea.clone());
+            while (iterativeCalculator.secondPass());
+            iterativeCalculator.finalise();
+
+            final BlockPropertiesCalculator queueCalculator = new BlockPropertiesCalculator(queueWorld, PLATFORM, null, EXPORT_SETTINGS);
+            queueCalculator.setDirtyArea(dirtyArea.clone());
+            queueCalculator.propagate();
+            queueCalculator.finalise();
+
+            for (int chunkX = -1; chunkX <= CHUNKS; chunkX++) {
+                for (int chunkZ = -1; chunkZ <= CHUNKS; chunkZ++) {
+                    final Chunk expected = iterativeWorld.getChunk(chunkX, chunkZ), actual = queueWorld.getChunk(chunkX, chunkZ);
+                    for (int x = 0; x < 16; x++) {
+                        for (int z = 0; z < 16; z++) {
+                            for (int y = MIN_HEIGHT; y < MAX_HEIGHT; y++) {
+                                final String location = ((chunkX << 4) | x) + "," + y + "," + ((chunkZ << 4) | z);
+                                assertEquals(location, expected.getMaterial(x, y, z), actual.getMaterial(x, y, z));
+                                assertEquals(location, expected.getSkyLightLevel(x, y, z), actual.getSkyLightLevel(x, y, z));
+                                assertEquals(location, expected.getBlockLightLevel(x, y, z), actual.getBlockLightLevel(x, y, z));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static WorldRegion createWorld(long seed) {
+        final Random random = new Random(seed);
+        final WorldRegion world = new WorldRegion(0, 0, MIN_HEIGHT, MAX_HEIGHT, PLATFORM);
+        for (int chunkX = -1; chunkX <= CHUNKS; chunkX++) {
+            for (int chunkZ = -1; chunkZ <= CHUNKS; chunkZ++) {
+                world.addChunk(new MC118AnvilChunk(chunkX, chunkZ, MIN_HEIGHT, MAX_HEIGHT));
+            }
+        }
+        final int x1 = -16, x2 = (CHUNKS + 1) * 16, z1 = -16, z2 = (CHUNKS + 1) * 16;
+        for (int x = x1; x < x2; x++) {
+            for (int z = z1; z < z2; z++) {
+                final int height = 60 + random.nextInt(4);
+                for (int y = MIN_HEIGHT; y <= height; y++) {
+                    world.setMaterialAt(x, z, y, STONE);
+                }
+                if (random.nextInt(8) == 0) {
+                    world.setMaterialAt(x, z, height, WATER);
+                }
+            }
+        }
+        // Overhangs and caves so that light has to spread sideways
+        for (int i = 0; i < 12; i++) {
+            final int x = x1 + random.nextInt(x2 - x1 - 8), z = z1 + random.nextInt(z2 - z1 - 8), y = 64 + random.nextInt(8);
+            for (int dx = 0; dx < 8; dx++) {
+                for (int dz = 0; dz < 8; dz++) {
+                    world.setMaterialAt(x + dx, z + dz, y, STONE);
+                    world.setMaterialAt(x + dx, z + dz, 30, AIR);
+                    world.setMaterialAt(x + dx, z + dz, 31, AIR);
+                }
+            }
+        }
+        // Light sources
+        for (int i = 0; i < 40; i++) {
+            final int x = x1 + random.nextInt(x2 - x1), z = z1 + random.nextInt(z2 - z1);
+            world.setMaterialAt(x, z, random.nextBoolean() ? 30 : 64, random.nextBoolean() ? TORCH : GLOWSTONE);
+        }
+        // Trees, so that there are leaf distances to calculate
+        for (int i = 0; i < 10; i++) {
+            final int x = x1 + 3 + random.nextInt(x2 - x1 - 6), z = z1 + 3 + random.nextInt(z2 - z1 - 6);
+            for (int y = 64; y < 70; y++) {
+                world.setMaterialAt(x, z, y, WOOD_OAK);
+            }
+            for (int dx = -3; dx <= 3; dx++) {
+                for (int dz = -3; dz <= 3; dz++) {
+                    for (int y = 68; y < 73; y++) {
+                        if (world.getMaterialAt(x + dx, z + dz, y).empty) {
+                            world.setMaterialAt(x + dx, z + dz, y, LEAVES_OAK);
+                        }
+                    }
+                }
+            }
+        }
+        return world;
+    }
+
+    private static Box calculateInitialLight(WorldRegion world) {
+        final BlockPropertiesCalculator calculator = new BlockPropertiesCalculator(world, PLATFORM, null, EXPORT_SETTINGS);
+        int lowMark = Integer.MAX_VALUE, highMark = Integer.MIN_VALUE;
+        for (int chunkX = -1; chunkX <= CHUNKS; chunkX++) {
+            for (int chunkZ = -1; chunkZ <= CHUNKS; chunkZ++) {
+                final int[] levels = calculator.firstPass(world.getChunk(chunkX, chunkZ));
+                lowMark = Math.min(lowMark, levels[0]);
+                highMark = Math.max(highMark, levels[1]);
+            }
+        }
+        return new Box(-16, (CHUNKS + 1) * 16, lowMark, highMark + 1, -16, (CHUNKS + 1) * 16);
+    }
+
+    private static final int CHUNKS = 3;
+    private static final JavaExportSettings EXPORT_SETTINGS = new JavaExportSettings();
+}
@@ -0,0 +1,87 @@
+package org.pepsoft.worldpainter.exporting;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pepsoft.worldpainter.Tile;
+import org.pepsoft.worldpainter.layers.Frost;
+
+import java.awt.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.pepsoft.worldpainter.Terrain.GRASS;
+import static org.pepsoft.worldpainter.Terrain.SAND;
+
+public class ExportManifestTest {
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        final File worldDir = folder.getRoot();
+        assertNull(ExportManifest.load(worldDir));
+
+        final ExportManifest manifest = new ExportManifest();
+        manifest.setFingerprint(0, "abc");
+        manifest.setFingerprint(-1, "def");
+        manifest.setRegionDigest(0, new Point(-3, 5), "123");
+        manifest.setRegionDigest(-1, new Point(0, -1), "456");
+        manifest.addRegionWithFixups(0, new Point(-3, 5));
+        manifest.save(worldDir);
+
+        final ExportManifest loadedManifest = ExportManifest.load(worldDir);
+        assertNotNull(loadedManifest);
+        assertEquals("abc", loadedManifest.getFingerprint(0));
+        assertEquals("def", loadedManifest.getFingerprint(-1));
+        assertNull(loadedManifest.getFingerprint(1));
+        assertEquals("123", loadedManifest.getRegionDigest(0, new Point(-3, 5)));
+        assertEquals("456", loadedManifest.getRegionDigest(-1, new Point(0, -1)));
+        assertNull(loadedManifest.getRegionDigest(0, new Point(0, -1)));
+        assertTrue(loadedManifest.hasRegionFixups(0, new Point(-3, 5)));
+        assertFalse(loadedManifest.hasRegionFixups(-1, new Point(0, -1)));
+    }
+
+    @Test
+    public void testUnsupportedManifestIgnored() throws IOException {
+        final File worldDir = folder.getRoot();
+        try (Writer out = new FileWriter(new File(worldDir, ExportManifest.FILE_NAME))) {
+            out.write("formatVersion=999\n");
+        }
+        assertNull(ExportManifest.load(worldDir));
+    }
+
+    @Test
+    public void testTileContentDigest() {
+        final Tile tile1 = createTile(), tile2 = createTile();
+        assertArrayEquals(tile1.getContentDigest(), tile2.getContentDigest());
+
+        tile2.setHeight(17, 42, 63.5f);
+        assertFalse(Arrays.equals(tile1.getContentDigest(), tile2.getContentDigest()));
+        tile2.setHeight(17, 42, 62.0f);
+        assertArrayEquals(tile1.getContentDigest(), tile2.getContentDigest());
+
+        tile2.setTerrain(1, 2, SAND);
+        assertFalse(Arrays.equals(tile1.getContentDigest(), tile2.getContentDigest()));
+        tile2.setTerrain(1, 2, GRASS);
+        assertArrayEquals(tile1.getContentDigest(), tile2.getContentDigest());
+
+        tile2.setBitLayerValue(Frost.INSTANCE, 100, 100, true);
+        assertFalse(Arrays.equals(tile1.getContentDigest(), tile2.getContentDigest()));
+    }
+
+    private Tile createTile() {
+        final Tile tile = new Tile(3, -2, 0, 256);
+        for (int x = 0; x < 128; x++) {
+            for (int y = 0; y < 128; y++) {
+                tile.setHeight(x, y, 62.0f);
+                tile.setTerrain(x, y, GRASS);
+            }
+        }
+        return tile;
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+}
@@ -0,0 +1,80 @@
+package org.pepsoft.worldpainter.exporting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pepsoft.util.ProgressReceiver;
+import org.pepsoft.worldpainter.*;
+import org.pepsoft.worldpainter.exporting.ExportReport.DimensionReport;
+import org.pepsoft.worldpainter.exporting.ExportReport.RegionReport;
+import org.pepsoft.worldpainter.heightMaps.ConstantHeightMap;
+import org.pepsoft.worldpainter.plugins.WPPluginManager;
+import org.pepsoft.worldpainter.themes.SimpleTheme;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static org.pepsoft.worldpainter.Constants.DIM_NORMAL;
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE;
+import static org.pepsoft.worldpainter.Dimension.Anchor.NORMAL_DETAIL;
+import static org.pepsoft.worldpainter.exporting.ExportReport.Phase.*;
+
+public class ExportReportTest {
+    @BeforeClass
+    public static void init() {
+        // Other tests in the same JVM may already have initialised the plugins
+        if (WPPluginManager.getInstance() == null) {
+            WPPluginManager.initialise(null, WPContext.INSTANCE);
+        }
+    }
+
+    @Test
+    public void testExportReport() throws IOException, ProgressReceiver.OperationCancelled {
+        final Platform platform = DefaultPlugin.JAVA_ANVIL_1_19;
+        final int minHeight = platform.minZ, maxHeight = platform.standardMaxHeight;
+        final TileFactory tileFactory = new HeightMapTileFactory(0L, new ConstantHeightMap(62), minHeight, maxHeight, false,
+                SimpleTheme.createSingleTerrain(Terrain.GRASS, minHeight, maxHeight, 62));
+        final World2 world = new World2(platform, 0L, tileFactory);
+        world.setName("Test");
+        final Dimension dimension = world.getDimension(NORMAL_DETAIL);
+        // Two tiles in two different regions
+        dimension.addTile(tileFactory.createTile(0, 0));
+        dimension.addTile(tileFactory.createTile(4, 0));
+
+        final JavaWorldExporter exporter = new JavaWorldExporter(world, null);
+        exporter.export(folder.getRoot(), "Test", null, null);
+
+        final ExportReport report = exporter.getExportReport();
+        assertNotNull(report);
+        assertEquals(1, report.getDimensions().size());
+        final DimensionReport dimensionReport = report.getDimensions().get(0);
+        assertEquals(DIM_NORMAL, dimensionReport.getDim());
+        assertTrue(dimensionReport.getRegionCount() >= 2);
+        assertEquals(2 * (TILE_SIZE / 16) * (TILE_SIZE / 16), dimensionReport.getChunkCount());
+        assertTrue(dimensionReport.getBytesWritten() > 0);
+        assertTrue(dimensionReport.getThreadUtilisation() > 0.0);
+        for (RegionReport regionReport: dimensionReport.getRegions()) {
+            if (regionReport.getChunkCount() > 0) {
+                assertTrue(regionReport.getPhases().get(FIRST_PASS).getWallTime() > 0);
+                assertTrue(regionReport.getPhases().get(SAVING).getWallTime() > 0);
+                assertTrue(regionReport.getBytesWritten() > 0);
+            }
+        }
+        assertTrue(dimensionReport.getPhases().containsKey(POST_PROCESSING));
+        assertTrue(dimensionReport.getPhases().containsKey(BLOCK_PROPERTIES));
+
+        final File reportFile = new File(new File(folder.getRoot(), "Test"), ExportReport.FILE_NAME);
+        assertTrue(reportFile.isFile());
+        final JsonNode json = new ObjectMapper().readTree(reportFile);
+        assertEquals("Test", json.get("worldName").asText());
+        assertEquals(dimensionReport.getChunkCount(), json.get("dimensions").get(0).get("chunkCount").asInt());
+        assertTrue(json.get("dimensions").get(0).get("phases").has("FIRST_PASS"));
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+}
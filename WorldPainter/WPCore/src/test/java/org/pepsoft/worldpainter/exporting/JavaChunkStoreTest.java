@@ -0,0 +1,117 @@
+package org.pepsoft.worldpainter.exporting;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pepsoft.minecraft.Chunk;
+import org.pepsoft.minecraft.JavaLevel;
+import org.pepsoft.minecraft.Material;
+import org.pepsoft.minecraft.RegionFileCache;
+import org.pepsoft.worldpainter.WPContext;
+import org.pepsoft.worldpainter.platforms.JavaExportSettings;
+import org.pepsoft.worldpainter.platforms.JavaPlatformProvider;
+import org.pepsoft.worldpainter.plugins.PlatformManager;
+import org.pepsoft.worldpainter.plugins.WPPluginManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static java.util.zip.Deflater.DEFAULT_COMPRESSION;
+import static org.junit.Assert.*;
+import static org.pepsoft.minecraft.ChunkCompression.LZ4;
+import static org.pepsoft.minecraft.ChunkCompression.NONE;
+import static org.pepsoft.worldpainter.Constants.DIM_NORMAL;
+import static org.pepsoft.worldpainter.DefaultPlugin.*;
+
+public class JavaChunkStoreTest {
+    @BeforeClass
+    public static void init() {
+        // Other tests in the same JVM may already have initialised the plugins
+        if (WPPluginManager.getInstance() == null) {
+            WPPluginManager.initialise(null, WPContext.INSTANCE);
+        }
+    }
+
+    @Test
+    public void testReadOnlyMode() throws IOException {
+        final File regionDir = folder.newFolder("region");
+        final JavaPlatformProvider platformProvider = (JavaPlatformProvider) PlatformManager.getInstance().getPlatformProvider(JAVA_ANVIL_1_19);
+        try (JavaChunkStore chunkStore = new JavaChunkStore(JAVA_ANVIL_1_19, regionDir, -64, 320)) {
+            final Chunk chunk = platformProvider.createChunk(JAVA_ANVIL_1_19, 3, -40, -64, 320);
+            chunk.setMaterial(1, 2, 3, Material.STONE);
+            chunkStore.saveChunk(chunk);
+        }
+
+        try (JavaChunkStore chunkStore = new JavaChunkStore(JAVA_ANVIL_1_19, regionDir, true, -64, 320)) {
+            assertTrue(chunkStore.isChunkPresent(3, -40));
+            assertFalse(chunkStore.isChunkPresent(4, -40));
+            assertNull(chunkStore.getChunk(100, 100));
+            assertEquals(Material.STONE, chunkStore.getChunk(3, -40).getMaterial(1, 2, 3));
+            assertEquals(1, chunkStore.getChunkCount());
+            // The region file should have been opened read only, which means it is memory mapped
+            try (RegionFileCache.Handle handle = RegionFileCache.acquireRegionFileIfExists(new File(regionDir, "r.0.-2.mca"), true)) {
+                assertTrue(handle.getRegionFile().isReadOnly());
+            }
+            try {
+                chunkStore.saveChunk(chunkStore.getChunk(3, -40));
+                fail("Read only chunk store allowed saving a chunk");
+            } catch (UnsupportedOperationException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupportedCompressionRejected() throws IOException {
+        final File regionDir = folder.newFolder("region");
+        try (JavaChunkStore chunkStore = new JavaChunkStore(JAVA_ANVIL_1_19, regionDir, -64, 320)) {
+            chunkStore.setCompression(NONE, DEFAULT_COMPRESSION);
+            assertEquals(NONE, chunkStore.getCompression());
+            try {
+                chunkStore.setCompression(LZ4, DEFAULT_COMPRESSION);
+                fail("Minecraft 1.19 chunk store accepted LZ4 compression");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+            assertEquals(NONE, chunkStore.getCompression());
+        }
+        try (JavaChunkStore chunkStore = new JavaChunkStore(JAVA_ANVIL, regionDir, 0, 256)) {
+            try {
+                chunkStore.setCompression(NONE, DEFAULT_COMPRESSION);
+                fail("Minecraft 1.12 chunk store accepted uncompressed chunks");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        try (JavaChunkStore chunkStore = new JavaChunkStore(JAVA_ANVIL_1_20_5, regionDir, -64, 320)) {
+            chunkStore.setCompression(LZ4, DEFAULT_COMPRESSION);
+            assertEquals(LZ4, chunkStore.getCompression());
+        }
+    }
+
+    @Test
+    public void testExportSettingsApplied() throws IOException {
+        final File worldDir = folder.newFolder("world");
+        JavaLevel.create(JAVA_ANVIL_1_20_5, -64, 320).save(worldDir);
+        final JavaPlatformProvider platformProvider = (JavaPlatformProvider) PlatformManager.getInstance().getPlatformProvider(JAVA_ANVIL_1_20_5);
+        final JavaExportSettings exportSettings = new JavaExportSettings().withChunkCompression(LZ4, DEFAULT_COMPRESSION);
+        try (CachingMinecraftWorld minecraftWorld = new CachingMinecraftWorld(worldDir, DIM_NORMAL, -64, 320, JAVA_ANVIL_1_20_5, false, 16, exportSettings)) {
+            final Chunk chunk = platformProvider.createChunk(JAVA_ANVIL_1_20_5, 3, 5, -64, 320);
+            chunk.setMaterial(1, 2, 3, Material.STONE);
+            minecraftWorld.addChunk(chunk);
+        }
+
+        // The compression type is stored in the fifth byte of the chunk data
+        final byte[] regionData = Files.readAllBytes(new File(worldDir, "region/r.0.0.mca").toPath());
+        final int offset = ((regionData[(3 + 5 * 32) * 4] & 0xff) << 16) | ((regionData[(3 + 5 * 32) * 4 + 1] & 0xff) << 8) | (regionData[(3 + 5 * 32) * 4 + 2] & 0xff);
+        assertEquals(LZ4.id, regionData[offset * 4096 + 4]);
+        try (JavaChunkStore chunkStore = platformProvider.getChunkStore(JAVA_ANVIL_1_20_5, worldDir, DIM_NORMAL)) {
+            assertEquals(Material.STONE, chunkStore.getChunk(3, 5).getMaterial(1, 2, 3));
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+}
@@ -0,0 +1,54 @@
+package org.pepsoft.worldpainter.heightMaps;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pepsoft.worldpainter.heightMaps.ImageHeightMap.UnsupportedImageException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class ImageHeightMapTest {
+    @Test
+    public void testLoad() throws IOException {
+        final BufferedImage image = new BufferedImage(100, 50, BufferedImage.TYPE_USHORT_GRAY);
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 50; y++) {
+                image.getRaster().setSample(x, y, 0, x * 500 + y);
+            }
+        }
+        final File file = folder.newFile("test.png");
+        ImageIO.write(image, "png", file);
+
+        final ImageHeightMap heightMap = ImageHeightMap.load(file);
+        assertTrue(heightMap instanceof BitmapHeightMap);
+        assertEquals(file, heightMap.getImageFile());
+        assertEquals(100, heightMap.getWidth());
+        assertEquals(50, heightMap.getHeight());
+        assertEquals(16, heightMap.getBitDepth());
+        assertEquals(99 * 500 + 49, heightMap.getHeight(99, 49), 0.0);
+        assertEquals(12 * 500 + 34, heightMap.getHeight(12, 34), 0.0);
+    }
+
+    @Test(expected = UnsupportedImageException.class)
+    public void testLoadNotAnImage() throws IOException {
+        final File file = folder.newFile("test.png");
+        Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        ImageHeightMap.load(file);
+    }
+
+    @Test(expected = UnsupportedImageException.class)
+    public void testLoadIndexedImage() throws IOException {
+        final File file = folder.newFile("test.png");
+        ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_BYTE_INDEXED), "png", file);
+        ImageHeightMap.load(file);
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+}
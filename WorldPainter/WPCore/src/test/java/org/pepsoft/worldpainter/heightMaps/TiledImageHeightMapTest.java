@@ -0,0 +1,159 @@
+package org.pepsoft.worldpainter.heightMaps;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pepsoft.util.mdc.MDCCapturingRuntimeException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class TiledImageHeightMapTest {
+    @Test
+    public void testStripped() throws IOException {
+        checkHeights(false);
+    }
+
+    @Test
+    public void testTiled() throws IOException {
+        checkHeights(true);
+    }
+
+    @Test
+    public void testSerialisation() throws IOException, ClassNotFoundException {
+        final File file = writeTiff(createImage(), false);
+        final TiledImageHeightMap heightMap = new TiledImageHeightMap("Test", file, 0);
+        final double height = heightMap.getHeight(123, 45);
+        final byte[] bytes = serialise(heightMap);
+        assertEquals(height, deserialise(bytes).getHeight(123, 45), 0.0);
+
+        // Changing the file should be detected
+        final BufferedImage image = createImage();
+        image.getRaster().setSample(0, 0, 0, 12345);
+        writeTiff(image, false);
+        try {
+            deserialise(bytes).getHeight(123, 45);
+            fail("Changed image not detected");
+        } catch (MDCCapturingRuntimeException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testConcurrentAccessAndClose() throws IOException, InterruptedException, ExecutionException {
+        final BufferedImage image = createImage();
+        final BitmapHeightMap expected = BitmapHeightMap.build().withImage(image).now();
+        final TiledImageHeightMap actual = new TiledImageHeightMap("Test", writeTiff(image, true), 0);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 2; round++) {
+                final List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    final int offset = i;
+                    futures.add(executor.submit(() -> {
+                        for (int y = offset; y < image.getHeight(); y += 3) {
+                            for (int x = offset; x < image.getWidth(); x += 11) {
+                                assertEquals(expected.getHeight(x, y), actual.getHeight(x, y), 0.0);
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> future: futures) {
+                    future.get();
+                }
+                // The height map should still be usable after being closed
+                actual.close();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void checkHeights(boolean tiled) throws IOException {
+        final BufferedImage image = createImage();
+        final BitmapHeightMap expected = BitmapHeightMap.build().withImage(image).now();
+        final TiledImageHeightMap actual = new TiledImageHeightMap("Test", writeTiff(image, tiled), 0);
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getBitDepth(), actual.getBitDepth());
+        assertEquals(expected.getMaxHeight(), actual.getMaxHeight(), 0.0);
+        assertEquals(expected.getExtent(), actual.getExtent());
+        assertArrayEquals(expected.getRange(), actual.getRange(), 0.0);
+        for (int y = -1; y <= image.getHeight(); y += 7) {
+            for (int x = -1; x <= image.getWidth(); x += 5) {
+                assertEquals(expected.getHeight(x, y), actual.getHeight(x, y), 0.0);
+                assertEquals(expected.getColour(x, y), actual.getColour(x, y));
+            }
+        }
+        final double[] expectedHeights = new double[200 * 150], actualHeights = new double[200 * 150];
+        expected.getHeights(55, 30, 200, 150, expectedHeights);
+        actual.getHeights(55, 30, 200, 150, actualHeights);
+        assertArrayEquals(expectedHeights, actualHeights, 0.0);
+    }
+
+    private BufferedImage createImage() {
+        final BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_USHORT_GRAY);
+        final WritableRaster raster = image.getRaster();
+        final Random random = new Random(0);
+        for (int x = 0; x < 300; x++) {
+            for (int y = 0; y < 200; y++) {
+                raster.setSample(x, y, 0, random.nextInt(65536));
+            }
+        }
+        return image;
+    }
+
+    private File writeTiff(BufferedImage image, boolean tiled) throws IOException {
+        final File file = new File(folder.getRoot(), "test.tif");
+        ImageWriter writer = null;
+        for (Iterator<ImageWriter> i = ImageIO.getImageWritersByFormatName("tiff"); i.hasNext(); ) {
+            writer = i.next();
+            if ((! tiled) || writer.getDefaultWriteParam().canWriteTiles()) {
+                break;
+            }
+        }
+        assertNotNull(writer);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(out);
+            final ImageWriteParam param = writer.getDefaultWriteParam();
+            if (tiled) {
+                param.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setTiling(64, 64, 0, 0);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return file;
+    }
+
+    private byte[] serialise(TiledImageHeightMap heightMap) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(heightMap);
+        }
+        return bytes.toByteArray();
+    }
+
+    private TiledImageHeightMap deserialise(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (TiledImageHeightMap) in.readObject();
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+}
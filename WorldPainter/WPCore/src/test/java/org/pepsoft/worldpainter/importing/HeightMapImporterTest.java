@@ -0,0 +1,94 @@
+package org.pepsoft.worldpainter.importing;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pepsoft.util.ProgressReceiver;
+import org.pepsoft.worldpainter.Configuration;
+import org.pepsoft.worldpainter.Dimension;
+import org.pepsoft.worldpainter.TestData;
+import org.pepsoft.worldpainter.TileFactory;
+import org.pepsoft.worldpainter.heightMaps.BitmapHeightMap;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+
+import static java.awt.image.BufferedImage.TYPE_USHORT_GRAY;
+import static org.junit.Assert.assertEquals;
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE;
+import static org.pepsoft.worldpainter.Dimension.Anchor.NORMAL_DETAIL;
+import static org.pepsoft.worldpainter.TestData.*;
+
+public class HeightMapImporterTest {
+    @Before
+    public void setUp() {
+        previousConfig = Configuration.getInstance();
+        if (previousConfig == null) {
+            Configuration.setInstance(new Configuration());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Configuration.setInstance(previousConfig);
+    }
+
+    @Test
+    public void testBulkHeights() {
+        final BitmapHeightMap heightMap = createHeightMap();
+        final double[] heights = new double[TILE_SIZE * TILE_SIZE];
+        // Entirely inside the image, and partially outside it
+        for (int[] origin: new int[][] {{0, 0}, {128, 0}, {256, 128}, {-64, -64}}) {
+            heightMap.getHeights(origin[0], origin[1], TILE_SIZE, TILE_SIZE, heights);
+            for (int x = 0; x < TILE_SIZE; x++) {
+                for (int y = 0; y < TILE_SIZE; y++) {
+                    assertEquals(heightMap.getHeight(origin[0] + x, origin[1] + y), heights[x + y * TILE_SIZE], 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testImportToDimension() throws ProgressReceiver.OperationCancelled {
+        final BitmapHeightMap heightMap = createHeightMap();
+        final TileFactory tileFactory = TestData.createTileFactory(62);
+        final HeightMapImporter importer = new HeightMapImporter();
+        importer.setHeightMap(heightMap);
+        importer.setTileFactory(tileFactory);
+        importer.setMinHeight(MIN_HEIGHT);
+        importer.setMaxHeight(MAX_HEIGHT);
+        importer.setImageLowLevel(0);
+        importer.setImageHighLevel(255);
+        importer.setWorldLowLevel(0);
+        importer.setWorldHighLevel(255);
+        final Dimension dimension = new Dimension(WORLD, "Surface", SEED, tileFactory, NORMAL_DETAIL);
+
+        importer.importToDimension(dimension, true, null);
+
+        assertEquals(6, dimension.getTileCount());
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                assertEquals(getSample(x, y) - 0.4375f, dimension.getHeightAt(x, y), 0.01f);
+            }
+        }
+    }
+
+    private BitmapHeightMap createHeightMap() {
+        final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, TYPE_USHORT_GRAY);
+        final WritableRaster raster = image.getRaster();
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                raster.setSample(x, y, 0, getSample(x, y));
+            }
+        }
+        return BitmapHeightMap.build().withName("Test").withImage(image).now();
+    }
+
+    private static int getSample(int x, int y) {
+        return 20 + (((x * 7) + (y * 3)) % 150);
+    }
+
+    private Configuration previousConfig;
+
+    private static final int WIDTH = 300, HEIGHT = 200;
+}
@@ -0,0 +1,55 @@
+package org.pepsoft.worldpainter.layers.exporters;
+
+import org.junit.Test;
+import org.pepsoft.worldpainter.Dimension;
+import org.pepsoft.worldpainter.exporting.MinecraftWorld;
+import org.pepsoft.worldpainter.layers.Caverns;
+import org.pepsoft.worldpainter.layers.exporters.CavernsExporter.CavernsSettings;
+
+import java.awt.*;
+
+import static org.junit.Assert.assertTrue;
+import static org.pepsoft.minecraft.Material.GRASS_BLOCK;
+import static org.pepsoft.worldpainter.Constants.TILE_SIZE;
+import static org.pepsoft.worldpainter.TestData.*;
+
+public class CavernsExporterTest {
+    /**
+     * Check that interpolating the noise carves (almost) the same caverns as evaluating it for every block.
+     */
+    @Test
+    public void testInterpolatedNoise() {
+        final Rectangle area = new Rectangle(0, 0, TILE_SIZE, TILE_SIZE);
+        final Dimension dimension = createDimension(area, 100);
+        for (int x = 0; x < TILE_SIZE; x++) {
+            for (int y = 0; y < TILE_SIZE; y++) {
+                dimension.setLayerValueAt(Caverns.INSTANCE, x, y, 10);
+            }
+        }
+
+        final CavernsSettings settings = new CavernsSettings();
+        try (MinecraftWorld exactWorld = createMinecraftWorld(area, 100, GRASS_BLOCK);
+             MinecraftWorld interpolatedWorld = createMinecraftWorld(area, 100, GRASS_BLOCK)) {
+            new CavernsExporter(dimension, PLATFORM, settings).carve(area, area, exactWorld);
+            settings.setInterpolateNoise(true);
+            new CavernsExporter(dimension, PLATFORM, settings).carve(area, area, interpolatedWorld);
+
+            int carvedBlocks = 0, differentBlocks = 0;
+            for (int x = 0; x < TILE_SIZE; x++) {
+                for (int y = 0; y < TILE_SIZE; y++) {
+                    for (int z = MIN_HEIGHT; z <= 100; z++) {
+                        final boolean exactAir = exactWorld.getMaterialAt(x, y, z).air;
+                        if (exactAir) {
+                            carvedBlocks++;
+                        }
+                        if (exactAir != interpolatedWorld.getMaterialAt(x, y, z).air) {
+                            differentBlocks++;
+                        }
+                    }
+                }
+            }
+            assertTrue("No caverns carved", carvedBlocks > 0);
+            assertTrue(differentBlocks + " of " + carvedBlocks + " carved blocks differ", differentBlocks <= carvedBlocks / 20);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.pepsoft.worldpainter.util;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.List;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ContentDigesterTest {
+    @Test
+    public void testEqualContents() {
+        assertEquals(digest(createGraph(false)), digest(createGraph(false)));
+        assertNotEquals(digest(createGraph(false)), digest(createGraph(true)));
+    }
+
+    @Test
+    public void testIterationOrderIgnored() {
+        final Set<String> set1 = new LinkedHashSet<>(List.of("a", "b", "c")), set2 = new LinkedHashSet<>(List.of("c", "a", "b"));
+        assertEquals(digest(set1), digest(set2));
+        final Map<String, Integer> map1 = new LinkedHashMap<>(), map2 = new LinkedHashMap<>();
+        map1.put("x", 1);
+        map1.put("y", 2);
+        map2.put("y", 2);
+        map2.put("x", 1);
+        assertEquals(digest(map1), digest(map2));
+        assertNotEquals(digest(List.of("a", "b")), digest(List.of("b", "a")));
+    }
+
+    @Test
+    public void testTypesDistinguished() {
+        assertNotEquals(digest(1), digest(1L));
+        assertNotEquals(digest("1"), digest(1));
+        assertNotEquals(digest(new int[] {1}), digest(new long[] {1}));
+    }
+
+    private static String digest(Object object) {
+        return new ContentDigester().update(object).digestAsHex();
+    }
+
+    private static Node createGraph(boolean changed) {
+        final Node root = new Node("root", new Point(1, 2));
+        final Node child = new Node("child", new Point(3, changed ? 5 : 4));
+        root.children.add(child);
+        root.children.add(child);
+        // Create a cycle
+        child.children.add(root);
+        return root;
+    }
+
+    static class Node {
+        Node(String name, Point location) {
+            this.name = name;
+            this.location = location;
+        }
+
+        final String name;
+        final Point location;
+        final List<Node> children = new ArrayList<>();
+        transient int cachedValue = new Random().nextInt();
+    }
+}
@@ -0,0 +1,59 @@
+package org.pepsoft.worldpainter.util;
+
+import org.junit.Test;
+import org.pepsoft.util.PerlinNoise;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.pepsoft.worldpainter.Constants.*;
+
+public class LatticeNoiseTest {
+    @Test
+    public void testExactForSmallScales() {
+        final PerlinNoise noise = new PerlinNoise(12345);
+        final LatticeNoise latticeNoise = new LatticeNoise(noise, TINY_BLOBS, TINY_BLOBS, -64, 320);
+        latticeNoise.setChunk(-48, 112);
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = -64; z < 320; z += 3) {
+                    assertEquals(noise.getPerlinNoise((-48 + x) / TINY_BLOBS, (112 + y) / TINY_BLOBS, z / TINY_BLOBS), latticeNoise.getNoise(x, y, z), 0.0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDeviation() {
+        // The noise scales used for dirt and gravel in ResourcesExporter and in CavernsExporter
+        assertDeviation(SMALL_BLOBS, SMALL_BLOBS, 0.025f, 0.005f);
+        assertDeviation(MEDIUM_BLOBS, SMALL_BLOBS, 0.025f, 0.005f);
+    }
+
+    private void assertDeviation(float horizontalScale, float verticalScale, float maxDeviation, float maxMeanDeviation) {
+        final Random random = new Random(0);
+        final PerlinNoise noise = new PerlinNoise(random.nextLong());
+        final LatticeNoise latticeNoise = new LatticeNoise(noise, horizontalScale, verticalScale, -64, 320);
+        double totalDeviation = 0.0, largestDeviation = 0.0;
+        int count = 0;
+        for (int i = 0; i < 20; i++) {
+            final int chunkX = (random.nextInt(2000) - 1000) << 4, chunkY = (random.nextInt(2000) - 1000) << 4;
+            latticeNoise.setChunk(chunkX, chunkY);
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    for (int z = -64; z < 320; z++) {
+                        final float exact = noise.getPerlinNoise((chunkX + x) / horizontalScale, (chunkY + y) / horizontalScale, z / verticalScale);
+                        final double deviation = Math.abs(latticeNoise.getNoise(x, y, z) - exact);
+                        totalDeviation += deviation;
+                        largestDeviation = Math.max(largestDeviation, deviation);
+                        count++;
+                    }
+                }
+            }
+        }
+        final double meanDeviation = totalDeviation / count;
+        assertTrue("Largest deviation " + largestDeviation + " > " + maxDeviation, largestDeviation <= maxDeviation);
+        assertTrue("Mean deviation " + meanDeviation + " > " + maxMeanDeviation, meanDeviation <= maxMeanDeviation);
+    }
+}
@@ -36,7 +36,7 @@ public class MinecraftMapTileProvider implements TileProvider {
         Platform platform = platformManager.identifyPlatform(mapDir);
 
         // Open the map
-        chunkStore = platformManager.getChunkStore(platform, mapDir, DIM_NORMAL);
+        chunkStore = platformManager.getReadOnlyChunkStore(platform, mapDir, DIM_NORMAL);
 
         // Scan the region files to determine a rough extent
         Set<MinecraftCoords> chunkCoords = chunkStore.getChunkCoords();
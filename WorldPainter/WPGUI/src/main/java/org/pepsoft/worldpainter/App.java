@@ -304,6 +304,11 @@ public final class App extends JFrame implements RadiusControl,
                 dimension.unregisterUndoManager();
             }
             world.removePropertyChangeListener(this);
+            try {
+                world.closeWorldFile();
+            } catch (IOException e) {
+                logger.error("I/O error while closing world file", e);
+            }
             world = null;
             lastSavedState = lastAutosavedState = -1;
 
@@ -2317,40 +2322,12 @@ public final class App extends JFrame implements RadiusControl,
                         throw new RuntimeException("Temporary file " + tempFile.getName() + " already exists; delete it and try again");
                     }
                     try {
-                        // Save the world to a temporary file first, to ensure that there is enough space
+                        // Save the world to a temporary file first, to ensure that there is enough space, then move
+                        // the existing file out of the way by rotating (if enabled) or deleting it, and finally move
+                        // the temporary file to the final location
                         world.addHistoryEntry(HistoryEntry.WORLD_SAVED, normalisedFile);
                         final WorldIO worldIO = new WorldIO(world);
-                        worldIO.save(new FileOutputStream(tempFile));
-
-                        // If that succeeded, move the existing file out of the way by rotating (if enabled) or deleting
-                        // it
-                        if (normalisedFile.isFile()) {
-                            if (config.getWorldFileBackups() > 0) {
-                                progressReceiver.setMessage(strings.getString("creating.backup.s"));
-                                for (int i = config.getWorldFileBackups(); i > 0; i--) {
-                                    final File nextBackupFile = (i > 1) ? BackupUtils.getBackupFile(normalisedFile, i - 1) : normalisedFile;
-                                    if (nextBackupFile.isFile()) {
-                                        final File backupFile = BackupUtils.getBackupFile(normalisedFile, i);
-                                        if (backupFile.isFile()) {
-                                            if (! backupFile.delete()) {
-                                                throw new IOException("Could not delete old backup file " + backupFile.getName());
-                                            }
-                                        }
-                                        if (! nextBackupFile.renameTo(backupFile)) {
-                                            throw new IOException("Could not move " + nextBackupFile.getName() + " to " + backupFile.getName());
-                                        }
-                                    }
-                                }
-                                progressReceiver.setMessage(null);
-                            } else if (! normalisedFile.delete()) {
-                                throw new IOException("Could not delete existing file " + normalisedFile.getName() + "; world is saved as " + tempFile.getName());
-                            }
-                        }
-
-                        // Finally, move the temporary file to the final location
-                        if (! tempFile.renameTo(normalisedFile)) {
-                            throw new IOException("Could not move " + tempFile.getName() + " to " + normalisedFile.getName() + "; world is saved as " + tempFile.getName());
-                        }
+                        worldIO.save(normalisedFile, config.getWorldFileBackups());
 
                         Map<String, byte[]> layoutData = config.getJideLayoutData();
                         if (layoutData == null) {
@@ -2490,7 +2467,7 @@ public final class App extends JFrame implements RadiusControl,
                     try {
                         rotateAutosaveFile();
                         WorldIO worldIO = new WorldIO(world);
-                        worldIO.save(new FileOutputStream(getAutosaveFile()));
+                        worldIO.saveCopy(getAutosaveFile());
                     } catch (IOException e) {
                         throw new RuntimeException("I/O error autosaving world (message: " + e.getMessage() + ")", e);
                     }
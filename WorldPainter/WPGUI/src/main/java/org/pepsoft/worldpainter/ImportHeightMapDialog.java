@@ -24,7 +24,6 @@ import org.pepsoft.worldpainter.themes.Theme;
 import org.pepsoft.worldpainter.themes.impl.simple.SimpleThemeEditor;
 import org.pepsoft.worldpainter.util.ImageUtils;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.JSpinner.NumberEditor;
 import javax.swing.event.DocumentEvent;
@@ -34,7 +33,7 @@ import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-import java.awt.image.BufferedImage;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -181,17 +180,22 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
         if (importer == null) {
             return null;
         }
-        World2 world = ProgressDialog.executeTask(this, new ProgressTask<World2>() {
-            @Override
-            public String getName() {
-                return "Importing height map";
-            }
+        World2 world;
+        try {
+            world = ProgressDialog.executeTask(this, new ProgressTask<World2>() {
+                @Override
+                public String getName() {
+                    return "Importing height map";
+                }
 
-            @Override
-            public World2 execute(ProgressReceiver progressReceiver) throws OperationCancelled {
-                return importer.importToNewWorld((checkBoxMasterDimension.isSelected()) ? NORMAL_MASTER : NORMAL_DETAIL, progressReceiver);
-            }
-        }, NOT_CANCELABLE);
+                @Override
+                public World2 execute(ProgressReceiver progressReceiver) throws OperationCancelled {
+                    return importer.importToNewWorld((checkBoxMasterDimension.isSelected()) ? NORMAL_MASTER : NORMAL_DETAIL, progressReceiver);
+                }
+            }, NOT_CANCELABLE);
+        } finally {
+            closeHeightMap(imageHeightMap);
+        }
         Configuration.getInstance().setHeightMapsDirectory(selectedFile.getParentFile());
         return world;
     }
@@ -232,18 +236,14 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
                 beepAndShowError(this, "Please select an image file to import.", "No File Selected");
             }
             return null;
-        } else if (image == null) {
+        } else if (imageHeightMap == null) {
             if (interactive) {
                 beepAndShowError(this, "Please select a valid image file to import.", "No Valid Image Selected");
             }
             return null;
         }
         final float scale = (float) spinnerScale.getValue();
-        HeightMap heightMap = BitmapHeightMap.build()
-                .withName(selectedFile.getName())
-                .withImage(image)
-                .withFile(selectedFile)
-                .now();
+        HeightMap heightMap = imageHeightMap;
         if (scale != 100.f) {
             heightMap = heightMap.smoothed();
         }
@@ -321,84 +321,98 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
 
     private void loadImage() {
         try {
-            image = null; // Set image to null first to make more memory available for loading the new image
-            image = ImageIO.read(selectedFile);
-            if (image == null) {
-                labelImageDimensions.setForeground(Color.RED);
-                labelImageDimensions.setIcon(ICON_WARNING);
-                labelImageDimensions.setText("Not an image file of a supported type, or damaged file!");
-                selectedFile = null;
-            } else if ((image.getType() == BufferedImage.TYPE_BYTE_BINARY) || (image.getType() == BufferedImage.TYPE_BYTE_INDEXED)) {
-                labelImageDimensions.setForeground(Color.RED);
-                labelImageDimensions.setIcon(ICON_WARNING);
-                labelImageDimensions.setText("Indexed image not supported! Please convert to non-indexed.");
-                selectedFile = null;
-            } else if (image.isAlphaPremultiplied()) {
-                labelImageDimensions.setForeground(Color.RED);
-                labelImageDimensions.setIcon(ICON_WARNING);
-                labelImageDimensions.setText("Premultiplied alpha not supported! Please convert to non-premultiplied.");
-                selectedFile = null;
-            } else {
-                final BitmapHeightMap heightMap = BitmapHeightMap.build().withImage(image).now();
-                final int width = heightMap.getWidth(), height = heightMap.getHeight();
-                programmaticChange = true;
-                try {
-                    labelImageDimensions.setForeground(null);
-                    labelImageDimensions.setIcon(null);
-                    bitDepth = heightMap.getBitDepth();
-                    imageMinHeight = heightMap.getMinHeight();
-                    imageMaxHeight = heightMap.getMaxHeight();
-                    final boolean invert = checkBoxInvert.isSelected();
-                    final double[] range = heightMap.getRange();
-                    imageLowValue = invert ? (imageMaxHeight - range[1]) : range[0];
-                    imageHighValue = invert ? (imageMaxHeight - range[0]) : range[1];
-                    final double stepSize;
-                    if (heightMap.isFloatingPoint()) {
-                        final double delta = imageHighValue - imageLowValue;
-                        if (delta <= 1.0) {
-                            stepSize = 0.001;
-                        } else if (delta <= 10.0) {
-                            stepSize = 0.01;
-                        } else if (delta <= 100.0) {
-                            stepSize = 0.1;
-                        } else {
-                            stepSize = 1.0;
-                        }
-                    } else {
-                        stepSize = 1.0;
+            // Release the previous height map first to make more memory available for loading the new image
+            closeHeightMap(imageHeightMap);
+            imageHeightMap = null;
+            final ImageHeightMap heightMap = ImageHeightMap.load(selectedFile);
+            if ((heightMap instanceof TiledImageHeightMap) && (! ((TiledImageHeightMap) heightMap).isRangeKnown())) {
+                // Determining the range requires decoding the entire image, which may take a while, so don't do it on
+                // the event dispatch thread
+                final double[] range = ProgressDialog.executeTask(this, new ProgressTask<double[]>() {
+                    @Override
+                    public String getName() {
+                        return "Scanning height map";
                     }
-                    setMinimum(spinnerImageLow, imageMinHeight);
-                    setMaximum(spinnerImageLow, imageMaxHeight);
-                    ((SpinnerNumberModel) spinnerImageLow.getModel()).setStepSize(stepSize);
-                    setMinimum(spinnerImageHigh, imageMinHeight);
-                    setMaximum(spinnerImageHigh, imageMaxHeight);
-                    ((SpinnerNumberModel) spinnerImageHigh.getModel()).setStepSize(stepSize);
-                    setMinimum(spinnerVoidBelow, imageMinHeight);
-                    setMaximum(spinnerVoidBelow, imageMaxHeight);
-                    ((SpinnerNumberModel) spinnerVoidBelow.getModel()).setStepSize(stepSize);
-                    spinnerVoidBelow.setValue(imageLowValue);
-                } finally {
-                    programmaticChange = false;
+
+                    @Override
+                    public double[] execute(ProgressReceiver progressReceiver) throws OperationCancelled {
+                        return ((TiledImageHeightMap) heightMap).getRange(progressReceiver);
+                    }
+                });
+                if (range == null) {
+                    // Cancelled
+                    closeHeightMap(heightMap);
+                    labelImageDimensions.setForeground(Color.RED);
+                    labelImageDimensions.setIcon(ICON_WARNING);
+                    labelImageDimensions.setText("Scanning of image cancelled");
+                    selectedFile = null;
+                    return;
                 }
+            }
+            imageHeightMap = heightMap;
+            final int width = heightMap.getWidth(), height = heightMap.getHeight();
+            programmaticChange = true;
+            try {
+                labelImageDimensions.setForeground(null);
+                labelImageDimensions.setIcon(null);
+                bitDepth = heightMap.getBitDepth();
+                imageMinHeight = heightMap.getMinHeight();
+                imageMaxHeight = heightMap.getMaxHeight();
+                final boolean invert = checkBoxInvert.isSelected();
+                final double[] range = heightMap.getRange();
+                imageLowValue = invert ? (imageMaxHeight - range[1]) : range[0];
+                imageHighValue = invert ? (imageMaxHeight - range[0]) : range[1];
+                final double stepSize;
                 if (heightMap.isFloatingPoint()) {
-                    labelImageLowestLevel.setText(FLOAT_NUMBER_FORMAT.format(imageLowValue));
-                    labelImageHighestLevel.setText(FLOAT_NUMBER_FORMAT.format(imageHighValue));
+                    final double delta = imageHighValue - imageLowValue;
+                    if (delta <= 1.0) {
+                        stepSize = 0.001;
+                    } else if (delta <= 10.0) {
+                        stepSize = 0.01;
+                    } else if (delta <= 100.0) {
+                        stepSize = 0.1;
+                    } else {
+                        stepSize = 1.0;
+                    }
                 } else {
-                    labelImageLowestLevel.setText(INT_NUMBER_FORMAT.format(imageLowValue));
-                    labelImageHighestLevel.setText(INT_NUMBER_FORMAT.format(imageHighValue));
+                    stepSize = 1.0;
                 }
+                setMinimum(spinnerImageLow, imageMinHeight);
+                setMaximum(spinnerImageLow, imageMaxHeight);
+                ((SpinnerNumberModel) spinnerImageLow.getModel()).setStepSize(stepSize);
+                setMinimum(spinnerImageHigh, imageMinHeight);
+                setMaximum(spinnerImageHigh, imageMaxHeight);
+                ((SpinnerNumberModel) spinnerImageHigh.getModel()).setStepSize(stepSize);
+                setMinimum(spinnerVoidBelow, imageMinHeight);
+                setMaximum(spinnerVoidBelow, imageMaxHeight);
+                ((SpinnerNumberModel) spinnerVoidBelow.getModel()).setStepSize(stepSize);
+                spinnerVoidBelow.setValue(imageLowValue);
+            } finally {
+                programmaticChange = false;
+            }
+            if (heightMap.isFloatingPoint()) {
+                labelImageLowestLevel.setText(FLOAT_NUMBER_FORMAT.format(imageLowValue));
+                labelImageHighestLevel.setText(FLOAT_NUMBER_FORMAT.format(imageHighValue));
+            } else {
+                labelImageLowestLevel.setText(INT_NUMBER_FORMAT.format(imageLowValue));
+                labelImageHighestLevel.setText(INT_NUMBER_FORMAT.format(imageHighValue));
+            }
 
-                // Set levels to reasonable defaults
-                selectDefaultVerticalScaling(false);
+            // Set levels to reasonable defaults
+            selectDefaultVerticalScaling(false);
 
-                if (heightMap.isFloatingPoint()) {
-                    labelImageDimensions.setText(String.format("Image size: %,d x %,d, %d bits, lowest value: %,f, highest value: %,f", width, height, bitDepth, imageLowValue, imageHighValue));
-                } else {
-                    labelImageDimensions.setText(String.format("Image size: %,d x %,d, %d bits, lowest value: %,d, highest value: %,d", width, height, bitDepth, Math.round(imageLowValue), Math.round(imageHighValue)));
-                }
-                updateWorldDimensions();
-                updatePreview(true);
+            if (heightMap.isFloatingPoint()) {
+                labelImageDimensions.setText(String.format("Image size: %,d x %,d, %d bits, lowest value: %,f, highest value: %,f", width, height, bitDepth, imageLowValue, imageHighValue));
+            } else {
+                labelImageDimensions.setText(String.format("Image size: %,d x %,d, %d bits, lowest value: %,d, highest value: %,d", width, height, bitDepth, Math.round(imageLowValue), Math.round(imageHighValue)));
             }
+            updateWorldDimensions();
+            updatePreview(true);
+        } catch (ImageHeightMap.UnsupportedImageException e) {
+            labelImageDimensions.setForeground(Color.RED);
+            labelImageDimensions.setIcon(ICON_WARNING);
+            labelImageDimensions.setText(e.getMessage());
+            selectedFile = null;
         } catch (IOException e) {
             logger.error("I/O error loading image " + selectedFile, e);
             labelImageDimensions.setForeground(Color.RED);
@@ -417,7 +431,7 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
     }
 
     private void selectDefaultVerticalScaling(boolean preserveCurrent) {
-        if (image == null) {
+        if (imageHeightMap == null) {
             return;
         }
         final ImportPreset currentPreset = preserveCurrent ? (ImportPreset) comboBoxPreset.getSelectedItem() : null;
@@ -442,12 +456,12 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
     private void updateWorldDimensions() {
         final float dimensionScale = checkBoxMasterDimension.isSelected() ? 16.0f : 1.0f;
         labelExportedOffset.setText(INT_NUMBER_FORMAT.format(Math.round((int) spinnerOffsetX.getValue() * dimensionScale)) + ", " + INT_NUMBER_FORMAT.format(Math.round((int) spinnerOffsetY.getValue() * dimensionScale)));
-        if (image == null) {
+        if (imageHeightMap == null) {
             return;
         }
         final float importScale = (float) spinnerScale.getValue();
-        final int scaledWidth = Math.round(image.getWidth() * (importScale / 100));
-        final int scaledHeight = Math.round(image.getHeight() * (importScale / 100));
+        final int scaledWidth = Math.round(imageHeightMap.getWidth() * (importScale / 100));
+        final int scaledHeight = Math.round(imageHeightMap.getHeight() * (importScale / 100));
         labelWorldDimensions.setText("Scaled size: " + INT_NUMBER_FORMAT.format(scaledWidth) + " x " + INT_NUMBER_FORMAT.format(scaledHeight) + " blocks");
         final int exportedWidth = Math.round(scaledWidth * dimensionScale);
         final int exportedHeight = Math.round(scaledHeight * dimensionScale);
@@ -567,18 +581,22 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
             return;
         }
         importer.setOnlyRaise(checkBoxOnlyRaise.isSelected());
-        ProgressDialog.executeTask(this, new ProgressTask<Void>() {
-            @Override
-            public String getName() {
-                return "Importing height map";
-            }
+        try {
+            ProgressDialog.executeTask(this, new ProgressTask<Void>() {
+                @Override
+                public String getName() {
+                    return "Importing height map";
+                }
 
-            @Override
-            public Void execute(ProgressReceiver progressReceiver) throws OperationCancelled {
-                importer.importToDimension(currentDimension, checkBoxCreateTiles.isSelected(), progressReceiver);
-                return null;
-            }
-        }, NOT_CANCELABLE);
+                @Override
+                public Void execute(ProgressReceiver progressReceiver) throws OperationCancelled {
+                    importer.importToDimension(currentDimension, checkBoxCreateTiles.isSelected(), progressReceiver);
+                    return null;
+                }
+            }, NOT_CANCELABLE);
+        } finally {
+            closeHeightMap(imageHeightMap);
+        }
         Configuration.getInstance().setHeightMapsDirectory(selectedFile.getParentFile());
         currentDimension.clearUndo();
         currentDimension.armSavePoint();
@@ -610,6 +628,25 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
         super.ok();
     }
 
+    @Override
+    protected void cancel() {
+        closeHeightMap(imageHeightMap);
+        super.cancel();
+    }
+
+    /**
+     * Release the resources, such as open files, held by a height map, if it holds any.
+     */
+    private void closeHeightMap(HeightMap heightMap) {
+        if (heightMap instanceof Closeable) {
+            try {
+                ((Closeable) heightMap).close();
+            } catch (IOException e) {
+                logger.error("I/O error closing height map " + heightMap.getName(), e);
+            }
+        }
+    }
+
     private void platformChanged() {
         if (programmaticChange) {
             return;
@@ -693,7 +730,7 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
 
     private void updatePreview(boolean recentre) {
         doLaterOnEventThread(UPDATE_HEIGHT_MAP_PREVIEW, 250, () -> {
-            if (image != null) {
+            if (imageHeightMap != null) {
                 final HeightMapImporter importer = createImporter(false);
                 // No idea how this could ever be null, but it has been observed in the wild:
                 if (importer != null) {
@@ -701,7 +738,7 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
                     if (previewProvider != null) {
                         tiledImageViewer2.setTileProvider(LAYER_HEIGHT_MAP, previewProvider);
                         if (recentre) {
-                            tiledImageViewer2.moveTo(image.getWidth() / 2, image.getHeight() / 2);
+                            tiledImageViewer2.moveTo(imageHeightMap.getWidth() / 2, imageHeightMap.getHeight() / 2);
                         }
                     }
                 }
@@ -1591,7 +1628,7 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
     }//GEN-LAST:event_buttonSelectFileActionPerformed
 
     private void spinnerScaleStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_spinnerScaleStateChanged
-        if (image != null) {
+        if (imageHeightMap != null) {
             updateWorldDimensions();
             updatePreview(false);
         }
@@ -1636,14 +1673,14 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
 
     private void spinnerOffsetXStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_spinnerOffsetXStateChanged
         updateWorldDimensions();
-        if (image != null) {
+        if (imageHeightMap != null) {
             updatePreview(false);
         }
     }//GEN-LAST:event_spinnerOffsetXStateChanged
 
     private void spinnerOffsetYStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_spinnerOffsetYStateChanged
         updateWorldDimensions();
-        if (image != null) {
+        if (imageHeightMap != null) {
             updatePreview(false);
         }
     }//GEN-LAST:event_spinnerOffsetYStateChanged
@@ -1810,7 +1847,7 @@ public class ImportHeightMapDialog extends WorldPainterDialog implements Documen
     private final TileRenderer.LightOrigin lightOrigin;
     private final CustomBiomeManager customBiomeManager;
     private File selectedFile, heightMapDir;
-    private volatile BufferedImage image;
+    private volatile ImageHeightMap imageHeightMap;
     private int bitDepth = 8;
     private double imageLowValue, imageHighValue = 255.0, imageMinHeight, imageMaxHeight = 255.0;
     private boolean programmaticChange = true;
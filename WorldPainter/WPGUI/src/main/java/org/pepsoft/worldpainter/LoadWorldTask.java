@@ -8,7 +8,6 @@ import org.slf4j.LoggerFactory;
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.text.SimpleDateFormat;
@@ -35,7 +34,7 @@ public class LoadWorldTask implements ProgressTask<World2> {
     public World2 execute(ProgressReceiver progressReceiver) {
         try {
             WorldIO worldIO = new WorldIO();
-            worldIO.load(new FileInputStream(file));
+            worldIO.load(file);
             World2 world = worldIO.getWorld();
             if (logger.isDebugEnabled() && (world.getMetadata() != null)) {
                 logMetadataAsDebug(world.getMetadata());
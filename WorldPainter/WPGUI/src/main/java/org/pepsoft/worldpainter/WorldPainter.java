@@ -404,14 +404,18 @@ public class WorldPainter extends WorldPainterView implements MouseMotionListene
         Set<Point> coords = new HashSet<>();
         if (getZoom() < 0) {
             final int shift = -getZoom();
+            final Set<Point> tileCoords = new HashSet<>();
             for (Tile tile: dimension.getTiles()) {
                 for (Layer layer: layers) {
                     if (tile.hasLayer(layer)) {
                         coords.add(new Point(tile.getX() >> shift, tile.getY() >> shift));
+                        tileCoords.add(new Point(tile.getX(), tile.getY()));
                         break;
                     }
                 }
             }
+            // The tile provider caches zoomed out images and does not know that the way the layers are rendered changed
+            tileProvider.invalidateTiles(tileCoords);
         } else {
             for (Tile tile: dimension.getTiles()) {
                 for (Layer layer: layers) {
@@ -421,6 +425,7 @@ public class WorldPainter extends WorldPainterView implements MouseMotionListene
                     }
                 }
             }
+            tileProvider.invalidateTiles(coords);
         }
         if (! coords.isEmpty()) {
             refresh(tileProvider, coords);
@@ -194,7 +194,7 @@ public class MapImportDialog extends WorldPainterDialog {
 
                 // TODO do this for the other dimensions as well
                 final Set<MinecraftCoords> allChunkCoords;
-                try (ChunkStore chunkStore = platformProvider.getChunkStore(platform, worldDir, DIM_NORMAL)) {
+                try (ChunkStore chunkStore = platformProvider.getReadOnlyChunkStore(platform, worldDir, DIM_NORMAL)) {
                     allChunkCoords = chunkStore.getChunkCoords();
                 }
                 stats.chunkCount = allChunkCoords.size();
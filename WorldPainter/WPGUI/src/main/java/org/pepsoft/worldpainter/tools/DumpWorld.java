@@ -3,7 +3,7 @@ package org.pepsoft.worldpainter.tools;
 import org.pepsoft.worldpainter.*;
 import org.pepsoft.worldpainter.layers.Layer;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -15,7 +15,7 @@ import static org.pepsoft.worldpainter.Constants.DIM_NORMAL;
 public class DumpWorld {
     public static void main(String[] args) throws IOException, UnloadableWorldException {
         WorldIO worldIO = new WorldIO();
-        worldIO.load(new FileInputStream(args[0]));
+        worldIO.load(new File(args[0]));
         World2 world = worldIO.getWorld();
         System.out.println("Name: " + world.getName());
         if (world.getMetadata() != null) {